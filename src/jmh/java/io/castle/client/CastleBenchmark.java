@@ -0,0 +1,58 @@
+package io.castle.client;
+
+import com.google.gson.JsonElement;
+import io.castle.client.api.CastleApi;
+import io.castle.client.internal.config.CastleSdkInternalConfiguration;
+import io.castle.client.model.CastleMessage;
+import io.castle.client.model.CastleSdkConfigurationException;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the work done on the request thread before any HTTP call: creating the API client of a login request,
+ * building the JSON of an authenticate call, and hashing the user id for secure mode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CastleBenchmark {
+
+    private Castle castle;
+    private MockHttpServletRequest request;
+    private CastleApi api;
+    private CastleMessage message;
+
+    @Setup
+    public void setUp() throws CastleSdkConfigurationException {
+        castle = new Castle(CastleSdkInternalConfiguration.buildFromConfiguration(
+                BenchmarkFixtures.configurationBuilder().build()));
+        request = BenchmarkFixtures.loginRequest();
+        api = castle.onRequest(request);
+        message = BenchmarkFixtures.loginMessage();
+    }
+
+    @TearDown
+    public void tearDown() {
+        castle.shutdown(1, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public CastleApi onRequest() {
+        return castle.onRequest(request);
+    }
+
+    @Benchmark
+    public JsonElement buildAuthenticateRequest() {
+        return api.buildAuthenticateRequest(message);
+    }
+
+    @Benchmark
+    public String secureUserID() {
+        return castle.secureUserID("user@example.com");
+    }
+}
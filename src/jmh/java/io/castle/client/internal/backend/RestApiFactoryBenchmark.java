@@ -0,0 +1,53 @@
+package io.castle.client.internal.backend;
+
+import io.castle.client.internal.config.CastleConfiguration;
+import io.castle.client.internal.config.CastleConfigurationBuilder;
+import io.castle.client.internal.json.CastleGsonModel;
+import io.castle.client.model.CastleSdkConfigurationException;
+import okhttp3.OkHttpClient;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of getting a backend for each API call: building a new {@link OkRestApiBackend}, as the factory used to do,
+ * against handing out the shared instance.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RestApiFactoryBenchmark {
+
+    private CastleConfiguration configuration;
+    private CastleGsonModel model;
+    private OkHttpClient client;
+    private OkHttpFactory factory;
+
+    @Setup
+    public void setUp() throws CastleSdkConfigurationException {
+        configuration = CastleConfigurationBuilder.defaultConfigBuilder()
+                .withApiSecret("benchmark_secret")
+                .build();
+        model = new CastleGsonModel();
+        client = new OkHttpClient();
+        factory = new OkHttpFactory(configuration, model);
+    }
+
+    @TearDown
+    public void tearDown() {
+        factory.close();
+    }
+
+    @Benchmark
+    public RestApi backendPerCall() {
+        return new OkRestApiBackend(client, model, configuration);
+    }
+
+    @Benchmark
+    public RestApi sharedBackend() {
+        return factory.buildBackend();
+    }
+}
@@ -0,0 +1,88 @@
+package io.castle.client.internal.backend;
+
+import io.castle.client.BenchmarkFixtures;
+import io.castle.client.Castle;
+import io.castle.client.api.CastleApi;
+import io.castle.client.internal.config.CastleSdkInternalConfiguration;
+import io.castle.client.model.AsyncCallbackHandler;
+import io.castle.client.model.CastleMessage;
+import io.castle.client.model.Verdict;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.InetAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * End to end cost of an authenticate and a track call of a login request, against a local {@link MockWebServer}. The
+ * server answers right away, so the results are the client side cost of a call including the HTTP stack.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoundTripBenchmark {
+
+    private MockWebServer server;
+    private Castle castle;
+    private CastleApi api;
+    private CastleMessage message;
+
+    @Setup
+    public void setUp() throws Exception {
+        Logger.getLogger(MockWebServer.class.getName()).setLevel(Level.WARNING);
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if ("/v1/authenticate".equals(request.getPath())) {
+                    return new MockResponse().setBody(BenchmarkFixtures.VERDICT);
+                }
+                return new MockResponse().setResponseCode(204);
+            }
+        });
+        server.start(InetAddress.getByName("127.0.0.1"), 0);
+        castle = new Castle(CastleSdkInternalConfiguration.buildFromConfiguration(
+                BenchmarkFixtures.configurationBuilder()
+                        .withApiBaseUrl(server.url("/").toString())
+                        .build()));
+        api = castle.onRequest(BenchmarkFixtures.loginRequest());
+        message = BenchmarkFixtures.loginMessage();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        castle.shutdown(1, TimeUnit.SECONDS);
+        server.shutdown();
+    }
+
+    @Benchmark
+    public Verdict authenticate() {
+        return api.authenticate(message);
+    }
+
+    @Benchmark
+    public void track() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(1);
+        api.track(message, new AsyncCallbackHandler<Boolean>() {
+            @Override
+            public void onResponse(Boolean response) {
+                done.countDown();
+            }
+
+            @Override
+            public void onException(Exception exception) {
+                done.countDown();
+            }
+        });
+        done.await();
+    }
+}
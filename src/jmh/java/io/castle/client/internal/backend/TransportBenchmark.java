@@ -0,0 +1,82 @@
+package io.castle.client.internal.backend;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import io.castle.client.BenchmarkFixtures;
+import io.castle.client.internal.json.CastleGsonModel;
+import io.castle.client.model.Verdict;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Latency and throughput of a synchronous authenticate call with each {@link CastleBackendProvider}, against a local
+ * {@link MockWebServer} answering right away. {@code latency} samples single calls, {@code throughput} runs calls
+ * from 16 threads sharing the backend. Providers not available on the running JVM fail their setup.
+ * <p>
+ * The mock server only speaks HTTP/1.1 over cleartext, so the HTTP/2 multiplexing of a provider is not measured here.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransportBenchmark {
+
+    @Param({"OKHTTP", "JDK_HTTP_CLIENT"})
+    public CastleBackendProvider backendProvider;
+
+    private MockWebServer server;
+    private OkHttpFactory factory;
+    private RestApi backend;
+    private JsonObject payload;
+
+    @Setup
+    public void setUp() throws Exception {
+        Logger.getLogger(MockWebServer.class.getName()).setLevel(Level.WARNING);
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setBody(BenchmarkFixtures.VERDICT);
+            }
+        });
+        server.start(InetAddress.getByName("127.0.0.1"), 0);
+        factory = new OkHttpFactory(BenchmarkFixtures.configurationBuilder()
+                .withApiBaseUrl(server.url("/").toString())
+                .withTimeout(2000)
+                .withBackendProvider(backendProvider)
+                .build(), new CastleGsonModel());
+        backend = factory.buildBackend();
+        payload = new JsonObject();
+        payload.add("event", new JsonPrimitive("$login.succeeded"));
+        payload.add("user_id", new JsonPrimitive("12345"));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        factory.close();
+        server.shutdown();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Verdict latency() {
+        return backend.sendAuthenticateSync(payload);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Threads(16)
+    public Verdict throughput() {
+        return backend.sendAuthenticateSync(payload);
+    }
+}
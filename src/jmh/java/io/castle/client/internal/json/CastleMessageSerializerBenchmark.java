@@ -0,0 +1,92 @@
+package io.castle.client.internal.json;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
+import io.castle.client.BenchmarkFixtures;
+import io.castle.client.internal.config.CastleConfiguration;
+import io.castle.client.internal.utils.CastleContextBuilder;
+import io.castle.client.model.CastleContext;
+import io.castle.client.model.CastleMessage;
+import io.castle.client.model.CastleSdkConfigurationException;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of serializing a login message with its request context: through {@link CastleMessageSerializer} into a JSON
+ * tree, as the tree based API calls do, against streaming the {@link CastleMessagePayload} as the request body does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CastleMessageSerializerBenchmark {
+
+    private Gson gson;
+    private CastleMessage message;
+    private CastleMessagePayload payload;
+
+    @Setup
+    public void setUp() throws CastleSdkConfigurationException {
+        CastleConfiguration configuration = BenchmarkFixtures.configurationBuilder().build();
+        CastleGsonModel model = new CastleGsonModel();
+        gson = model.getGson();
+        CastleContext context = new CastleContextBuilder(configuration, model)
+                .fromHttpServletRequest(BenchmarkFixtures.loginRequest())
+                .build();
+        JsonObject contextJson = gson.toJsonTree(context).getAsJsonObject();
+        message = BenchmarkFixtures.loginMessage();
+        payload = new CastleMessagePayload(message, contextJson, "2019-01-02T03:04:05.678Z");
+    }
+
+    @Benchmark
+    public JsonElement messageToJsonTree() {
+        return gson.toJsonTree(message);
+    }
+
+    @Benchmark
+    public JsonElement payloadToJsonTree() {
+        return payload.toJson(gson);
+    }
+
+    @Benchmark
+    public String payloadToString() {
+        return payload.toJson(gson).toString();
+    }
+
+    @Benchmark
+    public void payloadStreamed() throws IOException {
+        JsonWriter writer = new JsonWriter(NullWriter.INSTANCE);
+        payload.write(writer, gson);
+        writer.flush();
+    }
+
+    /**
+     * Writer discarding its input, standing for the socket.
+     */
+    private static class NullWriter extends Writer {
+        private static final NullWriter INSTANCE = new NullWriter();
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+        }
+
+        @Override
+        public void write(String string, int offset, int length) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package io.castle.client.internal.json;
+
+import io.castle.client.BenchmarkFixtures;
+import io.castle.client.model.Verdict;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of parsing an authenticate response with risk policy, signals and policy, with and without keeping the full
+ * response as the internal tree of the verdict.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VerdictReaderBenchmark {
+
+    @Param({"false", "true"})
+    public boolean retainInternal;
+
+    private VerdictReader reader;
+
+    @Setup
+    public void setUp() {
+        reader = new VerdictReader(new CastleGsonModel().getGson(), retainInternal);
+    }
+
+    @Benchmark
+    public Verdict read() throws IOException {
+        return reader.read(new StringReader(BenchmarkFixtures.VERDICT));
+    }
+}
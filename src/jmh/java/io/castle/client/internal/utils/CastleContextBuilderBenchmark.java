@@ -0,0 +1,50 @@
+package io.castle.client.internal.utils;
+
+import io.castle.client.BenchmarkFixtures;
+import io.castle.client.internal.config.CastleConfiguration;
+import io.castle.client.internal.json.CastleGsonModel;
+import io.castle.client.model.CastleContext;
+import io.castle.client.model.CastleSdkConfigurationException;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of extracting the context of a browser login request, with 21 headers and cookies, and of converting it to the
+ * JSON tree kept by the API client.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CastleContextBuilderBenchmark {
+
+    private CastleConfiguration configuration;
+    private CastleGsonModel model;
+    private MockHttpServletRequest request;
+
+    @Setup
+    public void setUp() throws CastleSdkConfigurationException {
+        configuration = BenchmarkFixtures.configurationBuilder().build();
+        model = new CastleGsonModel();
+        request = BenchmarkFixtures.loginRequest();
+    }
+
+    @Benchmark
+    public CastleContext fromHttpServletRequest() {
+        return new CastleContextBuilder(configuration, model)
+                .fromHttpServletRequest(request)
+                .build();
+    }
+
+    @Benchmark
+    public Object fromHttpServletRequestToJson() {
+        CastleContext context = new CastleContextBuilder(configuration, model)
+                .fromHttpServletRequest(request)
+                .build();
+        return model.getGson().toJsonTree(context);
+    }
+}
@@ -0,0 +1,65 @@
+package io.castle.client.internal.utils;
+
+import com.google.gson.JsonObject;
+import io.castle.client.BenchmarkFixtures;
+import io.castle.client.internal.config.CastleConfiguration;
+import io.castle.client.internal.json.CastleGsonModel;
+import io.castle.client.model.CastleContext;
+import io.castle.client.model.CastleSdkConfigurationException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@code mergeContext}: merging a few application values into the context of a browser login request, once
+ * or in a chain of calls each adding one value. The context is normalized once, as {@link ContextSnapshot} does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContextMergeBenchmark {
+
+    private ContextMerge merge;
+    private JsonObject context;
+    private JsonObject addition;
+    private JsonObject locale;
+    private JsonObject session;
+    private JsonObject deviceAddition;
+
+    @Setup
+    public void setUp() throws CastleSdkConfigurationException {
+        CastleConfiguration configuration = BenchmarkFixtures.configurationBuilder().build();
+        CastleGsonModel model = new CastleGsonModel();
+        CastleContext castleContext = new CastleContextBuilder(configuration, model)
+                .fromHttpServletRequest(BenchmarkFixtures.loginRequest())
+                .build();
+        context = ContextMerge.normalize(model.getGson().toJsonTree(castleContext).getAsJsonObject());
+        addition = new JsonObject();
+        addition.addProperty("locale", "en-US");
+        addition.addProperty("timezone", "Europe/Paris");
+        JsonObject device = new JsonObject();
+        device.addProperty("id", "device-42");
+        device.addProperty("manufacturer", "Apple");
+        addition.add("device", device);
+        locale = new JsonObject();
+        locale.addProperty("locale", "en-US");
+        session = new JsonObject();
+        session.addProperty("session_id", "4f8a2b1c");
+        deviceAddition = new JsonObject();
+        deviceAddition.add("device", device);
+        merge = new ContextMerge();
+    }
+
+    @Benchmark
+    public JsonObject merge() {
+        return merge.mergeNormalized(context, addition);
+    }
+
+    @Benchmark
+    public JsonObject chainedMerge() {
+        return merge.mergeNormalized(merge.mergeNormalized(merge.mergeNormalized(context, locale), session), deviceAddition);
+    }
+}
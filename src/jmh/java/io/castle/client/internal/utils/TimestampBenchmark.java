@@ -0,0 +1,55 @@
+package io.castle.client.internal.utils;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of formatting the {@code sent_at} timestamp: a {@link SimpleDateFormat} confined to the calling thread, as the
+ * shared formatter should have been used, against {@link Timestamp}. Run with several threads ({@code -t 4}) to see
+ * the effect of contention on the cached prefix.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimestampBenchmark {
+
+    @State(Scope.Thread)
+    public static class LegacyFormat {
+        private DateFormat dateFormat;
+
+        @Setup
+        public void setUp() {
+            dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", new Locale("en", "US", "POSIX"));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Buffer {
+        private final char[] chars = new char[Timestamp.LENGTH];
+    }
+
+    @Benchmark
+    public String simpleDateFormat(LegacyFormat state) {
+        state.dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return state.dateFormat.format(new Date());
+    }
+
+    @Benchmark
+    public String timestamp() {
+        return Timestamp.timestamp();
+    }
+
+    @Benchmark
+    public char[] timestampIntoBuffer(Buffer buffer) {
+        Timestamp.format(System.currentTimeMillis(), buffer.chars, 0);
+        return buffer.chars;
+    }
+}
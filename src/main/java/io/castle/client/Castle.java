@@ -1,18 +1,27 @@
 package io.castle.client;
 
-import com.google.common.hash.HashFunction;
 import io.castle.client.api.CastleApi;
+import io.castle.client.api.CastleExtendedApi;
 import io.castle.client.internal.CastleApiImpl;
+import io.castle.client.internal.backend.TrackBatcher;
 import io.castle.client.internal.config.CastleConfiguration;
 import io.castle.client.internal.config.CastleConfigurationBuilder;
 import io.castle.client.internal.config.CastleSdkInternalConfiguration;
 import io.castle.client.internal.json.CastleGsonModel;
 import io.castle.client.internal.utils.CastleContextBuilder;
 import io.castle.client.model.CastleSdkConfigurationException;
+import io.castle.client.model.CircuitBreakerState;
+import io.castle.client.model.HedgeStats;
+import io.castle.client.model.ResponseCacheStats;
+import io.castle.client.model.RetryStats;
+import io.castle.client.model.SpoolStats;
+import io.castle.client.model.TrackBatchStats;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.servlet.http.HttpServletRequest;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Creates an instance of the Castle SDK
@@ -186,6 +195,53 @@ public class Castle {
         return new CastleApiImpl(request, doNotTrack, internalConfiguration);
     }
 
+    /**
+     * Creates an API client instance for sending a request, with per-call deadlines, a future based view and a bulk
+     * view.
+     *
+     * @return A new instance of the API client {@code CastleApiImpl}
+     * @see #client()
+     */
+    public CastleExtendedApi extendedClient() {
+        return extendedClient(false);
+    }
+
+    /**
+     * Creates an API client instance for sending a request, with per-call deadlines, a future based view and a bulk
+     * view.
+     *
+     * @param doNotTrack when true, the API calls will be not realized and default values will be provided
+     * @return A new instance of the API client {@code CastleApiImpl}
+     * @see #client(boolean)
+     */
+    public CastleExtendedApi extendedClient(boolean doNotTrack) {
+        return new CastleApiImpl(internalConfiguration, doNotTrack);
+    }
+
+    /**
+     * Create an extended API context for the given request.
+     * Tracking is ON by default.
+     *
+     * @param request The request for data extraction
+     * @return a API reference to make backend calls to the castle.io rest api.
+     * @see #onRequest(HttpServletRequest)
+     */
+    public CastleExtendedApi extendedClient(HttpServletRequest request) {
+        return extendedClient(request, false);
+    }
+
+    /**
+     * Create an extended API context for the given request.
+     *
+     * @param request    The request for data extraction
+     * @param doNotTrack when true, the API calls will be not realized and default values will be provided
+     * @return a API reference to make backend calls to the castle.io rest api.
+     * @see #onRequest(HttpServletRequest, boolean)
+     */
+    public CastleExtendedApi extendedClient(HttpServletRequest request, boolean doNotTrack) {
+        return new CastleApiImpl(request, doNotTrack, internalConfiguration);
+    }
+
     /**
      * Gets the SDK's configuration stored in an instance of {@code CastleConfiguration}.
      *
@@ -218,7 +274,87 @@ public class Castle {
      * @return the HMAC of the userId
      */
     public String secureUserID(String userId) {
-        HashFunction hashFunction = internalConfiguration.getSecureHashFunction();
-        return hashFunction.hashString(userId,com.google.common.base.Charsets.UTF_8).toString();
+        return internalConfiguration.getSecureUserIdSigner().sign(userId);
+    }
+
+    /**
+     * Calculate the secure userId HMAC of several user IDs at once, for instance when rendering a page listing users.
+     * @param userIds raw user Ids
+     * @return the HMAC of each distinct userId, in the order of the userIds
+     */
+    public Map<String, String> secureUserIDs(Iterable<String> userIds) {
+        return internalConfiguration.getSecureUserIdSigner().signAll(userIds);
+    }
+
+    /**
+     * Gets the counters of the track batch pipeline.
+     *
+     * @return a snapshot of the queue depth, flush latency and drop counters, or null when track batching is disabled
+     */
+    public TrackBatchStats getTrackBatchStats() {
+        TrackBatcher trackBatcher = internalConfiguration.getTrackBatcher();
+        if (trackBatcher == null) {
+            return null;
+        }
+        return trackBatcher.getStats();
+    }
+
+    /**
+     * Gets the state of the circuit breaker guarding the authenticate endpoint.
+     *
+     * @return the current state, or null when the circuit breaker is disabled
+     */
+    public CircuitBreakerState getCircuitBreakerState() {
+        return internalConfiguration.getRestApiFactory().getCircuitBreakerState();
+    }
+
+    /**
+     * Gets the counters of the request retries.
+     *
+     * @return a snapshot of the retry and give up counters, or null when retries are disabled
+     */
+    public RetryStats getRetryStats() {
+        return internalConfiguration.getRestApiFactory().getRetryStats();
+    }
+
+    /**
+     * Gets the counters of the hedged authenticate requests.
+     *
+     * @return a snapshot of the hedge counters and the current hedge delay, or null when hedging is disabled
+     */
+    public HedgeStats getHedgeStats() {
+        return internalConfiguration.getRestApiFactory().getHedgeStats();
+    }
+
+    /**
+     * Gets the counters of the on-disk spool of failed track and identify requests.
+     *
+     * @return a snapshot of the pending, spooled, replayed and discarded requests, or null when spooling is disabled
+     */
+    public SpoolStats getSpoolStats() {
+        return internalConfiguration.getRestApiFactory().getSpoolStats();
+    }
+
+    /**
+     * Gets the counters of the cache of the device, user devices and review lookups.
+     *
+     * @return a snapshot of the hits, misses, evictions and invalidations, or null when caching is disabled
+     */
+    public ResponseCacheStats getResponseCacheStats() {
+        return internalConfiguration.getRestApiFactory().getResponseCacheStats();
+    }
+
+    /**
+     * Sends any queued track events, stops the background work of this SDK instance and releases its HTTP
+     * connections and threads.
+     * <p>
+     * The SDK instance must not be used after it has been shut down.
+     *
+     * @param timeout maximum time to wait for pending requests
+     * @param unit    unit of the timeout
+     * @return true if all pending requests completed in time
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) {
+        return internalConfiguration.shutdown(timeout, unit);
     }
 }
@@ -0,0 +1,283 @@
+package io.castle.client.api;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.gson.JsonElement;
+import io.castle.client.model.*;
+
+import javax.annotation.Nullable;
+
+/**
+ * Non-blocking counterpart of {@link CastleApi}.
+ * <p>
+ * Every call is sent through the asynchronous HTTP layer and returns a {@link ListenableFuture} right away, so that
+ * Castle calls can be composed with other I/O without holding a thread while waiting for the Castle API.
+ * A future fails with the same exception its sync counterpart would have thrown.
+ * {@code ListenableFuture} is used because the SDK still runs on Java 7; on Java 8 it can be adapted to a
+ * {@code CompletableFuture} with a {@link com.google.common.util.concurrent.FutureCallback}.
+ * <p>
+ * Instances are obtained from {@link CastleExtendedApi#async()} and share the context and the doNotTrack value of the
+ * {@code CastleApi} they were created from. When doNotTrack is set to true, authenticate, track and identify futures
+ * are completed immediately without making any request, as described in {@link CastleApi}.
+ */
+public interface CastleAsyncApi {
+
+    /**
+     * Merges an additional context object with the context object associated with this {@code CastleAsyncApi}.
+     *
+     * @param additionalContext client defined model, takes null
+     * @return an API reference with the merged context values
+     * @see CastleApi#mergeContext(Object)
+     */
+    CastleAsyncApi mergeContext(Object additionalContext);
+
+    /**
+     * Sets the doNotTrack boolean of a new instance of {@code CastleAsyncApi}
+     *
+     * @param doNotTrack boolean representing the value that the doNotTrack private field of the new instance
+     * @return a {@code castleAsyncApi} reference whose doNotTrack private field is set to the doNotTrack parameter
+     */
+    CastleAsyncApi doNotTrack(boolean doNotTrack);
+
+    /**
+     * Sets the call timeout of the requests made through a new instance of {@code CastleAsyncApi}.
+     *
+     * @param callTimeout milliseconds after which a call times out, 0 for no call timeout
+     * @return a {@code castleAsyncApi} reference sharing the context and doNotTrack value of this instance
+     * @see CastleExtendedApi#callTimeout(int)
+     */
+    CastleAsyncApi callTimeout(int callTimeout);
+
+    /**
+     * Makes an async POST request to the authenticate endpoint containing all required parameters.
+     *
+     * @param event  a String representing an event understood by the Castle API
+     * @param userId a String representing a user ID associated to an authentication attempt
+     * @return a future verdict, from the Castle API or from the client's
+     * {@link io.castle.client.model.AuthenticateFailoverStrategy}
+     * @see <a href="https://api.castle.io/docs#authenticate">The docs</a>
+     */
+    ListenableFuture<Verdict> authenticate(String event, String userId);
+
+    /**
+     * Makes an async POST request to the authenticate endpoint containing required and optional parameters.
+     *
+     * @param event      a String representing an event understood by the Castle API
+     * @param userId     a String representing a user ID associated to an authentication attempt
+     * @param properties object for recording additional information connected to the event, takes null
+     * @param traits     object for recording additional information connected to the user, takes null
+     * @return a future verdict, from the Castle API or from the client's
+     * {@link io.castle.client.model.AuthenticateFailoverStrategy}
+     * @see <a href="https://api.castle.io/docs#authenticate">The docs</a>
+     */
+    ListenableFuture<Verdict> authenticate(String event, String userId, @Nullable Object properties, @Nullable Object traits);
+
+    /**
+     * Makes an async POST request to the authenticate endpoint containing required and optional parameters.
+     *
+     * @param message Event parameters
+     * @return a future verdict, from the Castle API or from the client's
+     * {@link io.castle.client.model.AuthenticateFailoverStrategy}
+     */
+    ListenableFuture<Verdict> authenticate(CastleMessage message);
+
+    /**
+     * Sends a request built with {@link CastleApi#buildAuthenticateRequest(CastleMessage)}.
+     *
+     * @param request the authenticate request
+     * @return a future verdict
+     */
+    ListenableFuture<Verdict> sendAuthenticateRequest(JsonElement request);
+
+    /**
+     * Makes an async POST request to the track endpoint containing all required parameters.
+     *
+     * @param event a String representing an event understood by the Castle API
+     * @return a future telling if the request was accepted
+     * @see <a href="https://api.castle.io/docs#track">The docs</a>
+     */
+    ListenableFuture<Boolean> track(String event);
+
+    /**
+     * Makes an async POST request to the track endpoint containing all required parameters and a user ID.
+     *
+     * @param event  a String representing an event understood by the Castle API
+     * @param userId a String representing a user ID, takes null
+     * @return a future telling if the request was accepted
+     * @see <a href="https://api.castle.io/docs#track">The docs</a>
+     */
+    ListenableFuture<Boolean> track(String event, @Nullable String userId);
+
+    /**
+     * Makes an async POST request to the track endpoint containing a user ID and a review ID.
+     *
+     * @param event    a String representing an event understood by the Castle API
+     * @param userId   a String representing a user ID, takes null
+     * @param reviewId a String representing a review ID, takes null
+     * @return a future telling if the request was accepted
+     * @see <a href="https://api.castle.io/docs#track">The docs</a>
+     */
+    ListenableFuture<Boolean> track(String event, @Nullable String userId, @Nullable String reviewId);
+
+    /**
+     * Makes an async POST request to the track endpoint with event properties.
+     *
+     * @param event      a String representing an event understood by the Castle API
+     * @param userId     a String representing a user ID, takes null
+     * @param reviewId   a String representing a review ID, takes null
+     * @param properties object for recording additional information connected to the event, takes null
+     * @return a future telling if the request was accepted
+     * @see <a href="https://api.castle.io/docs#track">The docs</a>
+     */
+    ListenableFuture<Boolean> track(String event, @Nullable String userId, @Nullable String reviewId, @Nullable Object properties);
+
+    /**
+     * Makes an async POST request to the track endpoint with event properties and user traits.
+     *
+     * @param event      a String representing an event understood by the Castle API
+     * @param userId     a String representing a user ID, takes null
+     * @param reviewId   a String representing a review ID, takes null
+     * @param properties object for recording additional information connected to the event, takes null
+     * @param traits     object for recording additional information connected to the user, takes null
+     * @return a future telling if the request was accepted
+     * @see <a href="https://api.castle.io/docs#track">The docs</a>
+     */
+    ListenableFuture<Boolean> track(String event, @Nullable String userId, @Nullable String reviewId, @Nullable Object properties, @Nullable Object traits);
+
+    /**
+     * Makes an async POST request to the track endpoint.
+     *
+     * @param message Event parameters
+     * @return a future telling if the request was accepted
+     */
+    ListenableFuture<Boolean> track(CastleMessage message);
+
+    /**
+     * Sends a request built with {@link CastleApi#buildTrackRequest(CastleMessage)}.
+     *
+     * @param request the track request
+     * @return a future telling if the request was accepted
+     */
+    ListenableFuture<Boolean> sendTrackRequest(JsonElement request);
+
+    /**
+     * Makes an async POST request to the identify endpoint.
+     *
+     * @param userId user unique ID
+     * @return a future telling if the request was accepted
+     * @see <a href="https://api.castle.io/docs#identify">The docs</a>
+     */
+    ListenableFuture<Boolean> identify(String userId);
+
+    /**
+     * Makes an async POST request to the identify endpoint with user traits.
+     *
+     * @param userId user unique ID
+     * @param traits object for recording additional information connected to the user, takes null
+     * @return a future telling if the request was accepted
+     * @see <a href="https://api.castle.io/docs#identify">The docs</a>
+     */
+    ListenableFuture<Boolean> identify(String userId, @Nullable Object traits);
+
+    /**
+     * Makes an async POST request to the identify endpoint with user traits.
+     *
+     * @param userId user unique ID
+     * @param traits object for recording additional information connected to the user, takes null
+     * @param active is this call realized as part of an active session of the user
+     * @return a future telling if the request was accepted
+     * @see <a href="https://api.castle.io/docs#identify">The docs</a>
+     */
+    ListenableFuture<Boolean> identify(String userId, @Nullable Object traits, boolean active);
+
+    /**
+     * Makes an async GET request to the review endpoint.
+     *
+     * @param reviewId String representing a review id
+     * @return a future review model object, null when not found
+     * @see <a href="https://api.castle.io/docs#review">The docs</a>
+     */
+    ListenableFuture<Review> review(String reviewId);
+
+    /**
+     * Makes an async DELETE request to the privacy endpoint.
+     *
+     * @param userId String representing a user id
+     * @return a future that is true when the user was removed, null when not found
+     * @see <a href="https://castle.io/docs/gdpr_apis#user-data-purge-requests">The docs</a>
+     */
+    ListenableFuture<Boolean> removeUser(String userId);
+
+    /**
+     * Makes an async PUT request to the approve device endpoint.
+     *
+     * @param deviceToken string representing the device to approve
+     * @return a future device model object
+     */
+    ListenableFuture<CastleUserDevice> approve(String deviceToken);
+
+    /**
+     * Makes an async PUT request to the report device endpoint.
+     *
+     * @param deviceToken string representing the device to report
+     * @return a future device model object
+     */
+    ListenableFuture<CastleUserDevice> report(String deviceToken);
+
+    /**
+     * Makes an async GET request to the user devices endpoint.
+     *
+     * @param userId user unique ID
+     * @return a future devices model object
+     */
+    ListenableFuture<CastleUserDevices> userDevices(String userId);
+
+    /**
+     * Makes an async PUT request to the archive devices endpoint.
+     *
+     * @param userId user unique ID
+     * @return a future user model object
+     */
+    ListenableFuture<CastleUser> archiveUserDevices(String userId);
+
+    /**
+     * Makes an async GET request to the device endpoint.
+     *
+     * @param deviceToken string representing the device to get
+     * @return a future device model object
+     */
+    ListenableFuture<CastleUserDevice> device(String deviceToken);
+
+    /**
+     * Makes an async POST request to the impersonate endpoint.
+     *
+     * @param userId user unique ID
+     * @return a future success message
+     */
+    ListenableFuture<CastleSuccess> impersonateStart(String userId);
+
+    /**
+     * Makes an async POST request to the impersonate endpoint.
+     *
+     * @param userId       user unique ID
+     * @param impersonator description of impersonator, e.g., email
+     * @return a future success message
+     */
+    ListenableFuture<CastleSuccess> impersonateStart(String userId, String impersonator);
+
+    /**
+     * Makes an async DELETE request to the impersonate endpoint.
+     *
+     * @param userId user unique ID
+     * @return a future success message
+     */
+    ListenableFuture<CastleSuccess> impersonateEnd(String userId);
+
+    /**
+     * Makes an async DELETE request to the impersonate endpoint.
+     *
+     * @param userId       user unique ID
+     * @param impersonator description of impersonator, e.g., email
+     * @return a future success message
+     */
+    ListenableFuture<CastleSuccess> impersonateEnd(String userId, String impersonator);
+}
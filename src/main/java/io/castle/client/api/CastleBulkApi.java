@@ -0,0 +1,90 @@
+package io.castle.client.api;
+
+import io.castle.client.model.BulkItemHandler;
+import io.castle.client.model.BulkResult;
+import io.castle.client.model.CastleUser;
+import io.castle.client.model.CastleUserDevice;
+
+import java.util.Iterator;
+
+/**
+ * Applies the device calls of {@link CastleApi} to many devices or users.
+ * <p>
+ * Items are taken from their iterator one at a time and sent with the async requests of the SDK, keeping at most a
+ * maximum number of requests in flight and starting at most a maximum number of requests per second. The outcome of
+ * each item is handed to a {@link BulkItemHandler} as soon as it is known, so that only the items in flight are held
+ * in memory.
+ * <p>
+ * Each method returns once every item was sent and all their outcomes were handed to the handler, or early when the
+ * calling thread is interrupted. The items not sent when interrupted are left in the iterator.
+ */
+public interface CastleBulkApi {
+
+    /**
+     * Approves devices.
+     *
+     * @param deviceTokens tokens of the devices to approve
+     * @param handler      receives the device returned for each token, or its failure
+     * @return the number of devices approved and failed
+     * @see CastleApi#approve(String)
+     */
+    BulkResult approve(Iterator<String> deviceTokens, BulkItemHandler<CastleUserDevice> handler);
+
+    /**
+     * Approves devices.
+     *
+     * @see #approve(Iterator, BulkItemHandler)
+     */
+    BulkResult approve(Iterable<String> deviceTokens, BulkItemHandler<CastleUserDevice> handler);
+
+    /**
+     * Reports devices.
+     *
+     * @param deviceTokens tokens of the devices to report
+     * @param handler      receives the device returned for each token, or its failure
+     * @return the number of devices reported and failed
+     * @see CastleApi#report(String)
+     */
+    BulkResult report(Iterator<String> deviceTokens, BulkItemHandler<CastleUserDevice> handler);
+
+    /**
+     * Reports devices.
+     *
+     * @see #report(Iterator, BulkItemHandler)
+     */
+    BulkResult report(Iterable<String> deviceTokens, BulkItemHandler<CastleUserDevice> handler);
+
+    /**
+     * Gets devices.
+     *
+     * @param deviceTokens tokens of the devices to get
+     * @param handler      receives the device of each token, or its failure
+     * @return the number of devices got and failed
+     * @see CastleApi#device(String)
+     */
+    BulkResult device(Iterator<String> deviceTokens, BulkItemHandler<CastleUserDevice> handler);
+
+    /**
+     * Gets devices.
+     *
+     * @see #device(Iterator, BulkItemHandler)
+     */
+    BulkResult device(Iterable<String> deviceTokens, BulkItemHandler<CastleUserDevice> handler);
+
+    /**
+     * Archives the devices of users.
+     *
+     * @param userIds ids of the users
+     * @param handler receives the user returned for each id, or its failure
+     * @return the number of users whose devices were archived, and of failures
+     * @see CastleApi#archiveUserDevices(String)
+     */
+    BulkResult archiveUserDevices(Iterator<String> userIds, BulkItemHandler<CastleUser> handler);
+
+    /**
+     * Archives the devices of users.
+     *
+     * @see #archiveUserDevices(Iterator, BulkItemHandler)
+     */
+    BulkResult archiveUserDevices(Iterable<String> userIds, BulkItemHandler<CastleUser> handler);
+}
@@ -0,0 +1,50 @@
+package io.castle.client.api;
+
+/**
+ * {@link CastleApi} with per-call deadlines, a future based view and a bulk view.
+ * <p>
+ * These methods are kept out of {@code CastleApi} so that existing implementations and mocks of that interface keep
+ * compiling, and out of the return types of {@link io.castle.client.Castle#onRequest} and
+ * {@link io.castle.client.Castle#client}, so that code compiled against earlier versions keeps linking. Instances are
+ * created by {@link io.castle.client.Castle#extendedClient}.
+ */
+public interface CastleExtendedApi extends CastleApi {
+
+    @Override
+    CastleExtendedApi mergeContext(Object additionalContext);
+
+    @Override
+    CastleExtendedApi doNotTrack(boolean doNotTrack);
+
+    /**
+     * Sets the call timeout of the requests made through a new instance of {@code CastleExtendedApi}.
+     * <p>
+     * The call timeout bounds a whole call to the Castle API and replaces the call timeout configured for its
+     * endpoint, so that a deadline can be set for a single call, for example the authenticate call of a login request.
+     * Connect, read and write timeouts keep their configured values.
+     *
+     * @param callTimeout milliseconds after which a call times out, 0 for no call timeout
+     * @return a {@code castleExtendedApi} reference sharing the context and doNotTrack value of this instance
+     */
+    CastleExtendedApi callTimeout(int callTimeout);
+
+    /**
+     * Gets a view of this {@code CastleExtendedApi} whose calls return futures instead of blocking or taking callbacks.
+     * <p>
+     * The returned instance shares the context, the doNotTrack value and the call timeout of this one.
+     *
+     * @return a {@code castleAsyncApi} making the same calls as this instance
+     */
+    CastleAsyncApi async();
+
+    /**
+     * Gets a view of this {@code CastleExtendedApi} applying the device calls to many devices or users at once.
+     * <p>
+     * The returned instance shares the call timeout of this one.
+     *
+     * @param maxConcurrency maximum number of requests in flight, must be positive
+     * @param maxRate        maximum number of requests started per second, 0 for no limit
+     * @return a {@code castleBulkApi} sending the requests of many items asynchronously
+     */
+    CastleBulkApi bulk(int maxConcurrency, int maxRate);
+}
@@ -3,11 +3,16 @@ package io.castle.client.internal;
 import com.google.common.base.Preconditions;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import io.castle.client.api.CastleApi;
+import io.castle.client.api.CastleAsyncApi;
+import io.castle.client.api.CastleBulkApi;
+import io.castle.client.api.CastleExtendedApi;
 import io.castle.client.internal.backend.RestApi;
+import io.castle.client.internal.backend.TrackBatcher;
 import io.castle.client.internal.config.CastleSdkInternalConfiguration;
+import io.castle.client.internal.json.CastleMessagePayload;
 import io.castle.client.internal.utils.CastleContextBuilder;
 import io.castle.client.internal.utils.ContextMerge;
+import io.castle.client.internal.utils.ContextSnapshot;
 import io.castle.client.internal.utils.Timestamp;
 import io.castle.client.internal.utils.VerdictBuilder;
 import io.castle.client.model.*;
@@ -15,29 +20,38 @@ import io.castle.client.model.*;
 import javax.annotation.Nullable;
 import javax.servlet.http.HttpServletRequest;
 
-public class CastleApiImpl implements CastleApi {
+public class CastleApiImpl implements CastleExtendedApi {
 
     private final boolean doNotTrack;
     private final CastleSdkInternalConfiguration configuration;
-    private final JsonObject contextJson;
+    /**
+     * Context of the calls, null when the instance was not created for a request.
+     */
+    private final ContextSnapshot context;
+    /**
+     * Call timeout replacing the configured ones, negative when not set.
+     */
+    private final int callTimeout;
 
     public CastleApiImpl(HttpServletRequest request, boolean doNotTrack, CastleSdkInternalConfiguration configuration) {
         this.doNotTrack = doNotTrack;
         this.configuration = configuration;
-        CastleContext castleContext = buildContext(request);
-        this.contextJson = configuration.getModel().getGson().toJsonTree(castleContext).getAsJsonObject();
+        this.context = new ContextSnapshot(buildContext(request), configuration.getModel().getGson());
+        this.callTimeout = -1;
     }
 
     public CastleApiImpl(CastleSdkInternalConfiguration configuration, boolean doNotTrack) {
         this.doNotTrack = doNotTrack;
         this.configuration = configuration;
-        this.contextJson = null;
+        this.context = null;
+        this.callTimeout = -1;
     }
 
-    private CastleApiImpl(boolean doNotTrack, CastleSdkInternalConfiguration configuration, JsonObject contextJson) {
+    private CastleApiImpl(boolean doNotTrack, CastleSdkInternalConfiguration configuration, ContextSnapshot context, int callTimeout) {
         this.doNotTrack = doNotTrack;
         this.configuration = configuration;
-        this.contextJson = contextJson;
+        this.context = context;
+        this.callTimeout = callTimeout;
     }
 
     private CastleContext buildContext(HttpServletRequest request) {
@@ -49,18 +63,59 @@ public class CastleApiImpl implements CastleApi {
     }
 
     @Override
-    public CastleApi mergeContext(Object additionalContext) {
+    public CastleExtendedApi mergeContext(Object additionalContext) {
         JsonObject contextToMerge = null;
         if (additionalContext != null) {
             contextToMerge = configuration.getModel().getGson().toJsonTree(additionalContext).getAsJsonObject();
         }
-        JsonObject mergedContext = new ContextMerge().merge(this.contextJson, contextToMerge);
-        return new CastleApiImpl(doNotTrack, configuration, mergedContext);
+        ContextSnapshot mergedContext = context == null
+                ? ContextSnapshot.of(new ContextMerge().merge(null, contextToMerge))
+                : context.merge(contextToMerge);
+        return new CastleApiImpl(doNotTrack, configuration, mergedContext, callTimeout);
     }
 
     @Override
-    public CastleApi doNotTrack(boolean doNotTrack) {
-        return new CastleApiImpl(doNotTrack, configuration, contextJson);
+    public CastleExtendedApi doNotTrack(boolean doNotTrack) {
+        return new CastleApiImpl(doNotTrack, configuration, context, callTimeout);
+    }
+
+    @Override
+    public CastleExtendedApi callTimeout(int callTimeout) {
+        Preconditions.checkArgument(callTimeout >= 0, "The call timeout can not be negative");
+        return new CastleApiImpl(doNotTrack, configuration, context, callTimeout);
+    }
+
+    @Override
+    public CastleAsyncApi async() {
+        return new CastleAsyncApiImpl(this);
+    }
+
+    @Override
+    public CastleBulkApi bulk(int maxConcurrency, int maxRate) {
+        return new CastleBulkApiImpl(this, maxConcurrency, maxRate);
+    }
+
+    boolean isDoNotTrack() {
+        return doNotTrack;
+    }
+
+    CastleSdkInternalConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * Gets the context of the calls, building its JSON tree on first use.
+     */
+    JsonObject getContextJson() {
+        return context == null ? null : context.toJson();
+    }
+
+    /**
+     * Gets the backend for the calls of this instance, with its call timeout when one was set.
+     */
+    RestApi restApi() {
+        RestApi restApi = configuration.getRestApiFactory().buildBackend();
+        return callTimeout < 0 ? restApi : restApi.withCallTimeout(callTimeout);
     }
 
     @Override
@@ -75,8 +130,13 @@ public class CastleApiImpl implements CastleApi {
 
     @Override
     public Verdict authenticate(CastleMessage message) {
-        JsonElement request = buildAuthenticateRequest(message);
-        return sendAuthenticateRequest(request);
+        if (doNotTrack) {
+            recordDoNotTrack(CastleEndpoint.AUTHENTICATE);
+            return buildVerdictForDoNotTrack(message.getUserId());
+        }
+
+        RestApi restApi = restApi();
+        return restApi.sendAuthenticateSync(buildPayload(message));
     }
 
     @Override
@@ -89,10 +149,11 @@ public class CastleApiImpl implements CastleApi {
         Preconditions.checkNotNull(request, "Request json can not be null");
 
         if (doNotTrack) {
+            recordDoNotTrack(CastleEndpoint.AUTHENTICATE);
             return buildVerdictForDoNotTrack(request.getAsJsonObject().get("user_id").getAsString());
         }
 
-        RestApi restApi = configuration.getRestApiFactory().buildBackend();
+        RestApi restApi = restApi();
         return restApi.sendAuthenticateSync(request);
     }
 
@@ -101,14 +162,22 @@ public class CastleApiImpl implements CastleApi {
         Preconditions.checkNotNull(request, "Request json can not be null");
 
         if (doNotTrack) {
+            recordDoNotTrack(CastleEndpoint.AUTHENTICATE);
             asyncCallbackHandler.onResponse(buildVerdictForDoNotTrack(request.getAsJsonObject().get("user_id").getAsString()));
         } else {
             Preconditions.checkNotNull(asyncCallbackHandler, "The async handler can not be null");
-            RestApi restApi = configuration.getRestApiFactory().buildBackend();
+            RestApi restApi = restApi();
             restApi.sendAuthenticateAsync(request, asyncCallbackHandler);
         }
     }
 
+    void recordDoNotTrack(CastleEndpoint endpoint) {
+        CastleMetrics metrics = configuration.getConfiguration().getMetrics();
+        if (metrics != null) {
+            metrics.recordDoNotTrack(endpoint);
+        }
+    }
+
     private Verdict buildVerdictForDoNotTrack(String userId) {
         return VerdictBuilder.failover("Castle set to do not track.")
                 .withAction(AuthenticateAction.ALLOW)
@@ -134,8 +203,14 @@ public class CastleApiImpl implements CastleApi {
 
     @Override
     public void authenticateAsync(CastleMessage message, AsyncCallbackHandler<Verdict> asyncCallbackHandler) {
-        JsonElement request = buildAuthenticateRequest(message);
-        sendAuthenticateRequest(request, asyncCallbackHandler);
+        if (doNotTrack) {
+            recordDoNotTrack(CastleEndpoint.AUTHENTICATE);
+            asyncCallbackHandler.onResponse(buildVerdictForDoNotTrack(message.getUserId()));
+        } else {
+            Preconditions.checkNotNull(asyncCallbackHandler, "The async handler can not be null");
+            RestApi restApi = restApi();
+            restApi.sendAuthenticateAsync(buildPayload(message), asyncCallbackHandler);
+        }
     }
 
     @Override
@@ -196,35 +271,59 @@ public class CastleApiImpl implements CastleApi {
         Preconditions.checkNotNull(request, "Request json can not be null");
 
         if (doNotTrack) {
+            recordDoNotTrack(CastleEndpoint.TRACK);
             if (asyncCallbackHandler != null) {
                 asyncCallbackHandler.onResponse(true);
             }
             return;
         }
 
-        RestApi restApi = configuration.getRestApiFactory().buildBackend();
+        TrackBatcher trackBatcher = configuration.getTrackBatcher();
+        if (trackBatcher != null) {
+            trackBatcher.enqueue(request, callTimeout, asyncCallbackHandler);
+            return;
+        }
+
+        RestApi restApi = restApi();
         restApi.sendTrackRequest(request, asyncCallbackHandler);
     }
 
     @Override
     public void track(CastleMessage message, @Nullable AsyncCallbackHandler<Boolean> asyncCallbackHandler) {
-        JsonElement messageJson = buildTrackRequest(message);
+        Preconditions.checkNotNull(message.getEvent());
+
+        if (doNotTrack) {
+            recordDoNotTrack(CastleEndpoint.TRACK);
+            if (asyncCallbackHandler != null) {
+                asyncCallbackHandler.onResponse(true);
+            }
+            return;
+        }
+
+        TrackBatcher trackBatcher = configuration.getTrackBatcher();
+        if (trackBatcher != null) {
+            // Batched events are held until the next flush, keep them as a tree
+            trackBatcher.enqueue(buildJson(message), callTimeout, asyncCallbackHandler);
+            return;
+        }
 
-        sendTrackRequest(messageJson, asyncCallbackHandler);
+        RestApi restApi = restApi();
+        restApi.sendTrackRequest(buildPayload(message), asyncCallbackHandler);
     }
 
     @Override
     public void identify(String userId, @Nullable Object traits, boolean active) {
         Preconditions.checkNotNull(userId);
         if (doNotTrack) {
+            recordDoNotTrack(CastleEndpoint.IDENTIFY);
             return;
         }
         JsonElement traitsJson = null;
         if (traits != null) {
             traitsJson = configuration.getModel().getGson().toJsonTree(traits);
         }
-        RestApi restApi = configuration.getRestApiFactory().buildBackend();
-        restApi.sendIdentifyRequest(userId, contextJson, active, traitsJson);
+        RestApi restApi = restApi();
+        restApi.sendIdentifyRequest(userId, getContextJson(), active, traitsJson);
     }
 
     @Override
@@ -242,7 +341,7 @@ public class CastleApiImpl implements CastleApi {
     @Override
     public Review review(String reviewId) {
         Preconditions.checkNotNull(reviewId);
-        RestApi restApi = configuration.getRestApiFactory().buildBackend();
+        RestApi restApi = restApi();
         return restApi.sendReviewRequestSync(reviewId);
     }
 
@@ -250,78 +349,78 @@ public class CastleApiImpl implements CastleApi {
     public void reviewAsync(String reviewId, AsyncCallbackHandler<Review> asyncCallbackHandler) {
         Preconditions.checkNotNull(reviewId);
         Preconditions.checkNotNull(asyncCallbackHandler);
-        RestApi restApi = configuration.getRestApiFactory().buildBackend();
+        RestApi restApi = restApi();
         restApi.sendReviewRequestAsync(reviewId, asyncCallbackHandler);
     }
 
     @Override
     public Boolean removeUser(String userId) {
         Preconditions.checkNotNull(userId);
-        RestApi restApi = configuration.getRestApiFactory().buildBackend();
+        RestApi restApi = restApi();
         return restApi.sendPrivacyRemoveUser(userId);
     }
 
     @Override
     public CastleUserDevice approve(String deviceToken) {
         Preconditions.checkNotNull(deviceToken);
-        RestApi restApi = configuration.getRestApiFactory().buildBackend();
+        RestApi restApi = restApi();
         return restApi.sendApproveDeviceRequestSync(deviceToken);
     }
 
     @Override
     public CastleUserDevice report(String deviceToken) {
         Preconditions.checkNotNull(deviceToken);
-        RestApi restApi = configuration.getRestApiFactory().buildBackend();
+        RestApi restApi = restApi();
         return restApi.sendReportDeviceRequestSync(deviceToken);
     }
 
     @Override
     public CastleUserDevices userDevices(String userId) {
         Preconditions.checkNotNull(userId);
-        RestApi restApi = configuration.getRestApiFactory().buildBackend();
+        RestApi restApi = restApi();
         return restApi.sendGetUserDevicesRequestSync(userId);
     }
 
     @Override
     public CastleUser archiveUserDevices(String userId) {
         Preconditions.checkNotNull(userId);
-        RestApi restApi = configuration.getRestApiFactory().buildBackend();
+        RestApi restApi = restApi();
         return restApi.sendArchiveUserDevicesRequestSync(userId);
     }
 
     @Override
     public CastleUserDevice device(String deviceToken) {
         Preconditions.checkNotNull(deviceToken);
-        RestApi restApi = configuration.getRestApiFactory().buildBackend();
+        RestApi restApi = restApi();
         return restApi.sendGetUserDeviceRequestSync(deviceToken);
     }
 
     @Override
     public CastleSuccess impersonateStart(String userId) {
         Preconditions.checkNotNull(userId);
-        RestApi restApi = configuration.getRestApiFactory().buildBackend();
-        return restApi.sendImpersonateStartRequestSync(userId, null, contextJson);
+        RestApi restApi = restApi();
+        return restApi.sendImpersonateStartRequestSync(userId, null, getContextJson());
     }
 
     @Override
     public CastleSuccess impersonateStart(String userId, String impersonator) {
         Preconditions.checkNotNull(userId);
-        RestApi restApi = configuration.getRestApiFactory().buildBackend();
-        return restApi.sendImpersonateStartRequestSync(userId, impersonator, contextJson);
+        RestApi restApi = restApi();
+        return restApi.sendImpersonateStartRequestSync(userId, impersonator, getContextJson());
     }
 
     @Override
     public CastleSuccess impersonateEnd(String userId) {
         Preconditions.checkNotNull(userId);
-        RestApi restApi = configuration.getRestApiFactory().buildBackend();
-        return restApi.sendImpersonateEndRequestSync(userId, "", contextJson);
+        RestApi restApi = restApi();
+        return restApi.sendImpersonateEndRequestSync(userId, "", getContextJson());
     }
 
     @Override
     public CastleSuccess impersonateEnd(String userId, String impersonator) {
         Preconditions.checkNotNull(userId);
-        RestApi restApi = configuration.getRestApiFactory().buildBackend();
-        return restApi.sendImpersonateEndRequestSync(userId, impersonator, contextJson);
+        RestApi restApi = restApi();
+        return restApi.sendImpersonateEndRequestSync(userId, impersonator, getContextJson());
     }
 
     private CastleMessage buildMessage(String event, String userId, @Nullable Object properties, @Nullable Object traits) {
@@ -343,23 +442,11 @@ public class CastleApiImpl implements CastleApi {
     }
 
     private JsonElement buildJson(CastleMessage message) throws CastleRuntimeException {
-        JsonObject contextJson;
-        // Context can be either from the message or from the instance of this
-        // class. Make sure we have one
-        CastleContext context = message.getContext();
-        if (context == null) {
-            contextJson = this.contextJson;
-        } else {
-            contextJson = configuration.getModel().getGson().toJsonTree(context).getAsJsonObject();
-        }
-
-        JsonElement messageJson = configuration.getModel().getGson().toJsonTree(message);
-        JsonObject messageObj = messageJson.getAsJsonObject();
-        messageObj.add("context", contextJson);
-
-        // Add sent_at to json
-        messageObj.addProperty("sent_at", Timestamp.timestamp());
+        return buildPayload(message).toJson(configuration.getModel().getGson());
+    }
 
-        return messageObj;
+    private CastleMessagePayload buildPayload(CastleMessage message) {
+        // The context of the instance is only serialized when the message does not carry its own
+        return CastleMessagePayload.withSnapshot(message, context, Timestamp.timestamp());
     }
 }
@@ -0,0 +1,238 @@
+package io.castle.client.internal;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.gson.JsonElement;
+import io.castle.client.api.CastleAsyncApi;
+import io.castle.client.internal.backend.RestApi;
+import io.castle.client.model.*;
+
+import javax.annotation.Nullable;
+
+/**
+ * Future based view of a {@link CastleApiImpl}, sharing its context, configuration, doNotTrack value and call timeout.
+ * <p>
+ * Authenticate and track calls go through the callback methods of the wrapped API, so that they behave exactly like
+ * {@code authenticateAsync} and {@code track}; the other calls use the async methods of the {@link RestApi}.
+ */
+public class CastleAsyncApiImpl implements CastleAsyncApi {
+
+    private final CastleApiImpl api;
+
+    public CastleAsyncApiImpl(CastleApiImpl api) {
+        this.api = api;
+    }
+
+    @Override
+    public CastleAsyncApi mergeContext(Object additionalContext) {
+        return api.mergeContext(additionalContext).async();
+    }
+
+    @Override
+    public CastleAsyncApi doNotTrack(boolean doNotTrack) {
+        return api.doNotTrack(doNotTrack).async();
+    }
+
+    @Override
+    public CastleAsyncApi callTimeout(int callTimeout) {
+        return api.callTimeout(callTimeout).async();
+    }
+
+    @Override
+    public ListenableFuture<Verdict> authenticate(String event, String userId) {
+        return authenticate(event, userId, null, null);
+    }
+
+    @Override
+    public ListenableFuture<Verdict> authenticate(String event, String userId, @Nullable Object properties, @Nullable Object traits) {
+        FutureCallbackHandler<Verdict> handler = new FutureCallbackHandler<>();
+        api.authenticateAsync(event, userId, properties, traits, handler);
+        return handler.future;
+    }
+
+    @Override
+    public ListenableFuture<Verdict> authenticate(CastleMessage message) {
+        FutureCallbackHandler<Verdict> handler = new FutureCallbackHandler<>();
+        api.authenticateAsync(message, handler);
+        return handler.future;
+    }
+
+    @Override
+    public ListenableFuture<Verdict> sendAuthenticateRequest(JsonElement request) {
+        FutureCallbackHandler<Verdict> handler = new FutureCallbackHandler<>();
+        api.sendAuthenticateRequest(request, handler);
+        return handler.future;
+    }
+
+    @Override
+    public ListenableFuture<Boolean> track(String event) {
+        return track(event, null, null, null, null);
+    }
+
+    @Override
+    public ListenableFuture<Boolean> track(String event, @Nullable String userId) {
+        return track(event, userId, null, null, null);
+    }
+
+    @Override
+    public ListenableFuture<Boolean> track(String event, @Nullable String userId, @Nullable String reviewId) {
+        return track(event, userId, reviewId, null, null);
+    }
+
+    @Override
+    public ListenableFuture<Boolean> track(String event, @Nullable String userId, @Nullable String reviewId, @Nullable Object properties) {
+        return track(event, userId, reviewId, properties, null);
+    }
+
+    @Override
+    public ListenableFuture<Boolean> track(String event, @Nullable String userId, @Nullable String reviewId, @Nullable Object properties, @Nullable Object traits) {
+        FutureCallbackHandler<Boolean> handler = new FutureCallbackHandler<>();
+        api.track(event, userId, reviewId, properties, traits, handler);
+        return handler.future;
+    }
+
+    @Override
+    public ListenableFuture<Boolean> track(CastleMessage message) {
+        FutureCallbackHandler<Boolean> handler = new FutureCallbackHandler<>();
+        api.track(message, handler);
+        return handler.future;
+    }
+
+    @Override
+    public ListenableFuture<Boolean> sendTrackRequest(JsonElement request) {
+        FutureCallbackHandler<Boolean> handler = new FutureCallbackHandler<>();
+        api.sendTrackRequest(request, handler);
+        return handler.future;
+    }
+
+    @Override
+    public ListenableFuture<Boolean> identify(String userId) {
+        return identify(userId, null, true);
+    }
+
+    @Override
+    public ListenableFuture<Boolean> identify(String userId, @Nullable Object traits) {
+        return identify(userId, traits, true);
+    }
+
+    @Override
+    public ListenableFuture<Boolean> identify(String userId, @Nullable Object traits, boolean active) {
+        Preconditions.checkNotNull(userId);
+        if (api.isDoNotTrack()) {
+            api.recordDoNotTrack(CastleEndpoint.IDENTIFY);
+            return Futures.immediateFuture(true);
+        }
+        JsonElement traitsJson = null;
+        if (traits != null) {
+            traitsJson = api.getConfiguration().getModel().getGson().toJsonTree(traits);
+        }
+        FutureCallbackHandler<Boolean> handler = new FutureCallbackHandler<>();
+        restApi().sendIdentifyRequest(userId, api.getContextJson(), active, traitsJson, handler);
+        return handler.future;
+    }
+
+    @Override
+    public ListenableFuture<Review> review(String reviewId) {
+        Preconditions.checkNotNull(reviewId);
+        FutureCallbackHandler<Review> handler = new FutureCallbackHandler<>();
+        restApi().sendReviewRequestAsync(reviewId, handler);
+        return handler.future;
+    }
+
+    @Override
+    public ListenableFuture<Boolean> removeUser(String userId) {
+        Preconditions.checkNotNull(userId);
+        FutureCallbackHandler<Boolean> handler = new FutureCallbackHandler<>();
+        restApi().sendPrivacyRemoveUserAsync(userId, handler);
+        return handler.future;
+    }
+
+    @Override
+    public ListenableFuture<CastleUserDevice> approve(String deviceToken) {
+        Preconditions.checkNotNull(deviceToken);
+        FutureCallbackHandler<CastleUserDevice> handler = new FutureCallbackHandler<>();
+        restApi().sendApproveDeviceRequestAsync(deviceToken, handler);
+        return handler.future;
+    }
+
+    @Override
+    public ListenableFuture<CastleUserDevice> report(String deviceToken) {
+        Preconditions.checkNotNull(deviceToken);
+        FutureCallbackHandler<CastleUserDevice> handler = new FutureCallbackHandler<>();
+        restApi().sendReportDeviceRequestAsync(deviceToken, handler);
+        return handler.future;
+    }
+
+    @Override
+    public ListenableFuture<CastleUserDevices> userDevices(String userId) {
+        Preconditions.checkNotNull(userId);
+        FutureCallbackHandler<CastleUserDevices> handler = new FutureCallbackHandler<>();
+        restApi().sendGetUserDevicesRequestAsync(userId, handler);
+        return handler.future;
+    }
+
+    @Override
+    public ListenableFuture<CastleUser> archiveUserDevices(String userId) {
+        Preconditions.checkNotNull(userId);
+        FutureCallbackHandler<CastleUser> handler = new FutureCallbackHandler<>();
+        restApi().sendArchiveUserDevicesRequestAsync(userId, handler);
+        return handler.future;
+    }
+
+    @Override
+    public ListenableFuture<CastleUserDevice> device(String deviceToken) {
+        Preconditions.checkNotNull(deviceToken);
+        FutureCallbackHandler<CastleUserDevice> handler = new FutureCallbackHandler<>();
+        restApi().sendGetUserDeviceRequestAsync(deviceToken, handler);
+        return handler.future;
+    }
+
+    @Override
+    public ListenableFuture<CastleSuccess> impersonateStart(String userId) {
+        return impersonateStart(userId, null);
+    }
+
+    @Override
+    public ListenableFuture<CastleSuccess> impersonateStart(String userId, String impersonator) {
+        Preconditions.checkNotNull(userId);
+        FutureCallbackHandler<CastleSuccess> handler = new FutureCallbackHandler<>();
+        restApi().sendImpersonateStartRequestAsync(userId, impersonator, api.getContextJson(), handler);
+        return handler.future;
+    }
+
+    @Override
+    public ListenableFuture<CastleSuccess> impersonateEnd(String userId) {
+        return impersonateEnd(userId, "");
+    }
+
+    @Override
+    public ListenableFuture<CastleSuccess> impersonateEnd(String userId, String impersonator) {
+        Preconditions.checkNotNull(userId);
+        FutureCallbackHandler<CastleSuccess> handler = new FutureCallbackHandler<>();
+        restApi().sendImpersonateEndRequestAsync(userId, impersonator, api.getContextJson(), handler);
+        return handler.future;
+    }
+
+    private RestApi restApi() {
+        return api.restApi();
+    }
+
+    /**
+     * Completes a future with the outcome reported to a callback handler.
+     */
+    private static class FutureCallbackHandler<T> implements AsyncCallbackHandler<T> {
+        private final SettableFuture<T> future = SettableFuture.create();
+
+        @Override
+        public void onResponse(T response) {
+            future.set(response);
+        }
+
+        @Override
+        public void onException(Exception exception) {
+            future.setException(exception);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package io.castle.client.internal;
+
+import com.google.common.base.Preconditions;
+import io.castle.client.Castle;
+import io.castle.client.api.CastleBulkApi;
+import io.castle.client.internal.backend.RestApi;
+import io.castle.client.model.AsyncCallbackHandler;
+import io.castle.client.model.BulkItemHandler;
+import io.castle.client.model.BulkResult;
+import io.castle.client.model.CastleUser;
+import io.castle.client.model.CastleUserDevice;
+
+import java.util.Iterator;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bulk view of a {@link CastleApiImpl}, sharing its call timeout.
+ * <p>
+ * Items are sent from the calling thread with the async methods of the {@link RestApi}. A semaphore bounds the
+ * requests in flight and each request starts no earlier than {@code 1 / maxRate} seconds after the previous one, so
+ * that a large iterator never builds up a queue on the dispatcher of the HTTP client.
+ */
+public class CastleBulkApiImpl implements CastleBulkApi {
+
+    private final CastleApiImpl api;
+    private final int maxConcurrency;
+    private final long intervalNanos;
+
+    public CastleBulkApiImpl(CastleApiImpl api, int maxConcurrency, int maxRate) {
+        Preconditions.checkArgument(maxConcurrency > 0, "The max concurrency must be positive");
+        Preconditions.checkArgument(maxRate >= 0, "The max rate can not be negative");
+        this.api = api;
+        this.maxConcurrency = maxConcurrency;
+        this.intervalNanos = maxRate == 0 ? 0 : TimeUnit.SECONDS.toNanos(1) / maxRate;
+    }
+
+    @Override
+    public BulkResult approve(Iterator<String> deviceTokens, BulkItemHandler<CastleUserDevice> handler) {
+        return run(deviceTokens, handler, new Operation<CastleUserDevice>() {
+            @Override
+            public void send(RestApi restApi, String key, AsyncCallbackHandler<CastleUserDevice> callbackHandler) {
+                restApi.sendApproveDeviceRequestAsync(key, callbackHandler);
+            }
+        });
+    }
+
+    @Override
+    public BulkResult approve(Iterable<String> deviceTokens, BulkItemHandler<CastleUserDevice> handler) {
+        Preconditions.checkNotNull(deviceTokens);
+        return approve(deviceTokens.iterator(), handler);
+    }
+
+    @Override
+    public BulkResult report(Iterator<String> deviceTokens, BulkItemHandler<CastleUserDevice> handler) {
+        return run(deviceTokens, handler, new Operation<CastleUserDevice>() {
+            @Override
+            public void send(RestApi restApi, String key, AsyncCallbackHandler<CastleUserDevice> callbackHandler) {
+                restApi.sendReportDeviceRequestAsync(key, callbackHandler);
+            }
+        });
+    }
+
+    @Override
+    public BulkResult report(Iterable<String> deviceTokens, BulkItemHandler<CastleUserDevice> handler) {
+        Preconditions.checkNotNull(deviceTokens);
+        return report(deviceTokens.iterator(), handler);
+    }
+
+    @Override
+    public BulkResult device(Iterator<String> deviceTokens, BulkItemHandler<CastleUserDevice> handler) {
+        return run(deviceTokens, handler, new Operation<CastleUserDevice>() {
+            @Override
+            public void send(RestApi restApi, String key, AsyncCallbackHandler<CastleUserDevice> callbackHandler) {
+                restApi.sendGetUserDeviceRequestAsync(key, callbackHandler);
+            }
+        });
+    }
+
+    @Override
+    public BulkResult device(Iterable<String> deviceTokens, BulkItemHandler<CastleUserDevice> handler) {
+        Preconditions.checkNotNull(deviceTokens);
+        return device(deviceTokens.iterator(), handler);
+    }
+
+    @Override
+    public BulkResult archiveUserDevices(Iterator<String> userIds, BulkItemHandler<CastleUser> handler) {
+        return run(userIds, handler, new Operation<CastleUser>() {
+            @Override
+            public void send(RestApi restApi, String key, AsyncCallbackHandler<CastleUser> callbackHandler) {
+                restApi.sendArchiveUserDevicesRequestAsync(key, callbackHandler);
+            }
+        });
+    }
+
+    @Override
+    public BulkResult archiveUserDevices(Iterable<String> userIds, BulkItemHandler<CastleUser> handler) {
+        Preconditions.checkNotNull(userIds);
+        return archiveUserDevices(userIds.iterator(), handler);
+    }
+
+    private <T> BulkResult run(Iterator<String> keys, BulkItemHandler<T> handler, Operation<T> operation) {
+        Preconditions.checkNotNull(keys);
+        Preconditions.checkNotNull(handler);
+        RestApi restApi = api.restApi();
+        Semaphore inFlight = new Semaphore(maxConcurrency);
+        AtomicLong succeeded = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        boolean interrupted = false;
+        long nextStart = System.nanoTime();
+        try {
+            while (keys.hasNext()) {
+                // Waits before taking the item, so that an interrupt leaves it in the iterator
+                pace(nextStart);
+                nextStart = Math.max(nextStart, System.nanoTime()) + intervalNanos;
+                inFlight.acquire();
+                String key;
+                try {
+                    key = keys.next();
+                } catch (RuntimeException e) {
+                    inFlight.release();
+                    throw e;
+                }
+                ItemCallback<T> callback = new ItemCallback<>(key, handler, inFlight, succeeded, failed);
+                try {
+                    if (key == null) {
+                        callback.onException(new NullPointerException("Bulk items can not be null"));
+                    } else {
+                        operation.send(restApi, key, callback);
+                    }
+                } catch (RuntimeException e) {
+                    if (callback.isCompleted()) {
+                        // Thrown by the handler of an item completed on this thread, like a cached lookup
+                        Castle.logger.error("Error in the handler of a bulk item.", e);
+                    } else {
+                        callback.onException(e);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+        } finally {
+            // Waits for the requests in flight, even when interrupted, so that no handler call follows the return
+            inFlight.acquireUninterruptibly(maxConcurrency);
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return new BulkResult(succeeded.get(), failed.get(), interrupted);
+    }
+
+    private static void pace(long start) throws InterruptedException {
+        long wait = start - System.nanoTime();
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    /**
+     * Sends the request of one item.
+     */
+    private interface Operation<T> {
+        void send(RestApi restApi, String key, AsyncCallbackHandler<T> callbackHandler);
+    }
+
+    /**
+     * Hands the outcome of one item to the handler and frees its slot, once.
+     */
+    private static class ItemCallback<T> implements AsyncCallbackHandler<T> {
+        private final String key;
+        private final BulkItemHandler<T> handler;
+        private final Semaphore inFlight;
+        private final AtomicLong succeeded;
+        private final AtomicLong failed;
+        private final AtomicBoolean completed = new AtomicBoolean();
+
+        private ItemCallback(String key, BulkItemHandler<T> handler, Semaphore inFlight, AtomicLong succeeded, AtomicLong failed) {
+            this.key = key;
+            this.handler = handler;
+            this.inFlight = inFlight;
+            this.succeeded = succeeded;
+            this.failed = failed;
+        }
+
+        boolean isCompleted() {
+            return completed.get();
+        }
+
+        @Override
+        public void onResponse(T response) {
+            if (!completed.compareAndSet(false, true)) {
+                return;
+            }
+            succeeded.incrementAndGet();
+            try {
+                handler.onResponse(key, response);
+            } finally {
+                inFlight.release();
+            }
+        }
+
+        @Override
+        public void onException(Exception exception) {
+            if (!completed.compareAndSet(false, true)) {
+                return;
+            }
+            failed.incrementAndGet();
+            try {
+                handler.onException(key, exception);
+            } finally {
+                inFlight.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package io.castle.client.internal.backend;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+
+/**
+ * Interceptor whose work can be split around a request sent asynchronously, so that an {@link HttpTransport} runs it
+ * without holding a thread while the request is in flight.
+ */
+interface AsyncInterceptor extends Interceptor {
+
+    /**
+     * Runs the part of the interception coming before the request is sent.
+     *
+     * @param request the request, as changed by the previous interceptors
+     * @return the interception of the request, holding the request to send
+     * @throws IOException when the request can not be sent
+     */
+    Exchange start(Request request) throws IOException;
+
+    /**
+     * Interception of one request. The base class only changes the request.
+     */
+    class Exchange {
+        private final Request request;
+
+        Exchange(Request request) {
+            this.request = request;
+        }
+
+        /**
+         * Gets the request to send, or to pass to the next interceptor.
+         */
+        Request request() {
+            return request;
+        }
+
+        /**
+         * Runs the part of the interception coming after the response is received.
+         */
+        void onResponse(Response response) {
+        }
+
+        /**
+         * Runs the part of the interception coming after the request failed without a response.
+         */
+        void onFailure(IOException e) {
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package io.castle.client.internal.backend;
+
+import io.castle.client.Castle;
+import io.castle.client.internal.config.HedgingConfiguration;
+import io.castle.client.model.HedgeStats;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends a second identical authenticate request when the first one is slower than usual, and uses whichever response
+ * comes first.
+ * <p>
+ * The hedge delay is the {@link HedgingConfiguration#getDelayPercentile()} percentile of the latencies of the last
+ * {@link #WINDOW_SIZE} authenticate responses, but not lower than {@link HedgingConfiguration#getMinDelay()}. It is
+ * computed again every {@link #MIN_SAMPLES} responses, and no request is hedged before that many latencies are known.
+ * Hedged requests are limited by a {@link RatioBudget} allowing them for {@link HedgingConfiguration#getBudgetPercent()}
+ * percent of the calls.
+ * <p>
+ * The first request runs on the calling thread, like an authenticate call without hedging, so that it does not wait
+ * for a slot of the dispatcher behind asynchronous requests. The hedged request is started by a timer thread and runs
+ * on the dispatcher of the client; it is not retried. It gets the call timeout left to the first one, so that hedging
+ * never delays the failover verdict past the call timeout. The losing call is cancelled.
+ */
+public class AuthenticateHedger {
+
+    /**
+     * Number of recent latencies the hedge delay is computed from.
+     */
+    static final int WINDOW_SIZE = 1000;
+
+    /**
+     * Number of latencies needed before the first hedge, and between two computations of the hedge delay.
+     */
+    static final int MIN_SAMPLES = 20;
+
+    /**
+     * Maximum number of hedged requests the budget can save up.
+     */
+    static final int MAX_BUDGET_HEDGES = 10;
+
+    private final HedgingConfiguration configuration;
+    private final RatioBudget budget;
+    private final ScheduledThreadPoolExecutor timer;
+
+    private final long[] latencies = new long[WINDOW_SIZE];
+    private long recorded;
+    private volatile long delayNanos = -1;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+    private final AtomicLong budgetExhausted = new AtomicLong();
+
+    public AuthenticateHedger(HedgingConfiguration configuration) {
+        this.configuration = configuration;
+        this.budget = new RatioBudget(configuration.getBudgetPercent(), MAX_BUDGET_HEDGES);
+        this.timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "castle-hedge-timer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        // Most calls answer before the hedge delay, their hedges must not pile up in the queue
+        this.timer.setRemoveOnCancelPolicy(true);
+        this.timer.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    public HedgeStats getStats() {
+        long delay = delayNanos;
+        return new HedgeStats(calls.get(), hedges.get(), hedgeWins.get(), budgetExhausted.get(),
+                delay < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(delay));
+    }
+
+    /**
+     * Stops the timer, the calls made afterwards are not hedged.
+     */
+    public void close() {
+        timer.shutdown();
+    }
+
+    /**
+     * Executes a request on the calling thread, hedging it when it has not answered within the hedge delay.
+     *
+     * @param callFactory creates the calls of the request
+     * @param request     the authenticate request, its body must be writable more than once
+     * @return the first response received
+     * @throws IOException when every request sent failed
+     */
+    public Response execute(final Call.Factory callFactory, final Request request) throws IOException {
+        calls.incrementAndGet();
+        budget.deposit();
+        final Call primary = callFactory.newCall(request);
+        final Exchange exchange = new Exchange(primary);
+        final long start = System.nanoTime();
+        long delay = delayNanos;
+        ScheduledFuture<?> hedgeTimer = null;
+        if (delay >= 0) {
+            try {
+                hedgeTimer = timer.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        hedge(callFactory, request, exchange, primary.timeout().timeoutNanos(), start);
+                    }
+                }, delay, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                // Closed, the call is not hedged
+            }
+        }
+        Response response = null;
+        IOException failure = null;
+        try {
+            response = primary.execute();
+            recordLatency(System.nanoTime() - start);
+        } catch (IOException e) {
+            failure = e;
+        } catch (RuntimeException | Error e) {
+            exchange.abandon();
+            throw e;
+        } finally {
+            if (hedgeTimer != null) {
+                hedgeTimer.cancel(false);
+            }
+        }
+        try {
+            return exchange.result(response, failure);
+        } catch (InterruptedException e) {
+            exchange.abandon();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the authenticate response");
+        }
+    }
+
+    private void hedge(Call.Factory callFactory, Request request, Exchange exchange, long callTimeout, long start) {
+        long remaining = callTimeout - (System.nanoTime() - start);
+        if (callTimeout > 0 && remaining <= 0) {
+            return;
+        }
+        if (!budget.tryWithdraw()) {
+            budgetExhausted.incrementAndGet();
+            return;
+        }
+        Call hedged = callFactory.newCall(Retrier.withoutInterceptorRetries(request));
+        if (callTimeout > 0) {
+            hedged.timeout().timeout(remaining, TimeUnit.NANOSECONDS);
+        }
+        if (exchange.sendHedge(hedged)) {
+            hedges.incrementAndGet();
+            Castle.logger.debug("HTTP layer. Hedging authenticate request to {}.", request.url());
+        }
+    }
+
+    /**
+     * Records the latency of an authenticate response, computing the hedge delay again when enough new latencies
+     * are known.
+     */
+    void recordLatency(long nanos) {
+        long[] snapshot;
+        synchronized (latencies) {
+            latencies[(int) (recorded % WINDOW_SIZE)] = nanos;
+            recorded++;
+            if (recorded % MIN_SAMPLES != 0) {
+                return;
+            }
+            snapshot = Arrays.copyOf(latencies, (int) Math.min(recorded, WINDOW_SIZE));
+        }
+        Arrays.sort(snapshot);
+        int index = (int) Math.ceil(configuration.getDelayPercentile() / 100.0 * snapshot.length) - 1;
+        long percentile = snapshot[Math.max(0, index)];
+        delayNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(configuration.getMinDelay()), percentile);
+    }
+
+    /**
+     * The first request of an authenticate call, executed by the caller, and its hedged request, keeping the first
+     * response received.
+     */
+    private class Exchange {
+        private final Call primary;
+        private Call hedge;
+        private boolean hedgePending;
+        private Response hedgeResponse;
+        private boolean finished;
+
+        private Exchange(Call primary) {
+            this.primary = primary;
+        }
+
+        /**
+         * Sends the hedged request, unless the caller already has its outcome.
+         *
+         * @return false if the request was not sent
+         */
+        boolean sendHedge(Call call) {
+            synchronized (this) {
+                if (finished) {
+                    return false;
+                }
+                hedge = call;
+                hedgePending = true;
+            }
+            final long start = System.nanoTime();
+            call.enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    hedgeDone(null);
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) {
+                    recordLatency(System.nanoTime() - start);
+                    hedgeDone(response);
+                }
+            });
+            return true;
+        }
+
+        private void hedgeDone(Response response) {
+            boolean won = false;
+            synchronized (this) {
+                hedgePending = false;
+                if (response != null && !finished) {
+                    hedgeResponse = response;
+                    won = true;
+                }
+                notifyAll();
+            }
+            if (won) {
+                // Stop waiting for the first request
+                primary.cancel();
+            } else if (response != null) {
+                response.close();
+            }
+        }
+
+        /**
+         * Gets the first response, waiting for the hedged request when the first one failed.
+         *
+         * @param response response of the first request, null if it failed
+         * @param failure  failure of the first request
+         * @return the first response received
+         */
+        Response result(Response response, IOException failure) throws IOException, InterruptedException {
+            Response winner;
+            Call loser = null;
+            synchronized (this) {
+                if (response == null) {
+                    while (hedgeResponse == null && hedgePending) {
+                        wait();
+                    }
+                }
+                finished = true;
+                if (hedgeResponse != null) {
+                    winner = hedgeResponse;
+                } else {
+                    winner = response;
+                    loser = hedge;
+                }
+            }
+            if (winner != response && response != null) {
+                response.close();
+            }
+            if (loser != null) {
+                loser.cancel();
+            }
+            if (winner == null) {
+                throw failure;
+            }
+            if (winner != response) {
+                hedgeWins.incrementAndGet();
+            }
+            return winner;
+        }
+
+        /**
+         * Cancels the hedged request when the caller stops waiting, closing its response if already received.
+         */
+        void abandon() {
+            Response response;
+            Call call;
+            synchronized (this) {
+                finished = true;
+                response = hedgeResponse;
+                hedgeResponse = null;
+                call = hedge;
+            }
+            if (response != null) {
+                response.close();
+            }
+            if (call != null) {
+                call.cancel();
+            }
+        }
+    }
+}
@@ -1,10 +1,68 @@
 package io.castle.client.internal.backend;
 
+import io.castle.client.internal.config.CastleConfiguration;
+
 /**
  * List of backend providers available for the HTTP layer.
  * <p>
- * The default value is OKHTTP.
+ * The default value is OKHTTP. Other providers send the requests with their own {@link HttpTransport}, loaded by name
+ * so that the SDK does not depend on the classes of the transports it does not use.
  */
 public enum CastleBackendProvider {
-    OKHTTP
+    /**
+     * OkHttp sends the requests itself, through its connection pool.
+     */
+    OKHTTP(null, null),
+    /**
+     * The {@code java.net.http.HttpClient} of Java 11 and later, multiplexing the requests over HTTP/2 connections when
+     * HTTP/2 is enabled. Only available with an SDK built with Java 11 or later.
+     */
+    JDK_HTTP_CLIENT("io.castle.client.internal.backend.JdkHttpTransport", "java.net.http.HttpClient");
+
+    private final String transportClassName;
+    private final String requiredClassName;
+
+    CastleBackendProvider(String transportClassName, String requiredClassName) {
+        this.transportClassName = transportClassName;
+        this.requiredClassName = requiredClassName;
+    }
+
+    /**
+     * Tells if the classes of the provider are present on the running JVM.
+     *
+     * @return true if the provider can be used
+     */
+    public boolean isAvailable() {
+        if (transportClassName == null) {
+            return true;
+        }
+        try {
+            Class.forName(requiredClassName);
+            Class.forName(transportClassName);
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Creates the transport sending the requests of the provider.
+     *
+     * @param configuration configuration of the SDK
+     * @return a new transport, or null when OkHttp sends the requests itself
+     * @throws IllegalStateException when the provider is not available
+     */
+    public HttpTransport createTransport(CastleConfiguration configuration) {
+        if (transportClassName == null) {
+            return null;
+        }
+        try {
+            return Class.forName(transportClassName)
+                    .asSubclass(HttpTransport.class)
+                    .getConstructor(CastleConfiguration.class)
+                    .newInstance(configuration);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            throw new IllegalStateException("Backend provider " + name() + " is not available", e);
+        }
+    }
 }
@@ -0,0 +1,180 @@
+package io.castle.client.internal.backend;
+
+import com.google.common.base.Ticker;
+import io.castle.client.Castle;
+import io.castle.client.internal.config.CircuitBreakerConfiguration;
+import io.castle.client.model.CircuitBreakerListener;
+import io.castle.client.model.CircuitBreakerState;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Circuit breaker keeping the outcome of the last requests in a count based sliding window.
+ * <p>
+ * While {@link CircuitBreakerState#CLOSED}, every request is permitted and its outcome recorded. When at least
+ * {@link CircuitBreakerConfiguration#getMinimumCalls()} outcomes are in the window and the share of failures reaches
+ * {@link CircuitBreakerConfiguration#getFailureRateThreshold()}, the breaker opens and rejects requests for
+ * {@link CircuitBreakerConfiguration#getOpenDuration()} milliseconds. It then lets
+ * {@link CircuitBreakerConfiguration#getHalfOpenCalls()} probe requests through: it closes with an empty window once
+ * all of them succeed, and opens again at the first failure.
+ * <p>
+ * Outcomes reported while open are ignored, they belong to requests permitted before the breaker opened.
+ */
+public class CircuitBreaker {
+
+    /**
+     * Failover reason of the verdicts returned while requests are rejected.
+     */
+    public static final String FAILOVER_REASON = "Circuit breaker open";
+
+    private final CircuitBreakerConfiguration configuration;
+    private final Ticker ticker;
+    private final long openDurationNanos;
+
+    /**
+     * Ring buffer of the outcomes in the window, true for a failure.
+     */
+    private final boolean[] window;
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+
+    private CircuitBreakerState state = CircuitBreakerState.CLOSED;
+    private long openedAt;
+    private int probesPermitted;
+    private int probesSucceeded;
+
+    public CircuitBreaker(CircuitBreakerConfiguration configuration) {
+        this(configuration, Ticker.systemTicker());
+    }
+
+    CircuitBreaker(CircuitBreakerConfiguration configuration, Ticker ticker) {
+        this.configuration = configuration;
+        this.ticker = ticker;
+        this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(configuration.getOpenDuration());
+        this.window = new boolean[configuration.getWindowSize()];
+    }
+
+    /**
+     * Tells if a request can be sent. Every permitted request must be followed by a call to {@link #onSuccess()} or
+     * {@link #onFailure()}.
+     *
+     * @return true if the request can be sent, false if it must be short-circuited
+     */
+    public boolean tryAcquire() {
+        CircuitBreakerState from = null;
+        synchronized (this) {
+            if (state == CircuitBreakerState.CLOSED) {
+                return true;
+            }
+            if (state == CircuitBreakerState.OPEN) {
+                if (ticker.read() - openedAt < openDurationNanos) {
+                    return false;
+                }
+                from = transitionTo(CircuitBreakerState.HALF_OPEN);
+            }
+            if (probesPermitted >= configuration.getHalfOpenCalls()) {
+                return false;
+            }
+            probesPermitted++;
+        }
+        notifyTransition(from, CircuitBreakerState.HALF_OPEN);
+        return true;
+    }
+
+    /**
+     * Records a permitted request that got an answer from the Castle API.
+     */
+    public void onSuccess() {
+        CircuitBreakerState from = null;
+        synchronized (this) {
+            if (state == CircuitBreakerState.CLOSED) {
+                record(false);
+            } else if (state == CircuitBreakerState.HALF_OPEN) {
+                probesSucceeded++;
+                if (probesSucceeded >= configuration.getHalfOpenCalls()) {
+                    from = transitionTo(CircuitBreakerState.CLOSED);
+                }
+            }
+        }
+        notifyTransition(from, CircuitBreakerState.CLOSED);
+    }
+
+    /**
+     * Records a permitted request that failed with an I/O error, a timeout or a server error.
+     */
+    public void onFailure() {
+        CircuitBreakerState from = null;
+        synchronized (this) {
+            if (state == CircuitBreakerState.CLOSED) {
+                record(true);
+                if (windowCount >= configuration.getMinimumCalls()
+                        && windowFailures * 100 >= configuration.getFailureRateThreshold() * windowCount) {
+                    from = transitionTo(CircuitBreakerState.OPEN);
+                }
+            } else if (state == CircuitBreakerState.HALF_OPEN) {
+                from = transitionTo(CircuitBreakerState.OPEN);
+            }
+        }
+        notifyTransition(from, CircuitBreakerState.OPEN);
+    }
+
+    public synchronized CircuitBreakerState getState() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (windowCount == window.length) {
+            if (window[windowIndex]) {
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowIndex] = failure;
+        if (failure) {
+            windowFailures++;
+        }
+        windowIndex = (windowIndex + 1) % window.length;
+    }
+
+    /**
+     * Moves to a new state, resetting the counters it uses. Must be called holding the lock.
+     *
+     * @return the previous state
+     */
+    private CircuitBreakerState transitionTo(CircuitBreakerState to) {
+        CircuitBreakerState from = state;
+        state = to;
+        if (to == CircuitBreakerState.OPEN) {
+            openedAt = ticker.read();
+        } else if (to == CircuitBreakerState.HALF_OPEN) {
+            probesPermitted = 0;
+            probesSucceeded = 0;
+        } else {
+            windowIndex = 0;
+            windowCount = 0;
+            windowFailures = 0;
+        }
+        return from;
+    }
+
+    private void notifyTransition(CircuitBreakerState from, CircuitBreakerState to) {
+        if (from == null) {
+            return;
+        }
+        if (to == CircuitBreakerState.OPEN) {
+            Castle.logger.warn("Authenticate circuit breaker opened after a {} state.", from);
+        } else {
+            Castle.logger.info("Authenticate circuit breaker moved from {} to {}.", from, to);
+        }
+        CircuitBreakerListener listener = configuration.getListener();
+        if (listener != null) {
+            try {
+                listener.onStateChange(from, to);
+            } catch (RuntimeException e) {
+                Castle.logger.error("Circuit breaker listener failed.", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,538 @@
+package io.castle.client.internal.backend;
+
+import io.castle.client.Castle;
+import io.castle.client.internal.config.SpoolConfiguration;
+import io.castle.client.model.SpoolStats;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal on local disk of the track and identify requests that could not be sent, replayed later by a
+ * {@link SpoolReplayer}.
+ * <p>
+ * The journal is a sequence of segment files of at most {@link SpoolConfiguration#getSegmentSize()} bytes, written
+ * and read through their {@link FileChannel}. A record is made of its body length, a CRC32 of its content, its
+ * creation time, its kind, a replayed flag and the request body, so a record torn by a crash fails its CRC and ends the
+ * segment. Replayed records are flagged in place, so that after a restart only the records not replayed yet are sent
+ * again.
+ * <p>
+ * The active segment is rotated when full or when open for longer than
+ * {@link SpoolConfiguration#getSegmentMaxAge()}, its records being replayed while it is written. When the segments,
+ * the active one included, would exceed {@link SpoolConfiguration#getMaxSize()}, the oldest one is discarded; records
+ * older than {@link SpoolConfiguration#getMaxAge()} are discarded instead of replayed. Writes go to the page cache of
+ * the OS, so records survive a crash of the JVM, and segments are forced to disk when rotated and when the spool is
+ * closed.
+ */
+public class EventSpool {
+
+    /**
+     * Kind of a spooled request, telling where it is replayed.
+     */
+    public enum Kind {
+        TRACK, BATCH, IDENTIFY
+    }
+
+    static final String SEGMENT_PREFIX = "castle-spool-";
+    static final String SEGMENT_SUFFIX = ".seg";
+    private static final String LOCK_FILE = "castle-spool.lock";
+
+    /**
+     * Length, CRC, creation time, kind and replayed flag.
+     */
+    static final int HEADER_SIZE = 4 + 4 + 8 + 1 + 1;
+    private static final int REPLAYED_OFFSET = 17;
+
+    private final SpoolConfiguration configuration;
+    private final File directory;
+    private final int maxSegments;
+    private final RandomAccessFile lockFile;
+    private final FileLock lock;
+
+    private final Deque<Segment> closedSegments = new ArrayDeque<>();
+    private Segment active;
+    private long nextSequence;
+    private boolean closed;
+
+    private long pending;
+    private long spooled;
+    private long replayed;
+    private long discarded;
+
+    private EventSpool(SpoolConfiguration configuration, RandomAccessFile lockFile, FileLock lock) {
+        this.configuration = configuration;
+        this.directory = new File(configuration.getDirectory());
+        this.maxSegments = (int) Math.max(1, configuration.getMaxSize() / configuration.getSegmentSize());
+        this.lockFile = lockFile;
+        this.lock = lock;
+    }
+
+    /**
+     * Opens the spool in its directory, recovering the records left by a previous run.
+     *
+     * @param configuration settings of the spool
+     * @return the spool
+     * @throws IOException when the directory can not be used, or is already used by another spool
+     */
+    public static EventSpool open(SpoolConfiguration configuration) throws IOException {
+        File directory = new File(configuration.getDirectory());
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can not create spool directory " + directory);
+        }
+        RandomAccessFile lockFile = new RandomAccessFile(new File(directory, LOCK_FILE), "rw");
+        FileLock lock;
+        try {
+            lock = lockFile.getChannel().tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        } catch (IOException e) {
+            lockFile.close();
+            throw e;
+        }
+        if (lock == null) {
+            lockFile.close();
+            throw new IOException("Spool directory " + directory + " is used by another spool");
+        }
+        EventSpool spool = new EventSpool(configuration, lockFile, lock);
+        spool.recover();
+        return spool;
+    }
+
+    private void recover() throws IOException {
+        File[] files = directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }
+        });
+        if (files == null) {
+            throw new IOException("Can not list spool directory " + directory);
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            long sequence = sequenceOf(file);
+            if (sequence < 0) {
+                continue;
+            }
+            nextSequence = Math.max(nextSequence, sequence + 1);
+            Segment segment = Segment.open(file, (int) file.length());
+            try {
+                segment.scan();
+            } catch (IOException e) {
+                segment.close();
+                throw e;
+            }
+            if (segment.remaining == 0) {
+                segment.delete();
+            } else {
+                closedSegments.addLast(segment);
+                pending += segment.remaining;
+            }
+        }
+        if (pending > 0) {
+            Castle.logger.info("Castle spool recovered {} requests from {}.", pending, directory);
+        }
+    }
+
+    private static long sequenceOf(File file) {
+        String name = file.getName();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Appends a request to the journal.
+     *
+     * @param kind kind of the request
+     * @param body body of the request
+     * @return true if the request was spooled
+     */
+    public synchronized boolean append(Kind kind, byte[] body) {
+        if (closed) {
+            return false;
+        }
+        int size = HEADER_SIZE + body.length;
+        if (size > configuration.getSegmentSize()) {
+            discarded++;
+            Castle.logger.warn("Castle spool discarded a request of {} bytes, larger than a segment.", body.length);
+            return false;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            if (active != null && (active.writePosition + size > active.size
+                    || now - active.createdAt > configuration.getSegmentMaxAge())) {
+                rotate();
+            }
+            if (active == null) {
+                active = newSegment(now);
+            }
+            active.write(kind, now, body);
+            pending++;
+            spooled++;
+            return true;
+        } catch (IOException e) {
+            Castle.logger.error("Castle spool could not write to " + directory, e);
+            return false;
+        }
+    }
+
+    private Segment newSegment(long now) throws IOException {
+        // The new segment counts in the size of the spool
+        while (!closedSegments.isEmpty() && closedSegments.size() + 1 > maxSegments) {
+            Segment oldest = closedSegments.removeFirst();
+            pending -= oldest.remaining;
+            discarded += oldest.remaining;
+            Castle.logger.warn("Castle spool is full, discarded {} requests.", oldest.remaining);
+            oldest.delete();
+        }
+        File file = new File(directory, String.format("%s%020d%s", SEGMENT_PREFIX, nextSequence, SEGMENT_SUFFIX));
+        nextSequence++;
+        Segment segment = Segment.open(file, configuration.getSegmentSize());
+        segment.createdAt = now;
+        return segment;
+    }
+
+    private void rotate() throws IOException {
+        if (active == null) {
+            return;
+        }
+        if (active.remaining > 0) {
+            active.force();
+            closedSegments.addLast(active);
+        } else {
+            active.delete();
+        }
+        active = null;
+    }
+
+    /**
+     * Gets the oldest request not replayed yet, discarding the expired ones. Records of the active segment are read
+     * once the older segments are replayed.
+     *
+     * @return the record, or null when the spool is empty
+     */
+    public synchronized Record peek() {
+        long expiredBefore = System.currentTimeMillis() - configuration.getMaxAge();
+        while (!closed) {
+            Segment segment = readSegment();
+            if (segment == null || segment == active && segment.remaining == 0) {
+                return null;
+            }
+            Record record;
+            try {
+                record = segment.read();
+            } catch (IOException e) {
+                Castle.logger.error("Castle spool could not read from " + directory, e);
+                return null;
+            }
+            if (record == null) {
+                if (segment == active) {
+                    return null;
+                }
+                pending -= segment.remaining;
+                discarded += segment.remaining;
+                closedSegments.removeFirst();
+                segment.delete();
+                continue;
+            }
+            if (record.createdAt < expiredBefore) {
+                markDone(record);
+                discarded++;
+                continue;
+            }
+            return record;
+        }
+        return null;
+    }
+
+    /**
+     * Marks a record returned by {@link #peek()} as replayed.
+     *
+     * @param record the record
+     */
+    public synchronized void commit(Record record) {
+        if (!closed && readSegment() == record.segment && record.segment.readPosition == record.position) {
+            markDone(record);
+            replayed++;
+        }
+    }
+
+    /**
+     * Gets the segment the records are replayed from: the oldest closed one, or the active one.
+     */
+    private Segment readSegment() {
+        Segment segment = closedSegments.peekFirst();
+        return segment != null ? segment : active;
+    }
+
+    private void markDone(Record record) {
+        Segment segment = record.segment;
+        try {
+            segment.markReplayed(record.position);
+        } catch (IOException e) {
+            // The record is sent again after a restart
+            Castle.logger.error("Castle spool could not write to " + directory, e);
+        }
+        segment.readPosition = record.end;
+        segment.remaining--;
+        pending--;
+    }
+
+    public synchronized SpoolStats getStats() {
+        return new SpoolStats(pending, spooled, replayed, discarded);
+    }
+
+    /**
+     * Forces the segments to disk and releases the directory. Records not replayed are kept for the next run.
+     */
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (active != null) {
+                if (active.remaining == 0) {
+                    active.delete();
+                } else {
+                    active.force();
+                    active.close();
+                }
+            }
+            for (Segment segment : closedSegments) {
+                segment.force();
+                segment.close();
+            }
+        } catch (IOException e) {
+            Castle.logger.error("Castle spool could not write to " + directory, e);
+        }
+        try {
+            lock.release();
+            lockFile.close();
+        } catch (IOException e) {
+            Castle.logger.error("Castle spool could not release " + directory, e);
+        }
+    }
+
+    /**
+     * A request read from the journal.
+     */
+    public static class Record {
+        private final Segment segment;
+        private final int position;
+        private final int end;
+        private final Kind kind;
+        private final long createdAt;
+        private final byte[] body;
+
+        private Record(Segment segment, int position, int end, Kind kind, long createdAt, byte[] body) {
+            this.segment = segment;
+            this.position = position;
+            this.end = end;
+            this.kind = kind;
+            this.createdAt = createdAt;
+            this.body = body;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public long getCreatedAt() {
+            return createdAt;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+    }
+
+    private static class Segment {
+        private final File file;
+        private final int size;
+        private final RandomAccessFile randomAccessFile;
+        private final FileChannel channel;
+        private final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        private long createdAt;
+        private int writePosition;
+        private int readPosition;
+        private int remaining;
+
+        private Segment(File file, int size, RandomAccessFile randomAccessFile) {
+            this.file = file;
+            this.size = size;
+            this.randomAccessFile = randomAccessFile;
+            this.channel = randomAccessFile.getChannel();
+        }
+
+        /**
+         * Opens a segment file, creating it when missing.
+         *
+         * @param size maximum size of the segment
+         */
+        static Segment open(File file, int size) throws IOException {
+            return new Segment(file, size, new RandomAccessFile(file, "rw"));
+        }
+
+        /**
+         * Finds the end of the records written by a previous run, and the first record not replayed.
+         */
+        void scan() throws IOException {
+            int position = 0;
+            readPosition = -1;
+            while (true) {
+                byte[] body = readRecord(position, size);
+                if (body == null) {
+                    break;
+                }
+                if (header.get(REPLAYED_OFFSET) == 0) {
+                    if (readPosition < 0) {
+                        readPosition = position;
+                    }
+                    remaining++;
+                }
+                position += HEADER_SIZE + body.length;
+            }
+            writePosition = position;
+            if (readPosition < 0) {
+                readPosition = position;
+            }
+            createdAt = file.lastModified();
+        }
+
+        void write(Kind kind, long createdAt, byte[] body) throws IOException {
+            ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + body.length);
+            record.putInt(body.length);
+            record.putInt(crc(createdAt, (byte) kind.ordinal(), body));
+            record.putLong(createdAt);
+            record.put((byte) kind.ordinal());
+            record.put((byte) 0);
+            record.put(body);
+            record.flip();
+            int position = writePosition;
+            while (record.hasRemaining()) {
+                channel.write(record, position + record.position());
+            }
+            writePosition = position + HEADER_SIZE + body.length;
+            remaining++;
+        }
+
+        /**
+         * Reads the first record not replayed.
+         *
+         * @return the record, or null at the end of the segment
+         */
+        Record read() throws IOException {
+            int position = readPosition;
+            while (true) {
+                byte[] body = readRecord(position, writePosition);
+                if (body == null) {
+                    return null;
+                }
+                int end = position + HEADER_SIZE + body.length;
+                if (header.get(REPLAYED_OFFSET) == 0) {
+                    readPosition = position;
+                    Kind kind = Kind.values()[header.get(16)];
+                    return new Record(this, position, end, kind, header.getLong(8), body);
+                }
+                position = end;
+            }
+        }
+
+        /**
+         * Reads and validates the record at a position, leaving its header in {@link #header}.
+         *
+         * @param limit position where the records of the segment end at the latest
+         * @return the body of the record, or null when there is no valid record at the position
+         */
+        private byte[] readRecord(int position, int limit) throws IOException {
+            if (position + HEADER_SIZE > limit) {
+                return null;
+            }
+            header.clear();
+            if (!readFully(header, position)) {
+                return null;
+            }
+            int length = header.getInt(0);
+            if (length <= 0 || length > limit - position - HEADER_SIZE) {
+                return null;
+            }
+            byte kind = header.get(16);
+            if (kind < 0 || kind >= Kind.values().length) {
+                return null;
+            }
+            byte[] body = new byte[length];
+            if (!readFully(ByteBuffer.wrap(body), position + HEADER_SIZE)) {
+                return null;
+            }
+            if (crc(header.getLong(8), kind, body) != header.getInt(4)) {
+                return null;
+            }
+            return body;
+        }
+
+        /**
+         * Fills a buffer from a position of the file.
+         *
+         * @return false when the file ends first
+         */
+        private boolean readFully(ByteBuffer target, int position) throws IOException {
+            while (target.hasRemaining()) {
+                if (channel.read(target, position + target.position()) < 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void markReplayed(int position) throws IOException {
+            ByteBuffer flag = ByteBuffer.wrap(new byte[]{1});
+            while (flag.hasRemaining()) {
+                channel.write(flag, position + REPLAYED_OFFSET);
+            }
+        }
+
+        void force() throws IOException {
+            channel.force(false);
+        }
+
+        void close() {
+            try {
+                randomAccessFile.close();
+            } catch (IOException e) {
+                Castle.logger.warn("Castle spool could not close segment {}.", file);
+            }
+        }
+
+        void delete() {
+            // Closed first, an open file can not be deleted on every OS
+            close();
+            if (!file.delete() && file.exists()) {
+                Castle.logger.warn("Castle spool could not delete segment {}.", file);
+            }
+        }
+
+        private static int crc(long createdAt, byte kind, byte[] body) {
+            CRC32 crc = new CRC32();
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                crc.update((int) (createdAt >>> shift));
+            }
+            crc.update(kind);
+            crc.update(body, 0, body.length);
+            return (int) crc.getValue();
+        }
+    }
+}
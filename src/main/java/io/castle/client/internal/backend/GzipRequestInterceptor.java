@@ -0,0 +1,164 @@
+package io.castle.client.internal.backend;
+
+import io.castle.client.model.CastleEndpoint;
+import io.castle.client.model.CastleMetrics;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ForwardingSink;
+import okio.GzipSink;
+import okio.Okio;
+
+import java.io.IOException;
+
+/**
+ * Gzips the bodies of the requests sent to an endpoint, when they are at least a threshold in size.
+ * <p>
+ * Bodies of unknown length, like the streamed authenticate and track payloads, are written to memory until they reach
+ * the threshold, to learn if they need compressing. Bodies reaching it are compressed while they are written to the
+ * connection, so neither the body nor its compressed form is held in memory, and are sent with chunked encoding. The
+ * retry and hedging logic, which run after this interceptor, compress the body again when sending it again. The sizes
+ * before and after compression and the time spent compressing are recorded into the {@link CastleMetrics} when set.
+ */
+class GzipRequestInterceptor implements AsyncInterceptor {
+
+    private final CastleEndpoint endpoint;
+    private final int threshold;
+    private final CastleMetrics metrics;
+
+    GzipRequestInterceptor(CastleEndpoint endpoint, int threshold, CastleMetrics metrics) {
+        this.endpoint = endpoint;
+        this.threshold = threshold;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        return chain.proceed(compress(chain.request()));
+    }
+
+    @Override
+    public Exchange start(Request request) throws IOException {
+        return new Exchange(compress(request));
+    }
+
+    /**
+     * Gets the request to send in place of a request, with a gzipped body when it reaches the threshold.
+     */
+    private Request compress(Request request) throws IOException {
+        RequestBody body = request.body();
+        if (body == null || request.header("Content-Encoding") != null) {
+            return request;
+        }
+        long contentLength = body.contentLength();
+        if (contentLength >= 0 && contentLength < threshold) {
+            return request;
+        }
+        if (contentLength < 0) {
+            Buffer buffer = bufferBelowThreshold(body);
+            if (buffer != null) {
+                RequestBody bufferedBody = RequestBody.create(body.contentType(), buffer.readByteString());
+                return request.newBuilder().method(request.method(), bufferedBody).build();
+            }
+        }
+        return request.newBuilder()
+                .header("Content-Encoding", "gzip")
+                .method(request.method(), new GzipRequestBody(body))
+                .build();
+    }
+
+    /**
+     * Writes a body of unknown length to memory, stopping once it reaches the threshold.
+     *
+     * @return the whole body, or null when it reaches the threshold
+     */
+    private Buffer bufferBelowThreshold(RequestBody body) throws IOException {
+        final Buffer buffer = new Buffer();
+        BufferedSink sink = Okio.buffer(new ForwardingSink(buffer) {
+            @Override
+            public void write(Buffer source, long byteCount) throws IOException {
+                super.write(source, byteCount);
+                if (buffer.size() >= threshold) {
+                    throw new ThresholdReachedException();
+                }
+            }
+        });
+        try {
+            body.writeTo(sink);
+            sink.flush();
+        } catch (ThresholdReachedException e) {
+            return null;
+        }
+        return buffer.size() >= threshold ? null : buffer;
+    }
+
+    /**
+     * Thrown to stop writing a body to memory once it reaches the threshold.
+     */
+    private static class ThresholdReachedException extends IOException {
+    }
+
+    /**
+     * Body compressing its delegate while it is written.
+     */
+    private class GzipRequestBody extends RequestBody {
+        private final RequestBody delegate;
+
+        private GzipRequestBody(RequestBody delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return delegate.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return -1;
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            final long[] compressedSize = new long[1];
+            GzipSink gzipSink = new GzipSink(new ForwardingSink(sink) {
+                @Override
+                public void write(Buffer source, long byteCount) throws IOException {
+                    super.write(source, byteCount);
+                    compressedSize[0] += byteCount;
+                }
+
+                @Override
+                public void close() {
+                    // Closing the gzip sink writes the trailer, the sink of OkHttp is closed by OkHttp
+                }
+            });
+            final long[] size = new long[1];
+            final long[] nanos = new long[1];
+            BufferedSink compressingSink = Okio.buffer(new ForwardingSink(gzipSink) {
+                @Override
+                public void write(Buffer source, long byteCount) throws IOException {
+                    long start = System.nanoTime();
+                    super.write(source, byteCount);
+                    nanos[0] += System.nanoTime() - start;
+                    size[0] += byteCount;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    long start = System.nanoTime();
+                    super.close();
+                    nanos[0] += System.nanoTime() - start;
+                }
+            });
+            delegate.writeTo(compressingSink);
+            compressingSink.close();
+            if (metrics != null) {
+                metrics.recordCompression(endpoint, size[0], compressedSize[0], nanos[0]);
+            }
+        }
+    }
+}
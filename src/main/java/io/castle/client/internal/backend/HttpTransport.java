@@ -0,0 +1,36 @@
+package io.castle.client.internal.backend;
+
+import io.castle.client.internal.config.CastleConfiguration;
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+
+/**
+ * Sends the requests of the SDK with an HTTP client other than OkHttp.
+ * <p>
+ * OkHttp keeps building the requests, and the SDK keeps running its interceptors, like compression, retries, hedging
+ * and metrics. The calls are created by the transport instead of OkHttp, so they use neither the OkHttp dispatcher
+ * nor its network stack. Implementations are created by their {@link CastleBackendProvider} through a public
+ * constructor taking the {@link CastleConfiguration}, and are shared by all calls, so they must be thread-safe.
+ */
+public interface HttpTransport {
+
+    /**
+     * Creates the factory of the calls sending the requests of an endpoint.
+     * <p>
+     * Synchronous calls run the interceptors of the client on the calling thread. Asynchronous calls run the
+     * {@link AsyncInterceptor}s around the exchange and complete once the response is received, without holding a
+     * thread while waiting for it. The timeouts of the client apply to the calls, and cancelling a call, for example
+     * because a hedged request answered first, abandons its request.
+     *
+     * @param client the client of the endpoint, giving its interceptors and timeouts
+     * @return the factory of the calls
+     */
+    Call.Factory newCallFactory(OkHttpClient client);
+
+    /**
+     * Releases the connections and threads of the transport.
+     * <p>
+     * Requests sent through the transport after it has been closed fail.
+     */
+    void close();
+}
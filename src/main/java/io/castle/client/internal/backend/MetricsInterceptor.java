@@ -0,0 +1,113 @@
+package io.castle.client.internal.backend;
+
+import io.castle.client.model.CastleEndpoint;
+import io.castle.client.model.CastleMetrics;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ForwardingSink;
+import okio.Okio;
+
+import java.io.IOException;
+
+/**
+ * Records the latency, status code and body size of each request sent to an endpoint into the {@link CastleMetrics}.
+ * <p>
+ * Installed after the retry interceptor, so that every retried or hedged request is recorded on its own.
+ */
+class MetricsInterceptor implements AsyncInterceptor {
+
+    private final CastleEndpoint endpoint;
+    private final CastleMetrics metrics;
+
+    MetricsInterceptor(CastleEndpoint endpoint, CastleMetrics metrics) {
+        this.endpoint = endpoint;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Exchange exchange = start(chain.request());
+        Response response;
+        try {
+            response = chain.proceed(exchange.request());
+        } catch (IOException e) {
+            exchange.onFailure(e);
+            throw e;
+        }
+        exchange.onResponse(response);
+        return response;
+    }
+
+    @Override
+    public Exchange start(Request request) throws IOException {
+        RequestBody body = request.body();
+        CountingRequestBody countingBody = null;
+        if (body != null) {
+            long contentLength = body.contentLength();
+            if (contentLength >= 0) {
+                metrics.recordPayloadSize(endpoint, contentLength);
+            } else {
+                countingBody = new CountingRequestBody(body);
+                request = request.newBuilder().method(request.method(), countingBody).build();
+            }
+        }
+        final CountingRequestBody counted = countingBody;
+        final long start = System.nanoTime();
+        return new Exchange(request) {
+            @Override
+            void onResponse(Response response) {
+                metrics.recordRequest(endpoint, response.code(), System.nanoTime() - start);
+                recordCountedSize(counted);
+            }
+
+            @Override
+            void onFailure(IOException e) {
+                metrics.recordRequestFailure(endpoint, System.nanoTime() - start);
+                recordCountedSize(counted);
+            }
+        };
+    }
+
+    private void recordCountedSize(CountingRequestBody body) {
+        if (body != null && body.written >= 0) {
+            metrics.recordPayloadSize(endpoint, body.written);
+        }
+    }
+
+    /**
+     * Body of unknown length counting the bytes written by its delegate.
+     */
+    private static class CountingRequestBody extends RequestBody {
+        private final RequestBody delegate;
+        private volatile long written = -1;
+
+        private CountingRequestBody(RequestBody delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return delegate.contentType();
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            final long[] count = new long[1];
+            BufferedSink countingSink = Okio.buffer(new ForwardingSink(sink) {
+                @Override
+                public void write(Buffer source, long byteCount) throws IOException {
+                    super.write(source, byteCount);
+                    count[0] += byteCount;
+                }
+            });
+            delegate.writeTo(countingSink);
+            // Moves the buffered bytes to the sink of OkHttp without flushing the connection
+            countingSink.emit();
+            written = count[0];
+        }
+    }
+}
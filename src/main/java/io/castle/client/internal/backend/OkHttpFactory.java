@@ -1,8 +1,16 @@
 package io.castle.client.internal.backend;
 
 import com.google.common.collect.ImmutableList;
+import io.castle.client.Castle;
 import io.castle.client.internal.config.CastleConfiguration;
+import io.castle.client.internal.config.HttpClientConfiguration;
+import io.castle.client.internal.config.SpoolConfiguration;
 import io.castle.client.internal.json.CastleGsonModel;
+import io.castle.client.model.CircuitBreakerState;
+import io.castle.client.model.HedgeStats;
+import io.castle.client.model.ResponseCacheStats;
+import io.castle.client.model.RetryStats;
+import io.castle.client.model.SpoolStats;
 import okhttp3.*;
 import okhttp3.logging.HttpLoggingInterceptor;
 
@@ -15,21 +23,58 @@ public class OkHttpFactory implements RestApiFactory {
     private final OkHttpClient client;
     private final CastleGsonModel modelInstance;
     private final CastleConfiguration configuration;
+    private final HttpTransport transport;
+    private final OkRestApiBackend backend;
+    private final EventSpool spool;
+    private final SpoolReplayer replayer;
 
     public OkHttpFactory(CastleConfiguration configuration, CastleGsonModel modelInstance) {
         this.configuration = configuration;
         this.modelInstance = modelInstance;
         client = createOkHttpClient();
+        SpoolConfiguration spoolConfiguration = configuration.getSpoolConfiguration();
+        spool = spoolConfiguration != null && spoolConfiguration.isEnabled() ? openSpool(spoolConfiguration) : null;
+        transport = configuration.getBackendProvider().createTransport(configuration);
+        // OkRestApiBackend is immutable and OkHttpClient is thread-safe, so one backend serves all calls.
+        backend = new OkRestApiBackend(client, modelInstance, configuration, spool, transport);
+        if (spool != null) {
+            replayer = new SpoolReplayer(spool, backend, spoolConfiguration.getReplayRate());
+            replayer.start();
+        } else {
+            replayer = null;
+        }
+    }
+
+    /**
+     * Opens the spool, or logs why it can not be used and goes on without spooling.
+     */
+    private static EventSpool openSpool(SpoolConfiguration spoolConfiguration) {
+        try {
+            return EventSpool.open(spoolConfiguration);
+        } catch (IOException e) {
+            Castle.logger.error("Castle spool disabled, can not open " + spoolConfiguration.getDirectory(), e);
+            return null;
+        }
     }
 
     private OkHttpClient createOkHttpClient() {
         final String credential = Credentials.basic("", configuration.getApiSecret());
+        HttpClientConfiguration httpConfiguration = configuration.getHttpClientConfiguration();
 
         OkHttpClient.Builder builder = new OkHttpClient()
                 .newBuilder()
                 .connectTimeout(configuration.getTimeout(), TimeUnit.MILLISECONDS)
                 .readTimeout(configuration.getTimeout(), TimeUnit.MILLISECONDS)
-                .writeTimeout(configuration.getTimeout(), TimeUnit.MILLISECONDS);
+                .writeTimeout(configuration.getTimeout(), TimeUnit.MILLISECONDS)
+                .callTimeout(configuration.getTimeoutConfiguration().getCallTimeout(), TimeUnit.MILLISECONDS)
+                .dispatcher(createDispatcher(httpConfiguration))
+                .connectionPool(new ConnectionPool(
+                        httpConfiguration.getConnectionPoolSize(),
+                        httpConfiguration.getKeepAliveDuration(),
+                        TimeUnit.MILLISECONDS));
+        if (!httpConfiguration.isHttp2()) {
+            builder = builder.protocols(Collections.singletonList(Protocol.HTTP_1_1));
+        }
         if (configuration.isLogHttpRequests()) {
             HttpLoggingInterceptor logging = new HttpLoggingInterceptor();
             // TODO provide more configurable logging features.
@@ -38,13 +83,20 @@ public class OkHttpFactory implements RestApiFactory {
         }
 
         OkHttpClient client = builder
-                .addInterceptor(new Interceptor() {
+                .addInterceptor(new AsyncInterceptor() {
                     @Override
                     public Response intercept(Chain chain) throws IOException {
-                        Request request = chain.request();
-                        Request authenticatedRequest = request.newBuilder()
+                        return chain.proceed(authenticate(chain.request()));
+                    }
+
+                    @Override
+                    public Exchange start(Request request) {
+                        return new Exchange(authenticate(request));
+                    }
+
+                    private Request authenticate(Request request) {
+                        return request.newBuilder()
                                 .header("Authorization", credential).build();
-                        return chain.proceed(authenticatedRequest);
                     }
                 })
                 .connectionSpecs(ImmutableList.of(ConnectionSpec.COMPATIBLE_TLS, ConnectionSpec.CLEARTEXT))
@@ -53,8 +105,79 @@ public class OkHttpFactory implements RestApiFactory {
         return client;
     }
 
+    private static Dispatcher createDispatcher(HttpClientConfiguration httpConfiguration) {
+        Dispatcher dispatcher = httpConfiguration.getExecutorService() == null
+                ? new Dispatcher()
+                : new Dispatcher(httpConfiguration.getExecutorService());
+        dispatcher.setMaxRequests(httpConfiguration.getMaxRequests());
+        dispatcher.setMaxRequestsPerHost(httpConfiguration.getMaxRequestsPerHost());
+        return dispatcher;
+    }
+
+    OkHttpClient getClient() {
+        return client;
+    }
+
     @Override
     public RestApi buildBackend() {
-        return new OkRestApiBackend(client, modelInstance, configuration);
+        return backend;
+    }
+
+    @Override
+    public CircuitBreakerState getCircuitBreakerState() {
+        CircuitBreaker circuitBreaker = backend.getCircuitBreaker();
+        return circuitBreaker != null ? circuitBreaker.getState() : null;
+    }
+
+    @Override
+    public RetryStats getRetryStats() {
+        Retrier retrier = backend.getRetrier();
+        return retrier != null ? retrier.getStats() : null;
+    }
+
+    @Override
+    public HedgeStats getHedgeStats() {
+        AuthenticateHedger hedger = backend.getHedger();
+        return hedger != null ? hedger.getStats() : null;
+    }
+
+    @Override
+    public EventSpool getEventSpool() {
+        return spool;
+    }
+
+    @Override
+    public SpoolStats getSpoolStats() {
+        return spool != null ? spool.getStats() : null;
+    }
+
+    @Override
+    public ResponseCacheStats getResponseCacheStats() {
+        ResponseCache responseCache = backend.getResponseCache();
+        return responseCache != null ? responseCache.getStats() : null;
+    }
+
+    @Override
+    public void close() {
+        if (replayer != null) {
+            replayer.stop(configuration.getTimeout());
+            spool.close();
+        }
+        Retrier retrier = backend.getRetrier();
+        if (retrier != null) {
+            retrier.close();
+        }
+        AuthenticateHedger hedger = backend.getHedger();
+        if (hedger != null) {
+            hedger.close();
+        }
+        // A custom executor belongs to the application, which shuts it down
+        if (configuration.getHttpClientConfiguration().getExecutorService() == null) {
+            client.dispatcher().executorService().shutdown();
+        }
+        client.connectionPool().evictAll();
+        if (transport != null) {
+            transport.close();
+        }
     }
 }
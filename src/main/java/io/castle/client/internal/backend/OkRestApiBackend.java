@@ -1,25 +1,55 @@
 package io.castle.client.internal.backend;
 
 import com.google.gson.*;
+import com.google.gson.stream.JsonWriter;
 import io.castle.client.Castle;
+import io.castle.client.internal.config.CacheConfiguration;
 import io.castle.client.internal.config.CastleConfiguration;
+import io.castle.client.internal.config.CircuitBreakerConfiguration;
+import io.castle.client.internal.config.CompressionConfiguration;
+import io.castle.client.internal.config.HedgingConfiguration;
+import io.castle.client.internal.config.RetryConfiguration;
+import io.castle.client.internal.config.TimeoutConfiguration;
 import io.castle.client.internal.json.CastleGsonModel;
+import io.castle.client.internal.json.CastleMessagePayload;
+import io.castle.client.internal.json.VerdictReader;
 import io.castle.client.internal.utils.OkHttpExceptionUtil;
 import io.castle.client.internal.utils.VerdictBuilder;
-import io.castle.client.internal.utils.VerdictTransportModel;
 import io.castle.client.model.*;
 import okhttp3.*;
+import okio.Buffer;
+import okio.BufferedSink;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 public class OkRestApiBackend implements RestApi {
 
     private final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
-    private final OkHttpClient client;
+    private final Map<CastleEndpoint, Call.Factory> clients;
+    private final int callTimeout;
     private final CastleGsonModel model;
     private final CastleConfiguration configuration;
+    private final VerdictReader verdictReader;
+    private final CircuitBreaker circuitBreaker;
+    private final Retrier retrier;
+    private final AuthenticateHedger hedger;
+    private final CastleMetrics metrics;
+    private final EventSpool spool;
+    private final ResponseCache responseCache;
+    private final RequestCoalescer coalescer;
 
     private final HttpUrl track;
+    private final HttpUrl batch;
     private final HttpUrl authenticate;
     private final HttpUrl identify;
     private final HttpUrl reviewsBase;
@@ -29,11 +59,52 @@ public class OkRestApiBackend implements RestApi {
     private final HttpUrl privacyBase;
 
     public OkRestApiBackend(OkHttpClient client, CastleGsonModel model, CastleConfiguration configuration) {
+        this(client, model, configuration, null);
+    }
+
+    /**
+     * Creates a backend spooling the track and identify requests failing because of the Castle API.
+     *
+     * @param spool journal of the failed requests, null to not spool them
+     */
+    public OkRestApiBackend(OkHttpClient client, CastleGsonModel model, CastleConfiguration configuration, EventSpool spool) {
+        this(client, model, configuration, spool, null);
+    }
+
+    /**
+     * Creates a backend sending its requests through a transport other than OkHttp.
+     *
+     * @param spool     journal of the failed requests, null to not spool them
+     * @param transport transport sending the requests, null to send them with the given client
+     */
+    public OkRestApiBackend(OkHttpClient client, CastleGsonModel model, CastleConfiguration configuration, EventSpool spool, HttpTransport transport) {
         HttpUrl baseUrl = HttpUrl.parse(configuration.getApiBaseUrl());
-        this.client = client;
+        this.metrics = configuration.getMetrics();
+        RetryConfiguration retryConfiguration = configuration.getRetryConfiguration();
+        this.retrier = retryConfiguration != null && retryConfiguration.isEnabled()
+                ? new Retrier(retryConfiguration, metrics)
+                : null;
+        this.spool = spool;
+        this.clients = createEndpointClients(client, configuration.getTimeoutConfiguration(), configuration.getCompressionConfiguration(), retrier, metrics, transport);
+        this.callTimeout = -1;
         this.model = model;
         this.configuration = configuration;
+        this.verdictReader = new VerdictReader(model.getGson(), configuration.isRetainVerdictInternal());
+        CircuitBreakerConfiguration circuitBreakerConfiguration = configuration.getCircuitBreakerConfiguration();
+        this.circuitBreaker = circuitBreakerConfiguration != null && circuitBreakerConfiguration.isEnabled()
+                ? new CircuitBreaker(circuitBreakerConfiguration)
+                : null;
+        HedgingConfiguration hedgingConfiguration = configuration.getHedgingConfiguration();
+        this.hedger = hedgingConfiguration != null && hedgingConfiguration.isEnabled()
+                ? new AuthenticateHedger(hedgingConfiguration)
+                : null;
+        CacheConfiguration cacheConfiguration = configuration.getCacheConfiguration();
+        this.responseCache = cacheConfiguration != null && cacheConfiguration.isEnabled()
+                ? new ResponseCache(cacheConfiguration)
+                : null;
+        this.coalescer = configuration.isRequestCoalescing() ? new RequestCoalescer() : null;
         this.track = baseUrl.resolve("/v1/track");
+        this.batch = baseUrl.resolve("/v1/batch");
         this.authenticate = baseUrl.resolve("/v1/authenticate");
         this.reviewsBase = baseUrl.resolve("/v1/reviews/");
         this.identify = baseUrl.resolve("/v1/identify");
@@ -43,17 +114,215 @@ public class OkRestApiBackend implements RestApi {
         this.privacyBase = baseUrl.resolve("/v1/privacy/");
     }
 
+    private OkRestApiBackend(OkRestApiBackend backend, int callTimeout) {
+        this.clients = backend.clients;
+        this.callTimeout = callTimeout;
+        this.model = backend.model;
+        this.configuration = backend.configuration;
+        this.verdictReader = backend.verdictReader;
+        this.circuitBreaker = backend.circuitBreaker;
+        this.retrier = backend.retrier;
+        this.hedger = backend.hedger;
+        this.metrics = backend.metrics;
+        this.spool = backend.spool;
+        this.responseCache = backend.responseCache;
+        this.coalescer = backend.coalescer;
+        this.track = backend.track;
+        this.batch = backend.batch;
+        this.authenticate = backend.authenticate;
+        this.reviewsBase = backend.reviewsBase;
+        this.identify = backend.identify;
+        this.deviceBase = backend.deviceBase;
+        this.userBase = backend.userBase;
+        this.impersonateBase = backend.impersonateBase;
+        this.privacyBase = backend.privacyBase;
+    }
+
+    /**
+     * Derives a client for each endpoint with its own timeouts, compression, retry and metrics interceptors.
+     * <p>
+     * Derived clients share the connection pool and dispatcher of the given client, endpoints using the default
+     * timeouts without compression, retries or metrics use the given client itself. Bodies are compressed before the
+     * retries, and the metrics come last, so that each request sent is measured with its compressed size. With a
+     * transport, the calls of each endpoint are created by the transport from the client of the endpoint.
+     */
+    private static Map<CastleEndpoint, Call.Factory> createEndpointClients(OkHttpClient client, TimeoutConfiguration timeouts, CompressionConfiguration compression, Retrier retrier, CastleMetrics metrics, HttpTransport transport) {
+        boolean compressed = compression != null && compression.isEnabled();
+        Map<CastleEndpoint, Call.Factory> clients = new EnumMap<>(CastleEndpoint.class);
+        for (CastleEndpoint endpoint : CastleEndpoint.values()) {
+            int timeout = timeouts.getTimeout(endpoint);
+            int callTimeout = timeouts.getCallTimeout(endpoint);
+            OkHttpClient endpointClient;
+            if (timeout == timeouts.getTimeout() && callTimeout == timeouts.getCallTimeout() && !compressed && retrier == null && metrics == null) {
+                endpointClient = client;
+            } else {
+                OkHttpClient.Builder builder = client.newBuilder()
+                        .connectTimeout(timeout, TimeUnit.MILLISECONDS)
+                        .readTimeout(timeout, TimeUnit.MILLISECONDS)
+                        .writeTimeout(timeout, TimeUnit.MILLISECONDS)
+                        .callTimeout(callTimeout, TimeUnit.MILLISECONDS);
+                if (compressed) {
+                    builder.addInterceptor(new GzipRequestInterceptor(endpoint, compression.getThreshold(), metrics));
+                }
+                if (retrier != null) {
+                    builder.addInterceptor(retrier.interceptor(endpoint));
+                }
+                if (metrics != null) {
+                    builder.addInterceptor(new MetricsInterceptor(endpoint, metrics));
+                }
+                endpointClient = builder.build();
+            }
+            clients.put(endpoint, transport != null ? transport.newCallFactory(endpointClient) : endpointClient);
+        }
+        return clients;
+    }
+
+    /**
+     * Gets the circuit breaker guarding the authenticate endpoint.
+     *
+     * @return the circuit breaker, or null when it is disabled
+     */
+    CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Gets the retrier of failed requests.
+     *
+     * @return the retrier, or null when retries are disabled
+     */
+    Retrier getRetrier() {
+        return retrier;
+    }
+
+    /**
+     * Gets the hedger of synchronous authenticate requests.
+     *
+     * @return the hedger, or null when hedging is disabled
+     */
+    AuthenticateHedger getHedger() {
+        return hedger;
+    }
+
+    /**
+     * Gets the cache of the device, user devices and review lookups.
+     *
+     * @return the cache, or null when caching is disabled
+     */
+    ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Gets the coalescer of concurrent identical GET requests.
+     *
+     * @return the coalescer, or null when coalescing is disabled
+     */
+    RequestCoalescer getCoalescer() {
+        return coalescer;
+    }
+
+    @Override
+    public RestApi withCallTimeout(int callTimeout) {
+        return new OkRestApiBackend(this, callTimeout);
+    }
+
+    /**
+     * Creates the call of a request to an endpoint, replacing its call timeout when one was set for this backend.
+     */
+    private Call newCall(Request request, CastleEndpoint endpoint) {
+        Call call = clients.get(endpoint).newCall(request);
+        if (callTimeout >= 0) {
+            call.timeout().timeout(callTimeout, TimeUnit.MILLISECONDS);
+        }
+        return call;
+    }
+
+    /**
+     * Enqueues the call of a request to an endpoint, through the retrier when retries are enabled so that waiting
+     * retries do not hold a thread of the dispatcher.
+     */
+    private void enqueue(Request request, final CastleEndpoint endpoint, Callback callback) {
+        if (retrier == null) {
+            newCall(request, endpoint).enqueue(callback);
+            return;
+        }
+        retrier.enqueue(new Call.Factory() {
+            @Override
+            public Call newCall(Request request) {
+                return OkRestApiBackend.this.newCall(request, endpoint);
+            }
+        }, request, endpoint, callback);
+    }
+
+    /**
+     * Executes a GET request, sharing its call with the other threads making the same request at the same time when
+     * coalescing is enabled.
+     */
+    private Response executeGet(Request request, CastleEndpoint endpoint) throws IOException {
+        Call call = newCall(request, endpoint);
+        if (coalescer == null) {
+            return call.execute();
+        }
+        return coalescer.execute(request.url() + " " + call.timeout().timeoutNanos(), call);
+    }
+
     @Override
-    public void sendTrackRequest(JsonElement payload, final AsyncCallbackHandler<Boolean> asyncCallbackHandler) {
-        RequestBody body = buildRequestBody(payload);
+    public void sendTrackRequest(JsonElement payload, AsyncCallbackHandler<Boolean> asyncCallbackHandler) {
+        sendTrackRequest(buildRequestBody(payload), asyncCallbackHandler);
+    }
+
+    @Override
+    public void sendTrackRequest(CastleMessagePayload payload, AsyncCallbackHandler<Boolean> asyncCallbackHandler) {
+        sendTrackRequest(new PayloadRequestBody(payload).snapshot(), asyncCallbackHandler);
+    }
+
+    private void sendTrackRequest(RequestBody body, final AsyncCallbackHandler<Boolean> asyncCallbackHandler) {
         Request request = new Request.Builder()
                 .url(track)
                 .post(body)
                 .build();
-        client.newCall(request).enqueue(new Callback() {
+        enqueue(request, CastleEndpoint.TRACK, new Callback() {
             @Override
             public void onFailure(Call call, IOException e) {
                 Castle.logger.error("HTTP layer. Error sending track request.", e);
+                spool(EventSpool.Kind.TRACK, call);
+                if (asyncCallbackHandler != null) {
+                    asyncCallbackHandler.onException(e);
+                }
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) throws IOException {
+                try (ResponseBody responseBody = response.body()) {
+                    if (isSpoolable(response)) {
+                        spool(EventSpool.Kind.TRACK, call);
+                    }
+                    if (asyncCallbackHandler != null) {
+                        asyncCallbackHandler.onResponse(response.isSuccessful());
+                    }
+                }
+            }
+        });
+    }
+
+    @Override
+    public void sendTrackBatchRequest(List<JsonElement> payloadsJson, final AsyncCallbackHandler<Boolean> asyncCallbackHandler) {
+        JsonArray events = new JsonArray();
+        for (JsonElement payload : payloadsJson) {
+            events.add(payload);
+        }
+        JsonObject json = new JsonObject();
+        json.add("batch", events);
+        Request request = new Request.Builder()
+                .url(batch)
+                .post(buildRequestBody(json))
+                .build();
+        enqueue(request, CastleEndpoint.TRACK, new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                Castle.logger.error("HTTP layer. Error sending track batch request.", e);
+                spool(EventSpool.Kind.BATCH, call);
                 if (asyncCallbackHandler != null) {
                     asyncCallbackHandler.onException(e);
                 }
@@ -62,6 +331,9 @@ public class OkRestApiBackend implements RestApi {
             @Override
             public void onResponse(Call call, Response response) throws IOException {
                 try (ResponseBody responseBody = response.body()) {
+                    if (isSpoolable(response)) {
+                        spool(EventSpool.Kind.BATCH, call);
+                    }
                     if (asyncCallbackHandler != null) {
                         asyncCallbackHandler.onResponse(response.isSuccessful());
                     }
@@ -72,16 +344,36 @@ public class OkRestApiBackend implements RestApi {
 
     @Override
     public Verdict sendAuthenticateSync(JsonElement payloadJson) {
-        final String userId = getUserIdFromPayload(payloadJson);
+        String userId = getUserIdFromPayload(payloadJson);
+        return sendAuthenticateSync(buildRequestBody(payloadJson), userId);
+    }
 
-        RequestBody body = buildRequestBody(payloadJson);
+    @Override
+    public Verdict sendAuthenticateSync(CastleMessagePayload payload) {
+        String userId = checkUserId(payload.getUserId());
+        return sendAuthenticateSync(new PayloadRequestBody(payload), userId);
+    }
+
+    private Verdict sendAuthenticateSync(RequestBody body, String userId) {
+        if (circuitBreaker != null && !circuitBreaker.tryAcquire()) {
+            return circuitOpenVerdict(userId);
+        }
         Request request = new Request.Builder()
                 .url(authenticate)
                 .post(body)
                 .build();
-        try (Response response = client.newCall(request).execute()) {
+        // Set once the outcome is reported, so that a request failing in any other way still releases its permit
+        boolean recorded = false;
+        try (Response response = executeAuthenticate(request)) {
+            recordAuthenticateOutcome(response);
+            recorded = true;
             return extractAuthenticationAction(response, userId);
         } catch (IOException e) {
+            if (!recorded) {
+                recordAuthenticateFailure();
+                recorded = true;
+            }
+            recordFailover(e);
             Castle.logger.error("HTTP layer. Error sending request.", e);
             if (configuration.getAuthenticateFailoverStrategy().isThrowTimeoutException()) {
                 throw OkHttpExceptionUtil.handle(e);
@@ -91,21 +383,47 @@ public class OkRestApiBackend implements RestApi {
                         .withUserId(userId)
                         .build();
             }
+        } finally {
+            if (!recorded) {
+                recordAuthenticateFailure();
+            }
         }
     }
 
     @Override
-    public void sendAuthenticateAsync(JsonElement payloadJson, final AsyncCallbackHandler<Verdict> asyncCallbackHandler) {
-        final String userId = getUserIdFromPayload(payloadJson);
+    public void sendAuthenticateAsync(JsonElement payloadJson, AsyncCallbackHandler<Verdict> asyncCallbackHandler) {
+        String userId = getUserIdFromPayload(payloadJson);
+        sendAuthenticateAsync(buildRequestBody(payloadJson), userId, asyncCallbackHandler);
+    }
 
-        RequestBody body = buildRequestBody(payloadJson);
+    @Override
+    public void sendAuthenticateAsync(CastleMessagePayload payload, AsyncCallbackHandler<Verdict> asyncCallbackHandler) {
+        String userId = checkUserId(payload.getUserId());
+        sendAuthenticateAsync(new PayloadRequestBody(payload).snapshot(), userId, asyncCallbackHandler);
+    }
+
+    private void sendAuthenticateAsync(RequestBody body, final String userId, final AsyncCallbackHandler<Verdict> asyncCallbackHandler) {
+        if (circuitBreaker != null && !circuitBreaker.tryAcquire()) {
+            try {
+                asyncCallbackHandler.onResponse(circuitOpenVerdict(userId));
+            } catch (CastleRuntimeException e) {
+                asyncCallbackHandler.onException(e);
+            }
+            return;
+        }
         Request request = new Request.Builder()
                 .url(authenticate)
                 .post(body)
                 .build();
-        client.newCall(request).enqueue(new Callback() {
+        enqueue(request, CastleEndpoint.AUTHENTICATE, new Callback() {
             @Override
             public void onFailure(Call call, IOException e) {
+                recordAuthenticateFailure();
+                handleFailure(e);
+            }
+
+            private void handleFailure(IOException e) {
+                recordFailover(e);
                 if (configuration.getAuthenticateFailoverStrategy().isThrowTimeoutException()) {
                     asyncCallbackHandler.onException(OkHttpExceptionUtil.handle(e));
                 } else {
@@ -119,16 +437,151 @@ public class OkRestApiBackend implements RestApi {
             }
 
             @Override
-            public void onResponse(Call call, Response response) throws IOException {
+            public void onResponse(Call call, Response response) {
+                recordAuthenticateOutcome(response);
+                Verdict verdict;
                 try (ResponseBody responseBody = response.body()) {
-                    asyncCallbackHandler.onResponse(extractAuthenticationAction(response, userId));
+                    verdict = extractAuthenticationAction(response, userId);
+                } catch (IOException e) {
+                    handleFailure(e);
+                    return;
+                } catch (RuntimeException e) {
+                    asyncCallbackHandler.onException(e);
+                    return;
                 }
+                asyncCallbackHandler.onResponse(verdict);
             }
         });
     }
 
+    /**
+     * Executes an authenticate request, through the hedger when hedging is enabled.
+     */
+    private Response executeAuthenticate(Request request) throws IOException {
+        if (hedger == null) {
+            return newCall(request, CastleEndpoint.AUTHENTICATE).execute();
+        }
+        return hedger.execute(new Call.Factory() {
+            @Override
+            public Call newCall(Request request) {
+                return OkRestApiBackend.this.newCall(request, CastleEndpoint.AUTHENTICATE);
+            }
+        }, request);
+    }
+
+    /**
+     * Builds the verdict of an authenticate call rejected by the open circuit breaker, following the failover
+     * strategy.
+     */
+    private Verdict circuitOpenVerdict(String userId) {
+        recordFailover(FailoverReason.CIRCUIT_OPEN);
+        if (configuration.getAuthenticateFailoverStrategy().isThrowTimeoutException()) {
+            throw new CastleRuntimeException(CircuitBreaker.FAILOVER_REASON);
+        }
+        return VerdictBuilder.failover(CircuitBreaker.FAILOVER_REASON)
+                .withAction(configuration.getAuthenticateFailoverStrategy().getDefaultAction())
+                .withUserId(userId)
+                .build();
+    }
+
+    /**
+     * Reports an authenticate response to the circuit breaker, where server errors count as failures.
+     */
+    private void recordAuthenticateOutcome(Response response) {
+        if (circuitBreaker != null) {
+            if (response.code() >= 500) {
+                circuitBreaker.onFailure();
+            } else {
+                circuitBreaker.onSuccess();
+            }
+        }
+    }
+
+    private void recordAuthenticateFailure() {
+        if (circuitBreaker != null) {
+            circuitBreaker.onFailure();
+        }
+    }
+
+    private void recordFailover(IOException e) {
+        recordFailover(e instanceof InterruptedIOException ? FailoverReason.TIMEOUT : FailoverReason.IO_ERROR);
+    }
+
+    private void recordFailover(FailoverReason reason) {
+        if (metrics != null) {
+            metrics.recordFailover(reason);
+        }
+    }
+
+    /**
+     * Tells if a request failed because of the Castle API, and may succeed when sent again later.
+     */
+    private static boolean isSpoolable(Response response) {
+        return response.code() >= 500 || response.code() == 429;
+    }
+
+    /**
+     * Appends the body of a failed request to the spool, when spooling is enabled.
+     */
+    private void spool(EventSpool.Kind kind, Call call) {
+        if (spool == null || call.isCanceled()) {
+            return;
+        }
+        try {
+            Buffer buffer = new Buffer();
+            call.request().body().writeTo(buffer);
+            spool.append(kind, buffer.readByteArray());
+        } catch (IOException | RuntimeException e) {
+            Castle.logger.error("HTTP layer. Error spooling " + kind + " request.", e);
+        }
+    }
+
+    /**
+     * Sends a spooled request again, waiting for its response.
+     *
+     * @param record the spooled request
+     * @return false if the request failed because of the Castle API and should be replayed again later
+     */
+    boolean replay(EventSpool.Record record) {
+        HttpUrl url;
+        CastleEndpoint endpoint;
+        switch (record.getKind()) {
+            case BATCH:
+                url = batch;
+                endpoint = CastleEndpoint.TRACK;
+                break;
+            case IDENTIFY:
+                url = identify;
+                endpoint = CastleEndpoint.IDENTIFY;
+                break;
+            default:
+                url = track;
+                endpoint = CastleEndpoint.TRACK;
+        }
+        Request request = new Request.Builder()
+                .url(url)
+                .post(RequestBody.create(JSON, record.getBody()))
+                .build();
+        try (Response response = newCall(request, endpoint).execute()) {
+            if (isSpoolable(response)) {
+                return false;
+            }
+            if (!response.isSuccessful()) {
+                Castle.logger.warn("HTTP layer. Spooled {} request rejected with status {}.", record.getKind(), response.code());
+            }
+            return true;
+        } catch (IOException e) {
+            Castle.logger.debug("HTTP layer. Error replaying spooled request.", e);
+            return false;
+        }
+    }
+
     private String getUserIdFromPayload(JsonElement payloadJson) {
         final String userId = ((JsonObject) payloadJson).has("user_id") ? ((JsonObject) payloadJson).get("user_id").getAsString() : null;
+        return checkUserId(userId);
+    }
+
+    private String checkUserId(String userId) {
         if (userId == null) {
             Castle.logger.warn("Authenticate called with user_id null. Is this correct?");
         }
@@ -140,16 +593,79 @@ public class OkRestApiBackend implements RestApi {
         return RequestBody.create(JSON, json.toString());
     }
 
+    /**
+     * Request body writing a message payload straight to the connection, without building the JSON document in
+     * memory first. The length is not known in advance, so the body is sent with chunked encoding.
+     * <p>
+     * The message is read when the body is written. Synchronous calls write it on the calling thread, async calls
+     * send a {@link #snapshot()} instead, so that the caller may change or reuse the message once the call returns.
+     */
+    private class PayloadRequestBody extends RequestBody {
+        private final CastleMessagePayload payload;
+
+        private PayloadRequestBody(CastleMessagePayload payload) {
+            this.payload = payload;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return JSON;
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            // Neither writer is closed, as that would close the sink owned by OkHttp
+            Writer writer = new OutputStreamWriter(new UnflushedOutputStream(sink), StandardCharsets.UTF_8);
+            JsonWriter jsonWriter = new JsonWriter(writer);
+            payload.write(jsonWriter, model.getGson());
+            jsonWriter.flush();
+        }
+
+        /**
+         * Serializes the payload now, on the calling thread.
+         *
+         * @return a body holding the serialized payload
+         */
+        RequestBody snapshot() {
+            Buffer buffer = new Buffer();
+            try {
+                writeTo(buffer);
+            } catch (IOException e) {
+                throw new CastleRuntimeException(e);
+            }
+            return RequestBody.create(JSON, buffer.readByteString());
+        }
+    }
+
+    /**
+     * Stream writing to a sink without flushing it, so that flushing the writer of a payload does not send a chunk of
+     * the body on its own.
+     */
+    private static class UnflushedOutputStream extends OutputStream {
+        private final BufferedSink sink;
+
+        private UnflushedOutputStream(BufferedSink sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            sink.writeByte(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            sink.write(b, off, len);
+        }
+    }
+
     private Verdict extractAuthenticationAction(Response response, String userId) throws IOException {
         String errorReason = response.message();
-        String jsonResponse = response.body().string();
 
         if (response.isSuccessful()) {
-            Gson gson = model.getGson();
-            JsonParser jsonParser = model.getJsonParser();
-            VerdictTransportModel transport = gson.fromJson(jsonResponse, VerdictTransportModel.class);
-            if (transport != null && transport.getAction() != null) {
-                return VerdictBuilder.fromTransport(transport, jsonParser.parse(jsonResponse));
+            Verdict verdict = verdictReader.read(response.body().charStream());
+            if (verdict != null) {
+                return verdict;
             } else {
                 errorReason = "Invalid JSON in response";
             }
@@ -157,6 +673,7 @@ public class OkRestApiBackend implements RestApi {
 
         if (response.code() >= 500) {
             //Use failover for error backends calls.
+            recordFailover(FailoverReason.SERVER_ERROR);
             if (!configuration.getAuthenticateFailoverStrategy().isThrowTimeoutException()) {
                 Verdict verdict = VerdictBuilder.failover(errorReason)
                         .withAction(configuration.getAuthenticateFailoverStrategy().getDefaultAction())
@@ -174,11 +691,21 @@ public class OkRestApiBackend implements RestApi {
 
     @Override
     public void sendIdentifyRequest(String userId, JsonObject contextJson, boolean active, JsonElement traitsJson) {
+        sendIdentifyRequest(userId, contextJson, active, traitsJson, null);
+    }
+
+    @Override
+    public void sendIdentifyRequest(String userId, JsonObject contextJson, boolean active, JsonElement traitsJson, final AsyncCallbackHandler<Boolean> asyncCallbackHandler) {
         JsonObject json = new JsonObject();
         json.add("user_id", new JsonPrimitive(userId));
 //        json.add("active", new JsonPrimitive(active));
-        contextJson.add("active", new JsonPrimitive(active));
-        json.add("context", contextJson);
+        // The context may share subtrees with other calls, active goes into a shallow copy
+        JsonObject context = new JsonObject();
+        for (Map.Entry<String, JsonElement> entry : contextJson.entrySet()) {
+            context.add(entry.getKey(), entry.getValue());
+        }
+        context.add("active", new JsonPrimitive(active));
+        json.add("context", context);
         if (traitsJson != null) {
             json.add("traits", traitsJson);
         }
@@ -187,26 +714,41 @@ public class OkRestApiBackend implements RestApi {
                 .url(identify)
                 .post(body)
                 .build();
-        client.newCall(request).enqueue(new Callback() {
+        enqueue(request, CastleEndpoint.IDENTIFY, new Callback() {
             @Override
             public void onFailure(Call call, IOException e) {
                 Castle.logger.error("HTTP layer. Error sending request.", e);
+                spool(EventSpool.Kind.IDENTIFY, call);
+                if (asyncCallbackHandler != null) {
+                    asyncCallbackHandler.onException(e);
+                }
             }
 
             @Override
             public void onResponse(Call call, Response response) throws IOException {
                 response.close();
+                if (isSpoolable(response)) {
+                    spool(EventSpool.Kind.IDENTIFY, call);
+                }
 
                 Castle.logger.debug("Identify request successful");
+                if (asyncCallbackHandler != null) {
+                    asyncCallbackHandler.onResponse(response.isSuccessful());
+                }
             }
         });
     }
 
     @Override
     public Review sendReviewRequestSync(String reviewId) {
+        Review cached = fromCache(ResponseCache.Resource.REVIEW, reviewId, Review.class);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = cacheGeneration();
         Request request = createReviewRequest(reviewId);
-        try (Response response = client.newCall(request).execute()) {
-            return extractReview(response);
+        try (Response response = executeGet(request, CastleEndpoint.REVIEW)) {
+            return extractCached(response, Review.class, ResponseCache.Resource.REVIEW, reviewId, generation);
         } catch (IOException e) {
             throw OkHttpExceptionUtil.handle(e);
         }
@@ -214,102 +756,335 @@ public class OkRestApiBackend implements RestApi {
 
     @Override
     public void sendReviewRequestAsync(String reviewId, final AsyncCallbackHandler<Review> callbackHandler) {
+        Review cached = fromCache(ResponseCache.Resource.REVIEW, reviewId, Review.class);
+        if (cached != null) {
+            callbackHandler.onResponse(cached);
+            return;
+        }
         Request request = createReviewRequest(reviewId);
-        client.newCall(request).enqueue(new Callback() {
-            @Override
-            public void onFailure(Call call, IOException e) {
-                callbackHandler.onException(e);
-            }
-
-            @Override
-            public void onResponse(Call call, Response response) throws IOException {
-                try (ResponseBody responseBody = response.body()) {
-                    callbackHandler.onResponse(extractReview(response));
-                }
-            }
-        });
+        enqueue(request, CastleEndpoint.REVIEW, callbackHandler,
+                new CachingExtractor<>(Review.class, ResponseCache.Resource.REVIEW, reviewId, cacheGeneration()));
     }
 
     @Override
     public Boolean sendPrivacyRemoveUser(String userId) {
         Request request = createPrivacyRemoveRequest(userId);
-        try (Response response = client.newCall(request).execute()) {
+        try (Response response = newCall(request, CastleEndpoint.PRIVACY).execute()) {
             return extractResponse(response);
         } catch (IOException e) {
             throw OkHttpExceptionUtil.handle(e);
         }
     }
 
+    @Override
+    public void sendPrivacyRemoveUserAsync(String userId, AsyncCallbackHandler<Boolean> callbackHandler) {
+        Request request = createPrivacyRemoveRequest(userId);
+        enqueue(request, CastleEndpoint.PRIVACY, callbackHandler, new ResponseExtractor<Boolean>() {
+            @Override
+            public Boolean extract(Response response) {
+                return extractResponse(response);
+            }
+        });
+    }
+
     @Override
     public CastleUserDevice sendApproveDeviceRequestSync(String deviceToken) {
         Request request = createApproveDeviceRequest(deviceToken);
-        try (Response response = client.newCall(request).execute()) {
+        try (Response response = newCall(request, CastleEndpoint.DEVICES).execute()) {
             return extractDevice(response);
         } catch (IOException e) {
             throw OkHttpExceptionUtil.handle(e);
+        } finally {
+            invalidateDevice(deviceToken);
         }
     }
 
+    @Override
+    public void sendApproveDeviceRequestAsync(String deviceToken, AsyncCallbackHandler<CastleUserDevice> callbackHandler) {
+        enqueue(createApproveDeviceRequest(deviceToken), CastleEndpoint.DEVICES, invalidateDeviceAfter(deviceToken, callbackHandler), deviceExtractor);
+    }
+
     @Override
     public CastleUserDevice sendReportDeviceRequestSync(String deviceToken) {
         Request request = createReportDeviceRequest(deviceToken);
-        try (Response response = client.newCall(request).execute()) {
+        try (Response response = newCall(request, CastleEndpoint.DEVICES).execute()) {
             return extractDevice(response);
         } catch (IOException e) {
             throw OkHttpExceptionUtil.handle(e);
+        } finally {
+            invalidateDevice(deviceToken);
         }
     }
 
+    @Override
+    public void sendReportDeviceRequestAsync(String deviceToken, AsyncCallbackHandler<CastleUserDevice> callbackHandler) {
+        enqueue(createReportDeviceRequest(deviceToken), CastleEndpoint.DEVICES, invalidateDeviceAfter(deviceToken, callbackHandler), deviceExtractor);
+    }
+
     @Override
     public CastleUserDevices sendGetUserDevicesRequestSync(String userId) {
+        CastleUserDevices cached = fromCache(ResponseCache.Resource.USER_DEVICES, userId, CastleUserDevices.class);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = cacheGeneration();
         Request request = createGetUserDevicesRequest(userId);
-        try (Response response = client.newCall(request).execute()) {
-            return extractDevices(response);
+        try (Response response = executeGet(request, CastleEndpoint.DEVICES)) {
+            return extractCached(response, CastleUserDevices.class, ResponseCache.Resource.USER_DEVICES, userId, generation);
         } catch (IOException e) {
             throw OkHttpExceptionUtil.handle(e);
         }
     }
 
+    @Override
+    public void sendGetUserDevicesRequestAsync(String userId, AsyncCallbackHandler<CastleUserDevices> callbackHandler) {
+        CastleUserDevices cached = fromCache(ResponseCache.Resource.USER_DEVICES, userId, CastleUserDevices.class);
+        if (cached != null) {
+            callbackHandler.onResponse(cached);
+            return;
+        }
+        Request request = createGetUserDevicesRequest(userId);
+        enqueue(request, CastleEndpoint.DEVICES, callbackHandler,
+                new CachingExtractor<>(CastleUserDevices.class, ResponseCache.Resource.USER_DEVICES, userId, cacheGeneration()));
+    }
+
     @Override
     public CastleUser sendArchiveUserDevicesRequestSync(String userId) {
         Request request = createArchiveUserDevicesRequest(userId);
-        try (Response response = client.newCall(request).execute()) {
+        try (Response response = newCall(request, CastleEndpoint.DEVICES).execute()) {
             return extractUser(response);
         } catch (IOException e) {
             throw OkHttpExceptionUtil.handle(e);
+        } finally {
+            invalidateUserDevices(userId);
         }
     }
 
+    @Override
+    public void sendArchiveUserDevicesRequestAsync(String userId, AsyncCallbackHandler<CastleUser> callbackHandler) {
+        Request request = createArchiveUserDevicesRequest(userId);
+        enqueue(request, CastleEndpoint.DEVICES, invalidateUserDevicesAfter(userId, callbackHandler), new ResponseExtractor<CastleUser>() {
+            @Override
+            public CastleUser extract(Response response) throws IOException {
+                return extractUser(response);
+            }
+        });
+    }
+
     @Override
     public CastleUserDevice sendGetUserDeviceRequestSync(String deviceToken) {
+        CastleUserDevice cached = fromCache(ResponseCache.Resource.DEVICE, deviceToken, CastleUserDevice.class);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = cacheGeneration();
         Request request = createGetUserDeviceRequest(deviceToken);
-        try (Response response = client.newCall(request).execute()) {
-            return extractDevice(response);
+        try (Response response = executeGet(request, CastleEndpoint.DEVICES)) {
+            return extractCached(response, CastleUserDevice.class, ResponseCache.Resource.DEVICE, deviceToken, generation);
         } catch (IOException e) {
             throw OkHttpExceptionUtil.handle(e);
         }
     }
 
+    @Override
+    public void sendGetUserDeviceRequestAsync(String deviceToken, AsyncCallbackHandler<CastleUserDevice> callbackHandler) {
+        CastleUserDevice cached = fromCache(ResponseCache.Resource.DEVICE, deviceToken, CastleUserDevice.class);
+        if (cached != null) {
+            callbackHandler.onResponse(cached);
+            return;
+        }
+        enqueue(createGetUserDeviceRequest(deviceToken), CastleEndpoint.DEVICES, callbackHandler,
+                new CachingExtractor<>(CastleUserDevice.class, ResponseCache.Resource.DEVICE, deviceToken, cacheGeneration()));
+    }
+
     @Override
     public CastleSuccess sendImpersonateStartRequestSync(String userId, String impersonator, JsonObject contextJson) {
         Request request = createImpersonateStartRequest(userId, impersonator, contextJson);
-        try (Response response = client.newCall(request).execute()) {
+        try (Response response = newCall(request, CastleEndpoint.IMPERSONATE).execute()) {
             return extractSuccess(response);
         } catch (IOException e) {
             throw OkHttpExceptionUtil.handle(e);
         }
     }
 
+    @Override
+    public void sendImpersonateStartRequestAsync(String userId, String impersonator, JsonObject contextJson, AsyncCallbackHandler<CastleSuccess> callbackHandler) {
+        enqueue(createImpersonateStartRequest(userId, impersonator, contextJson), CastleEndpoint.IMPERSONATE, callbackHandler, successExtractor);
+    }
+
     @Override
     public CastleSuccess sendImpersonateEndRequestSync(String userId, String impersonator, JsonObject contextJson) {
         Request request = createImpersonateEndRequest(userId, impersonator, contextJson);
-        try (Response response = client.newCall(request).execute()) {
+        try (Response response = newCall(request, CastleEndpoint.IMPERSONATE).execute()) {
             return extractSuccess(response);
         } catch (IOException e) {
             throw OkHttpExceptionUtil.handle(e);
         }
     }
 
+    @Override
+    public void sendImpersonateEndRequestAsync(String userId, String impersonator, JsonObject contextJson, AsyncCallbackHandler<CastleSuccess> callbackHandler) {
+        enqueue(createImpersonateEndRequest(userId, impersonator, contextJson), CastleEndpoint.IMPERSONATE, callbackHandler, successExtractor);
+    }
+
+    /**
+     * Enqueues a request and hands the extracted response, or the failure, to the callback handler.
+     * <p>
+     * Errors are reported with the same exceptions thrown by the sync calls.
+     */
+    private <T> void enqueue(Request request, CastleEndpoint endpoint, final AsyncCallbackHandler<T> callbackHandler, final ResponseExtractor<T> extractor) {
+        enqueue(request, endpoint, new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                callbackHandler.onException(OkHttpExceptionUtil.handle(e));
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                T result;
+                try (ResponseBody responseBody = response.body()) {
+                    result = extractor.extract(response);
+                } catch (IOException e) {
+                    onFailure(call, e);
+                    return;
+                } catch (RuntimeException e) {
+                    callbackHandler.onException(e);
+                    return;
+                }
+                callbackHandler.onResponse(result);
+            }
+        });
+    }
+
+    private interface ResponseExtractor<T> {
+        T extract(Response response) throws IOException;
+    }
+
+    private final ResponseExtractor<CastleUserDevice> deviceExtractor = new ResponseExtractor<CastleUserDevice>() {
+        @Override
+        public CastleUserDevice extract(Response response) throws IOException {
+            return extractDevice(response);
+        }
+    };
+
+    /**
+     * Extracts a response, caching its body when successful.
+     */
+    private class CachingExtractor<T> implements ResponseExtractor<T> {
+        private final Class<T> clazz;
+        private final ResponseCache.Resource resource;
+        private final String key;
+        private final long generation;
+
+        private CachingExtractor(Class<T> clazz, ResponseCache.Resource resource, String key, long generation) {
+            this.clazz = clazz;
+            this.resource = resource;
+            this.key = key;
+            this.generation = generation;
+        }
+
+        @Override
+        public T extract(Response response) throws IOException {
+            return extractCached(response, clazz, resource, key, generation);
+        }
+    }
+
+    /**
+     * Gets a response from the cache.
+     *
+     * @return the deserialized response, or null when caching is disabled or the response is not cached
+     */
+    private <T> T fromCache(ResponseCache.Resource resource, String key, Class<T> clazz) {
+        if (responseCache == null) {
+            return null;
+        }
+        String body = responseCache.get(resource, key);
+        return body != null ? model.getGson().fromJson(body, clazz) : null;
+    }
+
+    private long cacheGeneration() {
+        return responseCache != null ? responseCache.generation() : 0;
+    }
+
+    private <T> T extractCached(Response response, Class<T> clazz, ResponseCache.Resource resource, String key, long generation) throws IOException {
+        if (responseCache == null || !response.isSuccessful()) {
+            return clazz.cast(extract(response, clazz));
+        }
+        String jsonResponse = response.body().string();
+        T result = model.getGson().fromJson(jsonResponse, clazz);
+        List<String> deviceTokens = new ArrayList<>();
+        if (result instanceof CastleUserDevices && ((CastleUserDevices) result).getDevices() != null) {
+            for (CastleUserDevice device : ((CastleUserDevices) result).getDevices()) {
+                deviceTokens.add(device.getToken());
+            }
+        }
+        responseCache.put(resource, key, jsonResponse, deviceTokens, generation);
+        return result;
+    }
+
+    private void invalidateDevice(String deviceToken) {
+        if (responseCache != null) {
+            responseCache.invalidateDevice(deviceToken);
+        }
+    }
+
+    private void invalidateUserDevices(String userId) {
+        if (responseCache != null) {
+            responseCache.invalidateUserDevices(userId);
+        }
+    }
+
+    /**
+     * Wraps a callback handler to remove a device from the cache once its request completed.
+     */
+    private <T> AsyncCallbackHandler<T> invalidateDeviceAfter(final String deviceToken, final AsyncCallbackHandler<T> callbackHandler) {
+        if (responseCache == null) {
+            return callbackHandler;
+        }
+        return new AsyncCallbackHandler<T>() {
+            @Override
+            public void onResponse(T response) {
+                invalidateDevice(deviceToken);
+                callbackHandler.onResponse(response);
+            }
+
+            @Override
+            public void onException(Exception exception) {
+                invalidateDevice(deviceToken);
+                callbackHandler.onException(exception);
+            }
+        };
+    }
+
+    /**
+     * Wraps a callback handler to remove the devices of a user from the cache once its request completed.
+     */
+    private <T> AsyncCallbackHandler<T> invalidateUserDevicesAfter(final String userId, final AsyncCallbackHandler<T> callbackHandler) {
+        if (responseCache == null) {
+            return callbackHandler;
+        }
+        return new AsyncCallbackHandler<T>() {
+            @Override
+            public void onResponse(T response) {
+                invalidateUserDevices(userId);
+                callbackHandler.onResponse(response);
+            }
+
+            @Override
+            public void onException(Exception exception) {
+                invalidateUserDevices(userId);
+                callbackHandler.onException(exception);
+            }
+        };
+    }
+
+    private final ResponseExtractor<CastleSuccess> successExtractor = new ResponseExtractor<CastleSuccess>() {
+        @Override
+        public CastleSuccess extract(Response response) throws IOException {
+            return extractSuccess(response);
+        }
+    };
+
     private Request createReviewRequest(String reviewId) {
         HttpUrl reviewUrl = reviewsBase.resolve(reviewId);
         return new Request.Builder()
@@ -318,18 +1093,10 @@ public class OkRestApiBackend implements RestApi {
                 .build();
     }
 
-    private Review extractReview(Response response) throws IOException {
-        return (Review) extract(response, Review.class);
-    }
-
     private CastleUserDevice extractDevice(Response response) throws IOException {
         return (CastleUserDevice) extract(response, CastleUserDevice.class);
     }
 
-    private CastleUserDevices extractDevices(Response response) throws IOException {
-        return (CastleUserDevices) extract(response, CastleUserDevices.class);
-    }
-
     private Object extract(Response response, Class clazz) throws IOException {
         if (response.isSuccessful()) {
             String jsonResponse = response.body().string();
@@ -0,0 +1,56 @@
+package io.castle.client.internal.backend;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket allowing an extra action, like a retry or a hedged request, for a percentage of the requests.
+ * <p>
+ * Every request deposits the percentage of a token and every extra action withdraws a whole one. The balance is capped
+ * at a number of saved up tokens and starts full, so that short bursts of extra actions are allowed.
+ */
+class RatioBudget {
+
+    /**
+     * Value of one token, the balance is kept in thousandths of a token.
+     */
+    private static final long TOKEN = 1000;
+
+    private final long deposit;
+    private final long maxBalance;
+    private final AtomicLong balance;
+
+    RatioBudget(int percent, int maxTokens) {
+        this.deposit = percent * TOKEN / 100;
+        this.maxBalance = maxTokens * TOKEN;
+        this.balance = new AtomicLong(maxBalance);
+    }
+
+    /**
+     * Records a request.
+     */
+    void deposit() {
+        long current;
+        do {
+            current = balance.get();
+            if (current >= maxBalance) {
+                return;
+            }
+        } while (!balance.compareAndSet(current, Math.min(maxBalance, current + deposit)));
+    }
+
+    /**
+     * Takes a token for an extra action.
+     *
+     * @return true if the action is allowed
+     */
+    boolean tryWithdraw() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < TOKEN) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - TOKEN));
+        return true;
+    }
+}
@@ -0,0 +1,111 @@
+package io.castle.client.internal.backend;
+
+import okhttp3.Call;
+import okhttp3.MediaType;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shares one HTTP call between the threads making the same idempotent request at the same time (single flight).
+ * <p>
+ * The first thread making a request runs its call and the threads making the same request before it completes wait
+ * for its outcome. The calls in flight are kept in a {@link ConcurrentHashMap}, so that threads making different
+ * requests never wait for each other. The response body is read once, and every thread gets a response of its own
+ * with a copy of it; when the call fails, every thread gets its exception.
+ */
+class RequestCoalescer {
+
+    private final ConcurrentMap<String, FutureTask<SharedResponse>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * Executes a call, or waits for the call in flight with the same key.
+     *
+     * @param key  identifies the request, like its method and URL
+     * @param call the call made when no call with the same key is in flight
+     * @return a response of its own, with the body fully read
+     * @throws IOException when the shared call failed
+     */
+    Response execute(String key, final Call call) throws IOException {
+        FutureTask<SharedResponse> task = new FutureTask<>(new Callable<SharedResponse>() {
+            @Override
+            public SharedResponse call() throws IOException {
+                try (Response response = call.execute()) {
+                    return new SharedResponse(response);
+                }
+            }
+        });
+        FutureTask<SharedResponse> running = inFlight.putIfAbsent(key, task);
+        if (running == null) {
+            calls.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                inFlight.remove(key, task);
+            }
+            running = task;
+        } else {
+            coalesced.incrementAndGet();
+        }
+        return await(running).newResponse();
+    }
+
+    long getCalls() {
+        return calls.get();
+    }
+
+    long getCoalesced() {
+        return coalesced.get();
+    }
+
+    private static SharedResponse await(FutureTask<SharedResponse> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a shared request");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * A response whose body was read, handing out copies of it.
+     */
+    private static class SharedResponse {
+        private final Response response;
+        private final MediaType contentType;
+        private final byte[] body;
+
+        private SharedResponse(Response response) throws IOException {
+            ResponseBody responseBody = response.body();
+            this.contentType = responseBody != null ? responseBody.contentType() : null;
+            this.body = responseBody != null ? responseBody.bytes() : new byte[0];
+            this.response = response.newBuilder().body(null).build();
+        }
+
+        Response newResponse() {
+            return response.newBuilder()
+                    .body(ResponseBody.create(contentType, body))
+                    .build();
+        }
+    }
+}
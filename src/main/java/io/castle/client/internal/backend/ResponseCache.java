@@ -0,0 +1,221 @@
+package io.castle.client.internal.backend;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import io.castle.client.internal.config.CacheConfiguration;
+import io.castle.client.model.ResponseCacheStats;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of the JSON bodies of the device, user devices and review responses.
+ * <p>
+ * Bodies rather than models are kept, so that every caller gets its own copy of the mutable models. Each resource has
+ * a cache of its own, with the time to live of the resource and {@link CacheConfiguration#getMaxSize()} entries
+ * evicting the least recently used ones.
+ * <p>
+ * Approving or reporting a device removes the device and the user devices listing it, found through an index of the
+ * users listing each device, so that the cost of a removal does not grow with the size of the cache. Archiving the
+ * devices of a user removes the user devices and the devices they list. Every removal bumps a generation, so that a
+ * response requested before a removal is not cached after it.
+ */
+public class ResponseCache {
+
+    /**
+     * Resource of a cached response.
+     */
+    public enum Resource {
+        DEVICE, USER_DEVICES, REVIEW
+    }
+
+    private final Map<Resource, Cache<String, Entry>> caches = new EnumMap<>(Resource.class);
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    /**
+     * Ids of the users whose cached user devices list a device, by device token. Guarded by itself.
+     */
+    private final Map<String, Set<String>> usersByDevice = new HashMap<>();
+
+    public ResponseCache(CacheConfiguration configuration) {
+        caches.put(Resource.DEVICE, build(configuration.getMaxSize(), configuration.getDeviceTtl(), null));
+        caches.put(Resource.USER_DEVICES, build(configuration.getMaxSize(), configuration.getUserDevicesTtl(),
+                new RemovalListener<String, Entry>() {
+                    @Override
+                    public void onRemoval(RemovalNotification<String, Entry> notification) {
+                        unindex(notification.getKey(), notification.getValue().deviceTokens);
+                    }
+                }));
+        caches.put(Resource.REVIEW, build(configuration.getMaxSize(), configuration.getReviewTtl(), null));
+    }
+
+    private static Cache<String, Entry> build(int maxSize, int ttl, RemovalListener<String, Entry> removalListener) {
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl, TimeUnit.MILLISECONDS)
+                .recordStats();
+        if (removalListener == null) {
+            return builder.build();
+        }
+        return builder.removalListener(removalListener).build();
+    }
+
+    /**
+     * Gets a cached response body.
+     *
+     * @param resource resource of the response
+     * @param key      device token, user id or review id
+     * @return the body, or null when not cached
+     */
+    public String get(Resource resource, String key) {
+        Entry entry = caches.get(resource).getIfPresent(key);
+        return entry != null ? entry.body : null;
+    }
+
+    /**
+     * Gets the generation to give to {@link #put} for a response requested now.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Caches a response body, unless a removal happened since it was requested.
+     *
+     * @param resource     resource of the response
+     * @param key          device token, user id or review id
+     * @param body         JSON body of the response
+     * @param deviceTokens tokens of the devices listed in a user devices response, empty otherwise
+     * @param requested    generation when the response was requested
+     */
+    public void put(Resource resource, String key, String body, Collection<String> deviceTokens, long requested) {
+        Cache<String, Entry> cache = caches.get(resource);
+        Entry entry = new Entry(body, deviceTokens);
+        cache.put(key, entry);
+        // Indexed after the put, whose removal listener unindexes the replaced entry
+        index(key, entry.deviceTokens);
+        // Checked after the put, so that a removal racing with it either precedes the check or follows the put
+        if (generation.get() != requested) {
+            cache.invalidate(key);
+        }
+    }
+
+    /**
+     * Removes a device and the user devices listing it, after it was approved or reported.
+     *
+     * @param deviceToken token of the device
+     */
+    public void invalidateDevice(String deviceToken) {
+        generation.incrementAndGet();
+        invalidate(Resource.DEVICE, deviceToken);
+        Set<String> userIds;
+        synchronized (usersByDevice) {
+            userIds = usersByDevice.remove(deviceToken);
+        }
+        if (userIds == null) {
+            return;
+        }
+        for (String userId : userIds) {
+            invalidate(Resource.USER_DEVICES, userId);
+        }
+    }
+
+    /**
+     * Removes the user devices of a user and their devices, after they were archived.
+     *
+     * @param userId id of the user
+     */
+    public void invalidateUserDevices(String userId) {
+        generation.incrementAndGet();
+        Entry entry = caches.get(Resource.USER_DEVICES).asMap().remove(userId);
+        if (entry == null) {
+            // The devices of the user are not known, their lookups expire with their time to live
+            return;
+        }
+        invalidations.incrementAndGet();
+        for (String deviceToken : entry.deviceTokens) {
+            invalidate(Resource.DEVICE, deviceToken);
+        }
+    }
+
+    private void index(String userId, Set<String> deviceTokens) {
+        synchronized (usersByDevice) {
+            for (String deviceToken : deviceTokens) {
+                Set<String> userIds = usersByDevice.get(deviceToken);
+                if (userIds == null) {
+                    userIds = new HashSet<>();
+                    usersByDevice.put(deviceToken, userIds);
+                }
+                userIds.add(userId);
+            }
+        }
+    }
+
+    private void unindex(String userId, Set<String> deviceTokens) {
+        // The notification of a replaced entry may be delivered after the new entry was indexed
+        Entry current = caches.get(Resource.USER_DEVICES).asMap().get(userId);
+        synchronized (usersByDevice) {
+            for (String deviceToken : deviceTokens) {
+                if (current != null && current.deviceTokens.contains(deviceToken)) {
+                    continue;
+                }
+                Set<String> userIds = usersByDevice.get(deviceToken);
+                if (userIds != null && userIds.remove(userId) && userIds.isEmpty()) {
+                    usersByDevice.remove(deviceToken);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the number of devices listed by the cached user devices.
+     */
+    int indexedDevices() {
+        synchronized (usersByDevice) {
+            return usersByDevice.size();
+        }
+    }
+
+    private void invalidate(Resource resource, String key) {
+        if (caches.get(resource).asMap().remove(key) != null) {
+            invalidations.incrementAndGet();
+        }
+    }
+
+    public ResponseCacheStats getStats() {
+        long hits = 0;
+        long misses = 0;
+        long evictions = 0;
+        long size = 0;
+        for (Cache<String, Entry> cache : caches.values()) {
+            CacheStats stats = cache.stats();
+            hits += stats.hitCount();
+            misses += stats.missCount();
+            evictions += stats.evictionCount();
+            size += cache.size();
+        }
+        return new ResponseCacheStats(hits, misses, evictions, invalidations.get(), size);
+    }
+
+    private static class Entry {
+        private final String body;
+        private final Set<String> deviceTokens;
+
+        private Entry(String body, Collection<String> deviceTokens) {
+            this.body = body;
+            this.deviceTokens = deviceTokens.isEmpty()
+                    ? Collections.<String>emptySet()
+                    : new HashSet<>(deviceTokens);
+        }
+    }
+}
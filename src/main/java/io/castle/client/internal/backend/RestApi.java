@@ -2,9 +2,20 @@ package io.castle.client.internal.backend;
 
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import io.castle.client.internal.json.CastleMessagePayload;
 import io.castle.client.model.*;
 
+import java.util.List;
+
 public interface RestApi {
+
+    /**
+     * Gets a backend whose calls use the given call timeout instead of the configured one of each endpoint.
+     *
+     * @param callTimeout milliseconds after which a call times out, 0 for no call timeout
+     * @return a backend sharing the HTTP resources of this one
+     */
+    RestApi withCallTimeout(int callTimeout);
     /**
      *
      * @param payloadJson          JSON object containing the event properties
@@ -12,6 +23,22 @@ public interface RestApi {
      */
     void sendTrackRequest(JsonElement payloadJson, AsyncCallbackHandler<Boolean> asyncCallbackHandler);
 
+    /**
+     * Async call to the track endpoint, streaming the message into the request body.
+     *
+     * @param payload              message, context and sent_at of the event
+     * @param asyncCallbackHandler callback to inform if request was correctly sent
+     */
+    void sendTrackRequest(CastleMessagePayload payload, AsyncCallbackHandler<Boolean> asyncCallbackHandler);
+
+    /**
+     * Async call to the batch endpoint, sending several track events in one request.
+     *
+     * @param payloadsJson         list of JSON objects, each one containing the properties of a track event
+     * @param asyncCallbackHandler callback to inform if request was correctly sent
+     */
+    void sendTrackBatchRequest(List<JsonElement> payloadsJson, AsyncCallbackHandler<Boolean> asyncCallbackHandler);
+
     /**
      *
      * @param payloadJson JSON object containing the event properties
@@ -26,6 +53,22 @@ public interface RestApi {
      */
     void sendAuthenticateAsync(JsonElement payloadJson, AsyncCallbackHandler<Verdict> asyncCallbackHandler);
 
+    /**
+     * Sync call to the authenticate endpoint, streaming the message into the request body.
+     *
+     * @param payload message, context and sent_at of the event
+     * @return Verdict to be used in login logic
+     */
+    Verdict sendAuthenticateSync(CastleMessagePayload payload);
+
+    /**
+     * Async call to the authenticate endpoint, streaming the message into the request body.
+     *
+     * @param payload              message, context and sent_at of the event
+     * @param asyncCallbackHandler callback to inform if request was correctly sent
+     */
+    void sendAuthenticateAsync(CastleMessagePayload payload, AsyncCallbackHandler<Verdict> asyncCallbackHandler);
+
     /**
      * Async call to the identify endpoint, returning immediately.
      *
@@ -36,6 +79,17 @@ public interface RestApi {
      */
     void sendIdentifyRequest(String userId, JsonObject contextJson, boolean active, JsonElement traitsJson);
 
+    /**
+     * Async call to the identify endpoint, returning immediately.
+     *
+     * @param userId               unique userId
+     * @param contextJson          context json
+     * @param active               is this call realized as part of a active session of the user
+     * @param traitsJson           additional traits json
+     * @param asyncCallbackHandler callback to inform if request was correctly sent, takes null
+     */
+    void sendIdentifyRequest(String userId, JsonObject contextJson, boolean active, JsonElement traitsJson, AsyncCallbackHandler<Boolean> asyncCallbackHandler);
+
     /**
      * Sync call to the review endpoint.
      *
@@ -59,6 +113,14 @@ public interface RestApi {
      */
     Boolean sendPrivacyRemoveUser(String userId);
 
+    /**
+     * Async call to the privacy endpoint, returning immediately.
+     *
+     * @param userId          user id to be removed
+     * @param callbackHandler callback to handle the outcome of the removal, null when the user was not found
+     */
+    void sendPrivacyRemoveUserAsync(String userId, AsyncCallbackHandler<Boolean> callbackHandler);
+
     /**
      * Sync call to the approve device endpoint.
      *
@@ -67,6 +129,14 @@ public interface RestApi {
      */
     CastleUserDevice sendApproveDeviceRequestSync(String deviceToken);
 
+    /**
+     * Async call to the approve device endpoint, returning immediately.
+     *
+     * @param deviceToken     string representing the token for the device to approve
+     * @param callbackHandler callback to handle the device returned by the API
+     */
+    void sendApproveDeviceRequestAsync(String deviceToken, AsyncCallbackHandler<CastleUserDevice> callbackHandler);
+
     /**
      * Sync call to the report device endpoint.
      *
@@ -75,6 +145,14 @@ public interface RestApi {
      */
     CastleUserDevice sendReportDeviceRequestSync(String deviceToken);
 
+    /**
+     * Async call to the report device endpoint, returning immediately.
+     *
+     * @param deviceToken     string representing the token for the device to report
+     * @param callbackHandler callback to handle the device returned by the API
+     */
+    void sendReportDeviceRequestAsync(String deviceToken, AsyncCallbackHandler<CastleUserDevice> callbackHandler);
+
     /**
      * Sync call to the devices endpoint.
      *
@@ -83,6 +161,14 @@ public interface RestApi {
      */
     CastleUserDevices sendGetUserDevicesRequestSync(String userId);
 
+    /**
+     * Async call to the devices endpoint, returning immediately.
+     *
+     * @param userId          string representing the user to get devices for
+     * @param callbackHandler callback to handle the devices returned by the API
+     */
+    void sendGetUserDevicesRequestAsync(String userId, AsyncCallbackHandler<CastleUserDevices> callbackHandler);
+
     /**
      * Sync call to archive devices endpoint
      *
@@ -91,6 +177,14 @@ public interface RestApi {
      */
     CastleUser sendArchiveUserDevicesRequestSync(String userId);
 
+    /**
+     * Async call to archive devices endpoint, returning immediately.
+     *
+     * @param userId          string representing the user to archive devices for
+     * @param callbackHandler callback to handle the user returned by the API
+     */
+    void sendArchiveUserDevicesRequestAsync(String userId, AsyncCallbackHandler<CastleUser> callbackHandler);
+
     /**
      * Sync call to the device endpoint.
      *
@@ -99,6 +193,14 @@ public interface RestApi {
      */
     CastleUserDevice sendGetUserDeviceRequestSync(String deviceToken);
 
+    /**
+     * Async call to the device endpoint, returning immediately.
+     *
+     * @param deviceToken     string representing the token for the device to get
+     * @param callbackHandler callback to handle the device returned by the API
+     */
+    void sendGetUserDeviceRequestAsync(String deviceToken, AsyncCallbackHandler<CastleUserDevice> callbackHandler);
+
     /**
      * Sync call to the impersonate endpoint.
      *
@@ -109,6 +211,16 @@ public interface RestApi {
      */
     CastleSuccess sendImpersonateStartRequestSync(String userId, String impersonator, JsonObject contextJson);
 
+    /**
+     * Async call to the impersonate endpoint, returning immediately.
+     *
+     * @param userId          id of the user to impersonate
+     * @param impersonator    id of the user doing the impersonation
+     * @param contextJson     context json
+     * @param callbackHandler callback to handle the success message
+     */
+    void sendImpersonateStartRequestAsync(String userId, String impersonator, JsonObject contextJson, AsyncCallbackHandler<CastleSuccess> callbackHandler);
+
     /**
      * Sync call to the impersonate endpoint.
      *
@@ -118,4 +230,14 @@ public interface RestApi {
      * @return a success message
      */
     CastleSuccess sendImpersonateEndRequestSync(String userId, String impersonator, JsonObject contextJson);
+
+    /**
+     * Async call to the impersonate endpoint, returning immediately.
+     *
+     * @param userId          id of the user to stop impersonating
+     * @param impersonator    id of the user doing the impersonation
+     * @param contextJson     context json
+     * @param callbackHandler callback to handle the success message
+     */
+    void sendImpersonateEndRequestAsync(String userId, String impersonator, JsonObject contextJson, AsyncCallbackHandler<CastleSuccess> callbackHandler);
 }
@@ -1,6 +1,74 @@
 package io.castle.client.internal.backend;
 
+import io.castle.client.model.CircuitBreakerState;
+import io.castle.client.model.HedgeStats;
+import io.castle.client.model.ResponseCacheStats;
+import io.castle.client.model.RetryStats;
+import io.castle.client.model.SpoolStats;
+
+/**
+ * Provides the backend used for all calls to the Castle API.
+ * <p>
+ * Implementations own the HTTP resources of the backend, like connection pools and dispatcher threads.
+ */
 public interface RestApiFactory {
 
+    /**
+     * Gets the backend for making calls to the Castle API.
+     * <p>
+     * The returned instance is thread-safe and shared by all callers, so it is cheap to call this method for each
+     * request.
+     *
+     * @return the shared backend
+     */
     RestApi buildBackend();
+
+    /**
+     * Gets the state of the circuit breaker guarding the authenticate endpoint.
+     *
+     * @return the current state, or null when the circuit breaker is disabled
+     */
+    CircuitBreakerState getCircuitBreakerState();
+
+    /**
+     * Gets the counters of the request retries.
+     *
+     * @return a snapshot of the retry counters, or null when retries are disabled
+     */
+    RetryStats getRetryStats();
+
+    /**
+     * Gets the counters of the hedged authenticate requests.
+     *
+     * @return a snapshot of the hedge counters, or null when hedging is disabled
+     */
+    HedgeStats getHedgeStats();
+
+    /**
+     * Gets the on-disk spool of the requests failing because of the Castle API.
+     *
+     * @return the spool, or null when spooling is disabled or the spool could not be opened
+     */
+    EventSpool getEventSpool();
+
+    /**
+     * Gets the counters of the on-disk spool.
+     *
+     * @return a snapshot of the spool counters, or null when spooling is disabled or the spool could not be opened
+     */
+    SpoolStats getSpoolStats();
+
+    /**
+     * Gets the counters of the cache of the device, user devices and review lookups.
+     *
+     * @return a snapshot of the cache counters, or null when caching is disabled
+     */
+    ResponseCacheStats getResponseCacheStats();
+
+    /**
+     * Releases the HTTP resources held by the backend.
+     * <p>
+     * Calls made through the backend after it has been closed fail.
+     */
+    void close();
 }
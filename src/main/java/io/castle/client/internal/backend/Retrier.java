@@ -0,0 +1,352 @@
+package io.castle.client.internal.backend;
+
+import io.castle.client.Castle;
+import io.castle.client.internal.config.RetryConfiguration;
+import io.castle.client.model.CastleEndpoint;
+import io.castle.client.model.CastleMetrics;
+import io.castle.client.model.RetryStats;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Retries requests failing with an I/O error or a transient status code.
+ * <p>
+ * The requests of the track endpoint and GET requests are retried. Authenticate requests are only retried when their
+ * call has a call timeout and the retry fits in the time left, so that retries never delay the failover verdict;
+ * other requests with a call timeout are not retried past it either. Each retry waits for a random delay between 0 and
+ * {@code min(maxDelay, baseDelay * 2^retry)} milliseconds (full jitter).
+ * <p>
+ * Synchronous calls are retried by one interceptor per endpoint, waiting on the calling thread. Asynchronous calls are
+ * sent with {@link #enqueue(Call.Factory, Request, CastleEndpoint, Callback)}, which schedules each retry as a new call
+ * on a timer thread, so that a waiting retry does not hold a thread of the HTTP dispatcher nor count against its
+ * limits of requests per host.
+ * <p>
+ * Retries are also limited by a {@link RatioBudget} shared by all endpoints, allowing retries for
+ * {@link RetryConfiguration#getBudgetPercent()} percent of the retryable requests and saving up to
+ * {@link #MAX_BUDGET_RETRIES} retries.
+ */
+public class Retrier {
+
+    /**
+     * Maximum number of retries the budget can save up.
+     */
+    static final int MAX_BUDGET_RETRIES = 10;
+
+    private final RetryConfiguration configuration;
+    private final CastleMetrics metrics;
+    private final RatioBudget budget;
+    private final ScheduledThreadPoolExecutor timer;
+
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong giveUps = new AtomicLong();
+    private final AtomicLong budgetExhausted = new AtomicLong();
+
+    public Retrier(RetryConfiguration configuration) {
+        this(configuration, null);
+    }
+
+    /**
+     * Creates a retrier reporting its retries and give ups to the metrics.
+     *
+     * @param metrics receiver of the measurements, null to not record them
+     */
+    public Retrier(RetryConfiguration configuration, CastleMetrics metrics) {
+        this.configuration = configuration;
+        this.metrics = metrics;
+        this.budget = new RatioBudget(configuration.getBudgetPercent(), MAX_BUDGET_RETRIES);
+        this.timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "castle-retry-timer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        // Retries scheduled before close are still sent, so that their callbacks are called
+        this.timer.setExecuteExistingDelayedTasksAfterShutdownPolicy(true);
+    }
+
+    /**
+     * Creates the interceptor retrying the synchronous requests of an endpoint.
+     *
+     * @param endpoint the endpoint of the requests going through the interceptor
+     * @return an application interceptor
+     */
+    public Interceptor interceptor(CastleEndpoint endpoint) {
+        return new RetryInterceptor(endpoint, configuration.getMaxRetries(endpoint));
+    }
+
+    /**
+     * Sends a request asynchronously, retrying it on the timer of this retrier.
+     * <p>
+     * The callback is called once, with the first response that is not retried or with the failure of the last
+     * attempt. Retries keep the call timeout of the first call as the deadline of the whole exchange.
+     *
+     * @param calls    creates the call of each attempt
+     * @param request  request to send
+     * @param endpoint endpoint of the request
+     * @param callback receiver of the outcome
+     */
+    public void enqueue(Call.Factory calls, Request request, CastleEndpoint endpoint, Callback callback) {
+        int maxRetries = configuration.getMaxRetries(endpoint);
+        if (!isRetryable(endpoint, maxRetries, request)) {
+            calls.newCall(request).enqueue(callback);
+            return;
+        }
+        budget.deposit();
+        new RetryCallback(calls, withoutInterceptorRetries(request), endpoint, maxRetries, callback).send();
+    }
+
+    /**
+     * Marks a request sent asynchronously, which the interceptors pass through without retrying it.
+     *
+     * @param request request to mark
+     * @return the marked request
+     */
+    static Request withoutInterceptorRetries(Request request) {
+        return request.newBuilder().tag(Asynchronous.class, Asynchronous.INSTANCE).build();
+    }
+
+    public RetryStats getStats() {
+        return new RetryStats(retries.get(), giveUps.get(), budgetExhausted.get());
+    }
+
+    /**
+     * Stops the timer once the retries already scheduled are sent.
+     */
+    public void close() {
+        timer.shutdown();
+    }
+
+    /**
+     * Full jitter backoff before a retry.
+     *
+     * @param retry number of retries already made
+     * @return delay in nanoseconds
+     */
+    long backoffNanos(int retry) {
+        long cap = Math.min(configuration.getMaxDelay(), (long) configuration.getBaseDelay() << Math.min(retry, 30));
+        return TimeUnit.MILLISECONDS.toNanos(ThreadLocalRandom.current().nextLong(cap + 1));
+    }
+
+    static boolean isRetryableStatus(int code) {
+        return code == 429 || code == 502 || code == 503 || code == 504;
+    }
+
+    private static boolean isRetryable(CastleEndpoint endpoint, int maxRetries, Request request) {
+        if (maxRetries <= 0) {
+            return false;
+        }
+        return endpoint == CastleEndpoint.AUTHENTICATE
+                || endpoint == CastleEndpoint.TRACK
+                || "GET".equals(request.method());
+    }
+
+    /**
+     * Decides if a failed attempt is retried, counting the give ups.
+     *
+     * @param retry       number of retries already made
+     * @param call        the failed call
+     * @param callTimeout call timeout of the first call in nanoseconds, 0 for none
+     * @param start       start of the first call, from {@link System#nanoTime()}
+     * @return the delay before the retry in nanoseconds, or -1 to give up
+     */
+    private long retryDelay(CastleEndpoint endpoint, int maxRetries, int retry, Call call, long callTimeout, long start) {
+        long delay = backoffNanos(retry);
+        if (retry >= maxRetries || call.isCanceled() || !withinDeadline(endpoint, callTimeout, start, delay)) {
+            giveUp(endpoint, false);
+            return -1;
+        }
+        if (!budget.tryWithdraw()) {
+            giveUp(endpoint, true);
+            return -1;
+        }
+        return delay;
+    }
+
+    /**
+     * Tells if a retry after the delay would start before the call timeout. Authenticate calls without a call timeout
+     * are never retried.
+     */
+    private static boolean withinDeadline(CastleEndpoint endpoint, long callTimeout, long start, long delay) {
+        if (callTimeout == 0) {
+            return endpoint != CastleEndpoint.AUTHENTICATE;
+        }
+        return System.nanoTime() - start + delay < callTimeout;
+    }
+
+    private void giveUp(CastleEndpoint endpoint, boolean exhausted) {
+        giveUps.incrementAndGet();
+        if (exhausted) {
+            budgetExhausted.incrementAndGet();
+        }
+        if (metrics != null) {
+            metrics.recordRetryGiveUp(endpoint, exhausted);
+        }
+    }
+
+    private void retried(CastleEndpoint endpoint, Request request) {
+        Castle.logger.debug("HTTP layer. Retrying {} request to {}.", endpoint, request.url());
+        retries.incrementAndGet();
+        if (metrics != null) {
+            metrics.recordRetry(endpoint);
+        }
+    }
+
+    /**
+     * Tag of the requests sent asynchronously.
+     */
+    private static final class Asynchronous {
+        private static final Asynchronous INSTANCE = new Asynchronous();
+    }
+
+    private class RetryInterceptor implements AsyncInterceptor {
+        private final CastleEndpoint endpoint;
+        private final int maxRetries;
+
+        private RetryInterceptor(CastleEndpoint endpoint, int maxRetries) {
+            this.endpoint = endpoint;
+            this.maxRetries = maxRetries;
+        }
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Request request = chain.request();
+            if (request.tag(Asynchronous.class) != null || !isRetryable(endpoint, maxRetries, request)) {
+                return chain.proceed(request);
+            }
+            budget.deposit();
+            long start = System.nanoTime();
+            long callTimeout = chain.call().timeout().timeoutNanos();
+            int retry = 0;
+            while (true) {
+                Response response = null;
+                IOException failure = null;
+                try {
+                    response = chain.proceed(request);
+                } catch (IOException e) {
+                    failure = e;
+                }
+                if (response != null && !isRetryableStatus(response.code())) {
+                    return response;
+                }
+                long delay = retryDelay(endpoint, maxRetries, retry, chain.call(), callTimeout, start);
+                if (delay < 0) {
+                    if (failure != null) {
+                        throw failure;
+                    }
+                    return response;
+                }
+                if (response != null) {
+                    response.close();
+                }
+                sleep(delay);
+                retried(endpoint, request);
+                retry++;
+            }
+        }
+
+        /**
+         * Asynchronous requests are retried by {@link Retrier#enqueue}, so they pass through.
+         */
+        @Override
+        public Exchange start(Request request) {
+            return new Exchange(request);
+        }
+
+        private void sleep(long delay) throws InterruptedIOException {
+            try {
+                TimeUnit.NANOSECONDS.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to retry");
+            }
+        }
+    }
+
+    /**
+     * Callback of the attempts of an asynchronous request, scheduling a new call for each retry.
+     */
+    private class RetryCallback implements Callback {
+        private final Call.Factory calls;
+        private final Request request;
+        private final CastleEndpoint endpoint;
+        private final int maxRetries;
+        private final Callback callback;
+        private long start;
+        private long callTimeout;
+        private int retry;
+
+        private RetryCallback(Call.Factory calls, Request request, CastleEndpoint endpoint, int maxRetries, Callback callback) {
+            this.calls = calls;
+            this.request = request;
+            this.endpoint = endpoint;
+            this.maxRetries = maxRetries;
+            this.callback = callback;
+        }
+
+        private void send() {
+            Call call = calls.newCall(request);
+            start = System.nanoTime();
+            callTimeout = call.timeout().timeoutNanos();
+            call.enqueue(this);
+        }
+
+        @Override
+        public void onFailure(Call call, IOException e) {
+            if (!scheduleRetry(call)) {
+                callback.onFailure(call, e);
+            }
+        }
+
+        @Override
+        public void onResponse(Call call, Response response) throws IOException {
+            if (!isRetryableStatus(response.code()) || !scheduleRetry(call)) {
+                callback.onResponse(call, response);
+                return;
+            }
+            response.close();
+        }
+
+        /**
+         * Schedules the next attempt, its call timeout being the time left before the deadline of the first call.
+         *
+         * @return false when the request is not retried
+         */
+        private boolean scheduleRetry(Call call) {
+            long delay = retryDelay(endpoint, maxRetries, retry, call, callTimeout, start);
+            if (delay < 0) {
+                return false;
+            }
+            final Call next = calls.newCall(request);
+            if (callTimeout > 0) {
+                next.timeout().timeout(callTimeout - (System.nanoTime() - start) - delay, TimeUnit.NANOSECONDS);
+            }
+            try {
+                timer.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        retried(endpoint, request);
+                        retry++;
+                        next.enqueue(RetryCallback.this);
+                    }
+                }, delay, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                return false;
+            }
+            return true;
+        }
+    }
+}
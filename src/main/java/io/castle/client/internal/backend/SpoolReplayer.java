@@ -0,0 +1,83 @@
+package io.castle.client.internal.backend;
+
+import io.castle.client.Castle;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background thread sending the requests of an {@link EventSpool} again, oldest first.
+ * <p>
+ * Requests are replayed one at a time, at most {@code rate} per second, so that a spool filled during an outage does
+ * not flood the Castle API when it comes back. When a replayed request fails, the replayer waits with an exponential
+ * backoff, up to {@link #MAX_BACKOFF_MILLIS}, before trying the same request again; when the spool is empty it checks
+ * it again every {@link #IDLE_MILLIS}.
+ */
+class SpoolReplayer {
+
+    static final long IDLE_MILLIS = 1000;
+    static final long MIN_BACKOFF_MILLIS = 500;
+    static final long MAX_BACKOFF_MILLIS = 30000;
+
+    private final EventSpool spool;
+    private final OkRestApiBackend backend;
+    private final long intervalMillis;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    SpoolReplayer(EventSpool spool, OkRestApiBackend backend, int rate) {
+        this.spool = spool;
+        this.backend = backend;
+        this.intervalMillis = Math.max(1, 1000 / rate);
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                replayLoop();
+            }
+        }, "castle-spool-replayer");
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    private void replayLoop() {
+        long backoff = MIN_BACKOFF_MILLIS;
+        while (running) {
+            try {
+                EventSpool.Record record = spool.peek();
+                if (record == null) {
+                    TimeUnit.MILLISECONDS.sleep(IDLE_MILLIS);
+                    continue;
+                }
+                if (backend.replay(record)) {
+                    spool.commit(record);
+                    backoff = MIN_BACKOFF_MILLIS;
+                    TimeUnit.MILLISECONDS.sleep(intervalMillis);
+                } else {
+                    TimeUnit.MILLISECONDS.sleep(backoff);
+                    backoff = Math.min(MAX_BACKOFF_MILLIS, backoff * 2);
+                }
+            } catch (InterruptedException e) {
+                break;
+            } catch (RuntimeException e) {
+                Castle.logger.error("Error replaying spooled request.", e);
+            }
+        }
+    }
+
+    /**
+     * Stops replaying, waiting for the request being replayed.
+     *
+     * @param timeout maximum milliseconds to wait
+     */
+    void stop(long timeout) {
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join(timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,390 @@
+package io.castle.client.internal.backend;
+
+import com.google.gson.JsonElement;
+import io.castle.client.Castle;
+import io.castle.client.internal.config.TrackBatchConfiguration;
+import io.castle.client.model.AsyncCallbackHandler;
+import io.castle.client.model.CastleRuntimeException;
+import io.castle.client.model.TrackBatchOverflowPolicy;
+import io.castle.client.model.TrackBatchStats;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded in-memory queue of track events drained by a background flusher thread.
+ * <p>
+ * A batch is sent through {@link RestApi#sendTrackBatchRequest} as soon as it holds
+ * {@link TrackBatchConfiguration#getMaxBatchSize()} events, when the flush interval has elapsed since its first event
+ * was taken from the queue, or when the batcher is shut down.
+ * At most {@link #MAX_IN_FLIGHT_BATCHES} batch requests are outstanding at any time.
+ * <p>
+ * The running batchers of the JVM share one shutdown hook, flushing each of them. It is registered while at least one
+ * batcher runs, so that shut down batchers do not stay referenced from the JVM.
+ */
+public class TrackBatcher {
+
+    static final int MAX_IN_FLIGHT_BATCHES = 4;
+
+    private static final Set<TrackBatcher> RUNNING_BATCHERS = new LinkedHashSet<>();
+    private static Thread shutdownHook;
+
+    private final RestApi restApi;
+    private final TrackBatchConfiguration configuration;
+    private final EventSpool spool;
+    private final BlockingQueue<QueuedEvent> queue;
+    private final Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT_BATCHES);
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong batchesSent = new AtomicLong();
+    private final AtomicLong eventsSent = new AtomicLong();
+    private final AtomicLong eventsFailed = new AtomicLong();
+    private final AtomicLong lastFlushLatencyNanos = new AtomicLong();
+    private final AtomicLong maxFlushLatencyNanos = new AtomicLong();
+    private final AtomicLong totalFlushLatencyNanos = new AtomicLong();
+
+    public TrackBatcher(RestApi restApi, TrackBatchConfiguration configuration) {
+        this(restApi, configuration, null);
+    }
+
+    /**
+     * Creates a batcher writing the events rejected by a full queue to a spool, when using
+     * {@link TrackBatchOverflowPolicy#SPOOL}.
+     *
+     * @param spool journal of the rejected events, null when spooling is disabled
+     */
+    public TrackBatcher(RestApi restApi, TrackBatchConfiguration configuration, EventSpool spool) {
+        this.restApi = restApi;
+        this.configuration = configuration;
+        this.spool = spool;
+        this.queue = new ArrayBlockingQueue<>(configuration.getQueueCapacity());
+        this.flusher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                flushLoop();
+            }
+        }, "castle-track-batcher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+        register(this);
+    }
+
+    /**
+     * Adds a batcher to the ones flushed by the shutdown hook, registering the hook for the first one.
+     */
+    private static synchronized void register(TrackBatcher batcher) {
+        RUNNING_BATCHERS.add(batcher);
+        if (shutdownHook == null) {
+            shutdownHook = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    List<TrackBatcher> batchers;
+                    synchronized (TrackBatcher.class) {
+                        batchers = new ArrayList<>(RUNNING_BATCHERS);
+                    }
+                    for (TrackBatcher batcher : batchers) {
+                        batcher.shutdown(batcher.configuration.getFlushInterval(), TimeUnit.MILLISECONDS);
+                    }
+                }
+            }, "castle-track-batcher-shutdown");
+            Runtime.getRuntime().addShutdownHook(shutdownHook);
+        }
+    }
+
+    /**
+     * Removes a batcher from the ones flushed by the shutdown hook, removing the hook after the last one.
+     */
+    private static synchronized void unregister(TrackBatcher batcher) {
+        if (!RUNNING_BATCHERS.remove(batcher) || !RUNNING_BATCHERS.isEmpty()) {
+            return;
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // The JVM is already shutting down, probably from this very hook.
+        }
+        shutdownHook = null;
+    }
+
+    /**
+     * Gets the number of batchers flushed by the shutdown hook.
+     */
+    static synchronized int getRunningBatchers() {
+        return RUNNING_BATCHERS.size();
+    }
+
+    /**
+     * Checks if the shutdown hook of the batchers is registered.
+     */
+    static synchronized boolean isShutdownHookRegistered() {
+        return shutdownHook != null;
+    }
+
+    /**
+     * Queues a track event, applying the configured overflow policy when the queue is full.
+     *
+     * @param payload              the complete track request
+     * @param asyncCallbackHandler notified once the batch containing the event has been sent, takes null
+     */
+    public void enqueue(JsonElement payload, AsyncCallbackHandler<Boolean> asyncCallbackHandler) {
+        enqueue(payload, -1, asyncCallbackHandler);
+    }
+
+    /**
+     * Queues a track event sent within a call timeout. The batch request containing it uses the smallest call timeout
+     * of its events.
+     *
+     * @param payload              the complete track request
+     * @param callTimeout          milliseconds after which the batch request times out, negative to use the configured
+     *                             call timeout of the batch endpoint
+     * @param asyncCallbackHandler notified once the batch containing the event has been sent, takes null
+     */
+    public void enqueue(JsonElement payload, int callTimeout, AsyncCallbackHandler<Boolean> asyncCallbackHandler) {
+        QueuedEvent event = new QueuedEvent(payload, callTimeout, asyncCallbackHandler);
+        if (!running) {
+            reject(event, "Castle track batcher is shut down.");
+            return;
+        }
+        if (queue.offer(event)) {
+            accepted(event);
+            return;
+        }
+        TrackBatchOverflowPolicy policy = configuration.getOverflowPolicy();
+        if (policy == TrackBatchOverflowPolicy.BLOCK) {
+            try {
+                queue.put(event);
+                accepted(event);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                reject(event, "Interrupted while waiting for room in the track batch queue.");
+            }
+        } else if (policy == TrackBatchOverflowPolicy.DROP_OLDEST) {
+            while (!queue.offer(event)) {
+                QueuedEvent oldest = queue.poll();
+                if (oldest != null) {
+                    reject(oldest, "Track event dropped, the track batch queue is full.");
+                }
+            }
+            accepted(event);
+        } else if (policy == TrackBatchOverflowPolicy.SPOOL) {
+            spool(event);
+        } else {
+            try {
+                configuration.getOverflowHandler().onOverflow(payload);
+            } finally {
+                reject(event, "Track event dropped, the track batch queue is full.");
+            }
+        }
+    }
+
+    /**
+     * Counts an event added to the queue, or rejects it when a shutdown started meanwhile and the flusher may already
+     * have drained the queue for the last time.
+     */
+    private void accepted(QueuedEvent event) {
+        if (!running && queue.remove(event)) {
+            reject(event, "Castle track batcher is shut down.");
+            return;
+        }
+        enqueued.incrementAndGet();
+    }
+
+    /**
+     * Stops accepting events, sends everything still queued and waits for the outstanding batch requests.
+     *
+     * @param timeout maximum time to wait
+     * @param unit    unit of the timeout
+     * @return true if all events were handed to the backend and all batch requests completed in time
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) {
+        running = false;
+        flusher.interrupt();
+        unregister(this);
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        try {
+            flusher.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            long remaining = deadline - System.nanoTime();
+            if (flusher.isAlive() || !inFlight.tryAcquire(MAX_IN_FLIGHT_BATCHES, remaining, TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+            inFlight.release(MAX_IN_FLIGHT_BATCHES);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Gets a snapshot of the batcher counters.
+     *
+     * @return the current queue depth, drop counters and flush latencies
+     */
+    public TrackBatchStats getStats() {
+        return new TrackBatchStats(
+                queue.size(),
+                enqueued.get(),
+                dropped.get(),
+                batchesSent.get(),
+                eventsSent.get(),
+                eventsFailed.get(),
+                TimeUnit.NANOSECONDS.toMillis(lastFlushLatencyNanos.get()),
+                TimeUnit.NANOSECONDS.toMillis(maxFlushLatencyNanos.get()),
+                TimeUnit.NANOSECONDS.toMillis(totalFlushLatencyNanos.get())
+        );
+    }
+
+    private void flushLoop() {
+        int maxBatchSize = configuration.getMaxBatchSize();
+        long flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(configuration.getFlushInterval());
+        List<QueuedEvent> leftover = new ArrayList<>();
+        while (running) {
+            List<QueuedEvent> batch = new ArrayList<>(maxBatchSize);
+            try {
+                QueuedEvent first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0) {
+                        break;
+                    }
+                    QueuedEvent next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                inFlight.acquire();
+                send(batch);
+            } catch (InterruptedException e) {
+                // Shutdown requested: the pending batch and the rest of the queue are sent below.
+                leftover = batch;
+                break;
+            } catch (RuntimeException e) {
+                Castle.logger.error("Error flushing track batch.", e);
+            }
+        }
+        queue.drainTo(leftover);
+        for (int from = 0; from < leftover.size(); from += maxBatchSize) {
+            inFlight.acquireUninterruptibly();
+            send(leftover.subList(from, Math.min(leftover.size(), from + maxBatchSize)));
+        }
+    }
+
+    private void send(final List<QueuedEvent> batch) {
+        if (batch.isEmpty()) {
+            inFlight.release();
+            return;
+        }
+        List<JsonElement> payloads = new ArrayList<>(batch.size());
+        int callTimeout = -1;
+        for (QueuedEvent event : batch) {
+            payloads.add(event.payload);
+            if (event.callTimeout >= 0 && (callTimeout < 0 || event.callTimeout < callTimeout)) {
+                callTimeout = event.callTimeout;
+            }
+        }
+        RestApi batchRestApi = callTimeout < 0 ? restApi : restApi.withCallTimeout(callTimeout);
+        final long start = System.nanoTime();
+        try {
+            batchRestApi.sendTrackBatchRequest(payloads, new AsyncCallbackHandler<Boolean>() {
+                @Override
+                public void onResponse(Boolean response) {
+                    completed(batch, start, response, null);
+                }
+
+                @Override
+                public void onException(Exception exception) {
+                    completed(batch, start, false, exception);
+                }
+            });
+        } catch (RuntimeException e) {
+            completed(batch, start, false, e);
+        }
+    }
+
+    private void completed(List<QueuedEvent> batch, long start, boolean success, Exception exception) {
+        try {
+            long latency = System.nanoTime() - start;
+            lastFlushLatencyNanos.set(latency);
+            totalFlushLatencyNanos.addAndGet(latency);
+            long max = maxFlushLatencyNanos.get();
+            while (latency > max && !maxFlushLatencyNanos.compareAndSet(max, latency)) {
+                max = maxFlushLatencyNanos.get();
+            }
+            batchesSent.incrementAndGet();
+            if (success) {
+                eventsSent.addAndGet(batch.size());
+            } else {
+                eventsFailed.addAndGet(batch.size());
+            }
+            for (QueuedEvent event : batch) {
+                if (event.asyncCallbackHandler == null) {
+                    continue;
+                }
+                // A failing handler must not keep the other events of the batch from being notified
+                try {
+                    if (exception != null) {
+                        event.asyncCallbackHandler.onException(exception);
+                    } else {
+                        event.asyncCallbackHandler.onResponse(success);
+                    }
+                } catch (RuntimeException e) {
+                    Castle.logger.error("Error in the callback of a batched track event.", e);
+                }
+            }
+        } finally {
+            // Released last, so that a completed shutdown observes the counters and callbacks of every batch.
+            inFlight.release();
+        }
+    }
+
+    /**
+     * Writes an event to the spool without waiting for room in the queue. The handler is told that the event was not
+     * sent, as it is only sent when replayed from the spool.
+     */
+    private void spool(QueuedEvent event) {
+        if (spool == null || !spool.append(EventSpool.Kind.TRACK, event.payload.toString().getBytes(StandardCharsets.UTF_8))) {
+            reject(event, "Track event dropped, the track batch queue is full and the event could not be spooled.");
+            return;
+        }
+        if (event.asyncCallbackHandler != null) {
+            event.asyncCallbackHandler.onResponse(false);
+        }
+    }
+
+    private void reject(QueuedEvent event, String reason) {
+        dropped.incrementAndGet();
+        if (event.asyncCallbackHandler != null) {
+            event.asyncCallbackHandler.onException(new CastleRuntimeException(reason));
+        }
+    }
+
+    private static class QueuedEvent {
+        private final JsonElement payload;
+        private final int callTimeout;
+        private final AsyncCallbackHandler<Boolean> asyncCallbackHandler;
+
+        private QueuedEvent(JsonElement payload, int callTimeout, AsyncCallbackHandler<Boolean> asyncCallbackHandler) {
+            this.payload = payload;
+            this.callTimeout = callTimeout;
+            this.asyncCallbackHandler = asyncCallbackHandler;
+        }
+    }
+}
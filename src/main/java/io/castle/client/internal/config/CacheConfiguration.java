@@ -0,0 +1,63 @@
+package io.castle.client.internal.config;
+
+/**
+ * Settings of the optional cache of the device, user devices and review lookups.
+ * <p>
+ * Responses are kept for a time to live of their own per resource, and each resource keeps at most a number of
+ * responses, evicting the least recently used ones.
+ */
+public class CacheConfiguration {
+
+    /**
+     * Whether lookups are cached.
+     */
+    private final boolean enabled;
+
+    /**
+     * Maximum number of responses kept per resource.
+     */
+    private final int maxSize;
+
+    /**
+     * Milliseconds a device response is kept.
+     */
+    private final int deviceTtl;
+
+    /**
+     * Milliseconds a user devices response is kept.
+     */
+    private final int userDevicesTtl;
+
+    /**
+     * Milliseconds a review response is kept.
+     */
+    private final int reviewTtl;
+
+    public CacheConfiguration(boolean enabled, int maxSize, int deviceTtl, int userDevicesTtl, int reviewTtl) {
+        this.enabled = enabled;
+        this.maxSize = maxSize;
+        this.deviceTtl = deviceTtl;
+        this.userDevicesTtl = userDevicesTtl;
+        this.reviewTtl = reviewTtl;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getDeviceTtl() {
+        return deviceTtl;
+    }
+
+    public int getUserDevicesTtl() {
+        return userDevicesTtl;
+    }
+
+    public int getReviewTtl() {
+        return reviewTtl;
+    }
+}
@@ -1,7 +1,9 @@
 package io.castle.client.internal.config;
 
 import io.castle.client.internal.backend.CastleBackendProvider;
+import io.castle.client.internal.utils.HeaderFilter;
 import io.castle.client.model.AuthenticateFailoverStrategy;
+import io.castle.client.model.CastleMetrics;
 import io.castle.client.model.CastleRuntimeException;
 
 import java.util.List;
@@ -61,7 +63,77 @@ public class CastleConfiguration {
 
     private final List<String> ipHeaders;
 
-    public CastleConfiguration(String apiBaseUrl, int timeout, AuthenticateFailoverStrategy authenticateFailoverStrategy, List<String> whiteListHeaders, List<String> blackListHeaders, String apiSecret, String castleAppId, CastleBackendProvider backendProvider, boolean logHttpRequests, List<String> ipHeaders) {
+    /**
+     * Settings for batching track requests.
+     */
+    private final TrackBatchConfiguration trackBatchConfiguration;
+
+    /**
+     * Flag to keep the full authenticate response as the internal tree of a {@code verdict}.
+     */
+    private final boolean retainVerdictInternal;
+
+    /**
+     * Settings of the connection pool and request dispatcher.
+     */
+    private final HttpClientConfiguration httpClientConfiguration;
+
+    /**
+     * Per endpoint timeouts and call timeouts.
+     */
+    private final TimeoutConfiguration timeoutConfiguration;
+
+    /**
+     * Settings of the circuit breaker guarding the authenticate endpoint.
+     */
+    private final CircuitBreakerConfiguration circuitBreakerConfiguration;
+
+    /**
+     * Settings of the retries of failed requests.
+     */
+    private final RetryConfiguration retryConfiguration;
+
+    /**
+     * Settings of the hedging of authenticate requests.
+     */
+    private final HedgingConfiguration hedgingConfiguration;
+
+    /**
+     * Receiver of the measurements of the SDK, null when metrics are not recorded.
+     */
+    private final CastleMetrics metrics;
+
+    /**
+     * Settings of the on-disk spool of failed requests.
+     */
+    private final SpoolConfiguration spoolConfiguration;
+
+    /**
+     * Settings of the cache of the device, user devices and review lookups.
+     */
+    private final CacheConfiguration cacheConfiguration;
+
+    /**
+     * Whether concurrent identical GET requests share one HTTP call.
+     */
+    private final boolean requestCoalescing;
+
+    /**
+     * Whitelist and blacklist of headers, compiled for the extraction of the context of each request.
+     */
+    private final HeaderFilter headerFilter;
+
+    /**
+     * Number of recent secure user IDs kept in memory, 0 when they are not cached.
+     */
+    private final int secureUserIdCacheSize;
+
+    /**
+     * Settings of the gzip compression of request bodies.
+     */
+    private final CompressionConfiguration compressionConfiguration;
+
+    public CastleConfiguration(String apiBaseUrl, int timeout, AuthenticateFailoverStrategy authenticateFailoverStrategy, List<String> whiteListHeaders, List<String> blackListHeaders, String apiSecret, String castleAppId, CastleBackendProvider backendProvider, boolean logHttpRequests, List<String> ipHeaders, TrackBatchConfiguration trackBatchConfiguration, boolean retainVerdictInternal, HttpClientConfiguration httpClientConfiguration, TimeoutConfiguration timeoutConfiguration, CircuitBreakerConfiguration circuitBreakerConfiguration, RetryConfiguration retryConfiguration, HedgingConfiguration hedgingConfiguration, CastleMetrics metrics, SpoolConfiguration spoolConfiguration, CacheConfiguration cacheConfiguration, boolean requestCoalescing, int secureUserIdCacheSize, CompressionConfiguration compressionConfiguration) {
         this.apiBaseUrl = apiBaseUrl;
         this.timeout = timeout;
         this.authenticateFailoverStrategy = authenticateFailoverStrategy;
@@ -72,6 +144,20 @@ public class CastleConfiguration {
         this.backendProvider = backendProvider;
         this.logHttpRequests = logHttpRequests;
         this.ipHeaders = ipHeaders;
+        this.trackBatchConfiguration = trackBatchConfiguration;
+        this.retainVerdictInternal = retainVerdictInternal;
+        this.httpClientConfiguration = httpClientConfiguration;
+        this.timeoutConfiguration = timeoutConfiguration;
+        this.circuitBreakerConfiguration = circuitBreakerConfiguration;
+        this.retryConfiguration = retryConfiguration;
+        this.hedgingConfiguration = hedgingConfiguration;
+        this.metrics = metrics;
+        this.spoolConfiguration = spoolConfiguration;
+        this.cacheConfiguration = cacheConfiguration;
+        this.requestCoalescing = requestCoalescing;
+        this.headerFilter = new HeaderFilter(whiteListHeaders, blackListHeaders);
+        this.secureUserIdCacheSize = secureUserIdCacheSize;
+        this.compressionConfiguration = compressionConfiguration;
     }
 
     public String getApiBaseUrl() {
@@ -94,6 +180,10 @@ public class CastleConfiguration {
         return blackListHeaders;
     }
 
+    public HeaderFilter getHeaderFilter() {
+        return headerFilter;
+    }
+
     public String getApiSecret() {
         return apiSecret;
     }
@@ -123,4 +213,56 @@ public class CastleConfiguration {
     public List<String> getIpHeaders() {
         return ipHeaders;
     }
+
+    public TrackBatchConfiguration getTrackBatchConfiguration() {
+        return trackBatchConfiguration;
+    }
+
+    public boolean isRetainVerdictInternal() {
+        return retainVerdictInternal;
+    }
+
+    public HttpClientConfiguration getHttpClientConfiguration() {
+        return httpClientConfiguration;
+    }
+
+    public TimeoutConfiguration getTimeoutConfiguration() {
+        return timeoutConfiguration;
+    }
+
+    public CircuitBreakerConfiguration getCircuitBreakerConfiguration() {
+        return circuitBreakerConfiguration;
+    }
+
+    public RetryConfiguration getRetryConfiguration() {
+        return retryConfiguration;
+    }
+
+    public HedgingConfiguration getHedgingConfiguration() {
+        return hedgingConfiguration;
+    }
+
+    public CastleMetrics getMetrics() {
+        return metrics;
+    }
+
+    public SpoolConfiguration getSpoolConfiguration() {
+        return spoolConfiguration;
+    }
+
+    public CacheConfiguration getCacheConfiguration() {
+        return cacheConfiguration;
+    }
+
+    public boolean isRequestCoalescing() {
+        return requestCoalescing;
+    }
+
+    public int getSecureUserIdCacheSize() {
+        return secureUserIdCacheSize;
+    }
+
+    public CompressionConfiguration getCompressionConfiguration() {
+        return compressionConfiguration;
+    }
 }
@@ -6,10 +6,18 @@ import io.castle.client.internal.backend.CastleBackendProvider;
 import io.castle.client.internal.utils.HeaderNormalizer;
 import io.castle.client.model.AuthenticateAction;
 import io.castle.client.model.AuthenticateFailoverStrategy;
+import io.castle.client.model.CastleEndpoint;
+import io.castle.client.model.CastleMetrics;
 import io.castle.client.model.CastleSdkConfigurationException;
+import io.castle.client.model.CircuitBreakerListener;
+import io.castle.client.model.TrackBatchOverflowHandler;
+import io.castle.client.model.TrackBatchOverflowPolicy;
 
+import java.util.EnumMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Allows to programmatically create and validate a castleConfiguration through a DSL.
@@ -18,13 +26,27 @@ import java.util.List;
  * Furthermore, there are also methods for creating a configuration from sensible default values.
  * The fields that can be set in a CastleConfiguration:
  * <ul>
- * <li> timeout
+ * <li> timeout, callTimeout and the timeouts of each {@link CastleEndpoint}
+ * <li> circuitBreaker, circuitBreakerWindowSize, circuitBreakerMinimumCalls, circuitBreakerFailureRateThreshold,
+ * circuitBreakerOpenDuration, circuitBreakerHalfOpenCalls and circuitBreakerListener
+ * <li> retries, maxRetries, retryBaseDelay, retryMaxDelay, retryBudgetPercent and the max retries of each
+ * {@link CastleEndpoint}
+ * <li> hedging, hedgeDelayPercentile, hedgeMinDelay and hedgeBudgetPercent
+ * <li> spool, spoolDirectory, spoolSegmentSize, spoolMaxSize, spoolMaxAge, spoolSegmentMaxAge and spoolReplayRate
+ * <li> cache, cacheMaxSize, cacheDeviceTtl, cacheUserDevicesTtl and cacheReviewTtl
+ * <li> requestCoalescing
+ * <li> secureUserIdCacheSize
+ * <li> requestCompression and requestCompressionThreshold
+ * <li> metrics
  * <li> failoverStrategy
  * <li> whiteListHeaders
  * <li> blackListHeaders
  * <li> apiSecret
  * <li> castleAppId
  * <li> backendProvider
+ * <li> trackBatching, trackBatchMaxSize, trackBatchFlushInterval, trackBatchQueueCapacity and trackBatchOverflowPolicy
+ * <li> retainVerdictInternal
+ * <li> maxRequests, maxRequestsPerHost, connectionPoolSize, keepAliveDuration, http2 and executorService
  * </ul>
  * The {@code build} method provides a layer of validation.
  * It will throw a {@link CastleSdkConfigurationException} if one of the fields is left unset.
@@ -70,7 +92,7 @@ public class CastleConfigurationBuilder {
     /**
      * The HTTP layer chosen to make requests.
      */
-    private CastleBackendProvider backendProvider = CastleBackendProvider.OKHTTP; //Unique available backend on the current version
+    private CastleBackendProvider backendProvider = CastleBackendProvider.OKHTTP;
 
     /**
      * Base URL of the API calls. Used for tests, on productions use the default value.
@@ -87,6 +109,261 @@ public class CastleConfigurationBuilder {
      */
     private List<String> ipHeaders;
 
+    /**
+     * Flag to send track events in batches from a background flusher.
+     */
+    private boolean trackBatching = false;
+
+    /**
+     * Maximum number of track events sent in one batch request.
+     */
+    private int trackBatchMaxSize = 100;
+
+    /**
+     * Milliseconds after which a partially filled batch is flushed.
+     */
+    private int trackBatchFlushInterval = 1000;
+
+    /**
+     * Maximum number of track events waiting to be sent.
+     */
+    private int trackBatchQueueCapacity = 10000;
+
+    /**
+     * What to do with a track event when the batch queue is full.
+     */
+    private TrackBatchOverflowPolicy trackBatchOverflowPolicy = TrackBatchOverflowPolicy.DROP_OLDEST;
+
+    /**
+     * Receives the track events rejected by a full queue, when using {@link TrackBatchOverflowPolicy#CALLBACK}.
+     */
+    private TrackBatchOverflowHandler trackBatchOverflowHandler;
+
+    /**
+     * Flag to keep the full authenticate response as the internal tree of a verdict.
+     */
+    private boolean retainVerdictInternal = true;
+
+    /**
+     * Maximum number of async requests executing concurrently.
+     */
+    private int maxRequests = 64;
+
+    /**
+     * Maximum number of async requests executing concurrently against the Castle API host.
+     */
+    private int maxRequestsPerHost = 64;
+
+    /**
+     * Maximum number of idle connections kept in the pool.
+     */
+    private int connectionPoolSize = 5;
+
+    /**
+     * Milliseconds an idle connection is kept in the pool.
+     */
+    private long keepAliveDuration = 300000;
+
+    /**
+     * Flag to negotiate HTTP/2 when the Castle API supports it.
+     */
+    private boolean http2 = true;
+
+    /**
+     * Executor running the async requests, created by the HTTP layer when null.
+     */
+    private ExecutorService executorService;
+
+    /**
+     * Milliseconds after which a whole call times out, 0 for no call timeout.
+     */
+    private int callTimeout = 0;
+
+    /**
+     * Timeouts of the endpoints not using the default timeout.
+     */
+    private final Map<CastleEndpoint, Integer> endpointTimeouts = new EnumMap<>(CastleEndpoint.class);
+
+    /**
+     * Call timeouts of the endpoints not using the default call timeout.
+     */
+    private final Map<CastleEndpoint, Integer> endpointCallTimeouts = new EnumMap<>(CastleEndpoint.class);
+
+    /**
+     * Flag to guard the authenticate endpoint with a circuit breaker.
+     */
+    private boolean circuitBreaker = false;
+
+    /**
+     * Number of most recent authenticate requests considered by the circuit breaker.
+     */
+    private int circuitBreakerWindowSize = 100;
+
+    /**
+     * Minimum number of requests in the window before the circuit breaker evaluates the failure rate.
+     */
+    private int circuitBreakerMinimumCalls = 20;
+
+    /**
+     * Percentage of failed requests opening the circuit breaker.
+     */
+    private int circuitBreakerFailureRateThreshold = 50;
+
+    /**
+     * Milliseconds the circuit breaker stays open before probing the Castle API.
+     */
+    private int circuitBreakerOpenDuration = 10000;
+
+    /**
+     * Number of successful probe requests closing the circuit breaker.
+     */
+    private int circuitBreakerHalfOpenCalls = 5;
+
+    /**
+     * Listener notified of the circuit breaker state transitions.
+     */
+    private CircuitBreakerListener circuitBreakerListener;
+
+    /**
+     * Flag to retry failed requests.
+     */
+    private boolean retries = false;
+
+    /**
+     * Maximum number of retries of a request.
+     */
+    private int maxRetries = 2;
+
+    /**
+     * Milliseconds of backoff before the first retry.
+     */
+    private int retryBaseDelay = 50;
+
+    /**
+     * Maximum milliseconds of backoff before a retry.
+     */
+    private int retryMaxDelay = 1000;
+
+    /**
+     * Retries allowed by the retry budget, as a percentage of the requests.
+     */
+    private int retryBudgetPercent = 10;
+
+    /**
+     * Maximum number of retries of the endpoints not using the default.
+     */
+    private final Map<CastleEndpoint, Integer> endpointMaxRetries = new EnumMap<>(CastleEndpoint.class);
+
+    /**
+     * Flag to hedge slow authenticate requests.
+     */
+    private boolean hedging = false;
+
+    /**
+     * Percentile of the recent authenticate latencies after which a request is hedged.
+     */
+    private int hedgeDelayPercentile = 95;
+
+    /**
+     * Minimum milliseconds before a request is hedged.
+     */
+    private int hedgeMinDelay = 10;
+
+    /**
+     * Hedged requests allowed by the hedge budget, as a percentage of the authenticate requests.
+     */
+    private int hedgeBudgetPercent = 5;
+
+    /**
+     * Flag to spool failed track and identify requests on disk.
+     */
+    private boolean spool = false;
+
+    /**
+     * Directory of the spool journal, required when spooling.
+     */
+    private String spoolDirectory;
+
+    /**
+     * Size in bytes of a spool segment file.
+     */
+    private int spoolSegmentSize = 1024 * 1024;
+
+    /**
+     * Maximum size in bytes of the spool journal.
+     */
+    private long spoolMaxSize = 64L * 1024 * 1024;
+
+    /**
+     * Milliseconds after which a spooled request is discarded rather than replayed.
+     */
+    private int spoolMaxAge = 24 * 60 * 60 * 1000;
+
+    /**
+     * Milliseconds after which the spool segment written to is rotated.
+     */
+    private int spoolSegmentMaxAge = 60 * 1000;
+
+    /**
+     * Maximum number of spooled requests replayed per second.
+     */
+    private int spoolReplayRate = 20;
+
+    /**
+     * Flag to cache the device, user devices and review lookups.
+     */
+    private boolean cache = false;
+
+    /**
+     * Maximum number of cached responses per resource.
+     */
+    private int cacheMaxSize = 1000;
+
+    /**
+     * Milliseconds a device response is cached.
+     */
+    private int cacheDeviceTtl = 30000;
+
+    /**
+     * Milliseconds a user devices response is cached.
+     */
+    private int cacheUserDevicesTtl = 30000;
+
+    /**
+     * Milliseconds a review response is cached.
+     */
+    private int cacheReviewTtl = 300000;
+
+    /**
+     * Flag to share one HTTP call between concurrent identical GET requests.
+     */
+    private boolean requestCoalescing = false;
+
+    /**
+     * Number of recent secure user IDs kept in memory, 0 to compute each one.
+     */
+    private int secureUserIdCacheSize = 0;
+
+    /**
+     * Flag to gzip the request bodies.
+     */
+    private boolean requestCompression = false;
+
+    /**
+     * Minimum size in bytes of a request body to gzip.
+     */
+    private int requestCompressionThreshold = 1024;
+
+    /**
+     * Receiver of the measurements of the SDK, null to not record them.
+     */
+    private CastleMetrics metrics;
+
+    /**
+     * Errors found by the {@link ConfigurationLoader} in the values it loaded.
+     */
+    private final List<String> loadingErrors = new LinkedList<>();
+
     private CastleConfigurationBuilder() {
     }
 
@@ -281,6 +558,7 @@ public class CastleConfigurationBuilder {
      */
     public CastleConfiguration build() throws CastleSdkConfigurationException {
         ImmutableList.Builder<String> builder = ImmutableList.builder();
+        builder.addAll(loadingErrors);
         if (apiSecret == null || apiSecret.isEmpty()) {
             builder.add("The apiSecret for the castleSDK must be provided in the configuration. Read documentation " +
                     "for further details.");
@@ -300,10 +578,87 @@ public class CastleConfigurationBuilder {
         if (backendProvider == null) {
             builder.add("A backend provider must be selected. If not sure, then use the default values provided " +
                     "by method withDefaultBackendProvider. Read documentation for further details.");
+        } else if (!backendProvider.isAvailable()) {
+            builder.add("The backend provider " + backendProvider + " is not available on this JVM. Read documentation " +
+                    "for further details.");
         }
         if (apiBaseUrl == null) {
             builder.add("A apiBaseUrl value must be selected. If not sure, then use the default values provided by method withDefaultApiBaseUrl. Read documentation for further details.");
         }
+        if (trackBatching) {
+            if (trackBatchMaxSize <= 0 || trackBatchFlushInterval <= 0 || trackBatchQueueCapacity <= 0) {
+                builder.add("Track batch max size, flush interval and queue capacity must be positive values.");
+            }
+            if (trackBatchOverflowPolicy == null) {
+                builder.add("A track batch overflow policy must be provided when track batching is enabled.");
+            } else if (trackBatchOverflowPolicy == TrackBatchOverflowPolicy.CALLBACK && trackBatchOverflowHandler == null) {
+                builder.add("A track batch overflow handler must be provided when the overflow policy is CALLBACK.");
+            } else if (trackBatchOverflowPolicy == TrackBatchOverflowPolicy.SPOOL && !spool) {
+                builder.add("Spooling must be enabled when the track batch overflow policy is SPOOL.");
+            }
+        }
+        if (maxRequests <= 0 || maxRequestsPerHost <= 0) {
+            builder.add("Max requests and max requests per host must be positive values.");
+        }
+        if (connectionPoolSize < 0 || keepAliveDuration <= 0) {
+            builder.add("Connection pool size can not be negative and keep alive duration must be a positive value.");
+        }
+        if (timeout <= 0 || !allPositive(endpointTimeouts.values())) {
+            builder.add("Timeouts must be positive values.");
+        }
+        if (callTimeout < 0 || !allNotNegative(endpointCallTimeouts.values())) {
+            builder.add("Call timeouts can not be negative, use 0 for no call timeout.");
+        }
+        if (circuitBreaker) {
+            if (circuitBreakerWindowSize <= 0 || circuitBreakerMinimumCalls <= 0 || circuitBreakerOpenDuration <= 0 || circuitBreakerHalfOpenCalls <= 0) {
+                builder.add("Circuit breaker window size, minimum calls, open duration and half open calls must be positive values.");
+            }
+            if (circuitBreakerFailureRateThreshold <= 0 || circuitBreakerFailureRateThreshold > 100) {
+                builder.add("Circuit breaker failure rate threshold must be a percentage between 1 and 100.");
+            }
+        }
+        if (retries) {
+            if (maxRetries < 0 || !allNotNegative(endpointMaxRetries.values())) {
+                builder.add("Max retries can not be negative.");
+            }
+            if (retryBaseDelay <= 0 || retryMaxDelay < retryBaseDelay) {
+                builder.add("Retry base delay must be a positive value not greater than the retry max delay.");
+            }
+            if (retryBudgetPercent <= 0 || retryBudgetPercent > 100) {
+                builder.add("Retry budget must be a percentage between 1 and 100.");
+            }
+        }
+        if (hedging) {
+            if (hedgeDelayPercentile <= 0 || hedgeDelayPercentile > 100) {
+                builder.add("Hedge delay percentile must be between 1 and 100.");
+            }
+            if (hedgeMinDelay < 0) {
+                builder.add("Hedge min delay can not be negative.");
+            }
+            if (hedgeBudgetPercent <= 0 || hedgeBudgetPercent > 100) {
+                builder.add("Hedge budget must be a percentage between 1 and 100.");
+            }
+        }
+        if (spool) {
+            if (spoolDirectory == null || spoolDirectory.isEmpty()) {
+                builder.add("A spool directory must be provided when spooling is enabled.");
+            }
+            if (spoolSegmentSize <= 0 || spoolMaxSize < spoolSegmentSize) {
+                builder.add("Spool segment size must be a positive value not greater than the spool max size.");
+            }
+            if (spoolMaxAge <= 0 || spoolSegmentMaxAge <= 0 || spoolReplayRate <= 0) {
+                builder.add("Spool max age, segment max age and replay rate must be positive values.");
+            }
+        }
+        if (cache && (cacheMaxSize <= 0 || cacheDeviceTtl <= 0 || cacheUserDevicesTtl <= 0 || cacheReviewTtl <= 0)) {
+            builder.add("Cache max size and time to live values must be positive values.");
+        }
+        if (secureUserIdCacheSize < 0) {
+            builder.add("Secure user ID cache size can not be negative.");
+        }
+        if (requestCompression && requestCompressionThreshold < 0) {
+            builder.add("Request compression threshold can not be negative.");
+        }
         ImmutableList<String> errorMessages = builder.build();
         if (!errorMessages.isEmpty()) {
             throw new CastleSdkConfigurationException(Joiner.on(System.lineSeparator()).join(errorMessages));
@@ -318,7 +673,94 @@ public class CastleConfigurationBuilder {
                 castleAppId,
                 backendProvider,
                 logHttpRequests,
-                ipHeaders);
+                ipHeaders,
+                new TrackBatchConfiguration(
+                        trackBatching,
+                        trackBatchMaxSize,
+                        trackBatchFlushInterval,
+                        trackBatchQueueCapacity,
+                        trackBatchOverflowPolicy,
+                        trackBatchOverflowHandler
+                ),
+                retainVerdictInternal,
+                new HttpClientConfiguration(
+                        maxRequests,
+                        maxRequestsPerHost,
+                        connectionPoolSize,
+                        keepAliveDuration,
+                        http2,
+                        executorService
+                ),
+                new TimeoutConfiguration(
+                        timeout,
+                        callTimeout,
+                        endpointTimeouts,
+                        endpointCallTimeouts
+                ),
+                new CircuitBreakerConfiguration(
+                        circuitBreaker,
+                        circuitBreakerWindowSize,
+                        circuitBreakerMinimumCalls,
+                        circuitBreakerFailureRateThreshold,
+                        circuitBreakerOpenDuration,
+                        circuitBreakerHalfOpenCalls,
+                        circuitBreakerListener
+                ),
+                new RetryConfiguration(
+                        retries,
+                        maxRetries,
+                        retryBaseDelay,
+                        retryMaxDelay,
+                        retryBudgetPercent,
+                        endpointMaxRetries
+                ),
+                new HedgingConfiguration(
+                        hedging,
+                        hedgeDelayPercentile,
+                        hedgeMinDelay,
+                        hedgeBudgetPercent
+                ),
+                metrics,
+                new SpoolConfiguration(
+                        spool,
+                        spoolDirectory,
+                        spoolSegmentSize,
+                        spoolMaxSize,
+                        spoolMaxAge,
+                        spoolSegmentMaxAge,
+                        spoolReplayRate
+                ),
+                new CacheConfiguration(
+                        cache,
+                        cacheMaxSize,
+                        cacheDeviceTtl,
+                        cacheUserDevicesTtl,
+                        cacheReviewTtl
+                ),
+                requestCoalescing,
+                secureUserIdCacheSize,
+                new CompressionConfiguration(
+                        requestCompression,
+                        requestCompressionThreshold
+                ));
+    }
+
+    private static boolean allPositive(Iterable<Integer> values) {
+        for (Integer value : values) {
+            if (value <= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean allNotNegative(Iterable<Integer> values) {
+        for (Integer value : values) {
+            if (value < 0) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -389,4 +831,618 @@ public class CastleConfigurationBuilder {
     public CastleConfigurationBuilder ipHeaders(List<String> ipHeaders) {
         return withIPHeaders(ipHeaders);
     }
-}
\ No newline at end of file
+
+    /**
+     * Flag to enable batching of track requests.
+     * <p>
+     * When enabled, track events are queued in memory and sent in batches by a background flusher, either when a
+     * batch is full, when the flush interval elapses or when the SDK is shut down.
+     *
+     * @param trackBatching boolean to switch batching on or off.
+     * @return a castleConfigurationBuilder with track batching set
+     */
+    public CastleConfigurationBuilder withTrackBatching(boolean trackBatching) {
+        this.trackBatching = trackBatching;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of track events sent in one batch request.
+     *
+     * @param trackBatchMaxSize maximum batch size, positive
+     * @return a castleConfigurationBuilder with the track batch size set
+     */
+    public CastleConfigurationBuilder withTrackBatchMaxSize(int trackBatchMaxSize) {
+        this.trackBatchMaxSize = trackBatchMaxSize;
+        return this;
+    }
+
+    /**
+     * Sets the time in milliseconds after which a partially filled batch of track events is sent.
+     *
+     * @param trackBatchFlushInterval milliseconds an event may wait in the queue, positive
+     * @return a castleConfigurationBuilder with the track batch flush interval set
+     */
+    public CastleConfigurationBuilder withTrackBatchFlushInterval(int trackBatchFlushInterval) {
+        this.trackBatchFlushInterval = trackBatchFlushInterval;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of track events waiting in the batch queue.
+     *
+     * @param trackBatchQueueCapacity capacity of the queue, positive
+     * @return a castleConfigurationBuilder with the track batch queue capacity set
+     */
+    public CastleConfigurationBuilder withTrackBatchQueueCapacity(int trackBatchQueueCapacity) {
+        this.trackBatchQueueCapacity = trackBatchQueueCapacity;
+        return this;
+    }
+
+    /**
+     * Sets the behaviour when the track batch queue is full.
+     *
+     * @param trackBatchOverflowPolicy the policy to use, not null
+     * @return a castleConfigurationBuilder with the track batch overflow policy set
+     */
+    public CastleConfigurationBuilder withTrackBatchOverflowPolicy(TrackBatchOverflowPolicy trackBatchOverflowPolicy) {
+        this.trackBatchOverflowPolicy = trackBatchOverflowPolicy;
+        return this;
+    }
+
+    /**
+     * Sets the handler receiving the track events rejected by a full queue, and selects the
+     * {@link TrackBatchOverflowPolicy#CALLBACK} policy.
+     *
+     * @param trackBatchOverflowHandler handler for rejected events, not null
+     * @return a castleConfigurationBuilder with the track batch overflow handler set
+     */
+    public CastleConfigurationBuilder withTrackBatchOverflowHandler(TrackBatchOverflowHandler trackBatchOverflowHandler) {
+        this.trackBatchOverflowHandler = trackBatchOverflowHandler;
+        this.trackBatchOverflowPolicy = TrackBatchOverflowPolicy.CALLBACK;
+        return this;
+    }
+
+    /**
+     * Flag to keep the full authenticate response as the internal tree of a verdict.
+     * <p>
+     * When disabled, the authenticate response is only read for the fields of the verdict and the rest of it is
+     * skipped, which saves building a JSON tree on each call.
+     *
+     * @param retainVerdictInternal boolean to keep or skip the internal tree.
+     * @return a castleConfigurationBuilder with the verdict internal retention set
+     */
+    public CastleConfigurationBuilder withRetainVerdictInternal(boolean retainVerdictInternal) {
+        this.retainVerdictInternal = retainVerdictInternal;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of async requests executing concurrently.
+     *
+     * @param maxRequests maximum number of concurrent requests, positive
+     * @return a castleConfigurationBuilder with the max requests set
+     */
+    public CastleConfigurationBuilder withMaxRequests(int maxRequests) {
+        this.maxRequests = maxRequests;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of async requests executing concurrently against the Castle API host.
+     * <p>
+     * All requests go to the same host, so this is usually the limit reached first under load.
+     *
+     * @param maxRequestsPerHost maximum number of concurrent requests to the Castle API, positive
+     * @return a castleConfigurationBuilder with the max requests per host set
+     */
+    public CastleConfigurationBuilder withMaxRequestsPerHost(int maxRequestsPerHost) {
+        this.maxRequestsPerHost = maxRequestsPerHost;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of idle connections kept open to the Castle API.
+     *
+     * @param connectionPoolSize maximum number of idle connections, not negative
+     * @return a castleConfigurationBuilder with the connection pool size set
+     */
+    public CastleConfigurationBuilder withConnectionPoolSize(int connectionPoolSize) {
+        this.connectionPoolSize = connectionPoolSize;
+        return this;
+    }
+
+    /**
+     * Sets the time in milliseconds an idle connection is kept in the pool before being closed.
+     *
+     * @param keepAliveDuration milliseconds an idle connection is kept, positive
+     * @return a castleConfigurationBuilder with the keep alive duration set
+     */
+    public CastleConfigurationBuilder withKeepAliveDuration(long keepAliveDuration) {
+        this.keepAliveDuration = keepAliveDuration;
+        return this;
+    }
+
+    /**
+     * Flag to negotiate HTTP/2 with the Castle API.
+     * <p>
+     * When disabled, only HTTP/1.1 is used.
+     *
+     * @param http2 boolean to switch HTTP/2 on or off.
+     * @return a castleConfigurationBuilder with the HTTP/2 preference set
+     */
+    public CastleConfigurationBuilder withHttp2(boolean http2) {
+        this.http2 = http2;
+        return this;
+    }
+
+    /**
+     * Sets the executor running the async requests.
+     * <p>
+     * The executor is not shut down by {@link io.castle.client.Castle#shutdown}, it is owned by the caller.
+     *
+     * @param executorService executor for the async requests, null to let the HTTP layer create one
+     * @return a castleConfigurationBuilder with the executor service set
+     */
+    public CastleConfigurationBuilder withExecutorService(ExecutorService executorService) {
+        this.executorService = executorService;
+        return this;
+    }
+
+    /**
+     * Sets the time in milliseconds after which a whole call times out.
+     * <p>
+     * Unlike the timeout, which bounds each connect, read and write operation, the call timeout bounds the complete
+     * call, from resolving DNS to reading the response body.
+     *
+     * @param callTimeout milliseconds after which a call times out, 0 for no call timeout
+     * @return a castleConfigurationBuilder with the call timeout set
+     */
+    public CastleConfigurationBuilder withCallTimeout(int callTimeout) {
+        this.callTimeout = callTimeout;
+        return this;
+    }
+
+    /**
+     * Sets the timeout in milliseconds for the requests to one endpoint, replacing the default timeout for it.
+     *
+     * @param endpoint endpoint the timeout is used for
+     * @param timeout  milliseconds after which a request to the endpoint times out
+     * @return a castleConfigurationBuilder with the endpoint timeout set
+     */
+    public CastleConfigurationBuilder withEndpointTimeout(CastleEndpoint endpoint, int timeout) {
+        this.endpointTimeouts.put(endpoint, timeout);
+        return this;
+    }
+
+    /**
+     * Sets the time in milliseconds after which a whole call to one endpoint times out, replacing the default call
+     * timeout for it.
+     *
+     * @param endpoint    endpoint the call timeout is used for
+     * @param callTimeout milliseconds after which a call to the endpoint times out, 0 for no call timeout
+     * @return a castleConfigurationBuilder with the endpoint call timeout set
+     */
+    public CastleConfigurationBuilder withEndpointCallTimeout(CastleEndpoint endpoint, int callTimeout) {
+        this.endpointCallTimeouts.put(endpoint, callTimeout);
+        return this;
+    }
+
+    /**
+     * Flag to guard the authenticate endpoint with a circuit breaker.
+     * <p>
+     * When the breaker is open, authenticate calls get a failover verdict from the configured failover strategy right
+     * away, with the failover reason {@code "Circuit breaker open"}, instead of waiting for a failing Castle API.
+     *
+     * @param circuitBreaker boolean to switch the circuit breaker on or off.
+     * @return a castleConfigurationBuilder with the circuit breaker enabled or disabled
+     */
+    public CastleConfigurationBuilder withCircuitBreaker(boolean circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+        return this;
+    }
+
+    /**
+     * Sets the number of most recent authenticate requests whose outcome is considered by the circuit breaker.
+     *
+     * @param circuitBreakerWindowSize number of requests in the sliding window, positive
+     * @return a castleConfigurationBuilder with the circuit breaker window size set
+     */
+    public CastleConfigurationBuilder withCircuitBreakerWindowSize(int circuitBreakerWindowSize) {
+        this.circuitBreakerWindowSize = circuitBreakerWindowSize;
+        return this;
+    }
+
+    /**
+     * Sets the minimum number of requests in the window before the circuit breaker evaluates the failure rate.
+     *
+     * @param circuitBreakerMinimumCalls minimum number of requests, positive
+     * @return a castleConfigurationBuilder with the circuit breaker minimum calls set
+     */
+    public CastleConfigurationBuilder withCircuitBreakerMinimumCalls(int circuitBreakerMinimumCalls) {
+        this.circuitBreakerMinimumCalls = circuitBreakerMinimumCalls;
+        return this;
+    }
+
+    /**
+     * Sets the percentage of failed requests in the window that opens the circuit breaker.
+     * <p>
+     * I/O errors, timeouts and server errors count as failures.
+     *
+     * @param circuitBreakerFailureRateThreshold percentage between 1 and 100
+     * @return a castleConfigurationBuilder with the circuit breaker failure rate threshold set
+     */
+    public CastleConfigurationBuilder withCircuitBreakerFailureRateThreshold(int circuitBreakerFailureRateThreshold) {
+        this.circuitBreakerFailureRateThreshold = circuitBreakerFailureRateThreshold;
+        return this;
+    }
+
+    /**
+     * Sets the time in milliseconds the circuit breaker stays open before probing the Castle API again.
+     *
+     * @param circuitBreakerOpenDuration milliseconds, positive
+     * @return a castleConfigurationBuilder with the circuit breaker open duration set
+     */
+    public CastleConfigurationBuilder withCircuitBreakerOpenDuration(int circuitBreakerOpenDuration) {
+        this.circuitBreakerOpenDuration = circuitBreakerOpenDuration;
+        return this;
+    }
+
+    /**
+     * Sets the number of probe requests that must succeed in the half-open state to close the circuit breaker.
+     *
+     * @param circuitBreakerHalfOpenCalls number of probe requests, positive
+     * @return a castleConfigurationBuilder with the circuit breaker half open calls set
+     */
+    public CastleConfigurationBuilder withCircuitBreakerHalfOpenCalls(int circuitBreakerHalfOpenCalls) {
+        this.circuitBreakerHalfOpenCalls = circuitBreakerHalfOpenCalls;
+        return this;
+    }
+
+    /**
+     * Sets a listener notified of the state transitions of the circuit breaker.
+     *
+     * @param circuitBreakerListener listener, takes null
+     * @return a castleConfigurationBuilder with the circuit breaker listener set
+     */
+    public CastleConfigurationBuilder withCircuitBreakerListener(CircuitBreakerListener circuitBreakerListener) {
+        this.circuitBreakerListener = circuitBreakerListener;
+        return this;
+    }
+
+    /**
+     * Flag to retry requests failing with an I/O error or a 429, 502, 503 or 504 status code.
+     * <p>
+     * Track requests and GET requests are retried. Authenticate requests are only retried within their call timeout,
+     * see {@link #withEndpointCallTimeout(CastleEndpoint, int)}.
+     *
+     * @param retries boolean to switch retries on or off.
+     * @return a castleConfigurationBuilder with retries enabled or disabled
+     */
+    public CastleConfigurationBuilder withRetries(boolean retries) {
+        this.retries = retries;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of retries of a request.
+     *
+     * @param maxRetries maximum number of retries, not negative
+     * @return a castleConfigurationBuilder with the max retries set
+     */
+    public CastleConfigurationBuilder withMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of retries of the requests to one endpoint, replacing the default max retries for it.
+     *
+     * @param endpoint   endpoint the max retries are used for
+     * @param maxRetries maximum number of retries, 0 to not retry the requests of the endpoint
+     * @return a castleConfigurationBuilder with the endpoint max retries set
+     */
+    public CastleConfigurationBuilder withEndpointMaxRetries(CastleEndpoint endpoint, int maxRetries) {
+        this.endpointMaxRetries.put(endpoint, maxRetries);
+        return this;
+    }
+
+    /**
+     * Sets the backoff in milliseconds before the first retry. The backoff doubles with each retry, and the actual
+     * delay is a random value between 0 and the backoff.
+     *
+     * @param retryBaseDelay milliseconds, positive
+     * @return a castleConfigurationBuilder with the retry base delay set
+     */
+    public CastleConfigurationBuilder withRetryBaseDelay(int retryBaseDelay) {
+        this.retryBaseDelay = retryBaseDelay;
+        return this;
+    }
+
+    /**
+     * Sets the maximum backoff in milliseconds before a retry.
+     *
+     * @param retryMaxDelay milliseconds, not lower than the retry base delay
+     * @return a castleConfigurationBuilder with the retry max delay set
+     */
+    public CastleConfigurationBuilder withRetryMaxDelay(int retryMaxDelay) {
+        this.retryMaxDelay = retryMaxDelay;
+        return this;
+    }
+
+    /**
+     * Sets the retries allowed by the retry budget, as a percentage of the requests.
+     *
+     * @param retryBudgetPercent percentage between 1 and 100
+     * @return a castleConfigurationBuilder with the retry budget set
+     */
+    public CastleConfigurationBuilder withRetryBudgetPercent(int retryBudgetPercent) {
+        this.retryBudgetPercent = retryBudgetPercent;
+        return this;
+    }
+
+    /**
+     * Flag to hedge slow authenticate requests: when a synchronous authenticate request has not answered after a
+     * percentile of the recent authenticate latencies, an identical request is sent and the first response is used.
+     *
+     * @param hedging boolean to switch hedging on or off.
+     * @return a castleConfigurationBuilder with hedging enabled or disabled
+     */
+    public CastleConfigurationBuilder withHedging(boolean hedging) {
+        this.hedging = hedging;
+        return this;
+    }
+
+    /**
+     * Sets the percentile of the recent authenticate latencies after which a request is hedged.
+     *
+     * @param hedgeDelayPercentile percentile between 1 and 100
+     * @return a castleConfigurationBuilder with the hedge delay percentile set
+     */
+    public CastleConfigurationBuilder withHedgeDelayPercentile(int hedgeDelayPercentile) {
+        this.hedgeDelayPercentile = hedgeDelayPercentile;
+        return this;
+    }
+
+    /**
+     * Sets the minimum delay in milliseconds before a request is hedged.
+     *
+     * @param hedgeMinDelay milliseconds, not negative
+     * @return a castleConfigurationBuilder with the hedge min delay set
+     */
+    public CastleConfigurationBuilder withHedgeMinDelay(int hedgeMinDelay) {
+        this.hedgeMinDelay = hedgeMinDelay;
+        return this;
+    }
+
+    /**
+     * Sets the hedged requests allowed by the hedge budget, as a percentage of the authenticate requests.
+     *
+     * @param hedgeBudgetPercent percentage between 1 and 100
+     * @return a castleConfigurationBuilder with the hedge budget set
+     */
+    public CastleConfigurationBuilder withHedgeBudgetPercent(int hedgeBudgetPercent) {
+        this.hedgeBudgetPercent = hedgeBudgetPercent;
+        return this;
+    }
+
+    /**
+     * Sets the receiver of the request counts, latencies, payload sizes and failovers of the SDK.
+     * <p>
+     * Use {@link io.castle.client.model.InMemoryCastleMetrics} to keep them in memory, or an adapter to a metrics
+     * library.
+     *
+     * @param metrics receiver of the measurements, null to not record them
+     * @return a castleConfigurationBuilder with the metrics set
+     */
+    public CastleConfigurationBuilder withMetrics(CastleMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * Records a value loaded by the {@link ConfigurationLoader} that could not be parsed, {@link #build()} failing with
+     * this message.
+     *
+     * @param message description of the wrong value
+     * @return a castleConfigurationBuilder with the error recorded
+     */
+    CastleConfigurationBuilder withLoadingError(String message) {
+        loadingErrors.add(message);
+        return this;
+    }
+
+    /**
+     * Flag to spool failed track and identify requests on disk.
+     * <p>
+     * When enabled, track, batch and identify requests failing with an I/O error, a server error or a rate limit are
+     * appended to a journal in the spool directory, and replayed at the spool replay rate by a background thread once
+     * the Castle API answers again. Requests left in the journal are replayed after a restart.
+     *
+     * @param spool boolean to switch spooling on or off.
+     * @return a castleConfigurationBuilder with spooling enabled or disabled
+     */
+    public CastleConfigurationBuilder withSpool(boolean spool) {
+        this.spool = spool;
+        return this;
+    }
+
+    /**
+     * Sets the directory of the spool journal. Only one SDK instance can use a directory at a time.
+     *
+     * @param spoolDirectory path of the directory, created if missing
+     * @return a castleConfigurationBuilder with the spool directory set
+     */
+    public CastleConfigurationBuilder withSpoolDirectory(String spoolDirectory) {
+        this.spoolDirectory = spoolDirectory;
+        return this;
+    }
+
+    /**
+     * Sets the size of a spool segment file, which is also the maximum size of a spooled request.
+     *
+     * @param spoolSegmentSize bytes, positive
+     * @return a castleConfigurationBuilder with the spool segment size set
+     */
+    public CastleConfigurationBuilder withSpoolSegmentSize(int spoolSegmentSize) {
+        this.spoolSegmentSize = spoolSegmentSize;
+        return this;
+    }
+
+    /**
+     * Sets the maximum size of the spool journal, past which the oldest segment is discarded.
+     *
+     * @param spoolMaxSize bytes, not lower than the segment size
+     * @return a castleConfigurationBuilder with the spool max size set
+     */
+    public CastleConfigurationBuilder withSpoolMaxSize(long spoolMaxSize) {
+        this.spoolMaxSize = spoolMaxSize;
+        return this;
+    }
+
+    /**
+     * Sets the age after which a spooled request is discarded rather than replayed.
+     *
+     * @param spoolMaxAge milliseconds, positive
+     * @return a castleConfigurationBuilder with the spool max age set
+     */
+    public CastleConfigurationBuilder withSpoolMaxAge(int spoolMaxAge) {
+        this.spoolMaxAge = spoolMaxAge;
+        return this;
+    }
+
+    /**
+     * Sets the age after which the spool segment written to is rotated, bounding the requests lost when the disk is
+     * lost.
+     *
+     * @param spoolSegmentMaxAge milliseconds, positive
+     * @return a castleConfigurationBuilder with the spool segment max age set
+     */
+    public CastleConfigurationBuilder withSpoolSegmentMaxAge(int spoolSegmentMaxAge) {
+        this.spoolSegmentMaxAge = spoolSegmentMaxAge;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of spooled requests replayed per second.
+     *
+     * @param spoolReplayRate requests per second, positive
+     * @return a castleConfigurationBuilder with the spool replay rate set
+     */
+    public CastleConfigurationBuilder withSpoolReplayRate(int spoolReplayRate) {
+        this.spoolReplayRate = spoolReplayRate;
+        return this;
+    }
+
+    /**
+     * Flag to cache the responses of the device, user devices and review lookups.
+     * <p>
+     * When enabled, {@code device}, {@code userDevices} and {@code review} are answered from memory for the time to
+     * live of their resource. Approving or reporting a device, and archiving the devices of a user, remove the
+     * affected responses.
+     *
+     * @param cache boolean to switch caching on or off.
+     * @return a castleConfigurationBuilder with caching enabled or disabled
+     */
+    public CastleConfigurationBuilder withCache(boolean cache) {
+        this.cache = cache;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of cached responses per resource, the least recently used ones being evicted.
+     *
+     * @param cacheMaxSize number of responses, positive
+     * @return a castleConfigurationBuilder with the cache max size set
+     */
+    public CastleConfigurationBuilder withCacheMaxSize(int cacheMaxSize) {
+        this.cacheMaxSize = cacheMaxSize;
+        return this;
+    }
+
+    /**
+     * Sets how long a device response is cached.
+     *
+     * @param cacheDeviceTtl milliseconds, positive
+     * @return a castleConfigurationBuilder with the device time to live set
+     */
+    public CastleConfigurationBuilder withCacheDeviceTtl(int cacheDeviceTtl) {
+        this.cacheDeviceTtl = cacheDeviceTtl;
+        return this;
+    }
+
+    /**
+     * Sets how long a user devices response is cached.
+     *
+     * @param cacheUserDevicesTtl milliseconds, positive
+     * @return a castleConfigurationBuilder with the user devices time to live set
+     */
+    public CastleConfigurationBuilder withCacheUserDevicesTtl(int cacheUserDevicesTtl) {
+        this.cacheUserDevicesTtl = cacheUserDevicesTtl;
+        return this;
+    }
+
+    /**
+     * Sets how long a review response is cached.
+     *
+     * @param cacheReviewTtl milliseconds, positive
+     * @return a castleConfigurationBuilder with the review time to live set
+     */
+    public CastleConfigurationBuilder withCacheReviewTtl(int cacheReviewTtl) {
+        this.cacheReviewTtl = cacheReviewTtl;
+        return this;
+    }
+
+    /**
+     * Flag to share one HTTP call between concurrent identical GET requests.
+     * <p>
+     * When enabled, threads calling {@code device}, {@code userDevices} or {@code review} with the same argument
+     * while a call for it is in flight wait for that call and all get its response or its exception.
+     *
+     * @param requestCoalescing boolean to switch coalescing on or off.
+     * @return a castleConfigurationBuilder with request coalescing enabled or disabled
+     */
+    public CastleConfigurationBuilder withRequestCoalescing(boolean requestCoalescing) {
+        this.requestCoalescing = requestCoalescing;
+        return this;
+    }
+
+    /**
+     * Number of recent secure user IDs kept in memory.
+     * <p>
+     * When positive, {@code Castle#secureUserID} returns the HMAC of the user IDs it computed recently from a bounded
+     * cache, evicting the least recently used ones.
+     *
+     * @param secureUserIdCacheSize number of user IDs, 0 to compute each secure user ID
+     * @return a castleConfigurationBuilder with the secure user ID cache size set
+     */
+    public CastleConfigurationBuilder withSecureUserIdCacheSize(int secureUserIdCacheSize) {
+        this.secureUserIdCacheSize = secureUserIdCacheSize;
+        return this;
+    }
+
+    /**
+     * Flag to gzip the bodies of the requests sent to the Castle API.
+     * <p>
+     * When enabled, bodies of at least {@link #withRequestCompressionThreshold(int)} bytes are sent with
+     * {@code Content-Encoding: gzip}, trading CPU for bandwidth.
+     *
+     * @param requestCompression boolean to switch compression on or off.
+     * @return a castleConfigurationBuilder with request compression enabled or disabled
+     */
+    public CastleConfigurationBuilder withRequestCompression(boolean requestCompression) {
+        this.requestCompression = requestCompression;
+        return this;
+    }
+
+    /**
+     * Sets the minimum size of the request bodies to gzip, smaller bodies being sent as they are.
+     *
+     * @param requestCompressionThreshold size in bytes, 0 to compress every body
+     * @return a castleConfigurationBuilder with the request compression threshold set
+     */
+    public CastleConfigurationBuilder withRequestCompressionThreshold(int requestCompressionThreshold) {
+        this.requestCompressionThreshold = requestCompressionThreshold;
+        return this;
+    }
+}
@@ -1,15 +1,16 @@
 package io.castle.client.internal.config;
 
 import com.google.common.base.Charsets;
-import com.google.common.hash.HashFunction;
-import com.google.common.hash.Hashing;
 import io.castle.client.internal.backend.OkHttpFactory;
 import io.castle.client.internal.backend.RestApiFactory;
+import io.castle.client.internal.backend.TrackBatcher;
 import io.castle.client.internal.json.CastleGsonModel;
+import io.castle.client.internal.utils.SecureUserIdSigner;
 import io.castle.client.model.CastleSdkConfigurationException;
 
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
+import java.util.concurrent.TimeUnit;
 
 public class CastleSdkInternalConfiguration {
 
@@ -17,13 +18,17 @@ public class CastleSdkInternalConfiguration {
     private final CastleGsonModel model;
     private final CastleConfiguration configuration;
 
-    private final SecretKey sha256Key;
+    private final SecureUserIdSigner secureUserIdSigner;
+
+    private final TrackBatcher trackBatcher;
 
     private CastleSdkInternalConfiguration(RestApiFactory restApiFactory, CastleGsonModel model, CastleConfiguration configuration) {
         this.restApiFactory = restApiFactory;
         this.model = model;
         this.configuration = configuration;
-        this.sha256Key = new SecretKeySpec(configuration.getApiSecret().getBytes(Charsets.UTF_8), "HmacSHA256");
+        SecretKey sha256Key = new SecretKeySpec(configuration.getApiSecret().getBytes(Charsets.UTF_8), "HmacSHA256");
+        this.secureUserIdSigner = new SecureUserIdSigner(sha256Key, configuration.getSecureUserIdCacheSize());
+        this.trackBatcher = loadTrackBatcher(restApiFactory, configuration);
     }
 
     public static CastleSdkInternalConfiguration getInternalConfiguration() throws CastleSdkConfigurationException {
@@ -44,7 +49,8 @@ public class CastleSdkInternalConfiguration {
     }
 
     /**
-     * Currently only the okHttp backend is available.
+     * The okHttp backend serves every backend provider. Providers other than OKHTTP send the requests with their own
+     * {@link io.castle.client.internal.backend.HttpTransport}, which creates the calls of the backend.
      *
      * @param modelInstance GSON model instance to use.
      * @param configuration CastleConfiguration instance.
@@ -54,6 +60,20 @@ public class CastleSdkInternalConfiguration {
         return new OkHttpFactory(configuration, modelInstance);
     }
 
+    /**
+     * Track batching is opt-in, so the batcher and its flusher thread only exist when it is enabled.
+     *
+     * @param restApiFactory factory of the backend used to send the batches.
+     * @param configuration  CastleConfiguration instance.
+     * @return a running TrackBatcher, or null if track batching is disabled.
+     */
+    private static TrackBatcher loadTrackBatcher(RestApiFactory restApiFactory, CastleConfiguration configuration) {
+        TrackBatchConfiguration batchConfiguration = configuration.getTrackBatchConfiguration();
+        if (batchConfiguration == null || !batchConfiguration.isEnabled()) {
+            return null;
+        }
+        return new TrackBatcher(restApiFactory.buildBackend(), batchConfiguration, restApiFactory.getEventSpool());
+    }
 
     public CastleGsonModel getModel() {
         return model;
@@ -67,7 +87,37 @@ public class CastleSdkInternalConfiguration {
         return configuration;
     }
 
-    public HashFunction getSecureHashFunction() {
-        return Hashing.hmacSha256(sha256Key);
+    /**
+     * Gets the signer computing secure user IDs with the API secret.
+     *
+     * @return a signer shared by all threads
+     */
+    public SecureUserIdSigner getSecureUserIdSigner() {
+        return secureUserIdSigner;
+    }
+
+    /**
+     * Gets the track batcher.
+     *
+     * @return the batcher queueing track requests, or null when track batching is disabled
+     */
+    public TrackBatcher getTrackBatcher() {
+        return trackBatcher;
+    }
+
+    /**
+     * Flushes pending work and releases the resources held by this configuration, including the HTTP backend.
+     *
+     * @param timeout maximum time to wait
+     * @param unit    unit of the timeout
+     * @return true if all pending work completed in time
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) {
+        boolean completed = true;
+        if (trackBatcher != null) {
+            completed = trackBatcher.shutdown(timeout, unit);
+        }
+        restApiFactory.close();
+        return completed;
     }
 }
@@ -0,0 +1,86 @@
+package io.castle.client.internal.config;
+
+import io.castle.client.model.CircuitBreakerListener;
+
+/**
+ * Settings of the optional circuit breaker guarding the authenticate endpoint.
+ * <p>
+ * When enabled, the outcome of the last authenticate requests is kept in a sliding window. Once the share of failed
+ * requests in the window reaches the threshold, the breaker opens and authenticate calls get a failover verdict without
+ * waiting for the Castle API, until a few probe requests succeed again.
+ */
+public class CircuitBreakerConfiguration {
+
+    /**
+     * Whether authenticate requests go through the circuit breaker.
+     */
+    private final boolean enabled;
+
+    /**
+     * Number of most recent requests whose outcome is considered.
+     */
+    private final int windowSize;
+
+    /**
+     * Minimum number of requests in the window before the failure rate is evaluated.
+     */
+    private final int minimumCalls;
+
+    /**
+     * Percentage of failed requests in the window opening the breaker.
+     */
+    private final int failureRateThreshold;
+
+    /**
+     * Time in milliseconds the breaker stays open before probing the Castle API.
+     */
+    private final int openDuration;
+
+    /**
+     * Number of probe requests that must succeed in the half-open state to close the breaker.
+     */
+    private final int halfOpenCalls;
+
+    /**
+     * Listener notified of state transitions, can be null.
+     */
+    private final CircuitBreakerListener listener;
+
+    public CircuitBreakerConfiguration(boolean enabled, int windowSize, int minimumCalls, int failureRateThreshold, int openDuration, int halfOpenCalls, CircuitBreakerListener listener) {
+        this.enabled = enabled;
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDuration = openDuration;
+        this.halfOpenCalls = halfOpenCalls;
+        this.listener = listener;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    public int getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public int getOpenDuration() {
+        return openDuration;
+    }
+
+    public int getHalfOpenCalls() {
+        return halfOpenCalls;
+    }
+
+    public CircuitBreakerListener getListener() {
+        return listener;
+    }
+}
@@ -0,0 +1,33 @@
+package io.castle.client.internal.config;
+
+/**
+ * Settings of the optional gzip compression of request bodies.
+ * <p>
+ * Bodies smaller than the threshold are sent as they are, since compressing them costs more CPU than it saves
+ * bandwidth.
+ */
+public class CompressionConfiguration {
+
+    /**
+     * Whether request bodies are compressed.
+     */
+    private final boolean enabled;
+
+    /**
+     * Minimum size in bytes of a body to compress.
+     */
+    private final int threshold;
+
+    public CompressionConfiguration(boolean enabled, int threshold) {
+        this.enabled = enabled;
+        this.threshold = threshold;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+}
@@ -5,10 +5,13 @@ import io.castle.client.Castle;
 import io.castle.client.internal.backend.CastleBackendProvider;
 import io.castle.client.model.AuthenticateAction;
 import io.castle.client.model.AuthenticateFailoverStrategy;
+import io.castle.client.model.CastleEndpoint;
 import io.castle.client.model.CastleSdkConfigurationException;
+import io.castle.client.model.TrackBatchOverflowPolicy;
 
 import java.io.InputStream;
 import java.net.URL;
+import java.util.Locale;
 import java.util.Properties;
 
 /**
@@ -82,15 +85,21 @@ class ConfigurationLoader {
      *
      * @return a CastleConfiguration instance
      * @throws CastleSdkConfigurationException if at least one of apiSecret or castleAppId is not provided in either the
-     *                                         environment or the properties file in the classpath
-     * @throws NumberFormatException           if the provided timeout environmental variable or property is not
-     *                                         parsable into an int
+     *                                         environment or the properties file in the classpath, or if a numeric
+     *                                         value can not be parsed
      */
-    public CastleConfiguration loadConfiguration() throws CastleSdkConfigurationException, NumberFormatException {
+    public CastleConfiguration loadConfiguration() throws CastleSdkConfigurationException {
         CastleConfigurationBuilder builder = loadConfigurationBuilder();
         return builder.build();
     }
 
+    /**
+     * Loads the values of the environment or the properties file into a new builder.
+     * <p>
+     * Numeric values that can not be parsed are reported by {@link CastleConfigurationBuilder#build()}.
+     *
+     * @return a builder with the loaded values
+     */
     public CastleConfigurationBuilder loadConfigurationBuilder() {
         String envApiSecret = loadConfigurationValue(
                 castleConfigurationProperties,
@@ -125,6 +134,11 @@ class ConfigurationLoader {
                 "timeout",
                 "CASTLE_SDK_TIMEOUT"
         );
+        String callTimeoutValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "call_timeout",
+                "CASTLE_SDK_CALL_TIMEOUT"
+        );
         String backendProviderValue = loadConfigurationValue(
                 castleConfigurationProperties,
                 "backend_provider",
@@ -150,6 +164,216 @@ class ConfigurationLoader {
                 "ip_headers",
                 "CASTLE_SDK_IP_HEADERS"
         );
+        String trackBatchingValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "track_batching",
+                "CASTLE_SDK_TRACK_BATCHING"
+        );
+        String trackBatchMaxSizeValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "track_batch_max_size",
+                "CASTLE_SDK_TRACK_BATCH_MAX_SIZE"
+        );
+        String trackBatchFlushIntervalValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "track_batch_flush_interval",
+                "CASTLE_SDK_TRACK_BATCH_FLUSH_INTERVAL"
+        );
+        String trackBatchQueueCapacityValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "track_batch_queue_capacity",
+                "CASTLE_SDK_TRACK_BATCH_QUEUE_CAPACITY"
+        );
+        String trackBatchOverflowPolicyValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "track_batch_overflow_policy",
+                "CASTLE_SDK_TRACK_BATCH_OVERFLOW_POLICY"
+        );
+        String retainVerdictInternalValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "retain_verdict_internal",
+                "CASTLE_SDK_RETAIN_VERDICT_INTERNAL"
+        );
+        String maxRequestsValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "max_requests",
+                "CASTLE_SDK_MAX_REQUESTS"
+        );
+        String maxRequestsPerHostValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "max_requests_per_host",
+                "CASTLE_SDK_MAX_REQUESTS_PER_HOST"
+        );
+        String connectionPoolSizeValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "connection_pool_size",
+                "CASTLE_SDK_CONNECTION_POOL_SIZE"
+        );
+        String keepAliveDurationValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "keep_alive_duration",
+                "CASTLE_SDK_KEEP_ALIVE_DURATION"
+        );
+        String http2Value = loadConfigurationValue(
+                castleConfigurationProperties,
+                "http2",
+                "CASTLE_SDK_HTTP2"
+        );
+        String circuitBreakerValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "circuit_breaker",
+                "CASTLE_SDK_CIRCUIT_BREAKER"
+        );
+        String circuitBreakerWindowSizeValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "circuit_breaker_window_size",
+                "CASTLE_SDK_CIRCUIT_BREAKER_WINDOW_SIZE"
+        );
+        String circuitBreakerMinimumCallsValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "circuit_breaker_minimum_calls",
+                "CASTLE_SDK_CIRCUIT_BREAKER_MINIMUM_CALLS"
+        );
+        String circuitBreakerFailureRateThresholdValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "circuit_breaker_failure_rate_threshold",
+                "CASTLE_SDK_CIRCUIT_BREAKER_FAILURE_RATE_THRESHOLD"
+        );
+        String circuitBreakerOpenDurationValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "circuit_breaker_open_duration",
+                "CASTLE_SDK_CIRCUIT_BREAKER_OPEN_DURATION"
+        );
+        String circuitBreakerHalfOpenCallsValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "circuit_breaker_half_open_calls",
+                "CASTLE_SDK_CIRCUIT_BREAKER_HALF_OPEN_CALLS"
+        );
+        String retriesValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "retries",
+                "CASTLE_SDK_RETRIES"
+        );
+        String maxRetriesValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "max_retries",
+                "CASTLE_SDK_MAX_RETRIES"
+        );
+        String retryBaseDelayValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "retry_base_delay",
+                "CASTLE_SDK_RETRY_BASE_DELAY"
+        );
+        String retryMaxDelayValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "retry_max_delay",
+                "CASTLE_SDK_RETRY_MAX_DELAY"
+        );
+        String retryBudgetPercentValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "retry_budget_percent",
+                "CASTLE_SDK_RETRY_BUDGET_PERCENT"
+        );
+        String hedgingValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "hedging",
+                "CASTLE_SDK_HEDGING"
+        );
+        String hedgeDelayPercentileValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "hedge_delay_percentile",
+                "CASTLE_SDK_HEDGE_DELAY_PERCENTILE"
+        );
+        String hedgeMinDelayValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "hedge_min_delay",
+                "CASTLE_SDK_HEDGE_MIN_DELAY"
+        );
+        String hedgeBudgetPercentValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "hedge_budget_percent",
+                "CASTLE_SDK_HEDGE_BUDGET_PERCENT"
+        );
+        String spoolValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "spool",
+                "CASTLE_SDK_SPOOL"
+        );
+        String spoolDirectoryValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "spool_directory",
+                "CASTLE_SDK_SPOOL_DIRECTORY"
+        );
+        String spoolSegmentSizeValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "spool_segment_size",
+                "CASTLE_SDK_SPOOL_SEGMENT_SIZE"
+        );
+        String spoolMaxSizeValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "spool_max_size",
+                "CASTLE_SDK_SPOOL_MAX_SIZE"
+        );
+        String spoolMaxAgeValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "spool_max_age",
+                "CASTLE_SDK_SPOOL_MAX_AGE"
+        );
+        String spoolSegmentMaxAgeValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "spool_segment_max_age",
+                "CASTLE_SDK_SPOOL_SEGMENT_MAX_AGE"
+        );
+        String spoolReplayRateValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "spool_replay_rate",
+                "CASTLE_SDK_SPOOL_REPLAY_RATE"
+        );
+        String cacheValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "cache",
+                "CASTLE_SDK_CACHE"
+        );
+        String cacheMaxSizeValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "cache_max_size",
+                "CASTLE_SDK_CACHE_MAX_SIZE"
+        );
+        String cacheDeviceTtlValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "cache_device_ttl",
+                "CASTLE_SDK_CACHE_DEVICE_TTL"
+        );
+        String cacheUserDevicesTtlValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "cache_user_devices_ttl",
+                "CASTLE_SDK_CACHE_USER_DEVICES_TTL"
+        );
+        String cacheReviewTtlValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "cache_review_ttl",
+                "CASTLE_SDK_CACHE_REVIEW_TTL"
+        );
+        String requestCoalescingValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "request_coalescing",
+                "CASTLE_SDK_REQUEST_COALESCING"
+        );
+        String secureUserIdCacheSizeValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "secure_user_id_cache_size",
+                "CASTLE_SDK_SECURE_USER_ID_CACHE_SIZE"
+        );
+        String requestCompressionValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "request_compression",
+                "CASTLE_SDK_REQUEST_COMPRESSION"
+        );
+        String requestCompressionThresholdValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "request_compression_threshold",
+                "CASTLE_SDK_REQUEST_COMPRESSION_THRESHOLD"
+        );
         CastleConfigurationBuilder builder = CastleConfigurationBuilder
                 .defaultConfigBuilder()
                 .withApiSecret(envApiSecret)
@@ -165,9 +389,8 @@ class ConfigurationLoader {
         if (blackListValue != null) {
             builder.withBlackListHeaders(Splitter.on(",").splitToList(blackListValue));
         }
-        if (timeoutValue != null) {
-            // might throw NumberFormatException if string is not parsable to int
-            int timeout = Integer.parseInt(timeoutValue);
+        Integer timeout = parseInt(builder, "timeout", timeoutValue);
+        if (timeout != null) {
             builder.withTimeout(timeout);
         }
         if (authenticateFailoverStrategyValue != null) {
@@ -194,10 +417,240 @@ class ConfigurationLoader {
         if (ipHeadersValue != null) {
             builder.withIPHeaders(Splitter.on(",").splitToList(ipHeadersValue));
         }
+        if (trackBatchingValue != null) {
+            builder.withTrackBatching(Boolean.valueOf(trackBatchingValue));
+        }
+        Integer trackBatchMaxSize = parseInt(builder, "track_batch_max_size", trackBatchMaxSizeValue);
+        if (trackBatchMaxSize != null) {
+            builder.withTrackBatchMaxSize(trackBatchMaxSize);
+        }
+        Integer trackBatchFlushInterval = parseInt(builder, "track_batch_flush_interval", trackBatchFlushIntervalValue);
+        if (trackBatchFlushInterval != null) {
+            builder.withTrackBatchFlushInterval(trackBatchFlushInterval);
+        }
+        Integer trackBatchQueueCapacity = parseInt(builder, "track_batch_queue_capacity", trackBatchQueueCapacityValue);
+        if (trackBatchQueueCapacity != null) {
+            builder.withTrackBatchQueueCapacity(trackBatchQueueCapacity);
+        }
+        if (trackBatchOverflowPolicyValue != null) {
+            builder.withTrackBatchOverflowPolicy(TrackBatchOverflowPolicy.fromPolicy(trackBatchOverflowPolicyValue));
+        }
+        if (retainVerdictInternalValue != null) {
+            builder.withRetainVerdictInternal(Boolean.valueOf(retainVerdictInternalValue));
+        }
+        Integer maxRequests = parseInt(builder, "max_requests", maxRequestsValue);
+        if (maxRequests != null) {
+            builder.withMaxRequests(maxRequests);
+        }
+        Integer maxRequestsPerHost = parseInt(builder, "max_requests_per_host", maxRequestsPerHostValue);
+        if (maxRequestsPerHost != null) {
+            builder.withMaxRequestsPerHost(maxRequestsPerHost);
+        }
+        Integer connectionPoolSize = parseInt(builder, "connection_pool_size", connectionPoolSizeValue);
+        if (connectionPoolSize != null) {
+            builder.withConnectionPoolSize(connectionPoolSize);
+        }
+        Long keepAliveDuration = parseLong(builder, "keep_alive_duration", keepAliveDurationValue);
+        if (keepAliveDuration != null) {
+            builder.withKeepAliveDuration(keepAliveDuration);
+        }
+        if (http2Value != null) {
+            builder.withHttp2(Boolean.valueOf(http2Value));
+        }
+        Integer callTimeout = parseInt(builder, "call_timeout", callTimeoutValue);
+        if (callTimeout != null) {
+            builder.withCallTimeout(callTimeout);
+        }
+        if (circuitBreakerValue != null) {
+            builder.withCircuitBreaker(Boolean.valueOf(circuitBreakerValue));
+        }
+        Integer circuitBreakerWindowSize = parseInt(builder, "circuit_breaker_window_size", circuitBreakerWindowSizeValue);
+        if (circuitBreakerWindowSize != null) {
+            builder.withCircuitBreakerWindowSize(circuitBreakerWindowSize);
+        }
+        Integer circuitBreakerMinimumCalls = parseInt(builder, "circuit_breaker_minimum_calls", circuitBreakerMinimumCallsValue);
+        if (circuitBreakerMinimumCalls != null) {
+            builder.withCircuitBreakerMinimumCalls(circuitBreakerMinimumCalls);
+        }
+        Integer circuitBreakerFailureRateThreshold = parseInt(builder, "circuit_breaker_failure_rate_threshold", circuitBreakerFailureRateThresholdValue);
+        if (circuitBreakerFailureRateThreshold != null) {
+            builder.withCircuitBreakerFailureRateThreshold(circuitBreakerFailureRateThreshold);
+        }
+        Integer circuitBreakerOpenDuration = parseInt(builder, "circuit_breaker_open_duration", circuitBreakerOpenDurationValue);
+        if (circuitBreakerOpenDuration != null) {
+            builder.withCircuitBreakerOpenDuration(circuitBreakerOpenDuration);
+        }
+        Integer circuitBreakerHalfOpenCalls = parseInt(builder, "circuit_breaker_half_open_calls", circuitBreakerHalfOpenCallsValue);
+        if (circuitBreakerHalfOpenCalls != null) {
+            builder.withCircuitBreakerHalfOpenCalls(circuitBreakerHalfOpenCalls);
+        }
+        if (retriesValue != null) {
+            builder.withRetries(Boolean.valueOf(retriesValue));
+        }
+        Integer maxRetries = parseInt(builder, "max_retries", maxRetriesValue);
+        if (maxRetries != null) {
+            builder.withMaxRetries(maxRetries);
+        }
+        Integer retryBaseDelay = parseInt(builder, "retry_base_delay", retryBaseDelayValue);
+        if (retryBaseDelay != null) {
+            builder.withRetryBaseDelay(retryBaseDelay);
+        }
+        Integer retryMaxDelay = parseInt(builder, "retry_max_delay", retryMaxDelayValue);
+        if (retryMaxDelay != null) {
+            builder.withRetryMaxDelay(retryMaxDelay);
+        }
+        Integer retryBudgetPercent = parseInt(builder, "retry_budget_percent", retryBudgetPercentValue);
+        if (retryBudgetPercent != null) {
+            builder.withRetryBudgetPercent(retryBudgetPercent);
+        }
+        if (hedgingValue != null) {
+            builder.withHedging(Boolean.valueOf(hedgingValue));
+        }
+        Integer hedgeDelayPercentile = parseInt(builder, "hedge_delay_percentile", hedgeDelayPercentileValue);
+        if (hedgeDelayPercentile != null) {
+            builder.withHedgeDelayPercentile(hedgeDelayPercentile);
+        }
+        Integer hedgeMinDelay = parseInt(builder, "hedge_min_delay", hedgeMinDelayValue);
+        if (hedgeMinDelay != null) {
+            builder.withHedgeMinDelay(hedgeMinDelay);
+        }
+        Integer hedgeBudgetPercent = parseInt(builder, "hedge_budget_percent", hedgeBudgetPercentValue);
+        if (hedgeBudgetPercent != null) {
+            builder.withHedgeBudgetPercent(hedgeBudgetPercent);
+        }
+        if (spoolValue != null) {
+            builder.withSpool(Boolean.valueOf(spoolValue));
+        }
+        if (spoolDirectoryValue != null) {
+            builder.withSpoolDirectory(spoolDirectoryValue);
+        }
+        Integer spoolSegmentSize = parseInt(builder, "spool_segment_size", spoolSegmentSizeValue);
+        if (spoolSegmentSize != null) {
+            builder.withSpoolSegmentSize(spoolSegmentSize);
+        }
+        Long spoolMaxSize = parseLong(builder, "spool_max_size", spoolMaxSizeValue);
+        if (spoolMaxSize != null) {
+            builder.withSpoolMaxSize(spoolMaxSize);
+        }
+        Integer spoolMaxAge = parseInt(builder, "spool_max_age", spoolMaxAgeValue);
+        if (spoolMaxAge != null) {
+            builder.withSpoolMaxAge(spoolMaxAge);
+        }
+        Integer spoolSegmentMaxAge = parseInt(builder, "spool_segment_max_age", spoolSegmentMaxAgeValue);
+        if (spoolSegmentMaxAge != null) {
+            builder.withSpoolSegmentMaxAge(spoolSegmentMaxAge);
+        }
+        Integer spoolReplayRate = parseInt(builder, "spool_replay_rate", spoolReplayRateValue);
+        if (spoolReplayRate != null) {
+            builder.withSpoolReplayRate(spoolReplayRate);
+        }
+        if (cacheValue != null) {
+            builder.withCache(Boolean.valueOf(cacheValue));
+        }
+        Integer cacheMaxSize = parseInt(builder, "cache_max_size", cacheMaxSizeValue);
+        if (cacheMaxSize != null) {
+            builder.withCacheMaxSize(cacheMaxSize);
+        }
+        Integer cacheDeviceTtl = parseInt(builder, "cache_device_ttl", cacheDeviceTtlValue);
+        if (cacheDeviceTtl != null) {
+            builder.withCacheDeviceTtl(cacheDeviceTtl);
+        }
+        Integer cacheUserDevicesTtl = parseInt(builder, "cache_user_devices_ttl", cacheUserDevicesTtlValue);
+        if (cacheUserDevicesTtl != null) {
+            builder.withCacheUserDevicesTtl(cacheUserDevicesTtl);
+        }
+        Integer cacheReviewTtl = parseInt(builder, "cache_review_ttl", cacheReviewTtlValue);
+        if (cacheReviewTtl != null) {
+            builder.withCacheReviewTtl(cacheReviewTtl);
+        }
+        if (requestCoalescingValue != null) {
+            builder.withRequestCoalescing(Boolean.valueOf(requestCoalescingValue));
+        }
+        Integer secureUserIdCacheSize = parseInt(builder, "secure_user_id_cache_size", secureUserIdCacheSizeValue);
+        if (secureUserIdCacheSize != null) {
+            builder.withSecureUserIdCacheSize(secureUserIdCacheSize);
+        }
+        if (requestCompressionValue != null) {
+            builder.withRequestCompression(Boolean.valueOf(requestCompressionValue));
+        }
+        Integer requestCompressionThreshold = parseInt(builder, "request_compression_threshold", requestCompressionThresholdValue);
+        if (requestCompressionThreshold != null) {
+            builder.withRequestCompressionThreshold(requestCompressionThreshold);
+        }
+        for (CastleEndpoint endpoint : CastleEndpoint.values()) {
+            String name = endpoint.name();
+            String endpointTimeoutKey = name.toLowerCase(Locale.ROOT) + "_timeout";
+            Integer endpointTimeout = parseInt(builder, endpointTimeoutKey, loadConfigurationValue(
+                    castleConfigurationProperties,
+                    endpointTimeoutKey,
+                    "CASTLE_SDK_" + name + "_TIMEOUT"
+            ));
+            if (endpointTimeout != null) {
+                builder.withEndpointTimeout(endpoint, endpointTimeout);
+            }
+            String endpointCallTimeoutKey = name.toLowerCase(Locale.ROOT) + "_call_timeout";
+            Integer endpointCallTimeout = parseInt(builder, endpointCallTimeoutKey, loadConfigurationValue(
+                    castleConfigurationProperties,
+                    endpointCallTimeoutKey,
+                    "CASTLE_SDK_" + name + "_CALL_TIMEOUT"
+            ));
+            if (endpointCallTimeout != null) {
+                builder.withEndpointCallTimeout(endpoint, endpointCallTimeout);
+            }
+            String endpointMaxRetriesKey = name.toLowerCase(Locale.ROOT) + "_max_retries";
+            Integer endpointMaxRetries = parseInt(builder, endpointMaxRetriesKey, loadConfigurationValue(
+                    castleConfigurationProperties,
+                    endpointMaxRetriesKey,
+                    "CASTLE_SDK_" + name + "_MAX_RETRIES"
+            ));
+            if (endpointMaxRetries != null) {
+                builder.withEndpointMaxRetries(endpoint, endpointMaxRetries);
+            }
+        }
 
         return builder;
     }
 
+    /**
+     * Parses a numeric configuration value, recording the error in the builder when it is not a number so that
+     * {@link CastleConfigurationBuilder#build()} reports it.
+     *
+     * @param builder      builder collecting the errors
+     * @param propertyName name of the property, used in the error message
+     * @param value        value to parse, possibly null
+     * @return the parsed value, or null when the value is null or not a number
+     */
+    private static Integer parseInt(CastleConfigurationBuilder builder, String propertyName, String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            builder.withLoadingError(notANumber(propertyName, value));
+            return null;
+        }
+    }
+
+    /**
+     * Same as {@link #parseInt(CastleConfigurationBuilder, String, String)} for long values.
+     */
+    private static Long parseLong(CastleConfigurationBuilder builder, String propertyName, String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            builder.withLoadingError(notANumber(propertyName, value));
+            return null;
+        }
+    }
+
+    private static String notANumber(String propertyName, String value) {
+        return "The value '" + value + "' of " + propertyName + " is not a valid number.";
+    }
+
     private String loadConfigurationValue(Properties properties, String propertyName, String environmentName) {
         String getenv = System.getenv(environmentName);
         if (getenv == null) {
@@ -0,0 +1,54 @@
+package io.castle.client.internal.config;
+
+/**
+ * Settings of the optional hedging of authenticate requests.
+ * <p>
+ * When an authenticate request has not answered after a percentile of the recent authenticate latencies, a second
+ * identical request is sent and the first response is used. Hedged requests are capped by a budget allowing them for
+ * a percentage of the authenticate requests, so that hedging does not double the load on a slow Castle API.
+ */
+public class HedgingConfiguration {
+
+    /**
+     * Whether authenticate requests are hedged.
+     */
+    private final boolean enabled;
+
+    /**
+     * Percentile of the recent authenticate latencies after which a request is hedged.
+     */
+    private final int delayPercentile;
+
+    /**
+     * Minimum delay in milliseconds before a request is hedged.
+     */
+    private final int minDelay;
+
+    /**
+     * Hedged requests allowed by the budget, as a percentage of the authenticate requests.
+     */
+    private final int budgetPercent;
+
+    public HedgingConfiguration(boolean enabled, int delayPercentile, int minDelay, int budgetPercent) {
+        this.enabled = enabled;
+        this.delayPercentile = delayPercentile;
+        this.minDelay = minDelay;
+        this.budgetPercent = budgetPercent;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getDelayPercentile() {
+        return delayPercentile;
+    }
+
+    public int getMinDelay() {
+        return minDelay;
+    }
+
+    public int getBudgetPercent() {
+        return budgetPercent;
+    }
+}
@@ -0,0 +1,75 @@
+package io.castle.client.internal.config;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Settings of the connection pool and request dispatcher of the HTTP layer.
+ * <p>
+ * All requests of the SDK go to the same host, so the limit of concurrent requests per host is the one that usually
+ * applies; it defaults to the global limit instead of the much lower default of OkHttp.
+ */
+public class HttpClientConfiguration {
+
+    /**
+     * Maximum number of async requests executing concurrently.
+     */
+    private final int maxRequests;
+
+    /**
+     * Maximum number of async requests executing concurrently against one host.
+     */
+    private final int maxRequestsPerHost;
+
+    /**
+     * Maximum number of idle connections kept in the pool.
+     */
+    private final int connectionPoolSize;
+
+    /**
+     * Time in milliseconds an idle connection is kept in the pool.
+     */
+    private final long keepAliveDuration;
+
+    /**
+     * Whether HTTP/2 is negotiated when the server supports it.
+     */
+    private final boolean http2;
+
+    /**
+     * Executor running the async requests, or null to let the HTTP layer create its own.
+     */
+    private final ExecutorService executorService;
+
+    public HttpClientConfiguration(int maxRequests, int maxRequestsPerHost, int connectionPoolSize, long keepAliveDuration, boolean http2, ExecutorService executorService) {
+        this.maxRequests = maxRequests;
+        this.maxRequestsPerHost = maxRequestsPerHost;
+        this.connectionPoolSize = connectionPoolSize;
+        this.keepAliveDuration = keepAliveDuration;
+        this.http2 = http2;
+        this.executorService = executorService;
+    }
+
+    public int getMaxRequests() {
+        return maxRequests;
+    }
+
+    public int getMaxRequestsPerHost() {
+        return maxRequestsPerHost;
+    }
+
+    public int getConnectionPoolSize() {
+        return connectionPoolSize;
+    }
+
+    public long getKeepAliveDuration() {
+        return keepAliveDuration;
+    }
+
+    public boolean isHttp2() {
+        return http2;
+    }
+
+    public ExecutorService getExecutorService() {
+        return executorService;
+    }
+}
@@ -0,0 +1,87 @@
+package io.castle.client.internal.config;
+
+import io.castle.client.model.CastleEndpoint;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Settings of the optional retries of failed requests.
+ * <p>
+ * Requests failing with an I/O error or a transient status code are sent again after an exponential backoff with full
+ * jitter. Retries are capped per request by the max retries of its endpoint, and globally by a retry budget that
+ * allows retries for a percentage of the requests, so that retries do not amplify an outage of the Castle API.
+ */
+public class RetryConfiguration {
+
+    /**
+     * Whether failed requests are retried.
+     */
+    private final boolean enabled;
+
+    /**
+     * Default maximum number of retries of a request.
+     */
+    private final int maxRetries;
+
+    /**
+     * Backoff in milliseconds before the first retry, doubled for each following retry.
+     */
+    private final int baseDelay;
+
+    /**
+     * Maximum backoff in milliseconds before a retry.
+     */
+    private final int maxDelay;
+
+    /**
+     * Retries allowed by the budget, as a percentage of the requests.
+     */
+    private final int budgetPercent;
+
+    /**
+     * Maximum number of retries of the endpoints not using the default.
+     */
+    private final Map<CastleEndpoint, Integer> endpointMaxRetries;
+
+    public RetryConfiguration(boolean enabled, int maxRetries, int baseDelay, int maxDelay, int budgetPercent, Map<CastleEndpoint, Integer> endpointMaxRetries) {
+        this.enabled = enabled;
+        this.maxRetries = maxRetries;
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+        this.budgetPercent = budgetPercent;
+        this.endpointMaxRetries = new EnumMap<>(CastleEndpoint.class);
+        this.endpointMaxRetries.putAll(endpointMaxRetries);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * Gets the maximum number of retries of a request to an endpoint.
+     *
+     * @param endpoint the endpoint
+     * @return maximum number of retries, 0 when the requests of the endpoint are not retried
+     */
+    public int getMaxRetries(CastleEndpoint endpoint) {
+        Integer endpointRetries = endpointMaxRetries.get(endpoint);
+        return endpointRetries != null ? endpointRetries : maxRetries;
+    }
+
+    public int getBaseDelay() {
+        return baseDelay;
+    }
+
+    public int getMaxDelay() {
+        return maxDelay;
+    }
+
+    public int getBudgetPercent() {
+        return budgetPercent;
+    }
+}
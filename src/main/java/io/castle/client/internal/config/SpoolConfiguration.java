@@ -0,0 +1,83 @@
+package io.castle.client.internal.config;
+
+/**
+ * Settings of the optional on-disk spool of track and identify requests.
+ * <p>
+ * Requests failing because of the Castle API, or rejected by a full track batch queue, are appended to a segmented
+ * journal in a local directory and replayed at a limited rate by a background thread once the API answers again.
+ */
+public class SpoolConfiguration {
+
+    /**
+     * Whether failed requests are spooled.
+     */
+    private final boolean enabled;
+
+    /**
+     * Directory of the journal.
+     */
+    private final String directory;
+
+    /**
+     * Size in bytes of a segment file.
+     */
+    private final int segmentSize;
+
+    /**
+     * Maximum size in bytes of the journal, the oldest segment is discarded past it.
+     */
+    private final long maxSize;
+
+    /**
+     * Age in milliseconds after which a spooled request is discarded rather than replayed.
+     */
+    private final int maxAge;
+
+    /**
+     * Age in milliseconds after which the segment written to is rotated.
+     */
+    private final int segmentMaxAge;
+
+    /**
+     * Maximum number of requests replayed per second.
+     */
+    private final int replayRate;
+
+    public SpoolConfiguration(boolean enabled, String directory, int segmentSize, long maxSize, int maxAge, int segmentMaxAge, int replayRate) {
+        this.enabled = enabled;
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSize = maxSize;
+        this.maxAge = maxAge;
+        this.segmentMaxAge = segmentMaxAge;
+        this.replayRate = replayRate;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public int getMaxAge() {
+        return maxAge;
+    }
+
+    public int getSegmentMaxAge() {
+        return segmentMaxAge;
+    }
+
+    public int getReplayRate() {
+        return replayRate;
+    }
+}
@@ -0,0 +1,78 @@
+package io.castle.client.internal.config;
+
+import io.castle.client.model.CastleEndpoint;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Timeouts applied to the requests of each endpoint.
+ * <p>
+ * The timeout bounds each connect, read and write operation of a request, while the call timeout bounds the whole
+ * call, including retries and redirects. Endpoints without their own values use the defaults.
+ */
+public class TimeoutConfiguration {
+
+    /**
+     * Default connect, read and write timeout in milliseconds.
+     */
+    private final int timeout;
+
+    /**
+     * Default call timeout in milliseconds, 0 for no call timeout.
+     */
+    private final int callTimeout;
+
+    /**
+     * Timeouts of the endpoints not using the default.
+     */
+    private final Map<CastleEndpoint, Integer> endpointTimeouts;
+
+    /**
+     * Call timeouts of the endpoints not using the default.
+     */
+    private final Map<CastleEndpoint, Integer> endpointCallTimeouts;
+
+    public TimeoutConfiguration(int timeout, int callTimeout, Map<CastleEndpoint, Integer> endpointTimeouts, Map<CastleEndpoint, Integer> endpointCallTimeouts) {
+        this.timeout = timeout;
+        this.callTimeout = callTimeout;
+        this.endpointTimeouts = copy(endpointTimeouts);
+        this.endpointCallTimeouts = copy(endpointCallTimeouts);
+    }
+
+    private static Map<CastleEndpoint, Integer> copy(Map<CastleEndpoint, Integer> timeouts) {
+        Map<CastleEndpoint, Integer> copy = new EnumMap<>(CastleEndpoint.class);
+        copy.putAll(timeouts);
+        return copy;
+    }
+
+    public int getTimeout() {
+        return timeout;
+    }
+
+    public int getCallTimeout() {
+        return callTimeout;
+    }
+
+    /**
+     * Gets the connect, read and write timeout of an endpoint.
+     *
+     * @param endpoint the endpoint
+     * @return timeout in milliseconds
+     */
+    public int getTimeout(CastleEndpoint endpoint) {
+        Integer endpointTimeout = endpointTimeouts.get(endpoint);
+        return endpointTimeout != null ? endpointTimeout : timeout;
+    }
+
+    /**
+     * Gets the call timeout of an endpoint.
+     *
+     * @param endpoint the endpoint
+     * @return call timeout in milliseconds, 0 for no call timeout
+     */
+    public int getCallTimeout(CastleEndpoint endpoint) {
+        Integer endpointCallTimeout = endpointCallTimeouts.get(endpoint);
+        return endpointCallTimeout != null ? endpointCallTimeout : callTimeout;
+    }
+}
@@ -0,0 +1,76 @@
+package io.castle.client.internal.config;
+
+import io.castle.client.model.TrackBatchOverflowHandler;
+import io.castle.client.model.TrackBatchOverflowPolicy;
+
+/**
+ * Settings of the optional track batch pipeline.
+ * <p>
+ * When enabled, track events are put in a bounded in-memory queue and a background flusher sends them to the
+ * Castle API in batches, instead of issuing one HTTP request per event.
+ */
+public class TrackBatchConfiguration {
+
+    /**
+     * Whether track events are batched.
+     */
+    private final boolean enabled;
+
+    /**
+     * Maximum number of events sent in a single batch request.
+     */
+    private final int maxBatchSize;
+
+    /**
+     * Maximum time in milliseconds an event waits in the queue before its batch is flushed.
+     */
+    private final int flushInterval;
+
+    /**
+     * Maximum number of events waiting in the queue.
+     */
+    private final int queueCapacity;
+
+    /**
+     * What to do with a new event when the queue is full.
+     */
+    private final TrackBatchOverflowPolicy overflowPolicy;
+
+    /**
+     * Receives rejected events when the overflow policy is {@link TrackBatchOverflowPolicy#CALLBACK}.
+     */
+    private final TrackBatchOverflowHandler overflowHandler;
+
+    public TrackBatchConfiguration(boolean enabled, int maxBatchSize, int flushInterval, int queueCapacity, TrackBatchOverflowPolicy overflowPolicy, TrackBatchOverflowHandler overflowHandler) {
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.flushInterval = flushInterval;
+        this.queueCapacity = queueCapacity;
+        this.overflowPolicy = overflowPolicy;
+        this.overflowHandler = overflowHandler;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public int getFlushInterval() {
+        return flushInterval;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public TrackBatchOverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public TrackBatchOverflowHandler getOverflowHandler() {
+        return overflowHandler;
+    }
+}
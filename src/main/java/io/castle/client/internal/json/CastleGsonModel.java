@@ -9,6 +9,7 @@ import io.castle.client.model.AuthenticateAction;
 import io.castle.client.model.RiskPolicyType;
 import io.castle.client.model.CastleHeaders;
 import io.castle.client.model.CastleMessage;
+import io.castle.client.model.CastleSdkRef;
 
 public class CastleGsonModel {
 
@@ -20,6 +21,7 @@ public class CastleGsonModel {
         builder.registerTypeAdapter(CastleHeaders.class, new CastleHeadersSerializer());
         builder.registerTypeAdapter(String.class, new StringJsonSerializer());
         builder.registerTypeAdapter(CastleMessage.class, new CastleMessageSerializer());
+        builder.registerTypeAdapter(CastleSdkRef.class, new CastleSdkRefSerializer());
         builder.registerTypeAdapter(CastleHeaders.class, new CastleHeadersDeserializer());
         builder.registerTypeAdapter(AuthenticateAction.class, new AuthenticateActionDeserializer());
         builder.registerTypeAdapter(RiskPolicyType.class, new RiskPolicyTypeDeserializer());
@@ -0,0 +1,197 @@
+package io.castle.client.internal.json;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+import io.castle.client.internal.utils.ContextSnapshot;
+import io.castle.client.model.CastleContext;
+import io.castle.client.model.CastleMessage;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Body of an authenticate or track request: a {@link CastleMessage} together with its context and {@code sent_at}.
+ * <p>
+ * The payload can be written directly to a {@link JsonWriter}, without building the intermediate {@link JsonObject}
+ * returned by {@link #toJson(Gson)}. Both forms produce the same JSON document.
+ */
+public class CastleMessagePayload {
+
+    private static final Gson PLAIN_GSON = CastleGsonModel.createGsonBuilder().create();
+
+    private static final TypeAdapter<JsonElement> ELEMENT_ADAPTER = PLAIN_GSON.getAdapter(JsonElement.class);
+
+    private final CastleMessage message;
+    private final ContextSnapshot context;
+    private final String sentAt;
+
+    /**
+     * @param message     the message to send
+     * @param contextJson context to use when the message does not have its own, may be null
+     * @param sentAt      ISO 8601 timestamp of the request
+     */
+    public CastleMessagePayload(CastleMessage message, JsonObject contextJson, String sentAt) {
+        this(message, ContextSnapshot.of(contextJson), sentAt);
+    }
+
+    private CastleMessagePayload(CastleMessage message, ContextSnapshot context, String sentAt) {
+        this.message = message;
+        this.context = context;
+        this.sentAt = sentAt;
+    }
+
+    /**
+     * Creates a payload whose streamed form splices the serialized JSON of a context snapshot.
+     *
+     * @param message the message to send
+     * @param context context to use when the message does not have its own, may be null
+     * @param sentAt  ISO 8601 timestamp of the request
+     * @return a new payload
+     */
+    public static CastleMessagePayload withSnapshot(CastleMessage message, ContextSnapshot context, String sentAt) {
+        return new CastleMessagePayload(message, context, sentAt);
+    }
+
+    public CastleMessage getMessage() {
+        return message;
+    }
+
+    public String getUserId() {
+        return message.getUserId();
+    }
+
+    /**
+     * Builds the payload as a JSON tree.
+     * <p>
+     * The context is copied from the tree of the snapshot, shared by the calls of its {@code CastleApi}, so that the
+     * returned tree can be modified.
+     *
+     * @param gson the SDK gson instance, used for the message and its context
+     * @return a new JsonObject with the message fields, the context and sent_at
+     */
+    public JsonObject toJson(Gson gson) {
+        JsonObject messageObj = gson.toJsonTree(message).getAsJsonObject();
+        messageObj.add("context", buildContextJson(gson));
+        messageObj.addProperty("sent_at", sentAt);
+        return messageObj;
+    }
+
+    /**
+     * Writes the payload as a JSON object.
+     * <p>
+     * Values are written like the {@link CastleMessageSerializer} would have serialized them. Messages with
+     * additional attributes in {@link CastleMessage#getOther()} need a deep merge and are still built as a tree. The
+     * context of the snapshot is written as its JSON text, serialized once per snapshot.
+     *
+     * @param writer destination of the JSON document
+     * @param gson   the SDK gson instance, used for the message and its context
+     * @throws IOException if the writer fails
+     */
+    @SuppressWarnings("deprecation")
+    public void write(JsonWriter writer, Gson gson) throws IOException {
+        if (!message.getOther().isEmpty()) {
+            ELEMENT_ADAPTER.write(writer, toJson(gson));
+            return;
+        }
+        writer.beginObject();
+        writeString(writer, "created_at", message.getCreatedAt());
+        writeString(writer, "timestamp", message.getTimestamp());
+        writeString(writer, "device_token", message.getDeviceToken());
+        writeString(writer, "event", message.getEvent());
+        writeValue(writer, "properties", message.getProperties());
+        writeString(writer, "review_id", message.getReviewId());
+        writeString(writer, "user_id", message.getUserId());
+        writeValue(writer, "user_traits", message.getUserTraits());
+        writer.name("context");
+        writeContext(writer, gson);
+        writer.name("sent_at").value(sentAt);
+        writer.endObject();
+    }
+
+    private JsonElement buildContextJson(Gson gson) {
+        // Context can be either from the message or from the instance of the API. Make sure we have one
+        CastleContext messageContext = message.getContext();
+        if (messageContext == null) {
+            return context == null ? null : context.toJson().deepCopy();
+        }
+        return gson.toJsonTree(messageContext).getAsJsonObject();
+    }
+
+    private void writeContext(JsonWriter writer, Gson gson) throws IOException {
+        CastleContext messageContext = message.getContext();
+        if (messageContext == null) {
+            if (context == null) {
+                writer.nullValue();
+            } else {
+                writer.jsonValue(context.toJsonText());
+            }
+            return;
+        }
+        // Null fields are left out of the context model, as toJsonTree does
+        boolean serializeNulls = writer.getSerializeNulls();
+        writer.setSerializeNulls(false);
+        try {
+            gson.getAdapter(CastleContext.class).write(writer, messageContext);
+        } finally {
+            writer.setSerializeNulls(serializeNulls);
+        }
+    }
+
+    private static void writeString(JsonWriter writer, String name, String value) throws IOException {
+        if (value != null) {
+            writer.name(name).value(value);
+        }
+    }
+
+    private static void writeValue(JsonWriter writer, String name, Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        JsonElement json = value instanceof JsonElement ? (JsonElement) value : PLAIN_GSON.toJsonTree(value);
+        if (json.isJsonNull()) {
+            return;
+        }
+        writer.name(name);
+        writeCopy(writer, json);
+    }
+
+    /**
+     * Writes an element the way {@link io.castle.client.internal.utils.ContextMerge} copies it into the message
+     * tree, so that the streamed body matches the tree: null members are dropped and array items are written as
+     * strings.
+     */
+    private static void writeCopy(JsonWriter writer, JsonElement json) throws IOException {
+        if (json.isJsonObject()) {
+            writer.beginObject();
+            for (Map.Entry<String, JsonElement> entry : json.getAsJsonObject().entrySet()) {
+                if (!entry.getValue().isJsonNull()) {
+                    writer.name(entry.getKey());
+                    writeCopy(writer, entry.getValue());
+                }
+            }
+            writer.endObject();
+        } else if (json.isJsonArray()) {
+            writeArrayCopy(writer, json.getAsJsonArray());
+        } else {
+            ELEMENT_ADAPTER.write(writer, json);
+        }
+    }
+
+    private static void writeArrayCopy(JsonWriter writer, JsonArray array) throws IOException {
+        writer.beginArray();
+        for (JsonElement item : array) {
+            if (item.isJsonObject() || item.isJsonArray()) {
+                writeCopy(writer, item);
+            } else if (item.isJsonNull()) {
+                writer.nullValue();
+            } else {
+                writer.value(item.getAsString());
+            }
+        }
+        writer.endArray();
+    }
+}
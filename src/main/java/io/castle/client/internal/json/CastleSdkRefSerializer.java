@@ -0,0 +1,41 @@
+package io.castle.client.internal.json;
+
+import com.google.gson.*;
+import io.castle.client.model.CastleSdkRef;
+
+import java.lang.reflect.Type;
+
+/**
+ * Serializes the {@code library} block of a context.
+ * <p>
+ * The descriptor of the running SDK never changes, so its JSON form is built once instead of being serialized
+ * reflectively every time. Each call gets a copy of it, so that a tree changed by its caller does not change the
+ * {@code library} block of the other requests.
+ */
+public class CastleSdkRefSerializer implements JsonSerializer<CastleSdkRef> {
+
+    private static final JsonObject LIBRARY_JSON = toJson(CastleSdkRef.getInstance());
+
+    @Override
+    public JsonElement serialize(CastleSdkRef ref, Type typeOfSrc, JsonSerializationContext context) {
+        if (ref.equals(CastleSdkRef.getInstance())) {
+            return LIBRARY_JSON.deepCopy();
+        }
+        return toJson(ref);
+    }
+
+    private static JsonObject toJson(CastleSdkRef ref) {
+        JsonObject json = new JsonObject();
+        addIfNotNull(json, "name", ref.getName());
+        addIfNotNull(json, "version", ref.getVersion());
+        addIfNotNull(json, "platform", ref.getPlatform());
+        addIfNotNull(json, "platform_version", ref.getPlatformVersion());
+        return json;
+    }
+
+    private static void addIfNotNull(JsonObject json, String key, String value) {
+        if (value != null) {
+            json.addProperty(key, value);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package io.castle.client.internal.json;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import io.castle.client.internal.utils.VerdictBuilder;
+import io.castle.client.model.AuthenticateAction;
+import io.castle.client.model.RiskPolicyResult;
+import io.castle.client.model.Verdict;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads the response of the authenticate endpoint in a single pass.
+ * <p>
+ * The fields of the {@link Verdict} are taken from the stream as they are read. When the internal tree is retained,
+ * each top level member is also kept in the JSON object set with {@link VerdictBuilder#withInternal(JsonElement)};
+ * otherwise the members not needed by the verdict are skipped without being parsed into a tree.
+ */
+public class VerdictReader {
+
+    private final TypeAdapter<JsonElement> elementAdapter;
+    private final TypeAdapter<RiskPolicyResult> riskPolicyAdapter;
+    private final boolean retainInternal;
+
+    /**
+     * @param gson           the SDK gson instance
+     * @param retainInternal whether the full response is kept as the internal tree of the verdict
+     */
+    public VerdictReader(Gson gson, boolean retainInternal) {
+        this.elementAdapter = gson.getAdapter(JsonElement.class);
+        this.riskPolicyAdapter = gson.getAdapter(RiskPolicyResult.class);
+        this.retainInternal = retainInternal;
+    }
+
+    /**
+     * Reads a verdict from an authenticate response body.
+     *
+     * @param source the response body, closed by the caller
+     * @return the verdict, or null when the body is empty or does not contain an action
+     * @throws IOException         if the body can not be read
+     * @throws JsonSyntaxException if the body is not a JSON object
+     */
+    public Verdict read(Reader source) throws IOException {
+        JsonReader reader = new JsonReader(source);
+        reader.setLenient(true);
+        try {
+            reader.peek();
+        } catch (EOFException e) {
+            // Empty body
+            return null;
+        }
+        try {
+            return readVerdict(reader);
+        } catch (IllegalStateException | NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    private Verdict readVerdict(JsonReader reader) throws IOException {
+        VerdictBuilder builder = VerdictBuilder.success();
+        JsonObject internal = retainInternal ? new JsonObject() : null;
+        AuthenticateAction action = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (retainInternal) {
+                JsonElement value = elementAdapter.read(reader);
+                internal.add(name, value);
+                if (name.equals("risk_policy")) {
+                    builder.withRiskPolicy(riskPolicyAdapter.fromJsonTree(value));
+                } else if (isVerdictField(name)) {
+                    action = setField(builder, name, asString(name, value), action);
+                }
+            } else if (name.equals("risk_policy")) {
+                builder.withRiskPolicy(riskPolicyAdapter.read(reader));
+            } else if (isVerdictField(name)) {
+                action = setField(builder, name, nextString(reader), action);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (action == null) {
+            return null;
+        }
+        return builder
+                .withAction(action)
+                .withInternal(internal)
+                .build();
+    }
+
+    private static boolean isVerdictField(String name) {
+        return name.equals("action") || name.equals("user_id") || name.equals("device_token");
+    }
+
+    private static AuthenticateAction setField(VerdictBuilder builder, String name, String value, AuthenticateAction action) {
+        switch (name) {
+            case "action":
+                return value == null ? null : AuthenticateAction.fromAction(value);
+            case "user_id":
+                builder.withUserId(value);
+                break;
+            case "device_token":
+                builder.withDeviceToken(value);
+                break;
+        }
+        return action;
+    }
+
+    private static String asString(String name, JsonElement value) {
+        if (value.isJsonNull()) {
+            return null;
+        }
+        if (!value.isJsonPrimitive()) {
+            throw new JsonSyntaxException("Expected a string for " + name + " but was " + value);
+        }
+        return value.getAsString();
+    }
+
+    private static String nextString(JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case NULL:
+                reader.nextNull();
+                return null;
+            case BOOLEAN:
+                return Boolean.toString(reader.nextBoolean());
+            default:
+                return reader.nextString();
+        }
+    }
+}
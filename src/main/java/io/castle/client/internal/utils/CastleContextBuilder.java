@@ -14,11 +14,17 @@ import java.util.Enumeration;
 
 public class CastleContextBuilder {
 
+    private static final String REMOTE_ADDR = "REMOTE_ADDR";
+
+    /**
+     * Value sent in place of the value of a scrubbed header.
+     */
+    private static final String SCRUBBED = "true";
+
     private CastleContext context;
     private CastleHeaders headers;
     private final CastleGsonModel model;
     private final CastleConfiguration configuration;
-    private final HeaderNormalizer headerNormalizer = new HeaderNormalizer();
 
     public CastleContextBuilder(CastleConfiguration configuration, CastleGsonModel model) {
         this.configuration = configuration;
@@ -100,45 +106,32 @@ public class CastleContextBuilder {
 
     /**
      * Load the headers from the HttpRequest.
-     * A header will be passed only when it is not on the blacklist and it appears on the whitelist
+     * A header will be passed only when it is not on the blacklist and it appears on the whitelist, as decided by the
+     * {@link HeaderFilter} of the configuration
      *
      * @param request The HttpRequest containing the headers.
      * @return headers Model for castle backend.
      */
     private CastleHeaders setCastleHeadersFromHttpServletRequest(HttpServletRequest request) {
         ArrayList<CastleHeader> castleHeadersList = new ArrayList<>();
+        HeaderFilter headerFilter = configuration.getHeaderFilter();
         for (Enumeration<String> headerNames = request.getHeaderNames(); headerNames.hasMoreElements(); ) {
             String key = headerNames.nextElement();
-            String headerValue = request.getHeader(key);
-            addHeaderValue(castleHeadersList, key, headerValue);
+            if (headerFilter.isScrubbed(key)) {
+                // The value of a scrubbed header is never read
+                castleHeadersList.add(new CastleHeader(key, SCRUBBED));
+            } else {
+                castleHeadersList.add(new CastleHeader(key, request.getHeader(key)));
+            }
         }
         //A CGI specific header is added for compliance with other castle sdk libraries
-        addHeaderValue(castleHeadersList, "REMOTE_ADDR",request.getRemoteAddr());
+        castleHeadersList.add(new CastleHeader(REMOTE_ADDR, headerFilter.isScrubbed(REMOTE_ADDR) ? SCRUBBED : request.getRemoteAddr()));
 
         CastleHeaders headers = new CastleHeaders();
         headers.setHeaders(castleHeadersList);
         return headers;
     }
 
-    private void addHeaderValue(ArrayList<CastleHeader> castleHeadersList, String key, String headerValue) {
-        String keyNormalized = headerNormalizer.normalize(key);
-        if (configuration.getBlackListHeaders().contains(keyNormalized)) {
-            // Scrub header since it is blacklisted
-            castleHeadersList.add(new CastleHeader(key, "true"));
-            return;
-        }
-
-        // No whitelist set, everything is whitelisted
-        if (configuration.getWhiteListHeaders().isEmpty()) {
-            castleHeadersList.add(new CastleHeader(key, headerValue));
-        } else if (configuration.getWhiteListHeaders().contains(keyNormalized)) {
-            castleHeadersList.add(new CastleHeader(key, headerValue));
-        } else {
-            // Add scrubbed header
-            castleHeadersList.add(new CastleHeader(key, "true"));
-        }
-    }
-
     /**
      * Extract the clientId from the request.
      * If header 'X-Castle-Client-Id' is set use that value, if not use __cid cookie, if none is set default to false
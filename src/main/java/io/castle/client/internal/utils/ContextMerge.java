@@ -1,21 +1,18 @@
 package io.castle.client.internal.utils;
 
-import com.google.common.collect.Sets;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
 
-import java.util.Iterator;
 import java.util.Map;
-import java.util.Set;
 
 public class ContextMerge {
     /**
      * Merges the base and the addition JSON tree.
      *
-     * The base value is not mutated during the process.
-     * References to the addition tree elements may be used on the resulting tree.
+     * Neither tree is mutated during the process, and the resulting tree does not reference the objects and arrays of
+     * either of them, so they can be modified afterwards.
      *
      * @param base     JsonObject whose elements will be modified.
      * @param addition JsonObject containing the elements that will be updated in the base.
@@ -25,62 +22,72 @@ public class ContextMerge {
         if (addition==null){
             return new JsonObject();
         }
-        return mergeDeep(base, addition);
+        return mergeNormalized(normalize(base), addition);
     }
 
-    private JsonObject mergeDeep(JsonObject base, JsonObject addition) {
-        Set<String> baseProperties = base.keySet();
-        Set<String> additionProperties = addition.keySet();
+    /**
+     * Merges an addition into a base already copied by {@link #normalize(JsonObject)}.
+     *
+     * The subtrees found in the base only are shared with the resulting tree, so that a base merged several times,
+     * like the context of a {@code CastleApi}, is only copied once. The base must therefore not be modified once
+     * normalized. The addition is copied into the resulting tree, so it can be modified afterwards.
+     *
+     * @param normalizedBase JsonObject returned by {@link #normalize(JsonObject)}, never modified
+     * @param addition       JsonObject containing the elements that will be updated in the base.
+     * @return A JsonObject sharing the untouched subtrees of the base, or an empty one when there is no addition.
+     */
+    public JsonObject mergeNormalized(JsonObject normalizedBase, JsonObject addition) {
+        if (addition==null){
+            return new JsonObject();
+        }
+        return mergeDeep(normalizedBase, addition);
+    }
 
-        Set<String> onlyOnBase = Sets.difference(baseProperties, additionProperties);
-        Set<String> onlyOnAddition = Sets.difference(additionProperties, baseProperties);
-        Set<String> propertiesToMerge = Sets.intersection(baseProperties, additionProperties);
+    /**
+     * Copies a tree in the form the merge gives to the whole resulting tree: without null members and with the
+     * primitive items of arrays converted to strings. The trees returned by the merge are already in that form.
+     *
+     * @param base JsonObject to copy
+     * @return a new JsonObject, to use as the base of {@link #mergeNormalized(JsonObject, JsonObject)}
+     */
+    public static JsonObject normalize(JsonObject base) {
+        return deepCopy(base);
+    }
 
+    private static JsonObject mergeDeep(JsonObject base, JsonObject addition) {
         JsonObject result = new JsonObject();
 
-        for (Iterator<String> iterator = onlyOnBase.iterator(); iterator.hasNext(); ) {
-            String baseProp = iterator.next();
-            addEntryToResult(result, baseProp, base.get(baseProp));
+        // Properties are added in the order of the previous implementation: base only, addition only, then both
+        for (Map.Entry<String, JsonElement> entry : base.entrySet()) {
+            if (!addition.has(entry.getKey())) {
+                result.add(entry.getKey(), entry.getValue());
+            }
         }
-        for (Iterator<String> iterator = onlyOnAddition.iterator(); iterator.hasNext(); ) {
-            String additionProp = iterator.next();
-            addEntryToResult(result, additionProp, addition.get(additionProp));
+        for (Map.Entry<String, JsonElement> entry : addition.entrySet()) {
+            if (!base.has(entry.getKey())) {
+                addEntryToResult(result, entry.getKey(), entry.getValue());
+            }
         }
-        for (Iterator<String> iterator = propertiesToMerge.iterator(); iterator.hasNext(); ) {
-            String key = iterator.next();
+        for (Map.Entry<String, JsonElement> entry : base.entrySet()) {
+            String key = entry.getKey();
             JsonElement additionValue = addition.get(key);
-            JsonElement baseValue = base.get(key);
-            if (additionValue.isJsonNull()) {
-                addEntryToResult(result, key, additionValue);
+            if (additionValue == null) {
+                continue;
+            }
+            JsonElement baseValue = entry.getValue();
+            if (additionValue.isJsonObject() && baseValue.isJsonObject()) {
+                result.add(key, mergeDeep(baseValue.getAsJsonObject(), additionValue.getAsJsonObject()));
+            } else if (additionValue.isJsonArray() && baseValue.isJsonArray()) {
+                result.add(key, mergeDeep(baseValue.getAsJsonArray(), additionValue.getAsJsonArray()));
             } else {
-                if (additionValue.isJsonObject()) {
-                    if (baseValue.isJsonObject()) {
-                        addEntryToResult(result, key, mergeDeep(baseValue.getAsJsonObject(), additionValue.getAsJsonObject()));
-                    } else if (baseValue.isJsonArray()) {
-                        addEntryToResult(result, key, additionValue);
-                        //if jsonElement.isJsonPrimitive()
-                    } else {
-                        addEntryToResult(result, key, additionValue);
-                    }
-                } else if (additionValue.isJsonArray()) {
-                    if (baseValue.isJsonObject()) {
-                        addEntryToResult(result, key, additionValue);
-                    } else if (baseValue.isJsonArray()) {
-                        addEntryToResult(result, key, mergeDeep(baseValue.getAsJsonArray(), additionValue.getAsJsonArray()));
-                        //if jsonElement.isJsonPrimitive()
-                    } else {
-                        addEntryToResult(result, key, additionValue);
-                    }
-                    //if jsonElement.isJsonPrimitive()
-                } else {
-                    addEntryToResult(result, key, additionValue);
-                }
+                // A null addition deletes the property
+                addEntryToResult(result, key, additionValue);
             }
         }
         return result;
     }
 
-    private void addEntryToResult(JsonObject result, String key, JsonElement value) {
+    private static void addEntryToResult(JsonObject result, String key, JsonElement value) {
         if (value.isJsonObject()) {
             result.add(key, deepCopy(value.getAsJsonObject()));
         } else if (value.isJsonArray()) {
@@ -90,15 +97,15 @@ public class ContextMerge {
         }
     }
 
-    private JsonArray mergeDeep(JsonArray target, JsonArray source) {
-        JsonArray result = deepCopy(target);
-        for (JsonElement fromSource : source) {
-            result.add(fromSource);
-        }
+    private static JsonArray mergeDeep(JsonArray target, JsonArray source) {
+        JsonArray result = new JsonArray(target.size() + source.size());
+        result.addAll(target);
+        // Copied like the rest of the tree, as the previous implementation copied the merged array once more
+        addItemsToResult(result, source);
         return result;
     }
 
-    private JsonObject deepCopy(JsonObject jsonObject) {
+    private static JsonObject deepCopy(JsonObject jsonObject) {
         JsonObject result = new JsonObject();
         for (Map.Entry<String, JsonElement> entry : jsonObject.entrySet()) {
             addEntryToResult(result, entry.getKey(), entry.getValue());
@@ -106,10 +113,14 @@ public class ContextMerge {
         return result;
     }
 
-    private JsonArray deepCopy(JsonArray jsonArray) {
-        JsonArray result = new JsonArray();
+    private static JsonArray deepCopy(JsonArray jsonArray) {
+        JsonArray result = new JsonArray(jsonArray.size());
+        addItemsToResult(result, jsonArray);
+        return result;
+    }
 
-        for (JsonElement jsonElement : jsonArray) {
+    private static void addItemsToResult(JsonArray result, JsonArray items) {
+        for (JsonElement jsonElement : items) {
             if (jsonElement.isJsonObject()) {
                 result.add(deepCopy(jsonElement.getAsJsonObject()));
             } else if (jsonElement.isJsonArray()) {
@@ -119,6 +130,5 @@ public class ContextMerge {
                 result.add(new JsonPrimitive(jsonElement.getAsString()));
             }
         }
-        return result;
     }
 }
@@ -0,0 +1,130 @@
+package io.castle.client.internal.utils;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+import io.castle.client.model.CastleContext;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+/**
+ * Context of a {@code CastleApi} instance, converted to a JSON tree and to JSON text on first use.
+ * <p>
+ * The context of a servlet request is captured as a {@link CastleContext} when the instance is created, since the
+ * container may recycle the request afterwards, but the JSON tree is only built when a call sends it. Instances
+ * derived with {@code doNotTrack} or {@code callTimeout} share the snapshot, and with it the tree once built.
+ * <p>
+ * The JSON text is kept as well, so that the streamed bodies of the authenticate and track calls made through the
+ * same instance write it as the context value instead of serializing the headers and the {@code library} block again. A merged context gets a snapshot of its own, sharing the untouched subtrees of this one.
+ */
+public class ContextSnapshot {
+
+    private static final TypeAdapter<JsonElement> ELEMENT_ADAPTER = new Gson().getAdapter(JsonElement.class);
+
+    private final CastleContext context;
+    private final Gson gson;
+    private volatile JsonObject json;
+    private volatile String text;
+    /**
+     * Copy of the tree in the form given by the merge, shared with the trees merged from this snapshot.
+     */
+    private volatile JsonObject mergeBase;
+
+    /**
+     * Creates a snapshot of a context model.
+     *
+     * @param context the context read from the request
+     * @param gson    the SDK gson instance, used to build the tree
+     */
+    public ContextSnapshot(CastleContext context, Gson gson) {
+        this.context = context;
+        this.gson = gson;
+    }
+
+    private ContextSnapshot(JsonObject json, JsonObject mergeBase) {
+        this.context = null;
+        this.gson = null;
+        this.json = json;
+        this.mergeBase = mergeBase;
+    }
+
+    /**
+     * Wraps a context already built as a JSON tree.
+     *
+     * @param json the context, may be null
+     * @return a snapshot returning the given tree, or null when no tree is given
+     */
+    public static ContextSnapshot of(JsonObject json) {
+        return json == null ? null : new ContextSnapshot(json, null);
+    }
+
+    /**
+     * Merges an addition into the context.
+     * <p>
+     * The tree of this snapshot is copied on the first merge only, and the untouched subtrees of that copy are shared
+     * by the merged trees. The addition is copied into the merged tree, so it can be modified afterwards.
+     *
+     * @param addition the elements to merge, may be null
+     * @return a snapshot of the merged context
+     * @see ContextMerge#mergeNormalized(JsonObject, JsonObject)
+     */
+    public ContextSnapshot merge(JsonObject addition) {
+        JsonObject base = mergeBase;
+        if (base == null) {
+            // Concurrent first merges may copy the tree twice, producing equal copies
+            base = ContextMerge.normalize(toJson());
+            mergeBase = base;
+        }
+        JsonObject merged = new ContextMerge().mergeNormalized(base, addition);
+        // The merged tree is already in the form given by the merge
+        return new ContextSnapshot(merged, merged);
+    }
+
+    /**
+     * Gets the JSON tree of the context, building it on the first call.
+     * <p>
+     * The tree is shared by the calls of every instance using this snapshot and must not be modified.
+     *
+     * @return the context as a JSON object
+     */
+    public JsonObject toJson() {
+        JsonObject result = json;
+        if (result == null) {
+            synchronized (this) {
+                result = json;
+                if (result == null) {
+                    result = gson.toJsonTree(context).getAsJsonObject();
+                    json = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the context serialized as JSON text, serializing its tree on the first call.
+     * <p>
+     * The text is the one a default {@link JsonWriter} would write for the tree, and is shared by the calls of every
+     * instance using this snapshot.
+     *
+     * @return the context as a JSON document
+     */
+    public String toJsonText() {
+        String result = text;
+        if (result == null) {
+            StringWriter writer = new StringWriter();
+            try {
+                ELEMENT_ADAPTER.write(new JsonWriter(writer), toJson());
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not serialize the context", e);
+            }
+            // Concurrent first calls may serialize the tree twice, producing the same text
+            result = writer.toString();
+            text = result;
+        }
+        return result;
+    }
+}
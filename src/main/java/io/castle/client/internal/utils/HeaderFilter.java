@@ -0,0 +1,111 @@
+package io.castle.client.internal.utils;
+
+import java.util.List;
+
+/**
+ * Decides which request headers are scrubbed from the context, from the whitelist and blacklist of the configuration.
+ * <p>
+ * Both lists are compiled once into open addressing tables of normalized names. Header names are normalized one
+ * character at a time while hashing and comparing, with the rules of {@link HeaderNormalizer}, so that classifying a
+ * header never allocates.
+ */
+public class HeaderFilter {
+
+    /**
+     * Table of the whitelisted names, null when every header is whitelisted.
+     */
+    private final String[] whiteList;
+    private final String[] blackList;
+
+    /**
+     * Creates a filter.
+     *
+     * @param whiteListHeaders headers passed to the context, every header when empty or null
+     * @param blackListHeaders headers always scrubbed, takes null
+     */
+    public HeaderFilter(List<String> whiteListHeaders, List<String> blackListHeaders) {
+        this.whiteList = whiteListHeaders == null || whiteListHeaders.isEmpty() ? null : compile(whiteListHeaders);
+        this.blackList = compile(blackListHeaders);
+    }
+
+    /**
+     * Tells if the value of a header must be replaced by {@code true} in the context.
+     * <p>
+     * A header is scrubbed when it is on the blacklist, or when a whitelist is set and the header is not on it.
+     *
+     * @param headerName the name of the header, in any case
+     * @return true if the header is scrubbed
+     */
+    public boolean isScrubbed(String headerName) {
+        if (contains(blackList, headerName)) {
+            return true;
+        }
+        return whiteList != null && !contains(whiteList, headerName);
+    }
+
+    private static String[] compile(List<String> headers) {
+        int size = Integer.highestOneBit(Math.max(1, headers == null ? 0 : headers.size()) * 2) * 2;
+        String[] table = new String[size];
+        if (headers == null) {
+            return table;
+        }
+        for (String header : headers) {
+            if (header == null || contains(table, header)) {
+                continue;
+            }
+            char[] normalized = new char[header.length()];
+            for (int i = 0; i < normalized.length; i++) {
+                normalized[i] = normalize(header.charAt(i));
+            }
+            int slot = hash(header) & (size - 1);
+            while (table[slot] != null) {
+                slot = (slot + 1) & (size - 1);
+            }
+            table[slot] = new String(normalized);
+        }
+        return table;
+    }
+
+    private static boolean contains(String[] table, String headerName) {
+        if (headerName == null) {
+            return false;
+        }
+        int mask = table.length - 1;
+        for (int slot = hash(headerName) & mask; table[slot] != null; slot = (slot + 1) & mask) {
+            if (matches(table[slot], headerName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matches(String normalized, String headerName) {
+        if (normalized.length() != headerName.length()) {
+            return false;
+        }
+        for (int i = 0; i < normalized.length(); i++) {
+            if (normalized.charAt(i) != normalize(headerName.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(String headerName) {
+        int hash = 0;
+        for (int i = 0; i < headerName.length(); i++) {
+            hash = 31 * hash + normalize(headerName.charAt(i));
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static char normalize(char c) {
+        if (c == '_') {
+            return '-';
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return (char) (c + ('a' - 'A'));
+        }
+        return c < 128 ? c : Character.toLowerCase(c);
+    }
+}
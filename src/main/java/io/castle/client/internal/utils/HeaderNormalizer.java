@@ -11,7 +11,7 @@ public class HeaderNormalizer {
         if (headerName == null) {
             return null;
         }
-        return headerName.toLowerCase().replaceAll("_", "-");
+        return headerName.toLowerCase().replace('_', '-');
     }
 
 
@@ -7,12 +7,13 @@ import io.castle.client.model.CastleServerErrorException;
 import okhttp3.Response;
 
 import java.io.IOException;
-import java.net.SocketTimeoutException;
+import java.io.InterruptedIOException;
 
 public class OkHttpExceptionUtil {
 
     public static CastleRuntimeException handle(IOException e) {
-        if (e instanceof SocketTimeoutException) {
+        // Socket timeouts and expired call timeouts
+        if (e instanceof InterruptedIOException) {
             return new CastleApiTimeoutException(e);
         }
         return new CastleRuntimeException(e);
@@ -0,0 +1,132 @@
+package io.castle.client.internal.utils;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import java.security.GeneralSecurityException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Computes secure user IDs, the hex encoded HMAC-SHA256 of user IDs keyed with the API secret.
+ * <p>
+ * Each thread keeps its own initialized {@link Mac} and output buffer, so that computing a secure user ID only
+ * allocates the UTF-8 bytes of the user ID and the resulting string. Recent results can also be kept in a bounded
+ * cache evicting the least recently used user IDs.
+ */
+public class SecureUserIdSigner {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final ThreadLocal<ThreadState> state;
+
+    /**
+     * Recent secure user IDs by user ID, null when they are not cached.
+     */
+    private final Cache<String, String> cache;
+
+    /**
+     * Creates a signer.
+     *
+     * @param key       the HMAC-SHA256 key
+     * @param cacheSize number of recent secure user IDs to keep, 0 to not cache them
+     */
+    public SecureUserIdSigner(final SecretKey key, int cacheSize) {
+        Preconditions.checkArgument(cacheSize >= 0, "The cache size can not be negative");
+        // Fails right away on an invalid key rather than on the first call
+        newMac(key);
+        this.state = new ThreadLocal<ThreadState>() {
+            @Override
+            protected ThreadState initialValue() {
+                return new ThreadState(newMac(key));
+            }
+        };
+        this.cache = cacheSize == 0 ? null : CacheBuilder.newBuilder()
+                .maximumSize(cacheSize)
+                .<String, String>build();
+    }
+
+    /**
+     * Computes the secure user ID of a user ID.
+     *
+     * @param userId the user ID
+     * @return 64 lowercase hex digits
+     */
+    public String sign(String userId) {
+        Preconditions.checkNotNull(userId);
+        if (cache == null) {
+            return compute(userId);
+        }
+        String secureUserId = cache.getIfPresent(userId);
+        if (secureUserId == null) {
+            secureUserId = compute(userId);
+            cache.put(userId, secureUserId);
+        }
+        return secureUserId;
+    }
+
+    /**
+     * Computes the secure user IDs of several user IDs, reusing the same {@link Mac} for all of them.
+     *
+     * @param userIds the user IDs
+     * @return the secure user ID of each distinct user ID, in the order of the user IDs
+     */
+    public Map<String, String> signAll(Iterable<String> userIds) {
+        Map<String, String> secureUserIds = new LinkedHashMap<>();
+        for (String userId : userIds) {
+            if (!secureUserIds.containsKey(userId)) {
+                secureUserIds.put(userId, sign(userId));
+            }
+        }
+        return secureUserIds;
+    }
+
+    private String compute(String userId) {
+        ThreadState current = state.get();
+        current.mac.update(userId.getBytes(Charsets.UTF_8));
+        try {
+            current.mac.doFinal(current.digest, 0);
+        } catch (GeneralSecurityException e) {
+            // The buffer is sized for the algorithm
+            throw new IllegalStateException(e);
+        }
+        char[] hex = current.hex;
+        for (int i = 0; i < current.digest.length; i++) {
+            int b = current.digest[i] & 0xff;
+            hex[2 * i] = HEX_DIGITS[b >>> 4];
+            hex[2 * i + 1] = HEX_DIGITS[b & 0x0f];
+        }
+        return new String(hex);
+    }
+
+    private static Mac newMac(SecretKey key) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException("Can not compute secure user IDs with the API secret", e);
+        }
+    }
+
+    /**
+     * The {@link Mac} and buffers of one thread.
+     */
+    private static class ThreadState {
+        private final Mac mac;
+        private final byte[] digest;
+        private final char[] hex;
+
+        private ThreadState(Mac mac) {
+            this.mac = mac;
+            this.digest = new byte[mac.getMacLength()];
+            this.hex = new char[2 * digest.length];
+        }
+    }
+}
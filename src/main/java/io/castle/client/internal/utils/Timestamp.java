@@ -6,8 +6,43 @@ import java.util.Date;
 import java.util.Locale;
 import java.util.TimeZone;
 
+/**
+ * Formats instants as ISO 8601 combined date and time strings in UTC, with millisecond precision.
+ * <p>
+ * Formatting is lock-free and thread-safe. The date and time up to the seconds only change once per second, so the
+ * prefix of the last formatted second is cached and reused; only the milliseconds are written for each call.
+ */
 public class Timestamp {
-    private static final DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", new Locale("en", "US", "POSIX"));
+
+    /**
+     * Length of a formatted timestamp, e.g. {@code 2019-01-02T03:04:05.678Z}.
+     */
+    public static final int LENGTH = 24;
+
+    /**
+     * Length of the cached part of a timestamp, up to and including the dot before the milliseconds.
+     */
+    private static final int PREFIX_LENGTH = 20;
+
+    private static final long MILLIS_PER_SECOND = 1000L;
+    private static final long SECONDS_PER_DAY = 86400L;
+
+    /**
+     * Range where the proleptic Gregorian calendar used here matches the output of {@link SimpleDateFormat}, which
+     * switches to the Julian calendar before October 1582 and prints more digits after year 9999.
+     * From 1583-01-01T00:00:00.000Z, inclusive, to 10000-01-01T00:00:00.000Z, exclusive.
+     */
+    private static final long MIN_FAST_PATH_MILLIS = -12212553600000L;
+    private static final long MAX_FAST_PATH_MILLIS = 253402300800000L;
+
+    private static final ThreadLocal<char[]> BUFFER = new ThreadLocal<char[]>() {
+        @Override
+        protected char[] initialValue() {
+            return new char[LENGTH];
+        }
+    };
+
+    private static volatile CachedSecond cachedSecond = new CachedSecond(0L, formatPrefix(0L));
 
     /**
      * Return an ISO 8601 combined date and time string for current date/time
@@ -15,7 +50,7 @@ public class Timestamp {
      * @return String with format "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'"
      */
     public static String timestamp() {
-        return timestamp(new Date());
+        return timestamp(System.currentTimeMillis());
     }
 
     /**
@@ -25,7 +60,114 @@ public class Timestamp {
      * @return String with format "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'"
      */
     public static String timestamp(Date date) {
+        return timestamp(date.getTime());
+    }
+
+    /**
+     * Return an ISO 8601 combined date and time string for the specified milliseconds since the epoch
+     *
+     * @param epochMillis milliseconds since 1970-01-01T00:00:00Z
+     * @return String with format "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'"
+     */
+    public static String timestamp(long epochMillis) {
+        if (epochMillis < MIN_FAST_PATH_MILLIS || epochMillis >= MAX_FAST_PATH_MILLIS) {
+            return legacyFormat(epochMillis);
+        }
+        char[] buffer = BUFFER.get();
+        format(epochMillis, buffer, 0);
+        return new String(buffer, 0, LENGTH);
+    }
+
+    /**
+     * Writes the ISO 8601 representation of the specified instant into a caller provided buffer.
+     * <p>
+     * Exactly {@link #LENGTH} characters are written. Instants before year 1583 or after year 9999 are not
+     * supported by this method, use {@link #timestamp(long)} for them.
+     *
+     * @param epochMillis milliseconds since 1970-01-01T00:00:00Z
+     * @param buffer      destination of the characters
+     * @param offset      position of the first character in the buffer
+     * @throws IllegalArgumentException if the instant is outside the supported range
+     */
+    public static void format(long epochMillis, char[] buffer, int offset) {
+        if (epochMillis < MIN_FAST_PATH_MILLIS || epochMillis >= MAX_FAST_PATH_MILLIS) {
+            throw new IllegalArgumentException("Timestamp out of the supported range: " + epochMillis);
+        }
+        long epochSecond = floorDiv(epochMillis, MILLIS_PER_SECOND);
+        CachedSecond cached = cachedSecond;
+        if (cached.epochSecond != epochSecond) {
+            // Racing threads may each build the prefix, which is harmless since the entry is immutable.
+            cached = new CachedSecond(epochSecond, formatPrefix(epochSecond));
+            cachedSecond = cached;
+        }
+        System.arraycopy(cached.prefix, 0, buffer, offset, PREFIX_LENGTH);
+        int millis = (int) (epochMillis - epochSecond * MILLIS_PER_SECOND);
+        buffer[offset + 20] = (char) ('0' + millis / 100);
+        buffer[offset + 21] = (char) ('0' + millis / 10 % 10);
+        buffer[offset + 22] = (char) ('0' + millis % 10);
+        buffer[offset + 23] = 'Z';
+    }
+
+    private static char[] formatPrefix(long epochSecond) {
+        long epochDay = floorDiv(epochSecond, SECONDS_PER_DAY);
+        int secondOfDay = (int) (epochSecond - epochDay * SECONDS_PER_DAY);
+
+        // Civil date from days since the epoch in the proleptic Gregorian calendar, using 400-year eras
+        // starting on March 1st so that leap days fall at the end of each year.
+        long z = epochDay + 719468;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+        int month = (int) (shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9);
+        int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+
+        char[] prefix = new char[PREFIX_LENGTH];
+        writeDigits(prefix, 0, year, 4);
+        prefix[4] = '-';
+        writeDigits(prefix, 5, month, 2);
+        prefix[7] = '-';
+        writeDigits(prefix, 8, day, 2);
+        prefix[10] = 'T';
+        writeDigits(prefix, 11, secondOfDay / 3600, 2);
+        prefix[13] = ':';
+        writeDigits(prefix, 14, secondOfDay / 60 % 60, 2);
+        prefix[16] = ':';
+        writeDigits(prefix, 17, secondOfDay % 60, 2);
+        prefix[19] = '.';
+        return prefix;
+    }
+
+    private static void writeDigits(char[] buffer, int offset, int value, int digits) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value = value / 10;
+        }
+    }
+
+    private static long floorDiv(long x, long y) {
+        long quotient = x / y;
+        if ((x % y != 0) && ((x ^ y) < 0)) {
+            quotient--;
+        }
+        return quotient;
+    }
+
+    private static String legacyFormat(long epochMillis) {
+        DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", new Locale("en", "US", "POSIX"));
         dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
-        return dateFormat.format(date);
+        return dateFormat.format(new Date(epochMillis));
+    }
+
+    private static final class CachedSecond {
+        private final long epochSecond;
+        private final char[] prefix;
+
+        private CachedSecond(long epochSecond, char[] prefix) {
+            this.epochSecond = epochSecond;
+            this.prefix = prefix;
+        }
     }
 }
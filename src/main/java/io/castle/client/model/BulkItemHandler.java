@@ -0,0 +1,28 @@
+package io.castle.client.model;
+
+/**
+ * Callback interface receiving the outcome of each item of a bulk operation.
+ * <p>
+ * Methods are called from the threads completing the requests, concurrently for the items in flight, so
+ * implementations must be thread-safe.
+ *
+ * @param <T> The type of the response of one item.
+ */
+public interface BulkItemHandler<T> {
+
+    /**
+     * Receives the response of an item.
+     *
+     * @param key      the device token or user id of the item
+     * @param response the response, null when the Castle API did not find the item
+     */
+    void onResponse(String key, T response);
+
+    /**
+     * Receives the failure of an item.
+     *
+     * @param key       the device token or user id of the item
+     * @param exception the exception the sync call would have thrown
+     */
+    void onException(String key, Exception exception);
+}
@@ -0,0 +1,53 @@
+package io.castle.client.model;
+
+/**
+ * Counters of a completed bulk operation.
+ */
+public class BulkResult {
+
+    /**
+     * Number of items with a response.
+     */
+    private final long succeeded;
+
+    /**
+     * Number of items that failed.
+     */
+    private final long failed;
+
+    /**
+     * Whether the operation stopped before all items were sent, because the calling thread was interrupted.
+     */
+    private final boolean interrupted;
+
+    public BulkResult(long succeeded, long failed, boolean interrupted) {
+        this.succeeded = succeeded;
+        this.failed = failed;
+        this.interrupted = interrupted;
+    }
+
+    public long getSucceeded() {
+        return succeeded;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getProcessed() {
+        return succeeded + failed;
+    }
+
+    public boolean isInterrupted() {
+        return interrupted;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkResult{" +
+                "succeeded=" + succeeded +
+                ", failed=" + failed +
+                ", interrupted=" + interrupted +
+                '}';
+    }
+}
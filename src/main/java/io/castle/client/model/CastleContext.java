@@ -15,7 +15,7 @@ public class CastleContext {
     private CastlePage page;
     private CastleReferrer referrer;
     private CastleHeaders headers;
-    private CastleSdkRef library = new CastleSdkRef();
+    private CastleSdkRef library = CastleSdkRef.getInstance();
     private CastleLocation location;
     private CastleNetwork network;
     private CastleOS os;
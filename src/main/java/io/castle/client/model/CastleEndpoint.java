@@ -0,0 +1,53 @@
+package io.castle.client.model;
+
+/**
+ * Group of Castle API endpoints sharing the same HTTP settings.
+ * <p>
+ * Used to configure per endpoint timeouts through
+ * {@link io.castle.client.internal.config.CastleConfigurationBuilder#withEndpointTimeout(CastleEndpoint, int)}.
+ */
+public enum CastleEndpoint {
+    /**
+     * The authenticate endpoint.
+     */
+    AUTHENTICATE,
+    /**
+     * The track and batch endpoints.
+     */
+    TRACK,
+    /**
+     * The identify endpoint.
+     */
+    IDENTIFY,
+    /**
+     * The review endpoint.
+     */
+    REVIEW,
+    /**
+     * The device and user devices endpoints, including approve, report and archive.
+     */
+    DEVICES,
+    /**
+     * The impersonate endpoint.
+     */
+    IMPERSONATE,
+    /**
+     * The privacy endpoint.
+     */
+    PRIVACY;
+
+    /**
+     * Returns a CastleEndpoint from a string representing its name.
+     *
+     * @param endpoint string representing the name of the endpoint, case-insensitive
+     * @return the enum value matching the name, or null if it does not match any enum
+     */
+    public static CastleEndpoint fromEndpoint(String endpoint) {
+        for (CastleEndpoint kind : CastleEndpoint.class.getEnumConstants()) {
+            if (kind.name().equalsIgnoreCase(endpoint)) {
+                return kind;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,80 @@
+package io.castle.client.model;
+
+/**
+ * Service provider interface receiving the measurements of the SDK.
+ * <p>
+ * Set with {@link io.castle.client.internal.config.CastleConfigurationBuilder#withMetrics(CastleMetrics)}. Methods
+ * are called on the threads sending the requests, including the threads of the HTTP dispatcher, so implementations
+ * must be thread safe and return quickly. {@link InMemoryCastleMetrics} keeps the measurements in memory; adapters to
+ * metrics libraries like Micrometer or Dropwizard only need to forward each call to a counter or a timer.
+ */
+public interface CastleMetrics {
+
+    /**
+     * Called when an HTTP request to the Castle API got a response. Retried and hedged requests are recorded once per
+     * request sent.
+     *
+     * @param endpoint     endpoint of the request
+     * @param statusCode   HTTP status code of the response
+     * @param latencyNanos nanoseconds between sending the request and receiving the response headers
+     */
+    void recordRequest(CastleEndpoint endpoint, int statusCode, long latencyNanos);
+
+    /**
+     * Called when an HTTP request to the Castle API failed without a response, because of an I/O error or a timeout.
+     *
+     * @param endpoint     endpoint of the request
+     * @param latencyNanos nanoseconds between sending the request and the failure
+     */
+    void recordRequestFailure(CastleEndpoint endpoint, long latencyNanos);
+
+    /**
+     * Called with the size of the body of a request sent to the Castle API.
+     *
+     * @param endpoint endpoint of the request
+     * @param bytes    size of the serialized body
+     */
+    void recordPayloadSize(CastleEndpoint endpoint, long bytes);
+
+    /**
+     * Called when the body of a request to the Castle API was gzipped. The compressed size is also recorded with
+     * {@link #recordPayloadSize(CastleEndpoint, long)}.
+     *
+     * @param endpoint          endpoint of the request
+     * @param uncompressedBytes size of the body before compression
+     * @param compressedBytes   size of the body sent
+     * @param nanos             nanoseconds spent compressing the body
+     */
+    void recordCompression(CastleEndpoint endpoint, long uncompressedBytes, long compressedBytes, long nanos);
+
+    /**
+     * Called when a failed request to the Castle API is sent again. The retried request is also recorded with
+     * {@link #recordRequest(CastleEndpoint, int, long)} or {@link #recordRequestFailure(CastleEndpoint, long)}.
+     *
+     * @param endpoint endpoint of the request
+     */
+    void recordRetry(CastleEndpoint endpoint);
+
+    /**
+     * Called when a request that could be retried failed and is not retried any more.
+     *
+     * @param endpoint        endpoint of the request
+     * @param budgetExhausted true when the request was given up because the retry budget was exhausted, false when it
+     *                        used all its retries or would have been retried past its call timeout
+     */
+    void recordRetryGiveUp(CastleEndpoint endpoint, boolean budgetExhausted);
+
+    /**
+     * Called when an authenticate call used the failover strategy instead of a verdict of the Castle API.
+     *
+     * @param reason why no verdict was received
+     */
+    void recordFailover(FailoverReason reason);
+
+    /**
+     * Called when a call was not sent because the API was set to do not track.
+     *
+     * @param endpoint endpoint the call would have been sent to
+     */
+    void recordDoNotTrack(CastleEndpoint endpoint);
+}
@@ -0,0 +1,63 @@
+package io.castle.client.model;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Point in time view of the measurements of an {@link InMemoryCastleMetrics}.
+ */
+public class CastleMetricsSnapshot {
+
+    private final Map<CastleEndpoint, EndpointMetricsSnapshot> endpoints;
+    private final Map<FailoverReason, Long> failovers;
+
+    CastleMetricsSnapshot(Map<CastleEndpoint, EndpointMetricsSnapshot> endpoints, Map<FailoverReason, Long> failovers) {
+        this.endpoints = Collections.unmodifiableMap(endpoints);
+        this.failovers = Collections.unmodifiableMap(failovers);
+    }
+
+    /**
+     * Gets the measurements of the requests to an endpoint.
+     *
+     * @param endpoint the endpoint
+     * @return the measurements of the endpoint
+     */
+    public EndpointMetricsSnapshot getEndpoint(CastleEndpoint endpoint) {
+        return endpoints.get(endpoint);
+    }
+
+    public Map<CastleEndpoint, EndpointMetricsSnapshot> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * Gets the number of authenticate calls that used the failover strategy for a reason.
+     *
+     * @param reason the reason
+     * @return number of failovers
+     */
+    public long getFailovers(FailoverReason reason) {
+        return failovers.get(reason);
+    }
+
+    /**
+     * Gets the number of authenticate calls that used the failover strategy, for any reason.
+     *
+     * @return number of failovers
+     */
+    public long getFailovers() {
+        long total = 0;
+        for (long count : failovers.values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        return "CastleMetricsSnapshot{" +
+                "endpoints=" + endpoints +
+                ", failovers=" + failovers +
+                '}';
+    }
+}
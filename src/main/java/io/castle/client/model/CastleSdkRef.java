@@ -9,17 +9,33 @@ import java.io.InputStream;
 
 /**
  * The reference to the current version of the SDK.
+ * <p>
+ * The descriptor of the running SDK is computed once per classloader, see {@link #getInstance()}.
  */
 public class CastleSdkRef {
-    private String name = "castle-java";
-    private String version;
-    private String platform;
-    private String platformVersion;
+    private final String name;
+    private final String version;
+    private final String platform;
+    private final String platformVersion;
 
     CastleSdkRef() {
-        this.version = loadSdkVersion().getProperty("sdk.version");
-        this.platformVersion = getJavaVersion();
-        this.platform = getJavaPlatform();
+        this(Descriptor.INSTANCE.name, Descriptor.INSTANCE.version, Descriptor.INSTANCE.platform, Descriptor.INSTANCE.platformVersion);
+    }
+
+    private CastleSdkRef(String name, String version, String platform, String platformVersion) {
+        this.name = name;
+        this.version = version;
+        this.platform = platform;
+        this.platformVersion = platformVersion;
+    }
+
+    /**
+     * Gets the immutable descriptor of the SDK, shared by all contexts.
+     *
+     * @return the reference to the running SDK version and Java platform
+     */
+    public static CastleSdkRef getInstance() {
+        return Descriptor.INSTANCE;
     }
 
     public String getName() {
@@ -30,6 +46,14 @@ public class CastleSdkRef {
         return version;
     }
 
+    public String getPlatform() {
+        return platform;
+    }
+
+    public String getPlatformVersion() {
+        return platformVersion;
+    }
+
     @Override
     public String toString() {
         return "CastleSdkRef{" +
@@ -57,11 +81,11 @@ public class CastleSdkRef {
         return Objects.hash(name, version, platform, platformVersion);
     }
 
-    private Properties loadSdkVersion() {
+    private static String loadSdkVersion() {
         Properties versionProperties = new Properties();
         PropertiesReader reader = new PropertiesReader();
         InputStream resourceAsStream = Castle.class.getClassLoader().getResourceAsStream("version.properties");
-        return reader.loadPropertiesFromStream(versionProperties, resourceAsStream);
+        return reader.loadPropertiesFromStream(versionProperties, resourceAsStream).getProperty("sdk.version");
     }
 
     public static String getJavaVersion() {
@@ -71,4 +95,11 @@ public class CastleSdkRef {
     public static String getJavaPlatform() {
         return System.getProperty("java.vm.name");
     }
+
+    /**
+     * Lazy holder, so that {@code version.properties} is read only the first time a descriptor is needed.
+     */
+    private static final class Descriptor {
+        private static final CastleSdkRef INSTANCE = new CastleSdkRef("castle-java", loadSdkVersion(), getJavaPlatform(), getJavaVersion());
+    }
 }
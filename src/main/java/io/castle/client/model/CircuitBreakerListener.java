@@ -0,0 +1,18 @@
+package io.castle.client.model;
+
+/**
+ * Callback interface notified of the state transitions of the authenticate circuit breaker.
+ * <p>
+ * The listener is called on the thread completing the request that caused the transition, so implementations should
+ * return quickly.
+ */
+public interface CircuitBreakerListener {
+
+    /**
+     * Called after the circuit breaker moved from one state to another.
+     *
+     * @param from state before the transition
+     * @param to   state after the transition
+     */
+    void onStateChange(CircuitBreakerState from, CircuitBreakerState to);
+}
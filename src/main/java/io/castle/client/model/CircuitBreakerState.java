@@ -0,0 +1,19 @@
+package io.castle.client.model;
+
+/**
+ * State of the circuit breaker guarding the authenticate endpoint.
+ */
+public enum CircuitBreakerState {
+    /**
+     * Requests are sent and their outcome is recorded in the sliding window.
+     */
+    CLOSED,
+    /**
+     * Requests are not sent, authenticate calls get a failover verdict right away.
+     */
+    OPEN,
+    /**
+     * A limited number of probe requests is sent to find out if the Castle API has recovered.
+     */
+    HALF_OPEN
+}
@@ -0,0 +1,148 @@
+package io.castle.client.model;
+
+/**
+ * Point in time view of the measurements of the requests to one {@link CastleEndpoint}.
+ */
+public class EndpointMetricsSnapshot {
+
+    /**
+     * Number of responses by status class, 1xx at index 0 to 5xx at index 4.
+     */
+    private final long[] statusClasses;
+
+    /**
+     * Number of requests failed without a response.
+     */
+    private final long failures;
+
+    /**
+     * Number of calls not sent because of do not track.
+     */
+    private final long doNotTrack;
+
+    /**
+     * Number of requests sent again after a failure.
+     */
+    private final long retries;
+
+    /**
+     * Number of failed requests not retried any more.
+     */
+    private final long retryGiveUps;
+
+    /**
+     * Number of give ups caused by the exhausted retry budget.
+     */
+    private final long retryBudgetExhausted;
+
+    /**
+     * Latencies of the requests in microseconds, with or without a response.
+     */
+    private final HistogramSnapshot latency;
+
+    /**
+     * Sizes of the request bodies in bytes.
+     */
+    private final HistogramSnapshot payloadSize;
+
+    /**
+     * Sizes of the gzipped request bodies in percent of their uncompressed size.
+     */
+    private final HistogramSnapshot compressionRatio;
+
+    /**
+     * Times spent gzipping request bodies in microseconds.
+     */
+    private final HistogramSnapshot compressionTime;
+
+    EndpointMetricsSnapshot(long[] statusClasses, long failures, long doNotTrack, long retries, long retryGiveUps, long retryBudgetExhausted, HistogramSnapshot latency, HistogramSnapshot payloadSize, HistogramSnapshot compressionRatio, HistogramSnapshot compressionTime) {
+        this.statusClasses = statusClasses;
+        this.failures = failures;
+        this.doNotTrack = doNotTrack;
+        this.retries = retries;
+        this.retryGiveUps = retryGiveUps;
+        this.retryBudgetExhausted = retryBudgetExhausted;
+        this.latency = latency;
+        this.payloadSize = payloadSize;
+        this.compressionRatio = compressionRatio;
+        this.compressionTime = compressionTime;
+    }
+
+    /**
+     * Gets the number of requests sent, with or without a response.
+     *
+     * @return number of requests
+     */
+    public long getRequests() {
+        long requests = failures;
+        for (long count : statusClasses) {
+            requests += count;
+        }
+        return requests;
+    }
+
+    /**
+     * Gets the number of responses of a status class.
+     *
+     * @param statusClass first digit of the status codes, between 1 and 5
+     * @return number of responses
+     */
+    public long getStatusClassCount(int statusClass) {
+        if (statusClass < 1 || statusClass > statusClasses.length) {
+            return 0;
+        }
+        return statusClasses[statusClass - 1];
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    public long getDoNotTrack() {
+        return doNotTrack;
+    }
+
+    public long getRetries() {
+        return retries;
+    }
+
+    public long getRetryGiveUps() {
+        return retryGiveUps;
+    }
+
+    public long getRetryBudgetExhausted() {
+        return retryBudgetExhausted;
+    }
+
+    public HistogramSnapshot getLatency() {
+        return latency;
+    }
+
+    public HistogramSnapshot getPayloadSize() {
+        return payloadSize;
+    }
+
+    public HistogramSnapshot getCompressionRatio() {
+        return compressionRatio;
+    }
+
+    public HistogramSnapshot getCompressionTime() {
+        return compressionTime;
+    }
+
+    @Override
+    public String toString() {
+        return "EndpointMetricsSnapshot{" +
+                "requests=" + getRequests() +
+                ", failures=" + failures +
+                ", doNotTrack=" + doNotTrack +
+                ", retries=" + retries +
+                ", retryGiveUps=" + retryGiveUps +
+                ", retryBudgetExhausted=" + retryBudgetExhausted +
+                ", latency=" + latency +
+                ", payloadSize=" + payloadSize +
+                ", compressionRatio=" + compressionRatio +
+                ", compressionTime=" + compressionTime +
+                '}';
+    }
+}
@@ -0,0 +1,23 @@
+package io.castle.client.model;
+
+/**
+ * Reason why an authenticate call used the {@link AuthenticateFailoverStrategy}.
+ */
+public enum FailoverReason {
+    /**
+     * The request timed out.
+     */
+    TIMEOUT,
+    /**
+     * The request failed with an I/O error other than a timeout.
+     */
+    IO_ERROR,
+    /**
+     * The Castle API answered with a server error.
+     */
+    SERVER_ERROR,
+    /**
+     * The request was not sent because the circuit breaker is open.
+     */
+    CIRCUIT_OPEN
+}
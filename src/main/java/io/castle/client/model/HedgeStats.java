@@ -0,0 +1,80 @@
+package io.castle.client.model;
+
+/**
+ * Point in time view of the counters of the hedged authenticate requests.
+ */
+public class HedgeStats {
+
+    /**
+     * Number of authenticate calls going through the hedging.
+     */
+    private final long calls;
+
+    /**
+     * Number of hedged requests sent.
+     */
+    private final long hedges;
+
+    /**
+     * Number of calls answered by the hedged request rather than the first one.
+     */
+    private final long hedgeWins;
+
+    /**
+     * Number of hedged requests not sent because the hedge budget was exhausted.
+     */
+    private final long budgetExhausted;
+
+    /**
+     * Current delay in milliseconds before a request is hedged, or -1 until enough latencies are known.
+     */
+    private final long delay;
+
+    public HedgeStats(long calls, long hedges, long hedgeWins, long budgetExhausted, long delay) {
+        this.calls = calls;
+        this.hedges = hedges;
+        this.hedgeWins = hedgeWins;
+        this.budgetExhausted = budgetExhausted;
+        this.delay = delay;
+    }
+
+    public long getCalls() {
+        return calls;
+    }
+
+    public long getHedges() {
+        return hedges;
+    }
+
+    public long getHedgeWins() {
+        return hedgeWins;
+    }
+
+    public long getBudgetExhausted() {
+        return budgetExhausted;
+    }
+
+    public long getDelay() {
+        return delay;
+    }
+
+    /**
+     * Gets the share of the calls that were hedged.
+     *
+     * @return hedged requests per call, between 0 and 1
+     */
+    public double getHedgeRate() {
+        return calls == 0 ? 0 : (double) hedges / calls;
+    }
+
+    @Override
+    public String toString() {
+        return "HedgeStats{" +
+                "calls=" + calls +
+                ", hedges=" + hedges +
+                ", hedgeWins=" + hedgeWins +
+                ", budgetExhausted=" + budgetExhausted +
+                ", delay=" + delay +
+                '}';
+    }
+}
@@ -0,0 +1,95 @@
+package io.castle.client.model;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread safe histogram of non negative values with fixed log-linear buckets.
+ * <p>
+ * Values below {@link #SUB_BUCKETS} have their own bucket. Above, each power of two is split into
+ * {@link #SUB_BUCKETS} buckets of equal width, so that recorded values are known within 12.5%. Values are capped at
+ * {@link #MAX_VALUE}. Recording is a few atomic increments, without allocation or locking.
+ */
+public class Histogram {
+
+    /**
+     * Number of buckets each power of two is split into.
+     */
+    static final int SUB_BUCKETS = 8;
+
+    private static final int SUB_BUCKET_BITS = 3;
+
+    /**
+     * Largest recorded value, greater values are recorded as this one.
+     */
+    public static final long MAX_VALUE = (1L << 40) - 1;
+
+    private static final int BUCKETS = bucketIndex(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a value.
+     *
+     * @param value the value, negative values are recorded as 0
+     */
+    public void record(long value) {
+        long capped = Math.min(Math.max(value, 0), MAX_VALUE);
+        counts.incrementAndGet(bucketIndex(capped));
+        sum.addAndGet(capped);
+        long current;
+        do {
+            current = max.get();
+            if (capped <= current) {
+                return;
+            }
+        } while (!max.compareAndSet(current, capped));
+    }
+
+    /**
+     * Takes a snapshot of the recorded values. Values recorded while the snapshot is taken may be partly included.
+     *
+     * @return the snapshot
+     */
+    public HistogramSnapshot snapshot() {
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+        }
+        return new HistogramSnapshot(snapshot, sum.get(), max.get());
+    }
+
+    /**
+     * Forgets the recorded values.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        sum.set(0);
+        max.set(0);
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Gets the greatest value recorded in a bucket.
+     */
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+        return lower + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
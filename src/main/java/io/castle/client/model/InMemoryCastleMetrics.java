@@ -0,0 +1,147 @@
+package io.castle.client.model;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@link CastleMetrics} keeping counters and histograms in memory, read with {@link #snapshot()}.
+ * <p>
+ * Latencies and compression times are recorded in microseconds, payload sizes in bytes and compression ratios in
+ * percent of the uncompressed size, in {@link Histogram}s. Recording does not allocate or lock.
+ */
+public class InMemoryCastleMetrics implements CastleMetrics {
+
+    private final Map<CastleEndpoint, EndpointRecorder> endpoints = new EnumMap<>(CastleEndpoint.class);
+    private final AtomicLongArray failovers = new AtomicLongArray(FailoverReason.values().length);
+
+    public InMemoryCastleMetrics() {
+        for (CastleEndpoint endpoint : CastleEndpoint.values()) {
+            endpoints.put(endpoint, new EndpointRecorder());
+        }
+    }
+
+    @Override
+    public void recordRequest(CastleEndpoint endpoint, int statusCode, long latencyNanos) {
+        EndpointRecorder recorder = endpoints.get(endpoint);
+        int statusClass = statusCode / 100;
+        if (statusClass >= 1 && statusClass <= 5) {
+            recorder.statusClasses.incrementAndGet(statusClass - 1);
+        }
+        recorder.latency.record(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+    }
+
+    @Override
+    public void recordRequestFailure(CastleEndpoint endpoint, long latencyNanos) {
+        EndpointRecorder recorder = endpoints.get(endpoint);
+        recorder.failures.incrementAndGet();
+        recorder.latency.record(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+    }
+
+    @Override
+    public void recordPayloadSize(CastleEndpoint endpoint, long bytes) {
+        endpoints.get(endpoint).payloadSize.record(bytes);
+    }
+
+    @Override
+    public void recordCompression(CastleEndpoint endpoint, long uncompressedBytes, long compressedBytes, long nanos) {
+        EndpointRecorder recorder = endpoints.get(endpoint);
+        if (uncompressedBytes > 0) {
+            recorder.compressionRatio.record(compressedBytes * 100 / uncompressedBytes);
+        }
+        recorder.compressionTime.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    @Override
+    public void recordRetry(CastleEndpoint endpoint) {
+        endpoints.get(endpoint).retries.incrementAndGet();
+    }
+
+    @Override
+    public void recordRetryGiveUp(CastleEndpoint endpoint, boolean budgetExhausted) {
+        EndpointRecorder recorder = endpoints.get(endpoint);
+        recorder.retryGiveUps.incrementAndGet();
+        if (budgetExhausted) {
+            recorder.retryBudgetExhausted.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void recordFailover(FailoverReason reason) {
+        failovers.incrementAndGet(reason.ordinal());
+    }
+
+    @Override
+    public void recordDoNotTrack(CastleEndpoint endpoint) {
+        endpoints.get(endpoint).doNotTrack.incrementAndGet();
+    }
+
+    /**
+     * Takes a snapshot of the measurements. Measurements recorded while the snapshot is taken may be partly included.
+     *
+     * @return the snapshot
+     */
+    public CastleMetricsSnapshot snapshot() {
+        Map<CastleEndpoint, EndpointMetricsSnapshot> endpointSnapshots = new EnumMap<>(CastleEndpoint.class);
+        for (Map.Entry<CastleEndpoint, EndpointRecorder> entry : endpoints.entrySet()) {
+            endpointSnapshots.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        Map<FailoverReason, Long> failoverCounts = new EnumMap<>(FailoverReason.class);
+        for (FailoverReason reason : FailoverReason.values()) {
+            failoverCounts.put(reason, failovers.get(reason.ordinal()));
+        }
+        return new CastleMetricsSnapshot(endpointSnapshots, failoverCounts);
+    }
+
+    /**
+     * Forgets all measurements, for instance after publishing a snapshot.
+     */
+    public void reset() {
+        for (EndpointRecorder recorder : endpoints.values()) {
+            recorder.reset();
+        }
+        for (int i = 0; i < failovers.length(); i++) {
+            failovers.set(i, 0);
+        }
+    }
+
+    private static class EndpointRecorder {
+        private final AtomicLongArray statusClasses = new AtomicLongArray(5);
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong doNotTrack = new AtomicLong();
+        private final AtomicLong retries = new AtomicLong();
+        private final AtomicLong retryGiveUps = new AtomicLong();
+        private final AtomicLong retryBudgetExhausted = new AtomicLong();
+        private final Histogram latency = new Histogram();
+        private final Histogram payloadSize = new Histogram();
+        private final Histogram compressionRatio = new Histogram();
+        private final Histogram compressionTime = new Histogram();
+
+        private EndpointMetricsSnapshot snapshot() {
+            long[] statusClassCounts = new long[statusClasses.length()];
+            for (int i = 0; i < statusClassCounts.length; i++) {
+                statusClassCounts[i] = statusClasses.get(i);
+            }
+            return new EndpointMetricsSnapshot(statusClassCounts, failures.get(), doNotTrack.get(),
+                    retries.get(), retryGiveUps.get(), retryBudgetExhausted.get(),
+                    latency.snapshot(), payloadSize.snapshot(), compressionRatio.snapshot(), compressionTime.snapshot());
+        }
+
+        private void reset() {
+            for (int i = 0; i < statusClasses.length(); i++) {
+                statusClasses.set(i, 0);
+            }
+            failures.set(0);
+            doNotTrack.set(0);
+            retries.set(0);
+            retryGiveUps.set(0);
+            retryBudgetExhausted.set(0);
+            latency.reset();
+            payloadSize.reset();
+            compressionRatio.reset();
+            compressionTime.reset();
+        }
+    }
+}
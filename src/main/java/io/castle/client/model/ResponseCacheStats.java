@@ -0,0 +1,81 @@
+package io.castle.client.model;
+
+/**
+ * Point in time view of the counters of the cache of device, user devices and review lookups.
+ */
+public class ResponseCacheStats {
+
+    /**
+     * Number of lookups answered from the cache.
+     */
+    private final long hits;
+
+    /**
+     * Number of lookups sent to the Castle API.
+     */
+    private final long misses;
+
+    /**
+     * Number of responses removed because they expired or the cache was full.
+     */
+    private final long evictions;
+
+    /**
+     * Number of responses removed because a device was approved or reported, or the devices of a user were archived.
+     */
+    private final long invalidations;
+
+    /**
+     * Number of responses in the cache.
+     */
+    private final long size;
+
+    public ResponseCacheStats(long hits, long misses, long evictions, long invalidations, long size) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.invalidations = invalidations;
+        this.size = size;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the share of the lookups answered from the cache.
+     *
+     * @return hits per lookup, between 0 and 1
+     */
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return "ResponseCacheStats{" +
+                "hits=" + hits +
+                ", misses=" + misses +
+                ", evictions=" + evictions +
+                ", invalidations=" + invalidations +
+                ", size=" + size +
+                '}';
+    }
+}
@@ -0,0 +1,49 @@
+package io.castle.client.model;
+
+/**
+ * Point in time view of the counters of the request retries.
+ */
+public class RetryStats {
+
+    /**
+     * Number of retried requests sent.
+     */
+    private final long retries;
+
+    /**
+     * Number of requests that failed after giving up retrying, for any reason.
+     */
+    private final long giveUps;
+
+    /**
+     * Number of give ups caused by an exhausted retry budget.
+     */
+    private final long budgetExhausted;
+
+    public RetryStats(long retries, long giveUps, long budgetExhausted) {
+        this.retries = retries;
+        this.giveUps = giveUps;
+        this.budgetExhausted = budgetExhausted;
+    }
+
+    public long getRetries() {
+        return retries;
+    }
+
+    public long getGiveUps() {
+        return giveUps;
+    }
+
+    public long getBudgetExhausted() {
+        return budgetExhausted;
+    }
+
+    @Override
+    public String toString() {
+        return "RetryStats{" +
+                "retries=" + retries +
+                ", giveUps=" + giveUps +
+                ", budgetExhausted=" + budgetExhausted +
+                '}';
+    }
+}
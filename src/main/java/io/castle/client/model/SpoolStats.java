@@ -0,0 +1,60 @@
+package io.castle.client.model;
+
+/**
+ * Point in time view of the counters of the on-disk spool of failed requests.
+ */
+public class SpoolStats {
+
+    /**
+     * Number of requests in the spool waiting to be replayed.
+     */
+    private final long pending;
+
+    /**
+     * Number of requests written to the spool since it was opened.
+     */
+    private final long spooled;
+
+    /**
+     * Number of requests replayed since the spool was opened.
+     */
+    private final long replayed;
+
+    /**
+     * Number of requests discarded because the spool was full, they expired or they were corrupted.
+     */
+    private final long discarded;
+
+    public SpoolStats(long pending, long spooled, long replayed, long discarded) {
+        this.pending = pending;
+        this.spooled = spooled;
+        this.replayed = replayed;
+        this.discarded = discarded;
+    }
+
+    public long getPending() {
+        return pending;
+    }
+
+    public long getSpooled() {
+        return spooled;
+    }
+
+    public long getReplayed() {
+        return replayed;
+    }
+
+    public long getDiscarded() {
+        return discarded;
+    }
+
+    @Override
+    public String toString() {
+        return "SpoolStats{" +
+                "pending=" + pending +
+                ", spooled=" + spooled +
+                ", replayed=" + replayed +
+                ", discarded=" + discarded +
+                '}';
+    }
+}
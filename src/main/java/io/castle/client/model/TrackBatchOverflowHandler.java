@@ -0,0 +1,19 @@
+package io.castle.client.model;
+
+import com.google.gson.JsonElement;
+
+/**
+ * Callback interface used when the track batch queue is full and the overflow policy is
+ * {@link TrackBatchOverflowPolicy#CALLBACK}.
+ * <p>
+ * The handler is called on the thread that submitted the track event, so implementations should return quickly.
+ */
+public interface TrackBatchOverflowHandler {
+
+    /**
+     * Called with a track payload that could not be queued.
+     *
+     * @param payload the complete track request, including context and {@code sent_at}
+     */
+    void onOverflow(JsonElement payload);
+}
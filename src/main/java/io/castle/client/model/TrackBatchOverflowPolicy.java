@@ -0,0 +1,42 @@
+package io.castle.client.model;
+
+/**
+ * Behaviour of the track batch queue when it is full and a new track event is submitted.
+ * <p>
+ * Only used when track batching is enabled through
+ * {@link io.castle.client.internal.config.CastleConfigurationBuilder#withTrackBatching(boolean)}.
+ */
+public enum TrackBatchOverflowPolicy {
+    /**
+     * The calling thread waits until there is room in the queue.
+     */
+    BLOCK,
+    /**
+     * The oldest queued event is discarded to make room for the new one.
+     */
+    DROP_OLDEST,
+    /**
+     * The new event is not queued and is handed to the configured {@link TrackBatchOverflowHandler}.
+     */
+    CALLBACK,
+    /**
+     * The new event is not queued and is written to the on-disk spool, to be replayed later. Requires spooling to be
+     * enabled through {@link io.castle.client.internal.config.CastleConfigurationBuilder#withSpool(boolean)}.
+     */
+    SPOOL;
+
+    /**
+     * Returns a TrackBatchOverflowPolicy from a string representing its name.
+     *
+     * @param policy string representing the name of the policy, case-insensitive
+     * @return the enum value matching the name, or null if it does not match any enum
+     */
+    public static TrackBatchOverflowPolicy fromPolicy(String policy) {
+        for (TrackBatchOverflowPolicy kind : TrackBatchOverflowPolicy.class.getEnumConstants()) {
+            if (kind.name().equalsIgnoreCase(policy)) {
+                return kind;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,123 @@
+package io.castle.client.model;
+
+/**
+ * Point in time view of the counters of the track batch pipeline.
+ */
+public class TrackBatchStats {
+
+    /**
+     * Number of events waiting in the queue.
+     */
+    private final int queueDepth;
+
+    /**
+     * Number of events accepted into the queue.
+     */
+    private final long enqueued;
+
+    /**
+     * Number of events discarded because the queue was full.
+     */
+    private final long dropped;
+
+    /**
+     * Number of batch requests completed, successfully or not.
+     */
+    private final long batchesSent;
+
+    /**
+     * Number of events delivered in successful batch requests.
+     */
+    private final long eventsSent;
+
+    /**
+     * Number of events contained in failed batch requests.
+     */
+    private final long eventsFailed;
+
+    /**
+     * Duration of the last completed batch request, in milliseconds.
+     */
+    private final long lastFlushLatencyMillis;
+
+    /**
+     * Longest batch request observed, in milliseconds.
+     */
+    private final long maxFlushLatencyMillis;
+
+    /**
+     * Sum of the duration of all completed batch requests, in milliseconds.
+     */
+    private final long totalFlushLatencyMillis;
+
+    public TrackBatchStats(int queueDepth, long enqueued, long dropped, long batchesSent, long eventsSent, long eventsFailed, long lastFlushLatencyMillis, long maxFlushLatencyMillis, long totalFlushLatencyMillis) {
+        this.queueDepth = queueDepth;
+        this.enqueued = enqueued;
+        this.dropped = dropped;
+        this.batchesSent = batchesSent;
+        this.eventsSent = eventsSent;
+        this.eventsFailed = eventsFailed;
+        this.lastFlushLatencyMillis = lastFlushLatencyMillis;
+        this.maxFlushLatencyMillis = maxFlushLatencyMillis;
+        this.totalFlushLatencyMillis = totalFlushLatencyMillis;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public long getEnqueued() {
+        return enqueued;
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+
+    public long getBatchesSent() {
+        return batchesSent;
+    }
+
+    public long getEventsSent() {
+        return eventsSent;
+    }
+
+    public long getEventsFailed() {
+        return eventsFailed;
+    }
+
+    public long getLastFlushLatencyMillis() {
+        return lastFlushLatencyMillis;
+    }
+
+    public long getMaxFlushLatencyMillis() {
+        return maxFlushLatencyMillis;
+    }
+
+    /**
+     * Average duration of the completed batch requests.
+     *
+     * @return the mean flush latency in milliseconds, 0 if no batch has been sent yet
+     */
+    public long getAverageFlushLatencyMillis() {
+        if (batchesSent == 0) {
+            return 0;
+        }
+        return totalFlushLatencyMillis / batchesSent;
+    }
+
+    @Override
+    public String toString() {
+        return "TrackBatchStats{" +
+                "queueDepth=" + queueDepth +
+                ", enqueued=" + enqueued +
+                ", dropped=" + dropped +
+                ", batchesSent=" + batchesSent +
+                ", eventsSent=" + eventsSent +
+                ", eventsFailed=" + eventsFailed +
+                ", lastFlushLatencyMillis=" + lastFlushLatencyMillis +
+                ", maxFlushLatencyMillis=" + maxFlushLatencyMillis +
+                ", averageFlushLatencyMillis=" + getAverageFlushLatencyMillis() +
+                '}';
+    }
+}
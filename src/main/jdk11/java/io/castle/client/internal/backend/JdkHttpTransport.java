@@ -0,0 +1,877 @@
+package io.castle.client.internal.backend;
+
+import io.castle.client.Castle;
+import io.castle.client.internal.config.CastleConfiguration;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Connection;
+import okhttp3.Headers;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.Okio;
+import okio.Pipe;
+import okio.Sink;
+import okio.Timeout;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * {@link HttpTransport} sending the requests with the {@code java.net.http.HttpClient} of Java 11 and later.
+ * <p>
+ * With HTTP/2 enabled, concurrent requests to the Castle API are multiplexed over one connection, otherwise the client
+ * keeps a pool of HTTP/1.1 connections. The client only has a connect timeout of its own, so the transport keeps one
+ * client for each connect timeout of the endpoints, each with its own connections. Request bodies of unknown length,
+ * like the streamed payloads of the SDK, are written into a pipe while the client sends them, other bodies and the
+ * response bodies are held in memory. The exchanges and the callbacks of asynchronous calls run on a cached pool of
+ * daemon threads owned by the transport and shut down by {@link #close()}.
+ * <p>
+ * Like the OkHttp dispatcher, the transport starts asynchronous calls while fewer than {@code max_requests} of them
+ * run, and fewer than {@code max_requests_per_host} to their host, and queues the others. Synchronous calls are not
+ * limited.
+ * <p>
+ * Each call completes from the future of its exchange: synchronous calls wait for it on the calling thread,
+ * asynchronous calls are completed by it. Cancelling a call cancels the future, which aborts the exchange on Java 16
+ * and later, and leaves it to finish unread before.
+ */
+public class JdkHttpTransport implements HttpTransport {
+
+    /**
+     * Headers set by the client itself, which it refuses to take from the request.
+     */
+    private static final Set<String> RESTRICTED_HEADERS = new HashSet<>(Arrays.asList(
+            "connection", "content-length", "expect", "host", "upgrade"));
+
+    /**
+     * Bytes of a streamed body buffered between the SDK writing it and the client sending it.
+     */
+    private static final long PIPE_SIZE = 8192;
+
+    private final ExecutorService executor;
+    private final HttpClient.Version version;
+    private final ConcurrentMap<Integer, HttpClient> clients = new ConcurrentHashMap<>();
+    private final int maxRequests;
+    private final int maxRequestsPerHost;
+    /**
+     * Asynchronous calls waiting for the limits, guarding the counts of the running ones.
+     */
+    private final Deque<JdkHttpCall> readyAsyncCalls = new ArrayDeque<>();
+    private final Map<String, Integer> runningAsyncCallsPerHost = new HashMap<>();
+    private int runningAsyncCalls;
+
+    public JdkHttpTransport(CastleConfiguration configuration) {
+        this.executor = Executors.newCachedThreadPool(new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new TransportThread(runnable, "castle-jdk-http-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.version = configuration.getHttpClientConfiguration().isHttp2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1;
+        this.maxRequests = configuration.getHttpClientConfiguration().getMaxRequests();
+        this.maxRequestsPerHost = configuration.getHttpClientConfiguration().getMaxRequestsPerHost();
+    }
+
+    @Override
+    public Call.Factory newCallFactory(final OkHttpClient endpointClient) {
+        return new Call.Factory() {
+            @Override
+            public Call newCall(Request request) {
+                return new JdkHttpCall(endpointClient, request);
+            }
+        };
+    }
+
+    /**
+     * Gets the client connecting with a timeout, created on first use.
+     *
+     * @param connectTimeout connect timeout in milliseconds, 0 for none
+     */
+    private HttpClient client(int connectTimeout) {
+        HttpClient client = clients.get(connectTimeout);
+        if (client == null) {
+            HttpClient.Builder builder = HttpClient.newBuilder()
+                    .version(version)
+                    .executor(executor);
+            if (connectTimeout > 0) {
+                builder.connectTimeout(Duration.ofMillis(connectTimeout));
+            }
+            HttpClient created = builder.build();
+            client = clients.putIfAbsent(connectTimeout, created);
+            if (client == null) {
+                client = created;
+            }
+        }
+        return client;
+    }
+
+    /**
+     * Queues an asynchronous call, starting it when the limits allow.
+     */
+    private void enqueue(JdkHttpCall call) {
+        synchronized (readyAsyncCalls) {
+            readyAsyncCalls.add(call);
+        }
+        promoteAndStart();
+    }
+
+    /**
+     * Counts an asynchronous call as finished, starting the calls it was holding back.
+     */
+    private void finished(JdkHttpCall call) {
+        synchronized (readyAsyncCalls) {
+            runningAsyncCalls--;
+            String host = call.host();
+            int running = runningAsyncCallsPerHost.get(host) - 1;
+            if (running == 0) {
+                runningAsyncCallsPerHost.remove(host);
+            } else {
+                runningAsyncCallsPerHost.put(host, running);
+            }
+        }
+        promoteAndStart();
+    }
+
+    private void promoteAndStart() {
+        List<JdkHttpCall> started = new ArrayList<>();
+        synchronized (readyAsyncCalls) {
+            for (Iterator<JdkHttpCall> calls = readyAsyncCalls.iterator(); calls.hasNext(); ) {
+                if (runningAsyncCalls >= maxRequests) {
+                    break;
+                }
+                JdkHttpCall call = calls.next();
+                Integer running = runningAsyncCallsPerHost.get(call.host());
+                if (running != null && running >= maxRequestsPerHost) {
+                    continue;
+                }
+                calls.remove();
+                runningAsyncCalls++;
+                runningAsyncCallsPerHost.put(call.host(), running == null ? 1 : running + 1);
+                started.add(call);
+            }
+        }
+        for (JdkHttpCall call : started) {
+            call.start();
+        }
+    }
+
+    /**
+     * Turns a failed exchange into the exception OkHttp would have thrown, timeouts being
+     * {@link SocketTimeoutException}s.
+     */
+    private static IOException asIOException(Throwable cause) {
+        if (cause instanceof HttpTimeoutException) {
+            SocketTimeoutException timeout = new SocketTimeoutException(cause.getMessage());
+            timeout.initCause(cause);
+            return timeout;
+        }
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        return new IOException(cause);
+    }
+
+    private static HttpRequest toHttpRequest(Request request, StreamedBody streamedBody, int readTimeout) throws IOException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(request.url().uri());
+        Headers headers = request.headers();
+        for (int i = 0; i < headers.size(); i++) {
+            if (!RESTRICTED_HEADERS.contains(headers.name(i).toLowerCase(Locale.US))) {
+                builder.header(headers.name(i), headers.value(i));
+            }
+        }
+        RequestBody body = request.body();
+        if (body != null) {
+            MediaType contentType = body.contentType();
+            if (contentType != null && request.header("Content-Type") == null) {
+                builder.header("Content-Type", contentType.toString());
+            }
+            if (streamedBody != null) {
+                builder.method(request.method(), streamedBody.publisher());
+            } else {
+                Buffer buffer = new Buffer();
+                body.writeTo(buffer);
+                builder.method(request.method(), HttpRequest.BodyPublishers.ofByteArray(buffer.readByteArray()));
+            }
+        } else {
+            builder.method(request.method(), HttpRequest.BodyPublishers.noBody());
+        }
+        if (readTimeout > 0) {
+            builder.timeout(Duration.ofMillis(readTimeout));
+        }
+        return builder.build();
+    }
+
+    private static Response toResponse(Request request, HttpResponse<byte[]> response, long sentAt) {
+        Headers.Builder headers = new Headers.Builder();
+        for (Map.Entry<String, List<String>> header : response.headers().map().entrySet()) {
+            // HTTP/2 pseudo headers, like :status
+            if (header.getKey().startsWith(":")) {
+                continue;
+            }
+            for (String value : header.getValue()) {
+                headers.add(header.getKey(), value);
+            }
+        }
+        String contentType = response.headers().firstValue("Content-Type").orElse(null);
+        return new Response.Builder()
+                .request(request)
+                .protocol(response.version() == HttpClient.Version.HTTP_2 ? Protocol.HTTP_2 : Protocol.HTTP_1_1)
+                .code(response.statusCode())
+                .message(reasonPhrase(response.statusCode()))
+                .headers(headers.build())
+                .body(ResponseBody.create(contentType != null ? MediaType.parse(contentType) : null, response.body()))
+                .sentRequestAtMillis(sentAt)
+                .receivedResponseAtMillis(System.currentTimeMillis())
+                .build();
+    }
+
+    /**
+     * Gets the reason phrase of a status code, which the client does not expose and HTTP/2 responses do not carry.
+     */
+    static String reasonPhrase(int code) {
+        switch (code) {
+            case 200:
+                return "OK";
+            case 201:
+                return "Created";
+            case 202:
+                return "Accepted";
+            case 204:
+                return "No Content";
+            case 400:
+                return "Bad Request";
+            case 401:
+                return "Unauthorized";
+            case 403:
+                return "Forbidden";
+            case 404:
+                return "Not Found";
+            case 408:
+                return "Request Timeout";
+            case 409:
+                return "Conflict";
+            case 413:
+                return "Payload Too Large";
+            case 422:
+                return "Unprocessable Entity";
+            case 429:
+                return "Too Many Requests";
+            case 500:
+                return "Internal Server Error";
+            case 502:
+                return "Bad Gateway";
+            case 503:
+                return "Service Unavailable";
+            case 504:
+                return "Gateway Timeout";
+            default:
+                switch (code / 100) {
+                    case 1:
+                        return "Informational";
+                    case 2:
+                        return "Success";
+                    case 3:
+                        return "Redirection";
+                    case 4:
+                        return "Client Error";
+                    default:
+                        return "Server Error";
+                }
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * Thread of the transport, on which the callbacks of asynchronous calls run.
+     */
+    private static class TransportThread extends Thread {
+        private TransportThread(Runnable runnable, String name) {
+            super(runnable, name);
+        }
+    }
+
+    /**
+     * Body of unknown length, written by the SDK into a pipe read by the client as it sends the request. The writer
+     * waits for the client when the pipe is full, up to the write timeout.
+     */
+    private static class StreamedBody extends InputStream {
+        private final Pipe pipe = new Pipe(PIPE_SIZE);
+        private final BufferedSource source = Okio.buffer(pipe.source());
+        private final AtomicBoolean opened = new AtomicBoolean();
+        private volatile IOException failure;
+
+        private static boolean isStreamed(Request request) throws IOException {
+            return request.body() != null && request.body().contentLength() == -1;
+        }
+
+        private HttpRequest.BodyPublisher publisher() {
+            return HttpRequest.BodyPublishers.ofInputStream(new Supplier<InputStream>() {
+                @Override
+                public InputStream get() {
+                    if (opened.compareAndSet(false, true)) {
+                        return StreamedBody.this;
+                    }
+                    // The pipe is read once, so a body sent again would be truncated
+                    return new InputStream() {
+                        @Override
+                        public int read() throws IOException {
+                            throw new IOException("The streamed body can not be sent again");
+                        }
+                    };
+                }
+            });
+        }
+
+        /**
+         * Writes the body into the pipe, making the client fail the exchange when the body can not be written.
+         *
+         * @param deadline {@link System#nanoTime()} of the end of the call timeout, 0 for none
+         */
+        private void write(RequestBody body, int writeTimeout, long deadline) throws IOException {
+            Sink sink = pipe.sink();
+            sink.timeout().timeout(writeTimeout, TimeUnit.MILLISECONDS);
+            if (deadline != 0) {
+                sink.timeout().deadlineNanoTime(deadline);
+            }
+            BufferedSink bufferedSink = Okio.buffer(sink);
+            try {
+                body.writeTo(bufferedSink);
+                bufferedSink.close();
+            } catch (IOException e) {
+                abort(e);
+                throw e;
+            } catch (RuntimeException e) {
+                abort(new IOException(e));
+                throw e;
+            }
+        }
+
+        private void abort(IOException cause) {
+            failure = cause;
+            try {
+                // The client reads the end of the body, then fails with the cause
+                pipe.sink().close();
+            } catch (IOException e) {
+                // The client stopped reading
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = source.read(b, off, len);
+            IOException cause = failure;
+            if (read == -1 && cause != null) {
+                throw new IOException("Could not write the request body", cause);
+            }
+            return read;
+        }
+
+        /**
+         * Stops reading the pipe, which fails the writer waiting for the client.
+         */
+        @Override
+        public void close() {
+            try {
+                source.close();
+            } catch (IOException e) {
+                // Closing a pipe source does not fail
+            }
+        }
+    }
+
+    /**
+     * Call sending its request with the client of the transport, after running the interceptors of its endpoint.
+     */
+    private class JdkHttpCall implements Call {
+        private final OkHttpClient endpointClient;
+        private final Request request;
+        private final Timeout timeout = new Timeout();
+        private final AtomicBoolean executed = new AtomicBoolean();
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private volatile Callback callback;
+        private volatile boolean canceled;
+        private volatile boolean timedOut;
+        private volatile CompletableFuture<HttpResponse<byte[]>> exchange;
+
+        private JdkHttpCall(OkHttpClient endpointClient, Request request) {
+            this.endpointClient = endpointClient;
+            this.request = request;
+            timeout.timeout(endpointClient.callTimeoutMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        private String host() {
+            return request.url().host();
+        }
+
+        @Override
+        public Request request() {
+            return request;
+        }
+
+        @Override
+        public Response execute() throws IOException {
+            if (!executed.compareAndSet(false, true)) {
+                throw new IllegalStateException("Already Executed");
+            }
+            return responseWithInterceptorChain();
+        }
+
+        private Response responseWithInterceptorChain() throws IOException {
+            long timeoutNanos = timeout.timeoutNanos();
+            long deadline = timeoutNanos > 0 ? System.nanoTime() + timeoutNanos : 0;
+            return new TransportChain(0, request, deadline, endpointClient.connectTimeoutMillis(),
+                    endpointClient.readTimeoutMillis(), endpointClient.writeTimeoutMillis()).proceed(request);
+        }
+
+        /**
+         * Sends a request and waits for its response on the calling thread, writing a streamed body meanwhile.
+         *
+         * @param deadline {@link System#nanoTime()} of the end of the call timeout, 0 for none
+         */
+        private Response send(Request request, long deadline, int connectTimeout, int readTimeout, int writeTimeout) throws IOException {
+            long sentAt = System.currentTimeMillis();
+            StreamedBody streamedBody = StreamedBody.isStreamed(request) ? new StreamedBody() : null;
+            CompletableFuture<HttpResponse<byte[]>> future = sendAsync(request, streamedBody, connectTimeout, readTimeout);
+            try {
+                if (streamedBody != null) {
+                    try {
+                        streamedBody.write(request.body(), writeTimeout, deadline);
+                    } catch (InterruptedIOException e) {
+                        // The client did not read the body in time
+                        future.cancel(true);
+                        throw e;
+                    } catch (IOException e) {
+                        // The exchange ended before reading the whole body, or fails with the error of the body
+                    }
+                }
+                HttpResponse<byte[]> response = deadline == 0
+                        ? future.get()
+                        : future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                return toResponse(request, response, sentAt);
+            } catch (TimeoutException e) {
+                timedOut = true;
+                future.cancel(true);
+                throw new InterruptedIOException("timeout");
+            } catch (InterruptedException e) {
+                future.cancel(true);
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the response");
+            } catch (CancellationException e) {
+                throw failure(e);
+            } catch (ExecutionException e) {
+                throw failure(e.getCause());
+            }
+        }
+
+        private CompletableFuture<HttpResponse<byte[]>> sendAsync(Request request, final StreamedBody streamedBody, int connectTimeout, int readTimeout) throws IOException {
+            if (canceled) {
+                throw new IOException("Canceled");
+            }
+            HttpRequest httpRequest = toHttpRequest(request, streamedBody, readTimeout);
+            CompletableFuture<HttpResponse<byte[]>> sent;
+            try {
+                sent = client(connectTimeout).sendAsync(httpRequest, HttpResponse.BodyHandlers.ofByteArray());
+            } catch (RejectedExecutionException e) {
+                throw new IOException("Transport closed", e);
+            }
+            exchange = sent;
+            if (streamedBody != null) {
+                // Releases the writer when the exchange ends without reading the whole body
+                sent.whenComplete(new BiConsumer<HttpResponse<byte[]>, Throwable>() {
+                    @Override
+                    public void accept(HttpResponse<byte[]> response, Throwable cause) {
+                        streamedBody.close();
+                    }
+                });
+            }
+            // Cancelled while sending
+            if (canceled) {
+                sent.cancel(true);
+            }
+            return sent;
+        }
+
+        /**
+         * Turns the failure of an exchange into the exception OkHttp would have thrown for the call.
+         */
+        private IOException failure(Throwable cause) {
+            if (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof CancellationException) {
+                return timedOut ? new InterruptedIOException("timeout") : new IOException("Canceled");
+            }
+            return asIOException(cause);
+        }
+
+        @Override
+        public void enqueue(Callback callback) {
+            if (!executed.compareAndSet(false, true)) {
+                throw new IllegalStateException("Already Executed");
+            }
+            this.callback = callback;
+            JdkHttpTransport.this.enqueue(this);
+        }
+
+        /**
+         * Starts the call once the limits of the transport allow it.
+         */
+        private void start() {
+            List<AsyncInterceptor> interceptors = asyncInterceptors();
+            if (interceptors == null) {
+                // Interceptors needing a thread around the exchange, like the logging one
+                executeOnTransportThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            Response response;
+                            try {
+                                response = responseWithInterceptorChain();
+                            } catch (IOException e) {
+                                callback.onFailure(JdkHttpCall.this, e);
+                                return;
+                            }
+                            respond(response);
+                        } finally {
+                            finish();
+                        }
+                    }
+                });
+                return;
+            }
+            final Deque<AsyncInterceptor.Exchange> exchanges = new ArrayDeque<>();
+            Request sent = request;
+            final long sentAt;
+            final CompletableFuture<HttpResponse<byte[]>> future;
+            final StreamedBody streamedBody;
+            try {
+                for (AsyncInterceptor interceptor : interceptors) {
+                    AsyncInterceptor.Exchange started = interceptor.start(sent);
+                    exchanges.push(started);
+                    sent = started.request();
+                }
+                sentAt = System.currentTimeMillis();
+                streamedBody = StreamedBody.isStreamed(sent) ? new StreamedBody() : null;
+                future = sendAsync(sent, streamedBody, endpointClient.connectTimeoutMillis(), endpointClient.readTimeoutMillis());
+            } catch (IOException e) {
+                failLater(exchanges, e);
+                return;
+            } catch (RuntimeException e) {
+                // Like OkHttp, which reports the failure of an interceptor before throwing it on its own thread
+                failLater(exchanges, new IOException("canceled due to " + e, e));
+                return;
+            }
+            scheduleTimeout(future);
+            final Request sentRequest = sent;
+            future.whenComplete(new BiConsumer<HttpResponse<byte[]>, Throwable>() {
+                @Override
+                public void accept(final HttpResponse<byte[]> httpResponse, final Throwable cause) {
+                    runOnTransportThread(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                if (cause != null) {
+                                    fail(exchanges, failure(cause));
+                                    return;
+                                }
+                                Response response = toResponse(sentRequest, httpResponse, sentAt);
+                                // Last started first, like the interceptors of a chain
+                                for (AsyncInterceptor.Exchange exchange : exchanges) {
+                                    exchange.onResponse(response);
+                                }
+                                respond(response);
+                            } finally {
+                                finish();
+                            }
+                        }
+                    });
+                }
+            });
+            if (streamedBody != null) {
+                runOnTransportThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            streamedBody.write(sentRequest.body(), endpointClient.writeTimeoutMillis(), 0);
+                        } catch (InterruptedIOException e) {
+                            // The client did not read the body in time
+                            timedOut = true;
+                            future.cancel(true);
+                        } catch (IOException e) {
+                            // The exchange fails with the error of the body, or ended before reading it
+                        }
+                    }
+                });
+            }
+        }
+
+        private void failLater(final Deque<AsyncInterceptor.Exchange> exchanges, final IOException e) {
+            runOnTransportThread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        fail(exchanges, e);
+                    } finally {
+                        finish();
+                    }
+                }
+            });
+        }
+
+        private void finish() {
+            if (finished.compareAndSet(false, true)) {
+                finished(this);
+            }
+        }
+
+        /**
+         * Gets the interceptors of the endpoint when they can all run around an asynchronous exchange.
+         *
+         * @return the interceptors, or null when one of them needs a thread
+         */
+        private List<AsyncInterceptor> asyncInterceptors() {
+            List<AsyncInterceptor> interceptors = new ArrayList<>();
+            for (Interceptor interceptor : endpointClient.interceptors()) {
+                if (!(interceptor instanceof AsyncInterceptor)) {
+                    return null;
+                }
+                interceptors.add((AsyncInterceptor) interceptor);
+            }
+            return interceptors;
+        }
+
+        private void scheduleTimeout(final CompletableFuture<HttpResponse<byte[]>> future) {
+            long timeoutNanos = timeout.timeoutNanos();
+            if (timeoutNanos <= 0) {
+                return;
+            }
+            CompletableFuture.delayedExecutor(timeoutNanos, TimeUnit.NANOSECONDS).execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (!future.isDone()) {
+                        timedOut = true;
+                        future.cancel(true);
+                    }
+                }
+            });
+        }
+
+        private void fail(Deque<AsyncInterceptor.Exchange> exchanges, IOException e) {
+            for (AsyncInterceptor.Exchange exchange : exchanges) {
+                exchange.onFailure(e);
+            }
+            callback.onFailure(this, e);
+        }
+
+        private void respond(Response response) {
+            try {
+                callback.onResponse(this, response);
+            } catch (IOException e) {
+                Castle.logger.error("Callback failure for " + request.url(), e);
+            }
+        }
+
+        /**
+         * Runs a task on a thread of the transport, so that callbacks do not run on the thread of the caller, or on
+         * the calling thread when the transport is closed.
+         */
+        private void runOnTransportThread(Runnable task) {
+            if (Thread.currentThread() instanceof TransportThread) {
+                task.run();
+                return;
+            }
+            executeOnTransportThread(task);
+        }
+
+        /**
+         * Runs a task on another thread of the transport, or on the calling thread when the transport is closed.
+         */
+        private void executeOnTransportThread(Runnable task) {
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                task.run();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            canceled = true;
+            CompletableFuture<HttpResponse<byte[]>> current = exchange;
+            if (current != null) {
+                current.cancel(true);
+            }
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return executed.get();
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+
+        @Override
+        public Timeout timeout() {
+            return timeout;
+        }
+
+        @Override
+        public Call clone() {
+            return new JdkHttpCall(endpointClient, request);
+        }
+
+        /**
+         * Chain running the interceptors of the endpoint, the last step sending the request with the timeouts of the
+         * chain: the connect timeout chooses the client, the read timeout bounds the wait for the response and the
+         * write timeout the writing of a streamed body.
+         */
+        private class TransportChain implements Interceptor.Chain {
+            private final int index;
+            private final Request request;
+            private final long deadline;
+            private final int connectTimeout;
+            private final int readTimeout;
+            private final int writeTimeout;
+
+            private TransportChain(int index, Request request, long deadline, int connectTimeout, int readTimeout, int writeTimeout) {
+                this.index = index;
+                this.request = request;
+                this.deadline = deadline;
+                this.connectTimeout = connectTimeout;
+                this.readTimeout = readTimeout;
+                this.writeTimeout = writeTimeout;
+            }
+
+            @Override
+            public Request request() {
+                return request;
+            }
+
+            @Override
+            public Response proceed(Request request) throws IOException {
+                List<Interceptor> interceptors = endpointClient.interceptors();
+                if (index < interceptors.size()) {
+                    return interceptors.get(index).intercept(new TransportChain(index + 1, request, deadline, connectTimeout, readTimeout, writeTimeout));
+                }
+                if (deadline != 0 && deadline - System.nanoTime() <= 0) {
+                    timedOut = true;
+                    throw new InterruptedIOException("timeout");
+                }
+                return send(request, deadline, connectTimeout, readTimeout, writeTimeout);
+            }
+
+            @Override
+            public Connection connection() {
+                return null;
+            }
+
+            @Override
+            public Call call() {
+                return JdkHttpCall.this;
+            }
+
+            @Override
+            public int connectTimeoutMillis() {
+                return connectTimeout;
+            }
+
+            @Override
+            public Interceptor.Chain withConnectTimeout(int timeout, TimeUnit unit) {
+                return new TransportChain(index, request, deadline, millis(timeout, unit), readTimeout, writeTimeout);
+            }
+
+            @Override
+            public int readTimeoutMillis() {
+                return readTimeout;
+            }
+
+            @Override
+            public Interceptor.Chain withReadTimeout(int timeout, TimeUnit unit) {
+                return new TransportChain(index, request, deadline, connectTimeout, millis(timeout, unit), writeTimeout);
+            }
+
+            @Override
+            public int writeTimeoutMillis() {
+                return writeTimeout;
+            }
+
+            @Override
+            public Interceptor.Chain withWriteTimeout(int timeout, TimeUnit unit) {
+                return new TransportChain(index, request, deadline, connectTimeout, readTimeout, millis(timeout, unit));
+            }
+
+            private int millis(int timeout, TimeUnit unit) {
+                if (timeout < 0) {
+                    throw new IllegalArgumentException("timeout < 0");
+                }
+                long millis = unit.toMillis(timeout);
+                if (millis > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("Timeout too large.");
+                }
+                if (millis == 0 && timeout > 0) {
+                    throw new IllegalArgumentException("Timeout too small.");
+                }
+                return (int) millis;
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package io.castle.client;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import io.castle.client.model.*;
+import io.castle.client.utils.DeviceUtils;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.assertj.core.api.Assertions;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static okhttp3.mockwebserver.SocketPolicy.NO_RESPONSE;
+
+public class CastleAsyncApiHttpTest extends AbstractCastleHttpLayerTest {
+
+    public CastleAsyncApiHttpTest() {
+        super(new AuthenticateFailoverStrategy(AuthenticateAction.CHALLENGE));
+    }
+
+    @Test
+    public void authenticate() throws Exception {
+        // Given
+        server.enqueue(new MockResponse().setBody("{\"action\":\"deny\",\"user_id\":\"12345\",\"device_token\":\"abcdefg1234\"}"));
+        HttpServletRequest request = new MockHttpServletRequest();
+
+        // When
+        ListenableFuture<Verdict> future = sdk.extendedClient(request).async().authenticate("$login.succeeded", "12345");
+
+        // Then
+        Verdict verdict = future.get(1, TimeUnit.SECONDS);
+        Assertions.assertThat(verdict.getAction()).isEqualTo(AuthenticateAction.DENY);
+        Assertions.assertThat(verdict.getDeviceToken()).isEqualTo("abcdefg1234");
+        RecordedRequest recordedRequest = server.takeRequest();
+        Assert.assertEquals(testServerBaseUrl.resolve("v1/authenticate"), recordedRequest.getRequestUrl());
+    }
+
+    @Test
+    public void authenticateFailover() throws Exception {
+        // Given backend request timeouts
+        server.enqueue(new MockResponse().setSocketPolicy(NO_RESPONSE));
+        HttpServletRequest request = new MockHttpServletRequest();
+
+        // When
+        Verdict verdict = sdk.extendedClient(request).async().authenticate("$login.succeeded", "12345").get(2, TimeUnit.SECONDS);
+
+        // Then the failover strategy is used
+        Assertions.assertThat(verdict.getAction()).isEqualTo(AuthenticateAction.CHALLENGE);
+        Assertions.assertThat(verdict.isFailover()).isTrue();
+    }
+
+    @Test
+    public void track() throws Exception {
+        // Given
+        server.enqueue(new MockResponse());
+        HttpServletRequest request = new MockHttpServletRequest();
+
+        // When
+        Boolean success = sdk.extendedClient(request).async().track("$login.succeeded", "12345").get(1, TimeUnit.SECONDS);
+
+        // Then
+        Assertions.assertThat(success).isTrue();
+        RecordedRequest recordedRequest = server.takeRequest();
+        Assert.assertEquals(testServerBaseUrl.resolve("v1/track"), recordedRequest.getRequestUrl());
+    }
+
+    @Test
+    public void doNotTrack() throws Exception {
+        // Given
+        HttpServletRequest request = new MockHttpServletRequest();
+
+        // When
+        Verdict verdict = sdk.extendedClient(request, true).async().authenticate("$login.succeeded", "12345").get();
+        Boolean tracked = sdk.extendedClient(request, true).async().track("$login.succeeded", "12345").get();
+        Boolean identified = sdk.extendedClient(request, true).async().identify("12345").get();
+
+        // Then no request is made
+        Assertions.assertThat(verdict.getAction()).isEqualTo(AuthenticateAction.ALLOW);
+        Assertions.assertThat(tracked).isTrue();
+        Assertions.assertThat(identified).isTrue();
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void device() throws Exception {
+        // Given
+        server.enqueue(new MockResponse().setBody(DeviceUtils.getDefaultDeviceJSON()));
+        HttpServletRequest request = new MockHttpServletRequest();
+
+        // When
+        CastleUserDevice device = sdk.extendedClient(request).async().device("deviceToken").get(1, TimeUnit.SECONDS);
+
+        // Then
+        RecordedRequest recordedRequest = server.takeRequest();
+        Assert.assertEquals(testServerBaseUrl.resolve("v1/devices/deviceToken"), recordedRequest.getRequestUrl());
+        Assertions.assertThat(device).isEqualToComparingFieldByFieldRecursively(DeviceUtils.createExpectedDevice());
+    }
+
+    @Test
+    public void deviceNotFound() throws Exception {
+        // Given
+        server.enqueue(new MockResponse().setResponseCode(404));
+        HttpServletRequest request = new MockHttpServletRequest();
+
+        // When
+        CastleUserDevice device = sdk.extendedClient(request).async().device("deviceToken").get(1, TimeUnit.SECONDS);
+
+        // Then
+        Assert.assertNull(device);
+    }
+
+    @Test
+    public void deviceServerError() throws Exception {
+        // Given a server failure
+        server.enqueue(new MockResponse().setResponseCode(500));
+        HttpServletRequest request = new MockHttpServletRequest();
+
+        // When
+        ListenableFuture<CastleUserDevice> future = sdk.extendedClient(request).async().device("deviceToken");
+
+        // Then the future fails with the exception of the sync call
+        try {
+            future.get(1, TimeUnit.SECONDS);
+            Assert.fail("Expected the future to fail");
+        } catch (ExecutionException e) {
+            Assertions.assertThat(e.getCause()).isInstanceOf(CastleApiInternalServerErrorException.class);
+        }
+    }
+
+    @Test
+    public void deviceTimeout() throws Exception {
+        // Given backend request timeouts
+        server.enqueue(new MockResponse().setSocketPolicy(NO_RESPONSE));
+        HttpServletRequest request = new MockHttpServletRequest();
+
+        // When
+        ListenableFuture<CastleUserDevice> future = sdk.extendedClient(request).async().device("deviceToken");
+
+        // Then
+        try {
+            future.get(2, TimeUnit.SECONDS);
+            Assert.fail("Expected the future to fail");
+        } catch (ExecutionException e) {
+            Assertions.assertThat(e.getCause()).isInstanceOf(CastleApiTimeoutException.class);
+        }
+    }
+
+    @Test
+    public void removeUser() throws Exception {
+        // Given
+        server.enqueue(new MockResponse().setResponseCode(202));
+        HttpServletRequest request = new MockHttpServletRequest();
+
+        // When
+        Boolean removed = sdk.extendedClient(request).async().removeUser("12345").get(1, TimeUnit.SECONDS);
+
+        // Then
+        Assertions.assertThat(removed).isTrue();
+        RecordedRequest recordedRequest = server.takeRequest();
+        Assert.assertEquals("DELETE", recordedRequest.getMethod());
+        Assert.assertEquals(testServerBaseUrl.resolve("v1/privacy/users/12345"), recordedRequest.getRequestUrl());
+    }
+
+    @Test
+    public void impersonateStart() throws Exception {
+        // Given
+        server.enqueue(new MockResponse().setBody("{\"success\":true}"));
+        HttpServletRequest request = new MockHttpServletRequest();
+
+        // When
+        CastleSuccess success = sdk.extendedClient(request).async().impersonateStart("12345", "admin@example.com").get(1, TimeUnit.SECONDS);
+
+        // Then
+        Assertions.assertThat(success.isSuccess()).isTrue();
+        RecordedRequest recordedRequest = server.takeRequest();
+        Assert.assertEquals(testServerBaseUrl.resolve("v1/impersonate"), recordedRequest.getRequestUrl());
+    }
+}
@@ -0,0 +1,146 @@
+package io.castle.client;
+
+import io.castle.client.model.*;
+import io.castle.client.utils.DeviceUtils;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CastleBulkApiHttpTest extends AbstractCastleHttpLayerTest {
+
+    public CastleBulkApiHttpTest() {
+        super(new AuthenticateFailoverStrategy(AuthenticateAction.CHALLENGE));
+    }
+
+    @Test
+    public void approve() {
+        // Given a server failing for one of the devices
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if (request.getPath().contains("failing")) {
+                    return new MockResponse().setResponseCode(500);
+                }
+                return new MockResponse().setBody(DeviceUtils.getDefaultDeviceJSON());
+            }
+        });
+        RecordingHandler<CastleUserDevice> handler = new RecordingHandler<>();
+
+        // When
+        BulkResult result = sdk.extendedClient(new MockHttpServletRequest()).bulk(2, 0)
+                .approve(Arrays.asList("first", "failing", "third"), handler);
+
+        // Then every item is handed to the handler before returning
+        Assertions.assertThat(result.getSucceeded()).isEqualTo(2);
+        Assertions.assertThat(result.getFailed()).isEqualTo(1);
+        Assertions.assertThat(result.isInterrupted()).isFalse();
+        Assertions.assertThat(handler.responses.keySet()).containsOnly("first", "third");
+        Assertions.assertThat(handler.responses.get("first")).isEqualToComparingFieldByFieldRecursively(DeviceUtils.createExpectedDevice());
+        Assertions.assertThat(handler.exceptions.get("failing")).isInstanceOf(CastleApiInternalServerErrorException.class);
+    }
+
+    @Test
+    public void concurrencyIsBounded() {
+        // Given slow responses
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger maxActive = new AtomicInteger();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                int current = active.incrementAndGet();
+                while (maxActive.get() < current) {
+                    maxActive.set(current);
+                }
+                return new MockResponse().setBody(DeviceUtils.getDefaultDeviceJSON()).setHeadersDelay(50, TimeUnit.MILLISECONDS);
+            }
+        });
+        RecordingHandler<CastleUserDevice> handler = new RecordingHandler<CastleUserDevice>() {
+            @Override
+            public void onResponse(String key, CastleUserDevice response) {
+                active.decrementAndGet();
+                super.onResponse(key, response);
+            }
+        };
+
+        // When
+        BulkResult result = sdk.extendedClient(new MockHttpServletRequest()).bulk(2, 0)
+                .device(Arrays.asList("a", "b", "c", "d", "e", "f"), handler);
+
+        // Then
+        Assertions.assertThat(result.getSucceeded()).isEqualTo(6);
+        Assertions.assertThat(maxActive.get()).isBetween(1, 2);
+    }
+
+    @Test
+    public void rateIsLimited() {
+        // Given
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setBody("{\"user_id\":\"12345\"}");
+            }
+        });
+        RecordingHandler<CastleUser> handler = new RecordingHandler<>();
+        List<String> userIds = Arrays.asList("1", "2", "3", "4", "5");
+
+        // When 5 items are sent at 20 requests per second
+        long start = System.nanoTime();
+        BulkResult result = sdk.extendedClient(new MockHttpServletRequest()).bulk(5, 20)
+                .archiveUserDevices(userIds.iterator(), handler);
+
+        // Then the last one starts at least 200 milliseconds after the first one
+        Assertions.assertThat(result.getProcessed()).isEqualTo(5);
+        Assertions.assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(190));
+        Assertions.assertThat(handler.responses.keySet()).containsOnlyElementsOf(userIds);
+    }
+
+    @Test
+    public void nullItemFails() {
+        // Given
+        server.enqueue(new MockResponse().setBody(DeviceUtils.getDefaultDeviceJSON()));
+        RecordingHandler<CastleUserDevice> handler = new RecordingHandler<>();
+
+        // When
+        BulkResult result = sdk.extendedClient(new MockHttpServletRequest()).bulk(1, 0)
+                .report(Arrays.asList(null, "token"), handler);
+
+        // Then only the null item fails
+        Assertions.assertThat(result.getSucceeded()).isEqualTo(1);
+        Assertions.assertThat(result.getFailed()).isEqualTo(1);
+        Assertions.assertThat(handler.responses.keySet()).containsOnly("token");
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void maxConcurrencyMustBePositive() {
+        sdk.extendedClient(new MockHttpServletRequest()).bulk(0, 0);
+    }
+
+    private static class RecordingHandler<T> implements BulkItemHandler<T> {
+        final Map<String, T> responses = Collections.synchronizedMap(new HashMap<String, T>());
+        final Map<String, Exception> exceptions = Collections.synchronizedMap(new HashMap<String, Exception>());
+
+        @Override
+        public void onResponse(String key, T response) {
+            responses.put(key, response);
+        }
+
+        @Override
+        public void onException(String key, Exception exception) {
+            exceptions.put(key, exception);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package io.castle.client;
 
+import io.castle.client.api.CastleApi;
 import io.castle.client.internal.backend.RestApiFactory;
 import io.castle.client.internal.config.CastleConfiguration;
 import io.castle.client.model.CastleSdkConfigurationException;
@@ -7,6 +8,8 @@ import org.assertj.core.api.Assertions;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import javax.servlet.http.HttpServletRequest;
+
 public class CastleTest {
 
     @Test
@@ -127,4 +130,17 @@ public class CastleTest {
                 .extracting("apiSecret")
                 .containsExactly("abcd");
     }
+
+    @Test
+    public void entryPointsKeepTheirSignatures() throws NoSuchMethodException {
+        //Then the entry points compiled against earlier versions are still found
+        Assertions.assertThat(Castle.class.getMethod("client").getReturnType()).isEqualTo(CastleApi.class);
+        Assertions.assertThat(Castle.class.getMethod("client", boolean.class).getReturnType()).isEqualTo(CastleApi.class);
+        Assertions.assertThat(Castle.class.getMethod("buildApiClient").getReturnType()).isEqualTo(CastleApi.class);
+        Assertions.assertThat(Castle.class.getMethod("buildApiClient", boolean.class).getReturnType()).isEqualTo(CastleApi.class);
+        Assertions.assertThat(Castle.class.getMethod("onRequest", HttpServletRequest.class).getReturnType())
+                .isEqualTo(CastleApi.class);
+        Assertions.assertThat(Castle.class.getMethod("onRequest", HttpServletRequest.class, boolean.class).getReturnType())
+                .isEqualTo(CastleApi.class);
+    }
 }
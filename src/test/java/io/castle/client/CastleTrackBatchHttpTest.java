@@ -0,0 +1,144 @@
+package io.castle.client;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.castle.client.internal.config.CastleConfiguration;
+import io.castle.client.internal.config.CastleConfigurationBuilder;
+import io.castle.client.internal.config.CastleSdkInternalConfiguration;
+import io.castle.client.model.AsyncCallbackHandler;
+import io.castle.client.model.CastleSdkConfigurationException;
+import io.castle.client.model.TrackBatchStats;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class CastleTrackBatchHttpTest {
+
+    private MockWebServer server;
+    private Castle sdk;
+
+    @Before
+    public void prepare() throws IOException {
+        server = new MockWebServer();
+        server.start(InetAddress.getByName("127.0.0.1"), 0);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (sdk != null) {
+            sdk.shutdown(1, TimeUnit.SECONDS);
+        }
+        server.shutdown();
+    }
+
+    @Test
+    public void fullBatchIsSentInASingleRequest() throws Exception {
+        // Given a SDK batching track events three by three
+        sdk = buildSdk(3, 60000);
+        server.enqueue(new MockResponse());
+
+        // When three events are tracked
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        sdk.onRequest(request).track("$login.succeeded", "1");
+        sdk.onRequest(request).track("$login.succeeded", "2");
+        sdk.onRequest(request).track("$login.failed", "3");
+
+        // Then one request containing the three events is sent to the batch endpoint
+        RecordedRequest recordedRequest = server.takeRequest(5, TimeUnit.SECONDS);
+        Assertions.assertThat(recordedRequest).isNotNull();
+        Assertions.assertThat(recordedRequest.getPath()).isEqualTo("/v1/batch");
+        JsonArray batch = new JsonParser().parse(recordedRequest.getBody().readUtf8()).getAsJsonObject().getAsJsonArray("batch");
+        Assertions.assertThat(batch.size()).isEqualTo(3);
+        JsonObject last = batch.get(2).getAsJsonObject();
+        Assertions.assertThat(last.get("event").getAsString()).isEqualTo("$login.failed");
+        Assertions.assertThat(last.get("user_id").getAsString()).isEqualTo("3");
+        Assertions.assertThat(last.has("context")).isTrue();
+        Assertions.assertThat(last.has("sent_at")).isTrue();
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void partialBatchIsSentWhenFlushIntervalElapses() throws Exception {
+        // Given a SDK with a short flush interval
+        sdk = buildSdk(100, 50);
+        server.enqueue(new MockResponse());
+        final AtomicReference<Boolean> result = new AtomicReference<>();
+
+        // When a single event is tracked
+        sdk.onRequest(new MockHttpServletRequest()).track("$logout.succeeded", "1", null, null, null, new AsyncCallbackHandler<Boolean>() {
+            @Override
+            public void onResponse(Boolean response) {
+                result.set(response);
+            }
+
+            @Override
+            public void onException(Exception exception) {
+                Assertions.fail("error on request", exception);
+            }
+        });
+
+        // Then it is sent without waiting for the batch to fill up, and the callback is notified
+        RecordedRequest recordedRequest = server.takeRequest(5, TimeUnit.SECONDS);
+        Assertions.assertThat(recordedRequest).isNotNull();
+        JsonArray batch = new JsonParser().parse(recordedRequest.getBody().readUtf8()).getAsJsonObject().getAsJsonArray("batch");
+        Assertions.assertThat(batch.size()).isEqualTo(1);
+        waitForCallback(result);
+        Assertions.assertThat(result.get()).isTrue();
+    }
+
+    @Test
+    public void pendingEventsAreSentOnShutdown() throws Exception {
+        // Given a SDK that would wait a minute before flushing
+        sdk = buildSdk(100, 60000);
+        server.enqueue(new MockResponse());
+        sdk.onRequest(new MockHttpServletRequest()).track("$login.succeeded", "1");
+        sdk.onRequest(new MockHttpServletRequest()).track("$login.succeeded", "2");
+
+        // When the SDK is shut down
+        boolean completed = sdk.shutdown(5, TimeUnit.SECONDS);
+
+        // Then the queued events are sent immediately
+        Assertions.assertThat(completed).isTrue();
+        RecordedRequest recordedRequest = server.takeRequest(1, TimeUnit.SECONDS);
+        Assertions.assertThat(recordedRequest).isNotNull();
+        JsonArray batch = new JsonParser().parse(recordedRequest.getBody().readUtf8()).getAsJsonObject().getAsJsonArray("batch");
+        Assertions.assertThat(batch.size()).isEqualTo(2);
+
+        TrackBatchStats stats = sdk.getTrackBatchStats();
+        Assertions.assertThat(stats.getQueueDepth()).isEqualTo(0);
+        Assertions.assertThat(stats.getEnqueued()).isEqualTo(2);
+        Assertions.assertThat(stats.getBatchesSent()).isEqualTo(1);
+        Assertions.assertThat(stats.getEventsSent()).isEqualTo(2);
+        Assertions.assertThat(stats.getDropped()).isEqualTo(0);
+    }
+
+    private Castle buildSdk(int maxBatchSize, int flushInterval) throws CastleSdkConfigurationException {
+        CastleConfiguration configuration = CastleConfigurationBuilder.defaultConfigBuilder()
+                .withApiSecret("test_api_secret")
+                .withApiBaseUrl(server.url("/").toString())
+                .withTrackBatching(true)
+                .withTrackBatchMaxSize(maxBatchSize)
+                .withTrackBatchFlushInterval(flushInterval)
+                .build();
+        return new Castle(CastleSdkInternalConfiguration.buildFromConfiguration(configuration));
+    }
+
+    private void waitForCallback(AtomicReference<Boolean> result) throws InterruptedException {
+        int maxNrOfSleeps = 20;
+        while (result.get() == null && maxNrOfSleeps > 0) {
+            maxNrOfSleeps = maxNrOfSleeps - 1;
+            Thread.sleep(50);
+        }
+    }
+}
@@ -21,6 +21,8 @@ import org.springframework.mock.web.MockHttpServletRequest;
 import com.google.common.collect.ImmutableMap;
 
 import javax.servlet.http.HttpServletRequest;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
 
 public class CastleTrackHttpTest extends AbstractCastleHttpLayerTest {
@@ -176,6 +178,28 @@ public class CastleTrackHttpTest extends AbstractCastleHttpLayerTest {
         Assert.assertTrue(new JSONObject(body).has("sent_at"));
     }
 
+    @Test
+    public void trackSendsMessageAsItWasWhenCalled() throws InterruptedException, JSONException {
+        //given a message with mutable properties
+        server.enqueue(new MockResponse());
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("a", "valueA");
+        CastleMessage message = CastleMessage.builder("$login.succeeded")
+                .userId("12345")
+                .properties(properties)
+                .build();
+
+        // when the properties are changed once the track call returned
+        sdk.onRequest(new MockHttpServletRequest()).track(message);
+        properties.put("a", "changed");
+
+        // then the properties sent are the ones of the call
+        RecordedRequest recordedRequest = server.takeRequest();
+        String body = recordedRequest.getBody().readUtf8();
+        JSONAssert.assertEquals("{\"event\":\"$login.succeeded\",\"properties\":{\"a\":\"valueA\"},\"user_id\":\"12345\"}",
+                body, false);
+    }
+
     @Test
     public void trackEndpointWithUserIDAndPropertiesAndTraitTest() throws InterruptedException, JSONException {
         //given
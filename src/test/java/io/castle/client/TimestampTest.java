@@ -1,15 +1,23 @@
 package io.castle.client;
 
 import io.castle.client.internal.utils.Timestamp;
-import io.castle.client.model.CastleSdkConfigurationException;
 import org.assertj.core.api.Assertions;
-import org.assertj.core.util.DateUtil;
 import org.junit.Test;
 
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
+import java.util.Random;
 import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class TimestampTest {
 
@@ -29,4 +37,102 @@ public class TimestampTest {
 
         Assertions.assertThat(timestamp).isEqualTo("2019-01-02T03:04:05.678Z");
     }
+
+    @Test
+    public void matchesSimpleDateFormatAcrossCalendarEdges() {
+        //Given
+        long[] instants = {
+                0L,
+                -1L,
+                -999L,
+                -1000L,
+                -1001L,
+                951782400000L, // 2000-02-29T00:00:00.000Z
+                4107542399999L, // 2100-02-28T23:59:59.999Z
+                4107542400000L, // 2100-03-01T00:00:00.000Z
+                -12212553600000L, // 1583-01-01T00:00:00.000Z
+                -12212553600001L,
+                253402300799999L, // 9999-12-31T23:59:59.999Z
+                253402300800000L
+        };
+        DateFormat reference = referenceFormat();
+
+        for (long instant : instants) {
+            //When
+            String timestamp = Timestamp.timestamp(instant);
+
+            //Then
+            Assertions.assertThat(timestamp).as("instant %d", instant).isEqualTo(reference.format(new Date(instant)));
+        }
+    }
+
+    @Test
+    public void formatsIntoBuffer() {
+        //Given
+        char[] buffer = new char[Timestamp.LENGTH + 2];
+        buffer[0] = '"';
+        buffer[Timestamp.LENGTH + 1] = '"';
+
+        //When
+        Timestamp.format(1546398245678L, buffer, 1);
+
+        //Then
+        Assertions.assertThat(new String(buffer)).isEqualTo("\"2019-01-02T03:04:05.678Z\"");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void formatIntoBufferRejectsUnsupportedRange() {
+        Timestamp.format(253402300800000L, new char[Timestamp.LENGTH], 0);
+    }
+
+    @Test
+    public void concurrentFormattingMatchesSimpleDateFormat() throws Exception {
+        //Given
+        int threads = 8;
+        final int iterations = 20000;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                final long seed = i;
+                results.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        DateFormat reference = referenceFormat();
+                        Random random = new Random(seed);
+                        long now = System.currentTimeMillis();
+                        int mismatches = 0;
+                        start.await();
+                        for (int j = 0; j < iterations; j++) {
+                            // Mostly neighbouring seconds so that threads keep replacing each other's cached prefix.
+                            long instant = j % 10 == 0
+                                    ? (long) (random.nextDouble() * 253402300799999L)
+                                    : now + random.nextInt(5000);
+                            if (!Timestamp.timestamp(instant).equals(reference.format(new Date(instant)))) {
+                                mismatches++;
+                            }
+                        }
+                        return mismatches;
+                    }
+                }));
+            }
+
+            //When
+            start.countDown();
+
+            //Then
+            for (Future<Integer> result : results) {
+                Assertions.assertThat(result.get()).isEqualTo(0);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static DateFormat referenceFormat() {
+        DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", new Locale("en", "US", "POSIX"));
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return dateFormat;
+    }
 }
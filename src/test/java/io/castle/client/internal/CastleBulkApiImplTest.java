@@ -0,0 +1,108 @@
+package io.castle.client.internal;
+
+import io.castle.client.internal.backend.RestApi;
+import io.castle.client.model.AsyncCallbackHandler;
+import io.castle.client.model.BulkItemHandler;
+import io.castle.client.model.BulkResult;
+import io.castle.client.model.CastleUserDevice;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CastleBulkApiImplTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void throwingHandlerOfSyncCompletionCountsTheItemOnce() {
+        // Given lookups completing on the calling thread, like cached ones, and a handler throwing
+        RestApi restApi = mock(RestApi.class);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                AsyncCallbackHandler<CastleUserDevice> callback = invocation.getArgument(1);
+                callback.onResponse(new CastleUserDevice());
+                return null;
+            }
+        }).when(restApi).sendGetUserDeviceRequestAsync(anyString(), any(AsyncCallbackHandler.class));
+        final List<String> exceptions = Collections.synchronizedList(new ArrayList<String>());
+
+        // When
+        BulkResult result = new CastleBulkApiImpl(api(restApi), 1, 0).device(Arrays.asList("a", "b"),
+                new BulkItemHandler<CastleUserDevice>() {
+                    @Override
+                    public void onResponse(String key, CastleUserDevice response) {
+                        throw new IllegalStateException("failing handler");
+                    }
+
+                    @Override
+                    public void onException(String key, Exception exception) {
+                        exceptions.add(key);
+                    }
+                });
+
+        // Then each item only succeeded
+        Assertions.assertThat(result.getSucceeded()).isEqualTo(2);
+        Assertions.assertThat(result.getFailed()).isEqualTo(0);
+        Assertions.assertThat(exceptions).isEmpty();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void interruptedRunLeavesTheWaitingItemInTheIterator() {
+        // Given a rate of one request per second
+        RestApi restApi = mock(RestApi.class);
+        final Thread caller = Thread.currentThread();
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                AsyncCallbackHandler<CastleUserDevice> callback = invocation.getArgument(1);
+                callback.onResponse(new CastleUserDevice());
+                // Interrupts the caller while it waits to send the next item
+                caller.interrupt();
+                return null;
+            }
+        }).when(restApi).sendApproveDeviceRequestAsync(anyString(), any(AsyncCallbackHandler.class));
+        Iterator<String> deviceTokens = Arrays.asList("a", "b").iterator();
+        final List<String> handled = Collections.synchronizedList(new ArrayList<String>());
+
+        // When
+        BulkResult result = new CastleBulkApiImpl(api(restApi), 1, 1).approve(deviceTokens,
+                new BulkItemHandler<CastleUserDevice>() {
+                    @Override
+                    public void onResponse(String key, CastleUserDevice response) {
+                        handled.add(key);
+                    }
+
+                    @Override
+                    public void onException(String key, Exception exception) {
+                        handled.add(key);
+                    }
+                });
+
+        // Then the second item is neither handled nor lost
+        Assertions.assertThat(Thread.interrupted()).isTrue();
+        Assertions.assertThat(result.isInterrupted()).isTrue();
+        Assertions.assertThat(result.getProcessed()).isEqualTo(1);
+        Assertions.assertThat(handled).containsExactly("a");
+        Assertions.assertThat(deviceTokens.next()).isEqualTo("b");
+    }
+
+    private static CastleApiImpl api(RestApi restApi) {
+        CastleApiImpl api = mock(CastleApiImpl.class);
+        when(api.restApi()).thenReturn(restApi);
+        return api;
+    }
+}
@@ -0,0 +1,269 @@
+package io.castle.client.internal.backend;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import io.castle.client.internal.config.CastleConfigurationBuilder;
+import io.castle.client.internal.json.CastleGsonModel;
+import io.castle.client.internal.json.CastleMessagePayload;
+import io.castle.client.model.AsyncCallbackHandler;
+import io.castle.client.model.AuthenticateAction;
+import io.castle.client.model.AuthenticateFailoverStrategy;
+import io.castle.client.model.CastleEndpoint;
+import io.castle.client.model.CastleMessage;
+import io.castle.client.model.CastleUserDevice;
+import io.castle.client.model.FailoverReason;
+import io.castle.client.model.InMemoryCastleMetrics;
+import io.castle.client.model.Verdict;
+import io.castle.client.utils.DeviceUtils;
+import okhttp3.Credentials;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.GzipSource;
+import okio.Okio;
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Behavior every {@link CastleBackendProvider} must have, run once for each provider by the subclasses.
+ */
+public abstract class AbstractHttpTransportContractTest {
+
+    private static final String ALLOW = "{\"action\":\"allow\",\"user_id\":\"12345\"}";
+
+    private MockWebServer server;
+    private OkHttpFactory factory;
+    private InMemoryCastleMetrics metrics;
+
+    /**
+     * Gets the provider under test.
+     */
+    protected abstract CastleBackendProvider backendProvider();
+
+    @Before
+    public void prepare() throws Exception {
+        Assume.assumeTrue(backendProvider() + " is not available", backendProvider().isAvailable());
+        server = new MockWebServer();
+        server.start(InetAddress.getByName("127.0.0.1"), 0);
+        metrics = new InMemoryCastleMetrics();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (factory != null) {
+            factory.close();
+        }
+        if (server != null) {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void authenticateSendsPayloadWithCredentials() throws Exception {
+        //Given
+        factory = factory(configurationBuilder());
+        server.enqueue(new MockResponse().setBody(ALLOW));
+
+        //When
+        Verdict verdict = factory.buildBackend().sendAuthenticateSync(payload());
+
+        //Then
+        Assertions.assertThat(verdict.getAction()).isEqualTo(AuthenticateAction.ALLOW);
+        Assertions.assertThat(verdict.getUserId()).isEqualTo("12345");
+        RecordedRequest request = server.takeRequest();
+        Assertions.assertThat(request.getMethod()).isEqualTo("POST");
+        Assertions.assertThat(request.getPath()).isEqualTo("/v1/authenticate");
+        Assertions.assertThat(request.getHeader("Authorization")).isEqualTo(Credentials.basic("", "test_api_secret"));
+        Assertions.assertThat(request.getHeader("Content-Type")).startsWith("application/json");
+        Assertions.assertThat(request.getBody().readUtf8()).isEqualTo(payload().toString());
+    }
+
+    @Test
+    public void getRequestReadsResponse() throws Exception {
+        //Given
+        factory = factory(configurationBuilder());
+        server.enqueue(new MockResponse().setBody(DeviceUtils.getDefaultDeviceJSON()));
+
+        //When
+        CastleUserDevice device = factory.buildBackend().sendGetUserDeviceRequestSync("deviceToken");
+
+        //Then
+        Assertions.assertThat(device).isNotNull();
+        RecordedRequest request = server.takeRequest();
+        Assertions.assertThat(request.getMethod()).isEqualTo("GET");
+        Assertions.assertThat(request.getPath()).isEqualTo("/v1/devices/deviceToken");
+        Assertions.assertThat(request.getBodySize()).isEqualTo(0);
+    }
+
+    @Test
+    public void serverErrorGivesFailoverVerdict() throws Exception {
+        //Given
+        factory = factory(configurationBuilder());
+        server.enqueue(new MockResponse().setResponseCode(500));
+
+        //When
+        Verdict verdict = factory.buildBackend().sendAuthenticateSync(payload());
+
+        //Then
+        Assertions.assertThat(verdict.isFailover()).isTrue();
+        Assertions.assertThat(verdict.getAction()).isEqualTo(AuthenticateAction.CHALLENGE);
+        Assertions.assertThat(verdict.getFailoverReason()).isNotEmpty();
+        Assertions.assertThat(metrics.snapshot().getEndpoint(CastleEndpoint.AUTHENTICATE).getStatusClassCount(5))
+                .isEqualTo(1);
+        Assertions.assertThat(metrics.snapshot().getFailovers(FailoverReason.SERVER_ERROR)).isEqualTo(1);
+    }
+
+    @Test
+    public void slowResponseTimesOut() throws Exception {
+        //Given
+        factory = factory(configurationBuilder().withTimeout(200));
+        server.enqueue(new MockResponse().setBody(ALLOW).setHeadersDelay(1, TimeUnit.SECONDS));
+
+        //When
+        Verdict verdict = factory.buildBackend().sendAuthenticateSync(payload());
+
+        //Then
+        Assertions.assertThat(verdict.isFailover()).isTrue();
+        Assertions.assertThat(metrics.snapshot().getFailovers(FailoverReason.TIMEOUT)).isEqualTo(1);
+    }
+
+    @Test
+    public void callTimeoutAbandonsRequest() throws Exception {
+        //Given
+        factory = factory(configurationBuilder().withEndpointCallTimeout(CastleEndpoint.AUTHENTICATE, 200));
+        server.enqueue(new MockResponse().setBody(ALLOW).setHeadersDelay(2, TimeUnit.SECONDS));
+
+        //When
+        long start = System.nanoTime();
+        Verdict verdict = factory.buildBackend().sendAuthenticateSync(payload());
+
+        //Then
+        Assertions.assertThat(verdict.isFailover()).isTrue();
+        Assertions.assertThat(System.nanoTime() - start).isLessThan(TimeUnit.MILLISECONDS.toNanos(1500));
+        Assertions.assertThat(metrics.snapshot().getFailovers(FailoverReason.TIMEOUT)).isEqualTo(1);
+    }
+
+    @Test
+    public void retriedRequestIsSentAgain() throws Exception {
+        //Given
+        factory = factory(configurationBuilder().withRetries(true).withRetryBaseDelay(1).withRetryMaxDelay(1));
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setBody(DeviceUtils.getDefaultDeviceJSON()));
+
+        //When
+        CastleUserDevice device = factory.buildBackend().sendGetUserDeviceRequestSync("deviceToken");
+
+        //Then
+        Assertions.assertThat(device).isNotNull();
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(2);
+        Assertions.assertThat(metrics.snapshot().getEndpoint(CastleEndpoint.DEVICES).getRequests()).isEqualTo(2);
+    }
+
+    @Test
+    public void compressedBodyIsSent() throws Exception {
+        //Given
+        factory = factory(configurationBuilder().withRequestCompression(true).withRequestCompressionThreshold(0));
+        server.enqueue(new MockResponse().setBody(ALLOW));
+
+        //When
+        factory.buildBackend().sendAuthenticateSync(payload());
+
+        //Then
+        RecordedRequest request = server.takeRequest();
+        Assertions.assertThat(request.getHeader("Content-Encoding")).isEqualTo("gzip");
+        Buffer body = new Buffer();
+        body.writeAll(Okio.buffer(new GzipSource(request.getBody())));
+        Assertions.assertThat(body.readUtf8()).isEqualTo(payload().toString());
+    }
+
+    @Test
+    public void streamedPayloadIsSentWhole() throws Exception {
+        //Given a payload larger than the buffers of the transports
+        factory = factory(configurationBuilder());
+        server.enqueue(new MockResponse().setBody(ALLOW));
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            value.append((char) ('a' + i % 26));
+        }
+        JsonObject properties = new JsonObject();
+        properties.addProperty("value", value.toString());
+        CastleMessagePayload payload = new CastleMessagePayload(CastleMessage.builder("$login.succeeded")
+                .userId("12345")
+                .properties(properties)
+                .build(), new JsonObject(), "2019-01-02T03:04:05.678Z");
+
+        //When
+        Verdict verdict = factory.buildBackend().sendAuthenticateSync(payload);
+
+        //Then the body is streamed, with chunked encoding
+        Assertions.assertThat(verdict.getAction()).isEqualTo(AuthenticateAction.ALLOW);
+        RecordedRequest request = server.takeRequest();
+        Assertions.assertThat(request.getChunkSizes()).isNotEmpty();
+        Assertions.assertThat(request.getBody().readUtf8()).isEqualTo(payload.toJson(new CastleGsonModel().getGson()).toString());
+    }
+
+    @Test
+    public void concurrentAsyncRequestsComplete() throws Exception {
+        //Given
+        factory = factory(configurationBuilder());
+        int requests = 20;
+        for (int i = 0; i < requests; i++) {
+            server.enqueue(new MockResponse().setResponseCode(204));
+        }
+        final CountDownLatch done = new CountDownLatch(requests);
+        final AtomicInteger succeeded = new AtomicInteger();
+
+        //When
+        for (int i = 0; i < requests; i++) {
+            factory.buildBackend().sendTrackRequest(payload(), new AsyncCallbackHandler<Boolean>() {
+                @Override
+                public void onResponse(Boolean response) {
+                    if (response) {
+                        succeeded.incrementAndGet();
+                    }
+                    done.countDown();
+                }
+
+                @Override
+                public void onException(Exception exception) {
+                    done.countDown();
+                }
+            });
+        }
+
+        //Then
+        Assertions.assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        Assertions.assertThat(succeeded.get()).isEqualTo(requests);
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(requests);
+    }
+
+    private CastleConfigurationBuilder configurationBuilder() {
+        return CastleConfigurationBuilder.defaultConfigBuilder()
+                .withApiSecret("test_api_secret")
+                .withApiBaseUrl(server.url("/").toString())
+                .withTimeout(2000)
+                .withAuthenticateFailoverStrategy(new AuthenticateFailoverStrategy(AuthenticateAction.CHALLENGE))
+                .withBackendProvider(backendProvider())
+                .withMetrics(metrics);
+    }
+
+    private OkHttpFactory factory(CastleConfigurationBuilder builder) throws Exception {
+        return new OkHttpFactory(builder.build(), new CastleGsonModel());
+    }
+
+    private static JsonObject payload() {
+        JsonObject payload = new JsonObject();
+        payload.add("user_id", new JsonPrimitive("12345"));
+        payload.add("event", new JsonPrimitive("$login.succeeded"));
+        return payload;
+    }
+}
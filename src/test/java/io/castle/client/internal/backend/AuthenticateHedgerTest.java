@@ -0,0 +1,173 @@
+package io.castle.client.internal.backend;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import io.castle.client.internal.config.CastleConfigurationBuilder;
+import io.castle.client.internal.json.CastleGsonModel;
+import io.castle.client.model.AuthenticateAction;
+import io.castle.client.model.AuthenticateFailoverStrategy;
+import io.castle.client.model.HedgeStats;
+import io.castle.client.model.Verdict;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class AuthenticateHedgerTest {
+
+    private static final String ALLOW = "{\"action\":\"allow\",\"user_id\":\"12345\"}";
+    private static final String DENY = "{\"action\":\"deny\",\"user_id\":\"12345\"}";
+
+    private MockWebServer server;
+    private OkHttpFactory factory;
+
+    @Before
+    public void prepare() throws Exception {
+        server = new MockWebServer();
+        server.start(InetAddress.getByName("127.0.0.1"), 0);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (factory != null) {
+            factory.close();
+        }
+        server.shutdown();
+    }
+
+    @Test
+    public void slowRequestIsHedged() throws Exception {
+        //Given enough fast authenticate responses to know the latencies
+        factory = factory(configurationBuilder());
+        RestApi backend = factory.buildBackend();
+        for (int i = 0; i < AuthenticateHedger.MIN_SAMPLES; i++) {
+            server.enqueue(new MockResponse().setBody(ALLOW));
+            backend.sendAuthenticateSync(authenticatePayload());
+        }
+
+        //When the next response is slow
+        server.enqueue(new MockResponse().setBody(ALLOW).setHeadersDelay(1, TimeUnit.SECONDS));
+        server.enqueue(new MockResponse().setBody(DENY));
+        long start = System.nanoTime();
+        Verdict verdict = backend.sendAuthenticateSync(authenticatePayload());
+
+        //Then the verdict of the hedged request is used without waiting for the slow one
+        Assertions.assertThat(verdict.getAction()).isEqualTo(AuthenticateAction.DENY);
+        Assertions.assertThat(System.nanoTime() - start).isLessThan(TimeUnit.MILLISECONDS.toNanos(900));
+        HedgeStats stats = factory.getHedgeStats();
+        Assertions.assertThat(stats.getCalls()).isEqualTo(AuthenticateHedger.MIN_SAMPLES + 1);
+        Assertions.assertThat(stats.getHedges()).isEqualTo(1);
+        Assertions.assertThat(stats.getHedgeWins()).isEqualTo(1);
+    }
+
+    @Test
+    public void requestIsNotHedgedBeforeLatenciesAreKnown() throws Exception {
+        //Given
+        factory = factory(configurationBuilder());
+        server.enqueue(new MockResponse().setBody(DENY).setHeadersDelay(100, TimeUnit.MILLISECONDS));
+
+        //When
+        Verdict verdict = factory.buildBackend().sendAuthenticateSync(authenticatePayload());
+
+        //Then
+        Assertions.assertThat(verdict.getAction()).isEqualTo(AuthenticateAction.DENY);
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(1);
+        Assertions.assertThat(factory.getHedgeStats().getHedges()).isEqualTo(0);
+        Assertions.assertThat(factory.getHedgeStats().getDelay()).isEqualTo(-1);
+    }
+
+    @Test
+    public void firstRequestRunsOnCallingThread() throws Exception {
+        //Given a hedger knowing the latencies, and a client recording the threads sending the requests
+        factory = factory(configurationBuilder().withHedgeMinDelay(50));
+        AuthenticateHedger hedger = ((OkRestApiBackend) factory.buildBackend()).getHedger();
+        for (int i = 0; i < AuthenticateHedger.MIN_SAMPLES; i++) {
+            hedger.recordLatency(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        final List<String> threads = Collections.synchronizedList(new ArrayList<String>());
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(new Interceptor() {
+                    @Override
+                    public Response intercept(Chain chain) throws IOException {
+                        threads.add(Thread.currentThread().getName());
+                        return chain.proceed(chain.request());
+                    }
+                })
+                .build();
+        server.enqueue(new MockResponse().setBody(ALLOW).setHeadersDelay(1, TimeUnit.SECONDS));
+        server.enqueue(new MockResponse().setBody(DENY));
+
+        //When the first request is slow
+        Response response = hedger.execute(client, new Request.Builder().url(server.url("/v1/authenticate")).build());
+
+        //Then it was sent by the caller, and only the hedge by the dispatcher
+        Assertions.assertThat(response.body().string()).isEqualTo(DENY);
+        Assertions.assertThat(threads).hasSize(2);
+        Assertions.assertThat(threads.get(0)).isEqualTo(Thread.currentThread().getName());
+        Assertions.assertThat(threads.get(1)).isNotEqualTo(Thread.currentThread().getName());
+        client.dispatcher().executorService().shutdown();
+    }
+
+    @Test
+    public void delayIsPercentileOfLatencies() throws Exception {
+        //Given
+        factory = factory(configurationBuilder().withHedgeDelayPercentile(50).withHedgeMinDelay(5));
+        AuthenticateHedger hedger = ((OkRestApiBackend) factory.buildBackend()).getHedger();
+
+        //When latencies of 1 to 20 milliseconds are recorded
+        for (int i = 1; i <= AuthenticateHedger.MIN_SAMPLES; i++) {
+            hedger.recordLatency(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+
+        //Then
+        Assertions.assertThat(hedger.getStats().getDelay()).isEqualTo(AuthenticateHedger.MIN_SAMPLES / 2);
+    }
+
+    @Test
+    public void delayIsNotLowerThanMinDelay() throws Exception {
+        //Given
+        factory = factory(configurationBuilder().withHedgeMinDelay(50));
+        AuthenticateHedger hedger = ((OkRestApiBackend) factory.buildBackend()).getHedger();
+
+        //When
+        for (int i = 0; i < AuthenticateHedger.MIN_SAMPLES; i++) {
+            hedger.recordLatency(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+
+        //Then
+        Assertions.assertThat(hedger.getStats().getDelay()).isEqualTo(50);
+    }
+
+    private CastleConfigurationBuilder configurationBuilder() {
+        return CastleConfigurationBuilder.defaultConfigBuilder()
+                .withApiSecret("test_api_secret")
+                .withApiBaseUrl(server.url("/").toString())
+                .withTimeout(2000)
+                .withAuthenticateFailoverStrategy(new AuthenticateFailoverStrategy(AuthenticateAction.CHALLENGE))
+                .withHedging(true)
+                .withHedgeMinDelay(20);
+    }
+
+    private OkHttpFactory factory(CastleConfigurationBuilder builder) throws Exception {
+        return new OkHttpFactory(builder.build(), new CastleGsonModel());
+    }
+
+    private static JsonObject authenticatePayload() {
+        JsonObject payload = new JsonObject();
+        payload.add("user_id", new JsonPrimitive("12345"));
+        return payload;
+    }
+}
@@ -0,0 +1,226 @@
+package io.castle.client.internal.backend;
+
+import com.google.common.base.Ticker;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import io.castle.client.internal.config.CastleConfiguration;
+import io.castle.client.internal.config.CastleConfigurationBuilder;
+import io.castle.client.internal.config.CircuitBreakerConfiguration;
+import io.castle.client.internal.json.CastleGsonModel;
+import io.castle.client.model.AuthenticateAction;
+import io.castle.client.model.AuthenticateFailoverStrategy;
+import io.castle.client.model.CastleEndpoint;
+import io.castle.client.model.CircuitBreakerListener;
+import io.castle.client.model.CircuitBreakerState;
+import io.castle.client.model.InMemoryCastleMetrics;
+import io.castle.client.model.Verdict;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class CircuitBreakerTest {
+
+    private final FakeTicker ticker = new FakeTicker();
+    private final List<String> transitions = new ArrayList<>();
+
+    @Test
+    public void opensWhenFailureRateReachesThreshold() {
+        //Given a breaker opening at 50% failures after 4 calls
+        CircuitBreaker breaker = breaker(10, 4, 50, 2);
+
+        //When half of the calls fail
+        succeed(breaker);
+        fail(breaker);
+        succeed(breaker);
+        Assertions.assertThat(breaker.getState()).isEqualTo(CircuitBreakerState.CLOSED);
+        fail(breaker);
+
+        //Then the breaker opens and rejects calls
+        Assertions.assertThat(breaker.getState()).isEqualTo(CircuitBreakerState.OPEN);
+        Assertions.assertThat(breaker.tryAcquire()).isFalse();
+        Assertions.assertThat(transitions).containsExactly("CLOSED->OPEN");
+    }
+
+    @Test
+    public void oldOutcomesLeaveTheWindow() {
+        //Given a window of 4 calls filled with failures and successes
+        CircuitBreaker breaker = breaker(4, 4, 75, 2);
+        fail(breaker);
+        fail(breaker);
+        succeed(breaker);
+        succeed(breaker);
+
+        //When the failures are pushed out of the window
+        succeed(breaker);
+        succeed(breaker);
+        fail(breaker);
+        fail(breaker);
+
+        //Then the failure rate is computed on the last calls only
+        Assertions.assertThat(breaker.getState()).isEqualTo(CircuitBreakerState.CLOSED);
+    }
+
+    @Test
+    public void halfOpenProbesCloseTheBreaker() {
+        //Given an open breaker
+        CircuitBreaker breaker = breaker(10, 1, 100, 2);
+        fail(breaker);
+
+        //When the open duration has elapsed
+        ticker.advance(1000);
+
+        //Then only the probe calls are permitted
+        Assertions.assertThat(breaker.tryAcquire()).isTrue();
+        Assertions.assertThat(breaker.getState()).isEqualTo(CircuitBreakerState.HALF_OPEN);
+        Assertions.assertThat(breaker.tryAcquire()).isTrue();
+        Assertions.assertThat(breaker.tryAcquire()).isFalse();
+
+        //And the breaker closes once they succeed
+        breaker.onSuccess();
+        breaker.onSuccess();
+        Assertions.assertThat(breaker.getState()).isEqualTo(CircuitBreakerState.CLOSED);
+        Assertions.assertThat(transitions).containsExactly("CLOSED->OPEN", "OPEN->HALF_OPEN", "HALF_OPEN->CLOSED");
+    }
+
+    @Test
+    public void failedProbeOpensTheBreakerAgain() {
+        //Given a half open breaker
+        CircuitBreaker breaker = breaker(10, 1, 100, 2);
+        fail(breaker);
+        ticker.advance(1000);
+        Assertions.assertThat(breaker.tryAcquire()).isTrue();
+
+        //When the probe fails
+        breaker.onFailure();
+
+        //Then the breaker is open for another open duration
+        Assertions.assertThat(breaker.getState()).isEqualTo(CircuitBreakerState.OPEN);
+        ticker.advance(999);
+        Assertions.assertThat(breaker.tryAcquire()).isFalse();
+        ticker.advance(1);
+        Assertions.assertThat(breaker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    public void openBreakerShortCircuitsAuthenticate() throws Exception {
+        //Given a backend failing with server errors
+        MockWebServer server = new MockWebServer();
+        server.start(InetAddress.getByName("127.0.0.1"), 0);
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(503));
+        CastleConfiguration configuration = CastleConfigurationBuilder.defaultConfigBuilder()
+                .withApiSecret("test_api_secret")
+                .withApiBaseUrl(server.url("/").toString())
+                .withAuthenticateFailoverStrategy(new AuthenticateFailoverStrategy(AuthenticateAction.CHALLENGE))
+                .withCircuitBreaker(true)
+                .withCircuitBreakerMinimumCalls(2)
+                .build();
+        OkHttpFactory factory = new OkHttpFactory(configuration, new CastleGsonModel());
+        JsonObject payload = new JsonObject();
+        payload.add("user_id", new JsonPrimitive("12345"));
+        factory.buildBackend().sendAuthenticateSync(payload);
+        factory.buildBackend().sendAuthenticateSync(payload);
+
+        //When the breaker is open
+        Verdict verdict = factory.buildBackend().sendAuthenticateSync(payload);
+
+        //Then the failover verdict is returned without calling the Castle API
+        Assertions.assertThat(factory.getCircuitBreakerState()).isEqualTo(CircuitBreakerState.OPEN);
+        Assertions.assertThat(verdict.isFailover()).isTrue();
+        Assertions.assertThat(verdict.getFailoverReason()).isEqualTo(CircuitBreaker.FAILOVER_REASON);
+        Assertions.assertThat(verdict.getAction()).isEqualTo(AuthenticateAction.CHALLENGE);
+        Assertions.assertThat(verdict.getUserId()).isEqualTo("12345");
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(2);
+        factory.close();
+        server.shutdown();
+    }
+
+    @Test
+    public void probeFailingWithRuntimeExceptionOpensTheBreakerAgain() throws Exception {
+        //Given an open breaker, and metrics failing while the probe is sent
+        MockWebServer server = new MockWebServer();
+        server.start(InetAddress.getByName("127.0.0.1"), 0);
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setBody("{\"action\":\"allow\",\"user_id\":\"12345\"}"));
+        final AtomicBoolean failing = new AtomicBoolean();
+        CastleConfiguration configuration = CastleConfigurationBuilder.defaultConfigBuilder()
+                .withApiSecret("test_api_secret")
+                .withApiBaseUrl(server.url("/").toString())
+                .withAuthenticateFailoverStrategy(new AuthenticateFailoverStrategy(AuthenticateAction.CHALLENGE))
+                .withCircuitBreaker(true)
+                .withCircuitBreakerMinimumCalls(2)
+                .withCircuitBreakerOpenDuration(50)
+                .withCircuitBreakerHalfOpenCalls(1)
+                .withMetrics(new InMemoryCastleMetrics() {
+                    @Override
+                    public void recordRequest(CastleEndpoint endpoint, int statusCode, long latencyNanos) {
+                        if (failing.get()) {
+                            throw new IllegalStateException("Metrics failure");
+                        }
+                        super.recordRequest(endpoint, statusCode, latencyNanos);
+                    }
+                })
+                .build();
+        OkHttpFactory factory = new OkHttpFactory(configuration, new CastleGsonModel());
+        JsonObject payload = new JsonObject();
+        payload.add("user_id", new JsonPrimitive("12345"));
+        factory.buildBackend().sendAuthenticateSync(payload);
+        factory.buildBackend().sendAuthenticateSync(payload);
+        Thread.sleep(100);
+        failing.set(true);
+
+        //When the probe fails with a runtime exception
+        try {
+            factory.buildBackend().sendAuthenticateSync(payload);
+            Assertions.fail("the metrics failure should be thrown");
+        } catch (IllegalStateException e) {
+            Assertions.assertThat(e).hasMessage("Metrics failure");
+        }
+
+        //Then the probe counts as a failure instead of holding the half open slot
+        Assertions.assertThat(factory.getCircuitBreakerState()).isEqualTo(CircuitBreakerState.OPEN);
+        factory.close();
+        server.shutdown();
+    }
+
+    private CircuitBreaker breaker(int windowSize, int minimumCalls, int failureRateThreshold, int halfOpenCalls) {
+        CircuitBreakerListener listener = new CircuitBreakerListener() {
+            @Override
+            public void onStateChange(CircuitBreakerState from, CircuitBreakerState to) {
+                transitions.add(from + "->" + to);
+            }
+        };
+        return new CircuitBreaker(new CircuitBreakerConfiguration(true, windowSize, minimumCalls, failureRateThreshold, 1000, halfOpenCalls, listener), ticker);
+    }
+
+    private static void succeed(CircuitBreaker breaker) {
+        Assertions.assertThat(breaker.tryAcquire()).isTrue();
+        breaker.onSuccess();
+    }
+
+    private static void fail(CircuitBreaker breaker) {
+        Assertions.assertThat(breaker.tryAcquire()).isTrue();
+        breaker.onFailure();
+    }
+
+    private static class FakeTicker extends Ticker {
+        private long nanos;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+
+        void advance(long millis) {
+            nanos += TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package io.castle.client.internal.backend;
+
+import io.castle.client.internal.config.SpoolConfiguration;
+import io.castle.client.model.SpoolStats;
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class EventSpoolTest {
+
+    private static final int SEGMENT_SIZE = 1024;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private EventSpool spool;
+
+    @After
+    public void tearDown() {
+        if (spool != null) {
+            spool.close();
+        }
+    }
+
+    @Test
+    public void recordsAreReplayedInOrder() throws Exception {
+        //Given
+        spool = EventSpool.open(configuration(SEGMENT_SIZE * 4, 60000));
+        spool.append(EventSpool.Kind.TRACK, bytes("first"));
+        spool.append(EventSpool.Kind.IDENTIFY, bytes("second"));
+
+        //When
+        EventSpool.Record first = spool.peek();
+        EventSpool.Record again = spool.peek();
+        spool.commit(first);
+        EventSpool.Record second = spool.peek();
+        spool.commit(second);
+
+        //Then
+        Assertions.assertThat(first.getKind()).isEqualTo(EventSpool.Kind.TRACK);
+        Assertions.assertThat(first.getBody()).isEqualTo(bytes("first"));
+        Assertions.assertThat(again.getBody()).isEqualTo(bytes("first"));
+        Assertions.assertThat(second.getKind()).isEqualTo(EventSpool.Kind.IDENTIFY);
+        Assertions.assertThat(second.getBody()).isEqualTo(bytes("second"));
+        Assertions.assertThat(spool.peek()).isNull();
+        SpoolStats stats = spool.getStats();
+        Assertions.assertThat(stats.getSpooled()).isEqualTo(2);
+        Assertions.assertThat(stats.getReplayed()).isEqualTo(2);
+        Assertions.assertThat(stats.getPending()).isEqualTo(0);
+    }
+
+    @Test
+    public void recordsNotReplayedAreRecoveredAfterRestart() throws Exception {
+        //Given a spool closed after replaying one of three records
+        SpoolConfiguration configuration = configuration(SEGMENT_SIZE * 4, 60000);
+        spool = EventSpool.open(configuration);
+        spool.append(EventSpool.Kind.TRACK, bytes("first"));
+        spool.append(EventSpool.Kind.TRACK, bytes("second"));
+        spool.commit(spool.peek());
+        spool.append(EventSpool.Kind.BATCH, bytes("third"));
+        spool.close();
+
+        //When
+        spool = EventSpool.open(configuration);
+
+        //Then
+        Assertions.assertThat(spool.getStats().getPending()).isEqualTo(2);
+        EventSpool.Record second = spool.peek();
+        Assertions.assertThat(second.getBody()).isEqualTo(bytes("second"));
+        spool.commit(second);
+        EventSpool.Record third = spool.peek();
+        Assertions.assertThat(third.getKind()).isEqualTo(EventSpool.Kind.BATCH);
+        Assertions.assertThat(third.getBody()).isEqualTo(bytes("third"));
+    }
+
+    @Test
+    public void corruptedRecordEndsSegment() throws Exception {
+        //Given a record whose body changed on disk
+        SpoolConfiguration configuration = configuration(SEGMENT_SIZE * 4, 60000);
+        spool = EventSpool.open(configuration);
+        spool.append(EventSpool.Kind.TRACK, bytes("first"));
+        spool.append(EventSpool.Kind.TRACK, bytes("second"));
+        spool.close();
+        File segment = segments()[0];
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.seek(EventSpool.HEADER_SIZE + "first".length() + EventSpool.HEADER_SIZE);
+            file.write('S');
+        }
+
+        //When
+        spool = EventSpool.open(configuration);
+
+        //Then
+        Assertions.assertThat(spool.getStats().getPending()).isEqualTo(1);
+        EventSpool.Record first = spool.peek();
+        Assertions.assertThat(first.getBody()).isEqualTo(bytes("first"));
+        spool.commit(first);
+        Assertions.assertThat(spool.peek()).isNull();
+    }
+
+    @Test
+    public void oldestSegmentIsDiscardedWhenFull() throws Exception {
+        //Given a spool of two segments
+        spool = EventSpool.open(configuration(SEGMENT_SIZE * 2, 60000));
+        byte[] body = new byte[SEGMENT_SIZE / 2];
+
+        //When five records needing a segment each are spooled
+        for (int i = 0; i < 5; i++) {
+            Arrays.fill(body, (byte) ('a' + i));
+            spool.append(EventSpool.Kind.TRACK, body);
+        }
+
+        //Then
+        SpoolStats stats = spool.getStats();
+        Assertions.assertThat(stats.getPending()).isEqualTo(2);
+        Assertions.assertThat(stats.getDiscarded()).isEqualTo(3);
+        Assertions.assertThat(spool.peek().getBody()[0]).isEqualTo((byte) 'd');
+    }
+
+    @Test
+    public void segmentFilesStayWithinMaxSize() throws Exception {
+        //Given a spool of two segments
+        spool = EventSpool.open(configuration(SEGMENT_SIZE * 2, 60000));
+        byte[] body = new byte[SEGMENT_SIZE / 2];
+
+        //When five records needing a segment each are spooled
+        for (int i = 0; i < 5; i++) {
+            spool.append(EventSpool.Kind.TRACK, body);
+
+            //Then the discarded segments are deleted, the active one included in the size
+            Assertions.assertThat(segments().length).isLessThanOrEqualTo(2);
+        }
+        long size = 0;
+        for (File segment : segments()) {
+            size += segment.length();
+        }
+        Assertions.assertThat(size).isLessThanOrEqualTo(SEGMENT_SIZE * 2);
+    }
+
+    @Test
+    public void activeSegmentIsReplayedWithoutRotation() throws Exception {
+        //Given
+        spool = EventSpool.open(configuration(SEGMENT_SIZE * 4, 60000));
+        spool.append(EventSpool.Kind.TRACK, bytes("first"));
+        File segment = segments()[0];
+
+        //When the records are replayed while the segment is written
+        spool.commit(spool.peek());
+        spool.append(EventSpool.Kind.TRACK, bytes("second"));
+        EventSpool.Record second = spool.peek();
+        spool.commit(second);
+
+        //Then
+        Assertions.assertThat(second.getBody()).isEqualTo(bytes("second"));
+        Assertions.assertThat(spool.peek()).isNull();
+        Assertions.assertThat(segments()).containsExactly(segment);
+        Assertions.assertThat(spool.getStats().getReplayed()).isEqualTo(2);
+    }
+
+    @Test
+    public void expiredRecordsAreDiscarded() throws Exception {
+        //Given
+        spool = EventSpool.open(configuration(SEGMENT_SIZE * 4, 1));
+        spool.append(EventSpool.Kind.TRACK, bytes("first"));
+
+        //When
+        Thread.sleep(10);
+
+        //Then
+        Assertions.assertThat(spool.peek()).isNull();
+        Assertions.assertThat(spool.getStats().getDiscarded()).isEqualTo(1);
+        Assertions.assertThat(spool.getStats().getPending()).isEqualTo(0);
+    }
+
+    @Test(expected = IOException.class)
+    public void directoryIsUsedByOneSpool() throws Exception {
+        //Given
+        SpoolConfiguration configuration = configuration(SEGMENT_SIZE * 4, 60000);
+        spool = EventSpool.open(configuration);
+
+        //When
+        EventSpool.open(configuration);
+    }
+
+    private SpoolConfiguration configuration(long maxSize, int maxAge) {
+        return new SpoolConfiguration(true, folder.getRoot().getPath(), SEGMENT_SIZE, maxSize, maxAge, 60000, 1000);
+    }
+
+    private File[] segments() {
+        File[] files = folder.getRoot().listFiles();
+        Arrays.sort(files);
+        return Arrays.copyOf(files, files.length - 1);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
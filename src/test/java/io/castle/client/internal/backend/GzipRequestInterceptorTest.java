@@ -0,0 +1,157 @@
+package io.castle.client.internal.backend;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import io.castle.client.internal.config.CastleConfigurationBuilder;
+import io.castle.client.internal.json.CastleGsonModel;
+import io.castle.client.internal.json.CastleMessagePayload;
+import io.castle.client.model.AuthenticateAction;
+import io.castle.client.model.AuthenticateFailoverStrategy;
+import io.castle.client.model.CastleEndpoint;
+import io.castle.client.model.CastleMessage;
+import io.castle.client.model.EndpointMetricsSnapshot;
+import io.castle.client.model.InMemoryCastleMetrics;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.GzipSource;
+import okio.Okio;
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetAddress;
+
+public class GzipRequestInterceptorTest {
+
+    private static final String ALLOW = "{\"action\":\"allow\",\"user_id\":\"12345\"}";
+
+    private MockWebServer server;
+    private OkHttpFactory factory;
+    private InMemoryCastleMetrics metrics;
+
+    @Before
+    public void prepare() throws Exception {
+        server = new MockWebServer();
+        server.start(InetAddress.getByName("127.0.0.1"), 0);
+        metrics = new InMemoryCastleMetrics();
+        factory = new OkHttpFactory(CastleConfigurationBuilder.defaultConfigBuilder()
+                .withApiSecret("test_api_secret")
+                .withApiBaseUrl(server.url("/").toString())
+                .withAuthenticateFailoverStrategy(new AuthenticateFailoverStrategy(AuthenticateAction.CHALLENGE))
+                .withRequestCompression(true)
+                .withRequestCompressionThreshold(256)
+                .withMetrics(metrics)
+                .build(), new CastleGsonModel());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        factory.close();
+        server.shutdown();
+    }
+
+    @Test
+    public void largeBodyIsGzipped() throws Exception {
+        //Given
+        server.enqueue(new MockResponse().setBody(ALLOW));
+        JsonObject payload = payload(100);
+
+        //When
+        factory.buildBackend().sendAuthenticateSync(payload);
+
+        //Then the server receives the gzipped payload
+        RecordedRequest request = server.takeRequest();
+        Assertions.assertThat(request.getHeader("Content-Encoding")).isEqualTo("gzip");
+        Buffer body = new Buffer();
+        body.writeAll(Okio.buffer(new GzipSource(request.getBody())));
+        Assertions.assertThat(body.readUtf8()).isEqualTo(payload.toString());
+    }
+
+    @Test
+    public void smallBodyIsNotGzipped() throws Exception {
+        //Given
+        server.enqueue(new MockResponse().setBody(ALLOW));
+        JsonObject payload = payload(1);
+
+        //When
+        factory.buildBackend().sendAuthenticateSync(payload);
+
+        //Then
+        RecordedRequest request = server.takeRequest();
+        Assertions.assertThat(request.getHeader("Content-Encoding")).isNull();
+        Assertions.assertThat(request.getBody().readUtf8()).isEqualTo(payload.toString());
+        Assertions.assertThat(metrics.snapshot().getEndpoint(CastleEndpoint.AUTHENTICATE).getCompressionRatio().getCount())
+                .isEqualTo(0);
+    }
+
+    @Test
+    public void compressionIsRecordedInMetrics() throws Exception {
+        //Given
+        server.enqueue(new MockResponse().setBody(ALLOW));
+
+        //When
+        factory.buildBackend().sendAuthenticateSync(payload(100));
+
+        //Then the ratio is recorded and the payload size is the compressed size
+        RecordedRequest request = server.takeRequest();
+        EndpointMetricsSnapshot authenticate = metrics.snapshot().getEndpoint(CastleEndpoint.AUTHENTICATE);
+        Assertions.assertThat(authenticate.getCompressionRatio().getCount()).isEqualTo(1);
+        Assertions.assertThat(authenticate.getCompressionRatio().getMax()).isLessThan(100);
+        Assertions.assertThat(authenticate.getCompressionTime().getCount()).isEqualTo(1);
+        Assertions.assertThat(authenticate.getPayloadSize().getMax()).isEqualTo(request.getBodySize());
+    }
+
+    @Test
+    public void largeStreamedBodyIsGzippedWhileSent() throws Exception {
+        //Given a payload of unknown length
+        server.enqueue(new MockResponse().setBody(ALLOW));
+        CastleMessagePayload payload = new CastleMessagePayload(CastleMessage.builder("$login.succeeded")
+                .userId("12345")
+                .properties(payload(100))
+                .build(), null, "2019-01-02T03:04:05.678Z");
+
+        //When
+        factory.buildBackend().sendAuthenticateSync(payload);
+
+        //Then the gzipped payload is sent with chunked encoding
+        RecordedRequest request = server.takeRequest();
+        Assertions.assertThat(request.getHeader("Content-Encoding")).isEqualTo("gzip");
+        Assertions.assertThat(request.getHeader("Transfer-Encoding")).isEqualTo("chunked");
+        Buffer body = new Buffer();
+        body.writeAll(Okio.buffer(new GzipSource(request.getBody())));
+        Assertions.assertThat(body.readUtf8()).isEqualTo(payload.toJson(new CastleGsonModel().getGson()).toString());
+        EndpointMetricsSnapshot authenticate = metrics.snapshot().getEndpoint(CastleEndpoint.AUTHENTICATE);
+        Assertions.assertThat(authenticate.getCompressionRatio().getCount()).isEqualTo(1);
+        Assertions.assertThat(authenticate.getPayloadSize().getMax()).isEqualTo(request.getBodySize());
+    }
+
+    @Test
+    public void smallStreamedBodyIsNotGzipped() throws Exception {
+        //Given a payload of unknown length
+        server.enqueue(new MockResponse().setBody(ALLOW));
+        CastleMessagePayload payload = new CastleMessagePayload(CastleMessage.builder("$login.succeeded")
+                .userId("12345")
+                .build(), null, "2019-01-02T03:04:05.678Z");
+
+        //When
+        factory.buildBackend().sendAuthenticateSync(payload);
+
+        //Then
+        RecordedRequest request = server.takeRequest();
+        Assertions.assertThat(request.getHeader("Content-Encoding")).isNull();
+        Assertions.assertThat(request.getBody().readUtf8())
+                .isEqualTo(payload.toJson(new CastleGsonModel().getGson()).toString());
+    }
+
+    private static JsonObject payload(int properties) {
+        JsonObject payload = new JsonObject();
+        payload.add("user_id", new JsonPrimitive("12345"));
+        for (int i = 0; i < properties; i++) {
+            payload.add("property_" + i, new JsonPrimitive("value_" + i));
+        }
+        return payload;
+    }
+}
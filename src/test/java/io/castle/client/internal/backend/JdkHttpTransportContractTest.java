@@ -0,0 +1,164 @@
+package io.castle.client.internal.backend;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import io.castle.client.internal.config.CastleConfigurationBuilder;
+import io.castle.client.internal.json.CastleGsonModel;
+import io.castle.client.model.AsyncCallbackHandler;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.assertj.core.api.Assertions;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Skipped on JVMs older than Java 11, and when the SDK was built without the jdk11 profile.
+ */
+public class JdkHttpTransportContractTest extends AbstractHttpTransportContractTest {
+
+    @Override
+    protected CastleBackendProvider backendProvider() {
+        return CastleBackendProvider.JDK_HTTP_CLIENT;
+    }
+
+    @Test
+    public void asyncRequestsDoNotUseTheDispatcher() throws Exception {
+        Assume.assumeTrue(backendProvider().isAvailable());
+
+        //Then the requests in flight are limited per host, and in total
+        Assertions.assertThat(maxAsyncRequestsInFlight(CastleConfigurationBuilder.defaultConfigBuilder()
+                .withMaxRequests(2)
+                .withMaxRequestsPerHost(1))).isEqualTo(1);
+        Assertions.assertThat(maxAsyncRequestsInFlight(CastleConfigurationBuilder.defaultConfigBuilder()
+                .withMaxRequests(2)
+                .withMaxRequestsPerHost(64))).isEqualTo(2);
+    }
+
+    @Test
+    public void interceptorsCanChangeTheTimeouts() throws Exception {
+        //Given an endpoint with a long read timeout, shortened by an interceptor
+        Assume.assumeTrue(backendProvider().isAvailable());
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(204).setHeadersDelay(2, TimeUnit.SECONDS));
+        server.start(InetAddress.getByName("127.0.0.1"), 0);
+        HttpTransport transport = backendProvider().createTransport(CastleConfigurationBuilder.defaultConfigBuilder()
+                .withApiSecret("test_api_secret")
+                .withBackendProvider(backendProvider())
+                .build());
+        final List<Integer> timeouts = new ArrayList<>();
+        OkHttpClient client = new OkHttpClient.Builder()
+                .readTimeout(10, TimeUnit.SECONDS)
+                .addInterceptor(new Interceptor() {
+                    @Override
+                    public Response intercept(Chain chain) throws IOException {
+                        Chain shortened = chain.withConnectTimeout(1, TimeUnit.SECONDS)
+                                .withReadTimeout(200, TimeUnit.MILLISECONDS)
+                                .withWriteTimeout(300, TimeUnit.MILLISECONDS);
+                        timeouts.add(shortened.connectTimeoutMillis());
+                        timeouts.add(shortened.readTimeoutMillis());
+                        timeouts.add(shortened.writeTimeoutMillis());
+                        return shortened.proceed(chain.request());
+                    }
+                })
+                .build();
+
+        try {
+            //When
+            long start = System.nanoTime();
+            Throwable thrown = null;
+            try {
+                transport.newCallFactory(client).newCall(new Request.Builder().url(server.url("/")).build()).execute();
+            } catch (IOException e) {
+                thrown = e;
+            }
+
+            //Then
+            Assertions.assertThat(thrown).isInstanceOf(SocketTimeoutException.class);
+            Assertions.assertThat(System.nanoTime() - start).isLessThan(TimeUnit.MILLISECONDS.toNanos(1500));
+            Assertions.assertThat(timeouts).containsExactly(1000, 200, 300);
+        } finally {
+            transport.close();
+            server.shutdown();
+        }
+    }
+
+    /**
+     * Sends async requests to a server answering each after a while, and counts the most requests it received at once.
+     */
+    private int maxAsyncRequestsInFlight(CastleConfigurationBuilder builder) throws Exception {
+        int requests = 4;
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        MockWebServer server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                int current = inFlight.incrementAndGet();
+                int max;
+                do {
+                    max = maxInFlight.get();
+                } while (current > max && !maxInFlight.compareAndSet(max, current));
+                Thread.sleep(200);
+                inFlight.decrementAndGet();
+                return new MockResponse().setResponseCode(204);
+            }
+        });
+        server.start(InetAddress.getByName("127.0.0.1"), 0);
+        OkHttpFactory factory = new OkHttpFactory(builder
+                .withApiSecret("test_api_secret")
+                .withApiBaseUrl(server.url("/").toString())
+                .withTimeout(10000)
+                .withBackendProvider(backendProvider())
+                .build(), new CastleGsonModel());
+        final List<Boolean> responses = Collections.synchronizedList(new ArrayList<Boolean>());
+        final List<String> threads = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch done = new CountDownLatch(requests);
+        JsonObject payload = new JsonObject();
+        payload.add("event", new JsonPrimitive("$login.succeeded"));
+
+        try {
+            for (int i = 0; i < requests; i++) {
+                factory.buildBackend().sendTrackRequest(payload, new AsyncCallbackHandler<Boolean>() {
+                    @Override
+                    public void onResponse(Boolean response) {
+                        responses.add(response);
+                        threads.add(Thread.currentThread().getName());
+                        done.countDown();
+                    }
+
+                    @Override
+                    public void onException(Exception exception) {
+                        done.countDown();
+                    }
+                });
+            }
+
+            // The requests complete on the threads of the transport
+            Assertions.assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+            Assertions.assertThat(responses).containsExactly(true, true, true, true);
+            for (String thread : threads) {
+                Assertions.assertThat(thread).startsWith("castle-jdk-http-");
+            }
+            return maxInFlight.get();
+        } finally {
+            factory.close();
+            server.shutdown();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package io.castle.client.internal.backend;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import io.castle.client.internal.config.CastleConfigurationBuilder;
+import io.castle.client.internal.json.CastleGsonModel;
+import io.castle.client.internal.json.CastleMessagePayload;
+import io.castle.client.model.AuthenticateAction;
+import io.castle.client.model.AuthenticateFailoverStrategy;
+import io.castle.client.model.CastleEndpoint;
+import io.castle.client.model.CastleMessage;
+import io.castle.client.model.CastleMetricsSnapshot;
+import io.castle.client.model.EndpointMetricsSnapshot;
+import io.castle.client.model.FailoverReason;
+import io.castle.client.model.InMemoryCastleMetrics;
+import io.castle.client.model.Verdict;
+import io.castle.client.utils.DeviceUtils;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetAddress;
+
+public class MetricsInterceptorTest {
+
+    private MockWebServer server;
+    private OkHttpFactory factory;
+    private InMemoryCastleMetrics metrics;
+
+    @Before
+    public void prepare() throws Exception {
+        server = new MockWebServer();
+        server.start(InetAddress.getByName("127.0.0.1"), 0);
+        metrics = new InMemoryCastleMetrics();
+        factory = new OkHttpFactory(CastleConfigurationBuilder.defaultConfigBuilder()
+                .withApiSecret("test_api_secret")
+                .withApiBaseUrl(server.url("/").toString())
+                .withAuthenticateFailoverStrategy(new AuthenticateFailoverStrategy(AuthenticateAction.CHALLENGE))
+                .withMetrics(metrics)
+                .build(), new CastleGsonModel());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        factory.close();
+        server.shutdown();
+    }
+
+    @Test
+    public void requestsAreRecordedByStatusClass() throws Exception {
+        //Given
+        server.enqueue(new MockResponse().setBody("{\"action\":\"allow\",\"user_id\":\"12345\"}"));
+        server.enqueue(new MockResponse().setResponseCode(500));
+
+        //When
+        factory.buildBackend().sendAuthenticateSync(authenticatePayload());
+        Verdict verdict = factory.buildBackend().sendAuthenticateSync(authenticatePayload());
+
+        //Then
+        Assertions.assertThat(verdict.isFailover()).isTrue();
+        CastleMetricsSnapshot snapshot = metrics.snapshot();
+        EndpointMetricsSnapshot authenticate = snapshot.getEndpoint(CastleEndpoint.AUTHENTICATE);
+        Assertions.assertThat(authenticate.getRequests()).isEqualTo(2);
+        Assertions.assertThat(authenticate.getStatusClassCount(2)).isEqualTo(1);
+        Assertions.assertThat(authenticate.getStatusClassCount(5)).isEqualTo(1);
+        Assertions.assertThat(authenticate.getLatency().getCount()).isEqualTo(2);
+        Assertions.assertThat(authenticate.getPayloadSize().getMax())
+                .isEqualTo(authenticatePayload().toString().length());
+        Assertions.assertThat(snapshot.getFailovers(FailoverReason.SERVER_ERROR)).isEqualTo(1);
+        Assertions.assertThat(snapshot.getEndpoint(CastleEndpoint.TRACK).getRequests()).isEqualTo(0);
+    }
+
+    @Test
+    public void failuresAreRecordedWithFailoverReason() throws Exception {
+        //Given
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+
+        //When
+        factory.buildBackend().sendAuthenticateSync(authenticatePayload());
+
+        //Then
+        CastleMetricsSnapshot snapshot = metrics.snapshot();
+        Assertions.assertThat(snapshot.getEndpoint(CastleEndpoint.AUTHENTICATE).getFailures()).isEqualTo(1);
+        Assertions.assertThat(snapshot.getFailovers(FailoverReason.IO_ERROR)).isEqualTo(1);
+        Assertions.assertThat(snapshot.getFailovers()).isEqualTo(1);
+    }
+
+    @Test
+    public void streamedPayloadSizeIsCounted() throws Exception {
+        //Given
+        server.enqueue(new MockResponse().setBody("{\"action\":\"allow\",\"user_id\":\"12345\"}"));
+        CastleMessage message = CastleMessage.builder("$login.succeeded").userId("12345").build();
+
+        //When
+        factory.buildBackend().sendAuthenticateSync(new CastleMessagePayload(message, null, "2019-01-02T03:04:05.678Z"));
+
+        //Then the counted size is the size of the body received by the server
+        RecordedRequest request = server.takeRequest();
+        EndpointMetricsSnapshot authenticate = metrics.snapshot().getEndpoint(CastleEndpoint.AUTHENTICATE);
+        Assertions.assertThat(authenticate.getPayloadSize().getCount()).isEqualTo(1);
+        Assertions.assertThat(authenticate.getPayloadSize().getMax()).isEqualTo(request.getBodySize());
+    }
+
+    @Test
+    public void getRequestsAreRecordedWithoutPayload() throws Exception {
+        //Given
+        server.enqueue(new MockResponse().setBody(DeviceUtils.getDefaultDeviceJSON()));
+
+        //When
+        factory.buildBackend().sendGetUserDeviceRequestSync("deviceToken");
+
+        //Then
+        EndpointMetricsSnapshot devices = metrics.snapshot().getEndpoint(CastleEndpoint.DEVICES);
+        Assertions.assertThat(devices.getRequests()).isEqualTo(1);
+        Assertions.assertThat(devices.getPayloadSize().getCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void resetForgetsMeasurements() throws Exception {
+        //Given
+        server.enqueue(new MockResponse().setResponseCode(500));
+        factory.buildBackend().sendAuthenticateSync(authenticatePayload());
+
+        //When
+        metrics.reset();
+
+        //Then
+        CastleMetricsSnapshot snapshot = metrics.snapshot();
+        Assertions.assertThat(snapshot.getEndpoint(CastleEndpoint.AUTHENTICATE).getRequests()).isEqualTo(0);
+        Assertions.assertThat(snapshot.getFailovers()).isEqualTo(0);
+    }
+
+    private static JsonObject authenticatePayload() {
+        JsonObject payload = new JsonObject();
+        payload.add("user_id", new JsonPrimitive("12345"));
+        return payload;
+    }
+}
@@ -0,0 +1,174 @@
+package io.castle.client.internal.backend;
+
+import com.google.gson.JsonObject;
+import io.castle.client.internal.config.CastleConfiguration;
+import io.castle.client.internal.config.CastleConfigurationBuilder;
+import io.castle.client.internal.json.CastleGsonModel;
+import io.castle.client.model.AsyncCallbackHandler;
+import io.castle.client.model.CastleApiTimeoutException;
+import io.castle.client.model.CastleEndpoint;
+import io.castle.client.model.CastleSdkConfigurationException;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class OkHttpFactoryTest {
+
+    @Test
+    public void backendIsSharedBetweenCalls() throws CastleSdkConfigurationException {
+        //Given
+        OkHttpFactory factory = new OkHttpFactory(configuration("https://api.castle.io/"), new CastleGsonModel());
+
+        //When the backend is requested twice
+        RestApi first = factory.buildBackend();
+        RestApi second = factory.buildBackend();
+
+        //Then the same instance is returned
+        Assertions.assertThat(first).isSameAs(second);
+        factory.close();
+    }
+
+    @Test
+    public void closedFactoryRejectsAsyncCalls() throws Exception {
+        //Given a closed factory
+        MockWebServer server = new MockWebServer();
+        server.start(InetAddress.getByName("127.0.0.1"), 0);
+        OkHttpFactory factory = new OkHttpFactory(configuration(server.url("/").toString()), new CastleGsonModel());
+        factory.close();
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+
+        //When an async call is made
+        factory.buildBackend().sendTrackRequest(new JsonObject(), new AsyncCallbackHandler<Boolean>() {
+            @Override
+            public void onResponse(Boolean response) {
+                Assertions.fail("closed backend must not send requests");
+            }
+
+            @Override
+            public void onException(Exception exception) {
+                failure.set(exception);
+            }
+        });
+
+        //Then the call fails without reaching the server
+        Assertions.assertThat(failure.get()).isNotNull();
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(0);
+        server.shutdown();
+    }
+
+    @Test
+    public void clientUsesHttpSettings() throws CastleSdkConfigurationException {
+        //Given
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        CastleConfiguration configuration = CastleConfigurationBuilder.defaultConfigBuilder()
+                .withApiSecret("test_api_secret")
+                .withMaxRequests(100)
+                .withMaxRequestsPerHost(50)
+                .withConnectionPoolSize(20)
+                .withKeepAliveDuration(60000)
+                .withHttp2(false)
+                .withExecutorService(executorService)
+                .build();
+
+        //When
+        OkHttpFactory factory = new OkHttpFactory(configuration, new CastleGsonModel());
+        OkHttpClient client = factory.getClient();
+
+        //Then
+        Assertions.assertThat(client.dispatcher().getMaxRequests()).isEqualTo(100);
+        Assertions.assertThat(client.dispatcher().getMaxRequestsPerHost()).isEqualTo(50);
+        Assertions.assertThat(client.dispatcher().executorService()).isSameAs(executorService);
+        Assertions.assertThat(client.protocols()).containsExactly(Protocol.HTTP_1_1);
+
+        //And the executor of the application is not shut down with the factory
+        factory.close();
+        Assertions.assertThat(executorService.isShutdown()).isFalse();
+        executorService.shutdown();
+    }
+
+    @Test
+    public void requestsPerHostDefaultsToMaxRequests() throws CastleSdkConfigurationException {
+        //Given
+        OkHttpFactory factory = new OkHttpFactory(configuration("https://api.castle.io/"), new CastleGsonModel());
+
+        //Then
+        Dispatcher dispatcher = factory.getClient().dispatcher();
+        Assertions.assertThat(dispatcher.getMaxRequestsPerHost()).isEqualTo(dispatcher.getMaxRequests());
+        Assertions.assertThat(factory.getClient().protocols()).contains(Protocol.HTTP_2);
+        factory.close();
+    }
+
+    @Test
+    public void endpointTimeoutOnlyAppliesToItsEndpoint() throws Exception {
+        //Given a server that does not answer and a short timeout for the device endpoints
+        MockWebServer server = new MockWebServer();
+        server.start(InetAddress.getByName("127.0.0.1"), 0);
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+        server.enqueue(new MockResponse().setBody("{\"success\":true}"));
+        CastleConfiguration configuration = CastleConfigurationBuilder.defaultConfigBuilder()
+                .withApiSecret("test_api_secret")
+                .withApiBaseUrl(server.url("/").toString())
+                .withTimeout(5000)
+                .withEndpointTimeout(CastleEndpoint.DEVICES, 200)
+                .build();
+        OkHttpFactory factory = new OkHttpFactory(configuration, new CastleGsonModel());
+
+        //When a device is requested
+        long start = System.currentTimeMillis();
+        try {
+            factory.buildBackend().sendGetUserDeviceRequestSync("deviceToken");
+            Assertions.fail("Expected the request to time out");
+        } catch (CastleApiTimeoutException e) {
+            //Then it times out after the endpoint timeout
+            Assertions.assertThat(System.currentTimeMillis() - start).isLessThan(4000);
+        }
+
+        //And the other endpoints keep the default timeout
+        Assertions.assertThat(factory.buildBackend().sendImpersonateStartRequestSync("12345", null, new JsonObject()).isSuccess()).isTrue();
+        factory.close();
+        server.shutdown();
+    }
+
+    @Test
+    public void callTimeoutOverridesConfiguredTimeouts() throws Exception {
+        //Given a server that does not answer
+        MockWebServer server = new MockWebServer();
+        server.start(InetAddress.getByName("127.0.0.1"), 0);
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+        CastleConfiguration configuration = CastleConfigurationBuilder.defaultConfigBuilder()
+                .withApiSecret("test_api_secret")
+                .withApiBaseUrl(server.url("/").toString())
+                .withTimeout(5000)
+                .build();
+        OkHttpFactory factory = new OkHttpFactory(configuration, new CastleGsonModel());
+
+        //When a device is requested with a call timeout
+        long start = System.currentTimeMillis();
+        try {
+            factory.buildBackend().withCallTimeout(200).sendGetUserDeviceRequestSync("deviceToken");
+            Assertions.fail("Expected the call to time out");
+        } catch (CastleApiTimeoutException e) {
+            //Then the call times out after the call timeout
+            Assertions.assertThat(System.currentTimeMillis() - start).isLessThan(4000);
+        }
+        factory.close();
+        server.shutdown();
+    }
+
+    private CastleConfiguration configuration(String baseUrl) throws CastleSdkConfigurationException {
+        return CastleConfigurationBuilder.defaultConfigBuilder()
+                .withApiSecret("test_api_secret")
+                .withApiBaseUrl(baseUrl)
+                .build();
+    }
+}
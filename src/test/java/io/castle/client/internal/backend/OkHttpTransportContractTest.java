@@ -0,0 +1,9 @@
+package io.castle.client.internal.backend;
+
+public class OkHttpTransportContractTest extends AbstractHttpTransportContractTest {
+
+    @Override
+    protected CastleBackendProvider backendProvider() {
+        return CastleBackendProvider.OKHTTP;
+    }
+}
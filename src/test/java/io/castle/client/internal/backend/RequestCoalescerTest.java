@@ -0,0 +1,128 @@
+package io.castle.client.internal.backend;
+
+import io.castle.client.internal.config.CastleConfigurationBuilder;
+import io.castle.client.internal.json.CastleGsonModel;
+import io.castle.client.model.CastleServerErrorException;
+import io.castle.client.model.CastleUserDevice;
+import io.castle.client.utils.DeviceUtils;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class RequestCoalescerTest {
+
+    private static final int THREADS = 8;
+
+    private MockWebServer server;
+    private OkHttpFactory factory;
+    private ExecutorService executor;
+
+    @Before
+    public void prepare() throws Exception {
+        server = new MockWebServer();
+        server.start(InetAddress.getByName("127.0.0.1"), 0);
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+        if (factory != null) {
+            factory.close();
+        }
+        server.shutdown();
+    }
+
+    @Test
+    public void concurrentLookupsShareOneCall() throws Exception {
+        //Given a slow device response
+        factory = factory();
+        server.enqueue(new MockResponse().setBody(DeviceUtils.getDefaultDeviceJSON()).setHeadersDelay(300, TimeUnit.MILLISECONDS));
+
+        //When
+        List<Future<CastleUserDevice>> results = lookUpConcurrently(factory.buildBackend());
+
+        //Then every thread gets its own copy of the one response
+        CastleUserDevice first = results.get(0).get();
+        Assertions.assertThat(first.getToken()).isEqualTo(DeviceUtils.DEVICE_TOKEN);
+        for (Future<CastleUserDevice> result : results.subList(1, THREADS)) {
+            Assertions.assertThat(result.get()).isNotSameAs(first).isEqualToComparingFieldByFieldRecursively(first);
+        }
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(1);
+        RequestCoalescer coalescer = ((OkRestApiBackend) factory.buildBackend()).getCoalescer();
+        Assertions.assertThat(coalescer.getCalls()).isEqualTo(1);
+        Assertions.assertThat(coalescer.getCoalesced()).isEqualTo(THREADS - 1);
+    }
+
+    @Test
+    public void concurrentLookupsShareTheError() throws Exception {
+        //Given a slow error response
+        factory = factory();
+        server.enqueue(new MockResponse().setResponseCode(503).setHeadersDelay(300, TimeUnit.MILLISECONDS));
+
+        //When
+        List<Future<CastleUserDevice>> results = lookUpConcurrently(factory.buildBackend());
+
+        //Then
+        for (Future<CastleUserDevice> result : results) {
+            try {
+                result.get();
+                Assertions.fail("lookup must fail");
+            } catch (ExecutionException e) {
+                Assertions.assertThat(e.getCause()).isInstanceOf(CastleServerErrorException.class);
+            }
+        }
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void sequentialLookupsAreNotShared() throws Exception {
+        //Given
+        factory = factory();
+        RestApi backend = factory.buildBackend();
+        server.enqueue(new MockResponse().setBody(DeviceUtils.getDefaultDeviceJSON()));
+        server.enqueue(new MockResponse().setBody(DeviceUtils.getDefaultDeviceJSON()));
+
+        //When
+        backend.sendGetUserDeviceRequestSync(DeviceUtils.DEVICE_TOKEN);
+        backend.sendGetUserDeviceRequestSync(DeviceUtils.DEVICE_TOKEN);
+
+        //Then
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(2);
+    }
+
+    private List<Future<CastleUserDevice>> lookUpConcurrently(final RestApi backend) {
+        List<Future<CastleUserDevice>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            results.add(executor.submit(new Callable<CastleUserDevice>() {
+                @Override
+                public CastleUserDevice call() {
+                    return backend.sendGetUserDeviceRequestSync(DeviceUtils.DEVICE_TOKEN);
+                }
+            }));
+        }
+        return results;
+    }
+
+    private OkHttpFactory factory() throws Exception {
+        return new OkHttpFactory(CastleConfigurationBuilder.defaultConfigBuilder()
+                .withApiSecret("test_api_secret")
+                .withApiBaseUrl(server.url("/").toString())
+                .withTimeout(2000)
+                .withRequestCoalescing(true)
+                .build(), new CastleGsonModel());
+    }
+}
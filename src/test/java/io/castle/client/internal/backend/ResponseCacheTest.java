@@ -0,0 +1,185 @@
+package io.castle.client.internal.backend;
+
+import io.castle.client.internal.config.CacheConfiguration;
+import io.castle.client.internal.config.CastleConfigurationBuilder;
+import io.castle.client.internal.json.CastleGsonModel;
+import io.castle.client.model.CastleUserDevice;
+import io.castle.client.model.CastleUserDevices;
+import io.castle.client.model.ResponseCacheStats;
+import io.castle.client.utils.DeviceUtils;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class ResponseCacheTest {
+
+    private static final String DEVICES = "{\"total_count\":1,\"data\":[" + DeviceUtils.getDefaultDeviceJSON() + "]}";
+
+    private MockWebServer server;
+    private OkHttpFactory factory;
+
+    @Before
+    public void prepare() throws Exception {
+        server = new MockWebServer();
+        server.start(InetAddress.getByName("127.0.0.1"), 0);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (factory != null) {
+            factory.close();
+        }
+        server.shutdown();
+    }
+
+    @Test
+    public void lookupIsAnsweredFromCache() throws Exception {
+        //Given
+        factory = factory();
+        RestApi backend = factory.buildBackend();
+        server.enqueue(new MockResponse().setBody(DeviceUtils.getDefaultDeviceJSON()));
+
+        //When
+        CastleUserDevice first = backend.sendGetUserDeviceRequestSync(DeviceUtils.DEVICE_TOKEN);
+        CastleUserDevice second = backend.sendGetUserDeviceRequestSync(DeviceUtils.DEVICE_TOKEN);
+
+        //Then each call gets its own copy of the cached response
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(1);
+        Assertions.assertThat(second).isNotSameAs(first).isEqualToComparingFieldByFieldRecursively(first);
+        ResponseCacheStats stats = factory.getResponseCacheStats();
+        Assertions.assertThat(stats.getHits()).isEqualTo(1);
+        Assertions.assertThat(stats.getMisses()).isEqualTo(1);
+        Assertions.assertThat(stats.getSize()).isEqualTo(1);
+    }
+
+    @Test
+    public void failedLookupIsNotCached() throws Exception {
+        //Given
+        factory = factory();
+        RestApi backend = factory.buildBackend();
+        server.enqueue(new MockResponse().setResponseCode(404));
+        server.enqueue(new MockResponse().setBody(DeviceUtils.getDefaultDeviceJSON()));
+
+        //When
+        CastleUserDevice missing = backend.sendGetUserDeviceRequestSync(DeviceUtils.DEVICE_TOKEN);
+        CastleUserDevice found = backend.sendGetUserDeviceRequestSync(DeviceUtils.DEVICE_TOKEN);
+
+        //Then
+        Assertions.assertThat(missing).isNull();
+        Assertions.assertThat(found.getToken()).isEqualTo(DeviceUtils.DEVICE_TOKEN);
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void approveInvalidatesDeviceAndUserDevices() throws Exception {
+        //Given a cached device and user devices
+        factory = factory();
+        RestApi backend = factory.buildBackend();
+        server.enqueue(new MockResponse().setBody(DeviceUtils.getDefaultDeviceJSON()));
+        server.enqueue(new MockResponse().setBody(DEVICES));
+        backend.sendGetUserDeviceRequestSync(DeviceUtils.DEVICE_TOKEN);
+        backend.sendGetUserDevicesRequestSync("userId");
+
+        //When the device is approved
+        server.enqueue(new MockResponse().setBody(DeviceUtils.getDefaultDeviceJSON()));
+        backend.sendApproveDeviceRequestSync(DeviceUtils.DEVICE_TOKEN);
+
+        //Then both lookups are sent again
+        server.enqueue(new MockResponse().setBody(DeviceUtils.getDefaultDeviceJSON()));
+        server.enqueue(new MockResponse().setBody(DEVICES));
+        backend.sendGetUserDeviceRequestSync(DeviceUtils.DEVICE_TOKEN);
+        CastleUserDevices devices = backend.sendGetUserDevicesRequestSync("userId");
+        Assertions.assertThat(devices.getTotalCount()).isEqualTo(1);
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(5);
+        Assertions.assertThat(factory.getResponseCacheStats().getInvalidations()).isEqualTo(2);
+    }
+
+    @Test
+    public void archiveInvalidatesUserDevicesAndTheirDevices() {
+        //Given
+        ResponseCache cache = new ResponseCache(new CacheConfiguration(true, 10, 60000, 60000, 60000));
+        cache.put(ResponseCache.Resource.DEVICE, "token", "{}", Collections.<String>emptyList(), cache.generation());
+        cache.put(ResponseCache.Resource.DEVICE, "other", "{}", Collections.<String>emptyList(), cache.generation());
+        cache.put(ResponseCache.Resource.USER_DEVICES, "userId", "{}", Collections.singletonList("token"), cache.generation());
+
+        //When
+        cache.invalidateUserDevices("userId");
+
+        //Then
+        Assertions.assertThat(cache.get(ResponseCache.Resource.USER_DEVICES, "userId")).isNull();
+        Assertions.assertThat(cache.get(ResponseCache.Resource.DEVICE, "token")).isNull();
+        Assertions.assertThat(cache.get(ResponseCache.Resource.DEVICE, "other")).isEqualTo("{}");
+    }
+
+    @Test
+    public void archiveOfUncachedUserDevicesKeepsOtherDevices() {
+        //Given cached devices, without the user devices of the archived user
+        ResponseCache cache = new ResponseCache(new CacheConfiguration(true, 10, 60000, 60000, 60000));
+        cache.put(ResponseCache.Resource.DEVICE, "token", "{}", Collections.<String>emptyList(), cache.generation());
+        cache.put(ResponseCache.Resource.USER_DEVICES, "otherUser", "{}", Collections.singletonList("token"), cache.generation());
+
+        //When
+        cache.invalidateUserDevices("userId");
+
+        //Then only the entries of the archived user are removed
+        Assertions.assertThat(cache.get(ResponseCache.Resource.DEVICE, "token")).isEqualTo("{}");
+        Assertions.assertThat(cache.get(ResponseCache.Resource.USER_DEVICES, "otherUser")).isEqualTo("{}");
+        Assertions.assertThat(cache.getStats().getInvalidations()).isEqualTo(0);
+    }
+
+    @Test
+    public void approveInvalidatesOnlyTheUserDevicesListingTheDevice() {
+        //Given user devices of several users, two of them listing the device
+        ResponseCache cache = new ResponseCache(new CacheConfiguration(true, 10, 60000, 60000, 60000));
+        cache.put(ResponseCache.Resource.USER_DEVICES, "first", "{}", Arrays.asList("token", "other"), cache.generation());
+        cache.put(ResponseCache.Resource.USER_DEVICES, "second", "{}", Collections.singletonList("token"), cache.generation());
+        cache.put(ResponseCache.Resource.USER_DEVICES, "third", "{}", Collections.singletonList("other"), cache.generation());
+
+        //When the device is approved
+        cache.invalidateDevice("token");
+
+        //Then the user devices listing it are removed, and the index only keeps the devices still listed
+        Assertions.assertThat(cache.get(ResponseCache.Resource.USER_DEVICES, "first")).isNull();
+        Assertions.assertThat(cache.get(ResponseCache.Resource.USER_DEVICES, "second")).isNull();
+        Assertions.assertThat(cache.get(ResponseCache.Resource.USER_DEVICES, "third")).isEqualTo("{}");
+        Assertions.assertThat(cache.indexedDevices()).isEqualTo(1);
+
+        //And replaced user devices are indexed with their new devices
+        cache.put(ResponseCache.Resource.USER_DEVICES, "third", "{}", Collections.singletonList("token"), cache.generation());
+        cache.invalidateDevice("other");
+        Assertions.assertThat(cache.get(ResponseCache.Resource.USER_DEVICES, "third")).isEqualTo("{}");
+        cache.invalidateDevice("token");
+        Assertions.assertThat(cache.get(ResponseCache.Resource.USER_DEVICES, "third")).isNull();
+        Assertions.assertThat(cache.indexedDevices()).isEqualTo(0);
+    }
+
+    @Test
+    public void responseRequestedBeforeInvalidationIsNotCached() {
+        //Given a lookup in flight
+        ResponseCache cache = new ResponseCache(new CacheConfiguration(true, 10, 60000, 60000, 60000));
+        long generation = cache.generation();
+
+        //When the device is approved before the lookup completes
+        cache.invalidateDevice("token");
+        cache.put(ResponseCache.Resource.DEVICE, "token", "{}", Collections.<String>emptyList(), generation);
+
+        //Then
+        Assertions.assertThat(cache.get(ResponseCache.Resource.DEVICE, "token")).isNull();
+    }
+
+    private OkHttpFactory factory() throws Exception {
+        return new OkHttpFactory(CastleConfigurationBuilder.defaultConfigBuilder()
+                .withApiSecret("test_api_secret")
+                .withApiBaseUrl(server.url("/").toString())
+                .withTimeout(1000)
+                .withCache(true)
+                .build(), new CastleGsonModel());
+    }
+}
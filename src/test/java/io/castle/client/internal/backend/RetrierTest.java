@@ -0,0 +1,277 @@
+package io.castle.client.internal.backend;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import io.castle.client.internal.config.CastleConfigurationBuilder;
+import io.castle.client.internal.config.RetryConfiguration;
+import io.castle.client.internal.json.CastleGsonModel;
+import io.castle.client.model.AuthenticateAction;
+import io.castle.client.model.AuthenticateFailoverStrategy;
+import io.castle.client.model.CastleEndpoint;
+import io.castle.client.model.CastleServerErrorException;
+import io.castle.client.model.CastleUserDevice;
+import io.castle.client.model.EndpointMetricsSnapshot;
+import io.castle.client.model.InMemoryCastleMetrics;
+import io.castle.client.model.RetryStats;
+import io.castle.client.model.Verdict;
+import io.castle.client.utils.DeviceUtils;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Dispatcher;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.EnumMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class RetrierTest {
+
+    private MockWebServer server;
+    private OkHttpFactory factory;
+
+    @Before
+    public void prepare() throws Exception {
+        server = new MockWebServer();
+        server.start(InetAddress.getByName("127.0.0.1"), 0);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (factory != null) {
+            factory.close();
+        }
+        server.shutdown();
+    }
+
+    @Test
+    public void getIsRetriedAfterServiceUnavailable() throws Exception {
+        //Given
+        factory = factory(configurationBuilder());
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setBody(DeviceUtils.getDefaultDeviceJSON()));
+
+        //When
+        CastleUserDevice device = factory.buildBackend().sendGetUserDeviceRequestSync("deviceToken");
+
+        //Then the second attempt succeeds
+        Assertions.assertThat(device).isEqualToComparingFieldByFieldRecursively(DeviceUtils.createExpectedDevice());
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(2);
+        Assertions.assertThat(factory.getRetryStats().getRetries()).isEqualTo(1);
+    }
+
+    @Test
+    public void trackIsRetriedAfterDisconnect() throws Exception {
+        //Given
+        factory = factory(configurationBuilder());
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+        server.enqueue(new MockResponse());
+
+        //When
+        JsonObject payload = new JsonObject();
+        payload.add("event", new JsonPrimitive("$login.succeeded"));
+        factory.buildBackend().sendTrackRequest(payload, null);
+
+        //Then
+        Assertions.assertThat(server.takeRequest(1, TimeUnit.SECONDS)).isNotNull();
+        Assertions.assertThat(server.takeRequest(1, TimeUnit.SECONDS).getPath()).isEqualTo("/v1/track");
+    }
+
+    @Test
+    public void putIsNotRetried() throws Exception {
+        //Given
+        factory = factory(configurationBuilder());
+        server.enqueue(new MockResponse().setResponseCode(503));
+
+        //When
+        try {
+            factory.buildBackend().sendApproveDeviceRequestSync("deviceToken");
+            Assertions.fail("Expected a server error");
+        } catch (CastleServerErrorException e) {
+            //Then
+            Assertions.assertThat(server.getRequestCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void authenticateIsNotRetriedWithoutCallTimeout() throws Exception {
+        //Given
+        factory = factory(configurationBuilder());
+        server.enqueue(new MockResponse().setResponseCode(503));
+
+        //When
+        Verdict verdict = factory.buildBackend().sendAuthenticateSync(authenticatePayload());
+
+        //Then the failover verdict is returned after a single request
+        Assertions.assertThat(verdict.isFailover()).isTrue();
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(1);
+        Assertions.assertThat(factory.getRetryStats().getGiveUps()).isEqualTo(1);
+    }
+
+    @Test
+    public void authenticateIsRetriedWithinCallTimeout() throws Exception {
+        //Given
+        factory = factory(configurationBuilder().withEndpointCallTimeout(CastleEndpoint.AUTHENTICATE, 2000));
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setBody("{\"action\":\"deny\",\"user_id\":\"12345\"}"));
+
+        //When
+        Verdict verdict = factory.buildBackend().sendAuthenticateSync(authenticatePayload());
+
+        //Then
+        Assertions.assertThat(verdict.isFailover()).isFalse();
+        Assertions.assertThat(verdict.getAction()).isEqualTo(AuthenticateAction.DENY);
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void budgetStopsRetries() throws Exception {
+        //Given a failing server and a budget of 1% of the requests
+        factory = factory(configurationBuilder().withMaxRetries(1).withRetryBudgetPercent(1));
+        server.setDispatcher(new okhttp3.mockwebserver.Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setResponseCode(503);
+            }
+        });
+
+        //When more requests than the saved up retries fail
+        for (int i = 0; i <= Retrier.MAX_BUDGET_RETRIES; i++) {
+            try {
+                factory.buildBackend().sendGetUserDeviceRequestSync("deviceToken");
+                Assertions.fail("Expected a server error");
+            } catch (CastleServerErrorException expected) {
+            }
+        }
+
+        //Then the last request is not retried
+        RetryStats stats = factory.getRetryStats();
+        Assertions.assertThat(stats.getRetries()).isEqualTo(Retrier.MAX_BUDGET_RETRIES);
+        Assertions.assertThat(stats.getBudgetExhausted()).isEqualTo(1);
+        Assertions.assertThat(stats.getGiveUps()).isEqualTo(Retrier.MAX_BUDGET_RETRIES + 1);
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(2 * Retrier.MAX_BUDGET_RETRIES + 1);
+    }
+
+    @Test
+    public void asyncRetryDoesNotHoldTheDispatcher() throws Exception {
+        //Given a client sending one request at a time, and a retrier waiting 300ms before each retry
+        final Retrier retrier = new Retrier(new RetryConfiguration(true, 2, 300, 300, 100, new EnumMap<CastleEndpoint, Integer>(CastleEndpoint.class))) {
+            @Override
+            long backoffNanos(int retry) {
+                return TimeUnit.MILLISECONDS.toNanos(300);
+            }
+        };
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequestsPerHost(1);
+        final OkHttpClient client = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .addInterceptor(retrier.interceptor(CastleEndpoint.TRACK))
+                .build();
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse());
+        server.enqueue(new MockResponse());
+        final CountDownLatch done = new CountDownLatch(2);
+        Callback callback = new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                done.countDown();
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                response.close();
+                done.countDown();
+            }
+        };
+
+        //When a second request is sent while the first one waits for its retry
+        retrier.enqueue(client, trackRequest("first"), CastleEndpoint.TRACK, callback);
+        Assertions.assertThat(server.takeRequest(1, TimeUnit.SECONDS).getBody().readUtf8()).isEqualTo("first");
+        retrier.enqueue(client, trackRequest("second"), CastleEndpoint.TRACK, callback);
+
+        //Then the second request is sent before the retry
+        Assertions.assertThat(done.await(2, TimeUnit.SECONDS)).isTrue();
+        Assertions.assertThat(server.takeRequest().getBody().readUtf8()).isEqualTo("second");
+        Assertions.assertThat(server.takeRequest().getBody().readUtf8()).isEqualTo("first");
+        Assertions.assertThat(retrier.getStats().getRetries()).isEqualTo(1);
+        retrier.close();
+        client.dispatcher().executorService().shutdown();
+    }
+
+    @Test
+    public void retriesAreRecordedInMetrics() throws Exception {
+        //Given
+        InMemoryCastleMetrics metrics = new InMemoryCastleMetrics();
+        factory = factory(configurationBuilder().withMetrics(metrics));
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setBody(DeviceUtils.getDefaultDeviceJSON()));
+        server.enqueue(new MockResponse().setResponseCode(503));
+
+        //When a GET is retried and an authenticate without call timeout is given up
+        factory.buildBackend().sendGetUserDeviceRequestSync("deviceToken");
+        factory.buildBackend().sendAuthenticateSync(authenticatePayload());
+
+        //Then
+        EndpointMetricsSnapshot devices = metrics.snapshot().getEndpoint(CastleEndpoint.DEVICES);
+        Assertions.assertThat(devices.getRetries()).isEqualTo(1);
+        Assertions.assertThat(devices.getRequests()).isEqualTo(2);
+        EndpointMetricsSnapshot authenticate = metrics.snapshot().getEndpoint(CastleEndpoint.AUTHENTICATE);
+        Assertions.assertThat(authenticate.getRetries()).isEqualTo(0);
+        Assertions.assertThat(authenticate.getRetryGiveUps()).isEqualTo(1);
+        Assertions.assertThat(authenticate.getRetryBudgetExhausted()).isEqualTo(0);
+    }
+
+    @Test
+    public void backoffIsCappedByMaxDelay() throws Exception {
+        //Given
+        factory = factory(configurationBuilder().withRetryBaseDelay(10).withRetryMaxDelay(40));
+        Retrier retrier = ((OkRestApiBackend) factory.buildBackend()).getRetrier();
+
+        //Then every delay is between 0 and the capped exponential backoff
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertThat(retrier.backoffNanos(0)).isBetween(0L, TimeUnit.MILLISECONDS.toNanos(10));
+            Assertions.assertThat(retrier.backoffNanos(1)).isBetween(0L, TimeUnit.MILLISECONDS.toNanos(20));
+            Assertions.assertThat(retrier.backoffNanos(10)).isBetween(0L, TimeUnit.MILLISECONDS.toNanos(40));
+        }
+    }
+
+    private CastleConfigurationBuilder configurationBuilder() {
+        return CastleConfigurationBuilder.defaultConfigBuilder()
+                .withApiSecret("test_api_secret")
+                .withApiBaseUrl(server.url("/").toString())
+                .withAuthenticateFailoverStrategy(new AuthenticateFailoverStrategy(AuthenticateAction.CHALLENGE))
+                .withRetries(true)
+                .withRetryBaseDelay(1)
+                .withRetryMaxDelay(10);
+    }
+
+    private OkHttpFactory factory(CastleConfigurationBuilder builder) throws Exception {
+        return new OkHttpFactory(builder.build(), new CastleGsonModel());
+    }
+
+    private Request trackRequest(String body) {
+        return new Request.Builder()
+                .url(server.url("/v1/track"))
+                .post(RequestBody.create(MediaType.parse("text/plain"), body))
+                .build();
+    }
+
+    private static JsonObject authenticatePayload() {
+        JsonObject payload = new JsonObject();
+        payload.add("user_id", new JsonPrimitive("12345"));
+        return payload;
+    }
+}
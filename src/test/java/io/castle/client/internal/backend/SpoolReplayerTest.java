@@ -0,0 +1,106 @@
+package io.castle.client.internal.backend;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import io.castle.client.internal.config.CastleConfigurationBuilder;
+import io.castle.client.internal.json.CastleGsonModel;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+
+public class SpoolReplayerTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private OkHttpFactory factory;
+
+    @Before
+    public void prepare() throws Exception {
+        server = new MockWebServer();
+        server.start(InetAddress.getByName("127.0.0.1"), 0);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (factory != null) {
+            factory.close();
+        }
+        server.shutdown();
+    }
+
+    @Test
+    public void failedTrackRequestIsReplayed() throws Exception {
+        //Given
+        factory = new OkHttpFactory(configurationBuilder().build(), new CastleGsonModel());
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(204));
+
+        //When
+        factory.buildBackend().sendTrackRequest(trackPayload(), null);
+
+        //Then
+        RecordedRequest failed = server.takeRequest(2, TimeUnit.SECONDS);
+        RecordedRequest replayed = server.takeRequest(5, TimeUnit.SECONDS);
+        Assertions.assertThat(replayed).isNotNull();
+        Assertions.assertThat(replayed.getPath()).isEqualTo("/v1/track");
+        Assertions.assertThat(replayed.getBody().readUtf8()).isEqualTo(failed.getBody().readUtf8());
+        Assertions.assertThat(factory.getSpoolStats().getSpooled()).isEqualTo(1);
+    }
+
+    @Test
+    public void successfulTrackRequestIsNotSpooled() throws Exception {
+        //Given
+        factory = new OkHttpFactory(configurationBuilder().build(), new CastleGsonModel());
+        server.enqueue(new MockResponse().setResponseCode(204));
+
+        //When
+        factory.buildBackend().sendTrackRequest(trackPayload(), null);
+        server.takeRequest(2, TimeUnit.SECONDS);
+        factory.close();
+        factory = null;
+
+        //Then
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(1);
+        Assertions.assertThat(folder.getRoot().list()).containsOnly("castle-spool.lock");
+    }
+
+    @Test
+    public void spoolIsDisabledWhenItCanNotBeOpened() throws Exception {
+        //Given a directory already used by another spool
+        factory = new OkHttpFactory(configurationBuilder().build(), new CastleGsonModel());
+
+        //When
+        OkHttpFactory other = new OkHttpFactory(configurationBuilder().build(), new CastleGsonModel());
+
+        //Then
+        Assertions.assertThat(other.getEventSpool()).isNull();
+        Assertions.assertThat(other.getSpoolStats()).isNull();
+        other.close();
+    }
+
+    private CastleConfigurationBuilder configurationBuilder() {
+        return CastleConfigurationBuilder.defaultConfigBuilder()
+                .withApiSecret("test_api_secret")
+                .withApiBaseUrl(server.url("/").toString())
+                .withTimeout(1000)
+                .withSpool(true)
+                .withSpoolDirectory(folder.getRoot().getPath());
+    }
+
+    private static JsonObject trackPayload() {
+        JsonObject payload = new JsonObject();
+        payload.add("event", new JsonPrimitive("$login.succeeded"));
+        return payload;
+    }
+}
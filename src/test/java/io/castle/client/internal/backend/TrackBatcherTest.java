@@ -0,0 +1,275 @@
+package io.castle.client.internal.backend;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+import io.castle.client.internal.config.SpoolConfiguration;
+import io.castle.client.internal.config.TrackBatchConfiguration;
+import io.castle.client.model.AsyncCallbackHandler;
+import io.castle.client.model.TrackBatchOverflowHandler;
+import io.castle.client.model.TrackBatchOverflowPolicy;
+import io.castle.client.model.TrackBatchStats;
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentMatchers;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TrackBatcherTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<JsonElement> sentEvents = new ArrayList<>();
+    private TrackBatcher batcher;
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        if (batcher != null) {
+            batcher.shutdown(1, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void dropOldestKeepsTheNewestEvents() throws InterruptedException {
+        // Given a batcher whose flusher is stuck on a slow backend
+        batcher = new TrackBatcher(blockingRestApi(), configuration(TrackBatchOverflowPolicy.DROP_OLDEST, null));
+        fillUntilFlusherBlocks();
+
+        // When more events than the queue capacity are submitted
+        for (int i = 0; i < 4; i++) {
+            batcher.enqueue(new JsonPrimitive("event" + i), null);
+        }
+
+        // Then the oldest events are dropped and the queue stays bounded
+        TrackBatchStats stats = batcher.getStats();
+        Assertions.assertThat(stats.getQueueDepth()).isEqualTo(2);
+        Assertions.assertThat(stats.getDropped()).isEqualTo(2);
+
+        release.countDown();
+        Assertions.assertThat(batcher.shutdown(1, TimeUnit.SECONDS)).isTrue();
+        Assertions.assertThat(sentEvents)
+                .doesNotContain(new JsonPrimitive("event0"), new JsonPrimitive("event1"))
+                .endsWith(new JsonPrimitive("event2"), new JsonPrimitive("event3"));
+    }
+
+    @Test
+    public void callbackReceivesRejectedEvents() throws InterruptedException {
+        // Given a batcher with an overflow handler
+        final List<JsonElement> rejected = new ArrayList<>();
+        batcher = new TrackBatcher(blockingRestApi(), configuration(TrackBatchOverflowPolicy.CALLBACK, new TrackBatchOverflowHandler() {
+            @Override
+            public void onOverflow(JsonElement payload) {
+                rejected.add(payload);
+            }
+        }));
+        fillUntilFlusherBlocks();
+
+        final List<Exception> exceptions = new ArrayList<>();
+
+        // When the queue overflows
+        for (int i = 0; i < 2; i++) {
+            batcher.enqueue(new JsonPrimitive("event" + i), null);
+        }
+        batcher.enqueue(new JsonPrimitive("event2"), new AsyncCallbackHandler<Boolean>() {
+            @Override
+            public void onResponse(Boolean response) {
+                Assertions.fail("rejected event must not be sent");
+            }
+
+            @Override
+            public void onException(Exception exception) {
+                exceptions.add(exception);
+            }
+        });
+
+        // Then the new event is handed to the callback and its handler is told it was dropped
+        Assertions.assertThat(rejected).containsExactly(new JsonPrimitive("event2"));
+        Assertions.assertThat(exceptions).hasSize(1);
+        Assertions.assertThat(batcher.getStats().getDropped()).isEqualTo(1);
+    }
+
+    @Test
+    public void failingHandlerDoesNotKeepOthersFromBeingNotified() {
+        // Given a batch of two events whose first handler throws
+        release.countDown();
+        batcher = new TrackBatcher(blockingRestApi(), new TrackBatchConfiguration(true, 2, 1000, 10, TrackBatchOverflowPolicy.BLOCK, null));
+        final List<Boolean> responses = new ArrayList<>();
+        batcher.enqueue(new JsonPrimitive("event0"), new AsyncCallbackHandler<Boolean>() {
+            @Override
+            public void onResponse(Boolean response) {
+                throw new IllegalStateException("failing handler");
+            }
+
+            @Override
+            public void onException(Exception exception) {
+            }
+        });
+        batcher.enqueue(new JsonPrimitive("event1"), new AsyncCallbackHandler<Boolean>() {
+            @Override
+            public void onResponse(Boolean response) {
+                synchronized (responses) {
+                    responses.add(response);
+                }
+            }
+
+            @Override
+            public void onException(Exception exception) {
+            }
+        });
+
+        // When the batch completes
+        Assertions.assertThat(batcher.shutdown(1, TimeUnit.SECONDS)).isTrue();
+
+        // Then the second handler is notified
+        synchronized (responses) {
+            Assertions.assertThat(responses).containsExactly(true);
+        }
+    }
+
+    @Test
+    public void spoolReceivesRejectedEvents() throws Exception {
+        // Given a batcher with a spool
+        EventSpool spool = EventSpool.open(new SpoolConfiguration(true, folder.getRoot().getPath(), 1024, 4096, 60000, 60000, 1));
+        batcher = new TrackBatcher(blockingRestApi(), configuration(TrackBatchOverflowPolicy.SPOOL, null), spool);
+        fillUntilFlusherBlocks();
+
+        // When the queue overflows
+        for (int i = 0; i < 3; i++) {
+            batcher.enqueue(new JsonPrimitive("event" + i), null);
+        }
+
+        // Then the new event is written to the spool
+        EventSpool.Record record = spool.peek();
+        Assertions.assertThat(record.getKind()).isEqualTo(EventSpool.Kind.TRACK);
+        Assertions.assertThat(new String(record.getBody(), StandardCharsets.UTF_8)).isEqualTo("\"event2\"");
+        Assertions.assertThat(batcher.getStats().getDropped()).isEqualTo(0);
+        spool.close();
+    }
+
+    @Test
+    public void eventsAreRejectedAfterShutdown() {
+        // Given a batcher that has been shut down
+        batcher = new TrackBatcher(blockingRestApi(), configuration(TrackBatchOverflowPolicy.BLOCK, null));
+        release.countDown();
+        batcher.shutdown(1, TimeUnit.SECONDS);
+        final List<Exception> exceptions = new ArrayList<>();
+
+        // When an event is submitted
+        batcher.enqueue(new JsonPrimitive("late"), new AsyncCallbackHandler<Boolean>() {
+            @Override
+            public void onResponse(Boolean response) {
+                Assertions.fail("late event must not be sent");
+            }
+
+            @Override
+            public void onException(Exception exception) {
+                exceptions.add(exception);
+            }
+        });
+
+        // Then it is rejected through its callback
+        Assertions.assertThat(exceptions).hasSize(1);
+        Assertions.assertThat(batcher.getStats().getDropped()).isEqualTo(1);
+    }
+
+    @Test
+    public void batchersShareOneShutdownHook() {
+        // Given two running batchers
+        release.countDown();
+        int running = TrackBatcher.getRunningBatchers();
+        TrackBatcher first = new TrackBatcher(blockingRestApi(), configuration(TrackBatchOverflowPolicy.BLOCK, null));
+        batcher = new TrackBatcher(blockingRestApi(), configuration(TrackBatchOverflowPolicy.BLOCK, null));
+        Assertions.assertThat(TrackBatcher.getRunningBatchers()).isEqualTo(running + 2);
+        Assertions.assertThat(TrackBatcher.isShutdownHookRegistered()).isTrue();
+
+        // When they are shut down
+        first.shutdown(1, TimeUnit.SECONDS);
+        batcher.shutdown(1, TimeUnit.SECONDS);
+
+        // Then the hook no longer references them, and is removed with the last running batcher
+        Assertions.assertThat(TrackBatcher.getRunningBatchers()).isEqualTo(running);
+        Assertions.assertThat(TrackBatcher.isShutdownHookRegistered()).isEqualTo(running > 0);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void batchUsesTheSmallestCallTimeoutOfItsEvents() {
+        // Given a batch of two events sent within different call timeouts
+        release.countDown();
+        RestApi restApi = mock(RestApi.class);
+        RestApi timedRestApi = blockingRestApi();
+        when(restApi.withCallTimeout(100)).thenReturn(timedRestApi);
+        batcher = new TrackBatcher(restApi, new TrackBatchConfiguration(true, 3, 1000, 10, TrackBatchOverflowPolicy.BLOCK, null));
+
+        // When the batch is sent
+        batcher.enqueue(new JsonPrimitive("event0"), 500, null);
+        batcher.enqueue(new JsonPrimitive("event1"), 100, null);
+        batcher.enqueue(new JsonPrimitive("event2"), null);
+        batcher.shutdown(1, TimeUnit.SECONDS);
+
+        // Then it is sent with the smallest call timeout
+        Assertions.assertThat(sentEvents).containsExactly(
+                new JsonPrimitive("event0"), new JsonPrimitive("event1"), new JsonPrimitive("event2"));
+        verify(restApi, never()).sendTrackBatchRequest(ArgumentMatchers.<JsonElement>anyList(), any(AsyncCallbackHandler.class));
+    }
+
+    private void fillUntilFlusherBlocks() throws InterruptedException {
+        for (int i = 0; i < TrackBatcher.MAX_IN_FLIGHT_BATCHES + 1; i++) {
+            batcher.enqueue(new JsonPrimitive("blocking" + i), null);
+            while (batcher.getStats().getQueueDepth() > 0) {
+                Thread.sleep(5);
+            }
+        }
+        // The flusher now waits for a free in-flight slot, so new events stay in the queue.
+        Thread.sleep(50);
+    }
+
+    private TrackBatchConfiguration configuration(TrackBatchOverflowPolicy policy, TrackBatchOverflowHandler handler) {
+        return new TrackBatchConfiguration(true, 1, 10, 2, policy, handler);
+    }
+
+    @SuppressWarnings("unchecked")
+    private RestApi blockingRestApi() {
+        RestApi restApi = mock(RestApi.class);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                List<JsonElement> batch = invocation.getArgument(0);
+                final AsyncCallbackHandler<Boolean> handler = invocation.getArgument(1);
+                synchronized (sentEvents) {
+                    sentEvents.addAll(batch);
+                }
+                new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            release.await();
+                        } catch (InterruptedException ignored) {
+                        }
+                        handler.onResponse(true);
+                    }
+                }).start();
+                return null;
+            }
+        }).when(restApi).sendTrackBatchRequest(ArgumentMatchers.<JsonElement>anyList(), any(AsyncCallbackHandler.class));
+        return restApi;
+    }
+}
@@ -2,8 +2,10 @@ package io.castle.client.internal.config;
 
 import io.castle.client.model.AuthenticateAction;
 import io.castle.client.model.AuthenticateFailoverStrategy;
+import io.castle.client.model.CastleEndpoint;
 import io.castle.client.model.CastleRuntimeException;
 import io.castle.client.model.CastleSdkConfigurationException;
+import io.castle.client.model.TrackBatchOverflowPolicy;
 import org.assertj.core.api.Assertions;
 import org.junit.Assert;
 import org.junit.Rule;
@@ -221,7 +223,7 @@ public class ConfigurationLoaderTest {
     }
 
 
-    @Test(expected = NumberFormatException.class)
+    @Test(expected = CastleSdkConfigurationException.class)
     public void testTimeoutWithNonParsableInt() throws CastleSdkConfigurationException {
         //given
         Properties properties = new Properties();
@@ -236,6 +238,140 @@ public class ConfigurationLoaderTest {
         //then an exception is throw, since the provided timeout cannot be parsed into an int.
     }
 
+    @Test
+    public void loadPerformanceSettingsFromProperties() throws CastleSdkConfigurationException {
+        //given
+        Properties properties = new Properties();
+        properties.setProperty("api_secret", "212312");
+        properties.setProperty("app_id", "F");
+        properties.setProperty("call_timeout", "1500");
+        properties.setProperty("authenticate_timeout", "300");
+        properties.setProperty("track_call_timeout", "2000");
+        properties.setProperty("track_batching", "true");
+        properties.setProperty("track_batch_max_size", "50");
+        properties.setProperty("track_batch_flush_interval", "200");
+        properties.setProperty("track_batch_queue_capacity", "500");
+        properties.setProperty("track_batch_overflow_policy", "block");
+        properties.setProperty("max_requests", "32");
+        properties.setProperty("max_requests_per_host", "16");
+        properties.setProperty("connection_pool_size", "8");
+        properties.setProperty("keep_alive_duration", "60000");
+        properties.setProperty("http2", "false");
+        properties.setProperty("circuit_breaker", "true");
+        properties.setProperty("circuit_breaker_window_size", "40");
+        properties.setProperty("circuit_breaker_minimum_calls", "10");
+        properties.setProperty("circuit_breaker_failure_rate_threshold", "60");
+        properties.setProperty("circuit_breaker_open_duration", "5000");
+        properties.setProperty("circuit_breaker_half_open_calls", "2");
+        properties.setProperty("retries", "true");
+        properties.setProperty("max_retries", "3");
+        properties.setProperty("authenticate_max_retries", "1");
+        properties.setProperty("retry_base_delay", "20");
+        properties.setProperty("retry_max_delay", "400");
+        properties.setProperty("retry_budget_percent", "20");
+        properties.setProperty("hedging", "true");
+        properties.setProperty("hedge_delay_percentile", "90");
+        properties.setProperty("hedge_min_delay", "5");
+        properties.setProperty("hedge_budget_percent", "10");
+        properties.setProperty("spool", "true");
+        properties.setProperty("spool_directory", "/tmp/castle-spool");
+        properties.setProperty("spool_segment_size", "4096");
+        properties.setProperty("spool_max_size", "8589934592");
+        properties.setProperty("spool_max_age", "3600000");
+        properties.setProperty("spool_segment_max_age", "30000");
+        properties.setProperty("spool_replay_rate", "5");
+        properties.setProperty("cache", "true");
+        properties.setProperty("cache_max_size", "200");
+        properties.setProperty("cache_device_ttl", "1000");
+        properties.setProperty("cache_user_devices_ttl", "2000");
+        properties.setProperty("cache_review_ttl", "3000");
+        properties.setProperty("request_coalescing", "true");
+        properties.setProperty("secure_user_id_cache_size", "100");
+        properties.setProperty("request_compression", "true");
+        properties.setProperty("request_compression_threshold", "2048");
+        ConfigurationLoader loader = new ConfigurationLoader(properties);
+        CastleConfiguration expectedConfiguration = CastleConfigurationBuilder
+                .defaultConfigBuilder()
+                .withApiSecret("212312")
+                .withCastleAppId("F")
+                .withCallTimeout(1500)
+                .withEndpointTimeout(CastleEndpoint.AUTHENTICATE, 300)
+                .withEndpointCallTimeout(CastleEndpoint.TRACK, 2000)
+                .withTrackBatching(true)
+                .withTrackBatchMaxSize(50)
+                .withTrackBatchFlushInterval(200)
+                .withTrackBatchQueueCapacity(500)
+                .withTrackBatchOverflowPolicy(TrackBatchOverflowPolicy.BLOCK)
+                .withMaxRequests(32)
+                .withMaxRequestsPerHost(16)
+                .withConnectionPoolSize(8)
+                .withKeepAliveDuration(60000)
+                .withHttp2(false)
+                .withCircuitBreaker(true)
+                .withCircuitBreakerWindowSize(40)
+                .withCircuitBreakerMinimumCalls(10)
+                .withCircuitBreakerFailureRateThreshold(60)
+                .withCircuitBreakerOpenDuration(5000)
+                .withCircuitBreakerHalfOpenCalls(2)
+                .withRetries(true)
+                .withMaxRetries(3)
+                .withEndpointMaxRetries(CastleEndpoint.AUTHENTICATE, 1)
+                .withRetryBaseDelay(20)
+                .withRetryMaxDelay(400)
+                .withRetryBudgetPercent(20)
+                .withHedging(true)
+                .withHedgeDelayPercentile(90)
+                .withHedgeMinDelay(5)
+                .withHedgeBudgetPercent(10)
+                .withSpool(true)
+                .withSpoolDirectory("/tmp/castle-spool")
+                .withSpoolSegmentSize(4096)
+                .withSpoolMaxSize(8589934592L)
+                .withSpoolMaxAge(3600000)
+                .withSpoolSegmentMaxAge(30000)
+                .withSpoolReplayRate(5)
+                .withCache(true)
+                .withCacheMaxSize(200)
+                .withCacheDeviceTtl(1000)
+                .withCacheUserDevicesTtl(2000)
+                .withCacheReviewTtl(3000)
+                .withRequestCoalescing(true)
+                .withSecureUserIdCacheSize(100)
+                .withRequestCompression(true)
+                .withRequestCompressionThreshold(2048)
+                .build();
+
+        //when
+        CastleConfiguration castleConfiguration = loader.loadConfiguration();
+
+        //then the configuration has the loaded values
+        Assertions.assertThat(castleConfiguration).isEqualToComparingFieldByFieldRecursively(expectedConfiguration);
+    }
+
+    @Test
+    public void nonParsableNumbersAreConfigurationErrors() {
+        //given
+        Properties properties = new Properties();
+        properties.setProperty("api_secret", "212312");
+        properties.setProperty("app_id", "F");
+        properties.setProperty("max_requests_per_host", "many");
+        properties.setProperty("spool_max_size", "1GB");
+        properties.setProperty("devices_call_timeout", "1.5");
+        ConfigurationLoader loader = new ConfigurationLoader(properties);
+
+        try {
+            //when
+            loader.loadConfiguration();
+            Assertions.fail("wrong numbers should not be loaded");
+        } catch (CastleSdkConfigurationException e) {
+            //then every wrong value is reported
+            Assertions.assertThat(e.getMessage())
+                    .contains("'many' of max_requests_per_host")
+                    .contains("'1GB' of spool_max_size")
+                    .contains("'1.5' of devices_call_timeout");
+        }
+    }
+
     @Test(expected = CastleSdkConfigurationException.class)
     public void tryToLoadConfigurationsFromAWrongFile() throws CastleSdkConfigurationException {
         //given
@@ -0,0 +1,142 @@
+package io.castle.client.internal.json;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
+import io.castle.client.internal.utils.ContextSnapshot;
+import io.castle.client.model.CastleContext;
+import io.castle.client.model.CastleHeaders;
+import io.castle.client.model.CastleMessage;
+import okio.Buffer;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class CastleMessagePayloadTest {
+
+    private Gson gson = new CastleGsonModel().getGson();
+
+    @Test
+    public void streamedMessageMatchesTree() throws IOException {
+        // Given a message with nested properties and traits
+        JsonObject properties = new JsonObject();
+        properties.addProperty("key", "value");
+        properties.add("empty", JsonNull.INSTANCE);
+        JsonArray list = new JsonArray();
+        list.add(1);
+        list.add("two");
+        properties.add("list", list);
+        CastleMessage message = CastleMessage.builder("$login.succeeded")
+                .userId("12345")
+                .deviceToken("token")
+                .reviewId("review")
+                .timestamp("2018-01-01")
+                .properties(properties)
+                .userTraits(ImmutableMap.of("email", "a@b.c", "tags", Arrays.asList(1, 2)))
+                .build();
+
+        // And a context coming from the request
+        JsonObject contextJson = new JsonObject();
+        contextJson.addProperty("ip", "1.1.1.1");
+        contextJson.addProperty("active", true);
+
+        CastleMessagePayload payload = new CastleMessagePayload(message, contextJson, "2019-01-02T03:04:05.678Z");
+
+        // Then
+        Assertions.assertThat(write(payload)).isEqualTo(payload.toJson(gson).toString());
+    }
+
+    @Test
+    public void streamedSnapshotMatchesTree() throws IOException {
+        // Given a context snapshot shared by two messages
+        CastleContext context = new CastleContext();
+        context.setIp("1.1.1.1");
+        context.setHeaders(CastleHeaders.builder().add("User-Agent", "Mozilla/5.0").build());
+        ContextSnapshot snapshot = new ContextSnapshot(context, gson);
+
+        CastleMessagePayload first = CastleMessagePayload.withSnapshot(CastleMessage.builder("$login.succeeded").userId("12345").build(), snapshot, "2019-01-02T03:04:05.678Z");
+        CastleMessagePayload second = CastleMessagePayload.withSnapshot(CastleMessage.builder("$logout.succeeded").userId("12345").build(), snapshot, "2019-01-02T03:04:05.678Z");
+
+        // Then both splice the same context text
+        Assertions.assertThat(write(first)).isEqualTo(first.toJson(gson).toString());
+        Assertions.assertThat(write(second)).isEqualTo(second.toJson(gson).toString());
+        Assertions.assertThat(write(second)).contains("\"context\":" + snapshot.toJsonText() + ",");
+    }
+
+    @Test
+    public void snapshotIsWrittenToSink() throws IOException {
+        // Given
+        CastleContext context = new CastleContext();
+        context.setIp("1.1.1.1");
+        context.setHeaders(CastleHeaders.builder().add("User-Agent", "Mozilla/5.0 \u00e9").build());
+        ContextSnapshot snapshot = new ContextSnapshot(context, gson);
+        CastleMessagePayload payload = CastleMessagePayload.withSnapshot(CastleMessage.builder("$login.succeeded").userId("\u00e9").build(), snapshot, "2019-01-02T03:04:05.678Z");
+
+        // When
+        Buffer sink = new Buffer();
+        JsonWriter writer = new JsonWriter(new OutputStreamWriter(sink.outputStream(), StandardCharsets.UTF_8));
+        payload.write(writer, gson);
+        writer.flush();
+
+        // Then
+        Assertions.assertThat(sink.readUtf8()).isEqualTo(payload.toJson(gson).toString());
+    }
+
+    @Test
+    public void streamedMessageContextMatchesTree() throws IOException {
+        // Given a message with its own context
+        CastleContext context = new CastleContext();
+        context.setIp("1.1.1.1");
+        context.setHeaders(CastleHeaders.builder().add("User-Agent", "Mozilla/5.0").build());
+        CastleMessage message = CastleMessage.builder("$login.succeeded")
+                .userId("12345")
+                .context(context)
+                .build();
+
+        CastleMessagePayload payload = new CastleMessagePayload(message, null, "2019-01-02T03:04:05.678Z");
+
+        // Then
+        Assertions.assertThat(write(payload)).isEqualTo(payload.toJson(gson).toString());
+    }
+
+    @Test
+    public void streamedMessageWithoutContext() throws IOException {
+        // Given
+        CastleMessage message = CastleMessage.builder("$login.succeeded").build();
+
+        CastleMessagePayload payload = new CastleMessagePayload(message, null, "2019-01-02T03:04:05.678Z");
+
+        // Then
+        Assertions.assertThat(write(payload))
+                .isEqualTo("{\"event\":\"$login.succeeded\",\"context\":null,\"sent_at\":\"2019-01-02T03:04:05.678Z\"}");
+    }
+
+    @Test
+    public void streamedMessageWithOtherAttributes() throws IOException {
+        // Given
+        CastleMessage message = CastleMessage.builder("$login.succeeded")
+                .userId("12345")
+                .put("key", "value")
+                .build();
+
+        CastleMessagePayload payload = new CastleMessagePayload(message, new JsonObject(), "2019-01-02T03:04:05.678Z");
+
+        // Then
+        Assertions.assertThat(write(payload)).isEqualTo(payload.toJson(gson).toString());
+        Assertions.assertThat(payload.toJson(gson).get("key").getAsString()).isEqualTo("value");
+    }
+
+    private String write(CastleMessagePayload payload) throws IOException {
+        StringWriter writer = new StringWriter();
+        payload.write(new JsonWriter(writer), gson);
+        return writer.toString();
+    }
+}
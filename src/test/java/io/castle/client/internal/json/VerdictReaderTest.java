@@ -0,0 +1,82 @@
+package io.castle.client.internal.json;
+
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import io.castle.client.model.AuthenticateAction;
+import io.castle.client.model.RiskPolicyType;
+import io.castle.client.model.Verdict;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+public class VerdictReaderTest {
+
+    private static final String DENY_RESPONSE = "{\n" +
+            "  \"action\": \"deny\",\n" +
+            "  \"user_id\": \"12345\",\n" +
+            "  \"device_token\": \"abcdefg1234\",\n" +
+            "  \"risk_policy\": {\n" +
+            "    \"id\": \"q-rbeMzBTdW2Fd09sbz55A\",\n" +
+            "    \"revision_id\": \"pke4zqO2TnqVr-NHJOAHEg\",\n" +
+            "    \"name\": \"Block Users from X\",\n" +
+            "    \"type\": \"bot\"\n" +
+            "  },\n" +
+            "  \"signals\": {\"new_device\": {}},\n" +
+            "  \"scores\": [0.1, 0.9]\n" +
+            "}";
+
+    private CastleGsonModel model = new CastleGsonModel();
+
+    @Test
+    public void readsVerdictAndInternalTree() throws IOException {
+        // Given
+        VerdictReader reader = new VerdictReader(model.getGson(), true);
+
+        // When
+        Verdict verdict = reader.read(new StringReader(DENY_RESPONSE));
+
+        // Then
+        assertDenyVerdict(verdict);
+        Assertions.assertThat(verdict).hasFieldOrPropertyWithValue("internal", new JsonParser().parse(DENY_RESPONSE));
+    }
+
+    @Test
+    public void skipsInternalTree() throws IOException {
+        // Given
+        VerdictReader reader = new VerdictReader(model.getGson(), false);
+
+        // When
+        Verdict verdict = reader.read(new StringReader(DENY_RESPONSE));
+
+        // Then
+        assertDenyVerdict(verdict);
+        Assertions.assertThat(verdict).hasFieldOrPropertyWithValue("internal", null);
+    }
+
+    @Test
+    public void missingActionIsNotAVerdict() throws IOException {
+        VerdictReader reader = new VerdictReader(model.getGson(), true);
+
+        Assertions.assertThat(reader.read(new StringReader("{\"user_id\":\"12345\"}"))).isNull();
+        Assertions.assertThat(reader.read(new StringReader("{\"action\":null}"))).isNull();
+        Assertions.assertThat(reader.read(new StringReader(""))).isNull();
+    }
+
+    @Test(expected = JsonSyntaxException.class)
+    public void rejectsNonObjectResponse() throws IOException {
+        new VerdictReader(model.getGson(), false).read(new StringReader("[\"deny\"]"));
+    }
+
+    private void assertDenyVerdict(Verdict verdict) {
+        Assertions.assertThat(verdict.getAction()).isEqualTo(AuthenticateAction.DENY);
+        Assertions.assertThat(verdict.getUserId()).isEqualTo("12345");
+        Assertions.assertThat(verdict.getDeviceToken()).isEqualTo("abcdefg1234");
+        Assertions.assertThat(verdict.isFailover()).isFalse();
+        Assertions.assertThat(verdict.getRiskPolicy().getId()).isEqualTo("q-rbeMzBTdW2Fd09sbz55A");
+        Assertions.assertThat(verdict.getRiskPolicy().getRevisionId()).isEqualTo("pke4zqO2TnqVr-NHJOAHEg");
+        Assertions.assertThat(verdict.getRiskPolicy().getName()).isEqualTo("Block Users from X");
+        Assertions.assertThat(verdict.getRiskPolicy().getType()).isEqualTo(RiskPolicyType.BOT);
+    }
+}
@@ -124,6 +124,59 @@ public class ContextMergeTest {
     }
 
 
+    @Test
+    public void nullMembersAndArrayNumbersAreNormalized() throws JSONException {
+        String baseJson = "{\"a\":{\"x\":null,\"y\":1},\"c\":[1,true]}";
+        String additionJson = "{\"b\":{\"z\":[2]}}";
+        String expectedResult = "{\"a\":{\"y\":1},\"c\":[\"1\",\"true\"],\"b\":{\"z\":[\"2\"]}}";
+        runTestCase(baseJson, additionJson, expectedResult);
+    }
+
+    @Test
+    public void addedArrayItemsAreCopiedAsStrings() throws JSONException {
+        String baseJson = "{\"test\":[\"t1\"],\"o\":{\"u\":[\"x\"]}}";
+        String additionJson = "{\"test\":[1,true,{\"k\":null}],\"o\":{\"u\":[2]}}";
+        String expectedResult = "{\"test\":[\"t1\",\"1\",\"true\",{}],\"o\":{\"u\":[\"x\",\"2\"]}}";
+        runTestCase(baseJson, additionJson, expectedResult);
+    }
+
+    @Test
+    public void untouchedSubtreesOfNormalizedBaseAreShared() {
+        //Given
+        JsonParser jsonParser = new JsonParser();
+        JsonObject base = ContextMerge.normalize(jsonParser.parse("{\"headers\":{\"Host\":\"example.com\"},\"device\":{\"id\":\"1\"}}").getAsJsonObject());
+        JsonObject addition = jsonParser.parse("{\"device\":{\"name\":\"phone\"},\"library\":{\"name\":\"castle-java\"}}").getAsJsonObject();
+        String baseBefore = base.toString();
+
+        //When
+        JsonObject merged = new ContextMerge().mergeNormalized(base, addition);
+
+        //Then the untouched subtrees of the base are shared, and the addition is copied
+        Assertions.assertThat(merged.get("headers")).isSameAs(base.get("headers"));
+        Assertions.assertThat(merged.get("library")).isEqualTo(addition.get("library")).isNotSameAs(addition.get("library"));
+        Assertions.assertThat(merged.get("device")).isNotSameAs(base.get("device")).isNotSameAs(addition.get("device"));
+        Assertions.assertThat(base.toString()).isEqualTo(baseBefore);
+    }
+
+    @Test
+    public void inputsCanBeModifiedAfterTheMerge() {
+        //Given
+        JsonParser jsonParser = new JsonParser();
+        JsonObject base = jsonParser.parse("{\"headers\":{\"Host\":\"example.com\"},\"list\":[\"a\"]}").getAsJsonObject();
+        JsonObject addition = jsonParser.parse("{\"device\":{\"name\":\"phone\"},\"list\":[{\"b\":\"c\"}]}").getAsJsonObject();
+        JsonObject merged = new ContextMerge().merge(base, addition);
+        String mergedBefore = merged.toString();
+
+        //When both inputs are modified
+        base.getAsJsonObject("headers").addProperty("Host", "changed.com");
+        base.getAsJsonArray("list").add("changed");
+        addition.getAsJsonObject("device").addProperty("name", "changed");
+        addition.getAsJsonArray("list").get(0).getAsJsonObject().addProperty("b", "changed");
+
+        //Then the merged tree is unchanged
+        Assertions.assertThat(merged.toString()).isEqualTo(mergedBefore);
+    }
+
     private void runTestCase(String targetJson, String sourceJson, String expectedResult) throws JSONException {
         //Given
         JsonParser jsonParser = new JsonParser();
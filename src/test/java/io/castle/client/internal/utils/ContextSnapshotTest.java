@@ -0,0 +1,76 @@
+package io.castle.client.internal.utils;
+
+import com.google.gson.JsonObject;
+import io.castle.client.internal.json.CastleGsonModel;
+import io.castle.client.model.CastleContext;
+import io.castle.client.model.CastleSdkRef;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class ContextSnapshotTest {
+
+    private final CastleGsonModel model = new CastleGsonModel();
+
+    @Test
+    public void treeIsBuiltOnceOnFirstUse() {
+        //Given
+        CastleContext context = new CastleContext();
+        context.setIp("1.2.3.4");
+        ContextSnapshot snapshot = new ContextSnapshot(context, model.getGson());
+
+        //When
+        JsonObject json = snapshot.toJson();
+
+        //Then
+        Assertions.assertThat(json).isEqualTo(model.getGson().toJsonTree(context));
+        Assertions.assertThat(snapshot.toJson()).isSameAs(json);
+    }
+
+    @Test
+    public void libraryBlockIsNotSharedBetweenTrees() {
+        //Given two snapshots of different contexts
+        CastleContext first = new CastleContext();
+        first.setIp("1.2.3.4");
+        CastleContext second = new CastleContext();
+        second.setIp("5.6.7.8");
+        JsonObject firstJson = new ContextSnapshot(first, model.getGson()).toJson();
+
+        //When the library block of the first tree is changed
+        firstJson.getAsJsonObject("library").addProperty("name", "changed");
+
+        //Then the trees built afterwards keep the library block of the SDK
+        JsonObject secondJson = new ContextSnapshot(second, model.getGson()).toJson();
+        Assertions.assertThat(secondJson.getAsJsonObject("library"))
+                .isEqualTo(model.getGson().toJsonTree(CastleSdkRef.getInstance()));
+        Assertions.assertThat(secondJson.getAsJsonObject("library").get("name").getAsString()).isNotEqualTo("changed");
+    }
+
+    @Test
+    public void wrapsExistingTree() {
+        //Given
+        JsonObject json = new JsonObject();
+
+        //When
+        ContextSnapshot snapshot = ContextSnapshot.of(json);
+
+        //Then
+        Assertions.assertThat(snapshot.toJson()).isSameAs(json);
+        Assertions.assertThat(ContextSnapshot.of(null)).isNull();
+    }
+
+    @Test
+    public void jsonIsSerializedOnce() {
+        //Given
+        CastleContext context = new CastleContext();
+        context.setIp("1.2.3.4");
+        context.setUserAgent("Mozilla/5.0 <script> \u00e9");
+        ContextSnapshot snapshot = new ContextSnapshot(context, model.getGson());
+
+        //When
+        String text = snapshot.toJsonText();
+
+        //Then
+        Assertions.assertThat(text).isEqualTo(snapshot.toJson().toString());
+        Assertions.assertThat(snapshot.toJsonText()).isSameAs(text);
+    }
+}
@@ -0,0 +1,60 @@
+package io.castle.client.internal.utils;
+
+import com.google.common.collect.ImmutableList;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.util.Collections;
+
+public class HeaderFilterTest {
+
+    @Test
+    public void emptyWhiteListPassesEveryHeader() {
+        //given
+        HeaderFilter filter = new HeaderFilter(Collections.<String>emptyList(), ImmutableList.of("cookie"));
+        //when
+        //then
+        Assertions.assertThat(filter.isScrubbed("Accept-Language")).isFalse();
+        Assertions.assertThat(filter.isScrubbed("Cookie")).isTrue();
+    }
+
+    @Test
+    public void namesAreMatchedAsNormalized() {
+        //given
+        HeaderFilter filter = new HeaderFilter(ImmutableList.of("X-Forwarded-For", "user-agent"), ImmutableList.of("Authorization"));
+        //when
+        //then
+        Assertions.assertThat(filter.isScrubbed("x_forwarded_for")).isFalse();
+        Assertions.assertThat(filter.isScrubbed("USER-AGENT")).isFalse();
+        Assertions.assertThat(filter.isScrubbed("AUTHORIZATION")).isTrue();
+        Assertions.assertThat(filter.isScrubbed("user-agents")).isTrue();
+        Assertions.assertThat(filter.isScrubbed("Host")).isTrue();
+    }
+
+    @Test
+    public void blackListIsMoreRelevantThanWhiteList() {
+        //given
+        HeaderFilter filter = new HeaderFilter(ImmutableList.of("cookie", "host"), ImmutableList.of("cookie"));
+        //when
+        //then
+        Assertions.assertThat(filter.isScrubbed("Cookie")).isTrue();
+        Assertions.assertThat(filter.isScrubbed("Host")).isFalse();
+    }
+
+    @Test
+    public void manyHeaders() {
+        //given
+        ImmutableList.Builder<String> whiteList = ImmutableList.builder();
+        for (int i = 0; i < 100; i++) {
+            whiteList.add("X-Header-" + i);
+        }
+        HeaderFilter filter = new HeaderFilter(whiteList.build(), null);
+        //when
+        //then
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertThat(filter.isScrubbed("x_header_" + i)).isFalse();
+        }
+        Assertions.assertThat(filter.isScrubbed("x-header-100")).isTrue();
+        Assertions.assertThat(filter.isScrubbed(null)).isTrue();
+    }
+}
@@ -0,0 +1,88 @@
+package io.castle.client.internal.utils;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hashing;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class SecureUserIdSignerTest {
+
+    private final SecretKey key = new SecretKeySpec("test_api_secret".getBytes(Charsets.UTF_8), "HmacSHA256");
+
+    @Test
+    public void signatureIsHexHmac() {
+        //given
+        SecureUserIdSigner signer = new SecureUserIdSigner(key, 0);
+        //when
+        //then
+        for (String userId : ImmutableList.of("", "TestUserID", "user@example.com", "ünïcödé")) {
+            Assertions.assertThat(signer.sign(userId))
+                    .isEqualTo(Hashing.hmacSha256(key).hashString(userId, Charsets.UTF_8).toString());
+        }
+    }
+
+    @Test
+    public void cachedSignatureIsReturned() {
+        //given
+        SecureUserIdSigner signer = new SecureUserIdSigner(key, 1);
+        //when
+        String first = signer.sign("a");
+        //then
+        Assertions.assertThat(signer.sign("a")).isSameAs(first);
+        signer.sign("b");
+        Assertions.assertThat(signer.sign("a")).isNotSameAs(first).isEqualTo(first);
+    }
+
+    @Test
+    public void signAllKeepsOrderOfDistinctUserIds() {
+        //given
+        SecureUserIdSigner signer = new SecureUserIdSigner(key, 0);
+        //when
+        Map<String, String> signatures = signer.signAll(ImmutableList.of("c", "a", "c", "b"));
+        //then
+        Assertions.assertThat(signatures.keySet()).containsExactly("c", "a", "b");
+        Assertions.assertThat(signatures.get("a")).isEqualTo(signer.sign("a"));
+    }
+
+    @Test
+    public void threadsUseTheirOwnMac() throws Exception {
+        //given
+        final SecureUserIdSigner signer = new SecureUserIdSigner(key, 0);
+        final String expected = signer.sign("TestUserID");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            //when
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        for (int j = 0; j < 1000; j++) {
+                            if (!expected.equals(signer.sign("TestUserID"))) {
+                                return false;
+                            }
+                        }
+                        return true;
+                    }
+                }));
+            }
+            //then
+            for (Future<Boolean> result : results) {
+                Assertions.assertThat(result.get()).isTrue();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -2,6 +2,7 @@ package io.castle.client.model;
 
 import io.castle.client.internal.config.CastleConfiguration;
 import io.castle.client.internal.config.CastleConfigurationBuilder;
+import io.castle.client.internal.config.TimeoutConfiguration;
 import org.assertj.core.api.Assertions;
 import org.junit.Test;
 
@@ -73,4 +74,35 @@ public class CastleConfigurationBuilderTest {
         //then a exception is thrown
     }
 
-}
\ No newline at end of file
+    @Test
+    public void endpointTimeoutsFallBackToDefaults() throws CastleSdkConfigurationException {
+        //given
+        CastleConfigurationBuilder builder = CastleConfigurationBuilder.defaultConfigBuilder()
+                .withApiSecret("valid")
+                .withTimeout(1000)
+                .withCallTimeout(2000)
+                .withEndpointTimeout(CastleEndpoint.AUTHENTICATE, 300)
+                .withEndpointCallTimeout(CastleEndpoint.AUTHENTICATE, 500);
+
+        //when
+        TimeoutConfiguration timeouts = builder.build().getTimeoutConfiguration();
+
+        //then
+        Assertions.assertThat(timeouts.getTimeout(CastleEndpoint.AUTHENTICATE)).isEqualTo(300);
+        Assertions.assertThat(timeouts.getCallTimeout(CastleEndpoint.AUTHENTICATE)).isEqualTo(500);
+        Assertions.assertThat(timeouts.getTimeout(CastleEndpoint.TRACK)).isEqualTo(1000);
+        Assertions.assertThat(timeouts.getCallTimeout(CastleEndpoint.TRACK)).isEqualTo(2000);
+    }
+
+    @Test(expected = CastleSdkConfigurationException.class)
+    public void builderWithNegativeCallTimeoutException() throws CastleSdkConfigurationException {
+        //given
+        CastleConfigurationBuilder builder = CastleConfigurationBuilder.defaultConfigBuilder()
+                .withApiSecret("valid")
+                .withEndpointCallTimeout(CastleEndpoint.TRACK, -1);
+
+        //when
+        builder.build();
+        //then a exception is thrown
+    }
+}
@@ -1,6 +1,9 @@
 package io.castle.client.model;
 
 
+import io.castle.client.internal.json.CastleGsonModel;
+import io.castle.client.utils.SDKVersion;
+import org.assertj.core.api.Assertions;
 import org.junit.Assert;
 import org.junit.Test;
 import java.util.regex.Pattern;
@@ -16,4 +19,41 @@ public class CastleSdkRefVersionTest {
         Assert.assertTrue(Pattern.matches("\\d+(\\.\\d+)+(-SNAPSHOT)?", version.getVersion()));
     }
 
+    @Test
+    public void descriptorIsSharedByContexts() {
+        //Given two contexts
+        CastleContext first = new CastleContext();
+        CastleContext second = new CastleContext();
+
+        //Then they reference the same immutable descriptor
+        Assertions.assertThat(first.getLibrary()).isSameAs(CastleSdkRef.getInstance());
+        Assertions.assertThat(second.getLibrary()).isSameAs(CastleSdkRef.getInstance());
+        Assertions.assertThat(new CastleSdkRef()).isEqualTo(CastleSdkRef.getInstance());
+    }
+
+    @Test
+    public void cachedJsonMatchesTheLibraryBlock() {
+        //When the descriptor is serialized
+        String json = new CastleGsonModel().getGson().toJson(CastleSdkRef.getInstance());
+
+        //Then the cached form is the library block sent to the API
+        Assertions.assertThat("\"library\":" + json).isEqualTo(SDKVersion.getLibraryString());
+    }
+
+    @Test
+    public void deserializedDescriptorKeepsItsValues() {
+        //Given a context serialized by another SDK version
+        String json = "{\"library\":{\"name\":\"castle-java\",\"version\":\"0.1.0\",\"platform\":\"JVM\",\"platform_version\":\"1\"}}";
+
+        //When it is deserialized
+        CastleContext context = new CastleGsonModel().getGson().fromJson(json, CastleContext.class);
+
+        //Then the descriptor of the payload is kept, without altering the shared one
+        Assertions.assertThat(context.getLibrary().getVersion()).isEqualTo("0.1.0");
+        Assertions.assertThat(context.getLibrary().getPlatformVersion()).isEqualTo("1");
+        Assertions.assertThat(CastleSdkRef.getInstance().getVersion()).isNotEqualTo("0.1.0");
+        Assertions.assertThat(new CastleGsonModel().getGson().toJson(context.getLibrary()))
+                .isEqualTo("{\"name\":\"castle-java\",\"version\":\"0.1.0\",\"platform\":\"JVM\",\"platform_version\":\"1\"}");
+    }
+
 }
@@ -0,0 +1,71 @@
+package io.castle.client.model;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class HistogramTest {
+
+    @Test
+    public void bucketsAreContiguous() {
+        //Given
+        long previous = -1;
+
+        //Then every value is in the bucket following the one of the previous upper bound
+        for (int index = 0; Histogram.bucketUpperBound(index) < Histogram.MAX_VALUE; index++) {
+            long upper = Histogram.bucketUpperBound(index);
+            Assertions.assertThat(Histogram.bucketIndex(previous + 1)).isEqualTo(index);
+            Assertions.assertThat(Histogram.bucketIndex(upper)).isEqualTo(index);
+            previous = upper;
+        }
+    }
+
+    @Test
+    public void percentilesAreWithinBucketPrecision() {
+        //Given
+        Histogram histogram = new Histogram();
+
+        //When
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+
+        //Then
+        HistogramSnapshot snapshot = histogram.snapshot();
+        Assertions.assertThat(snapshot.getCount()).isEqualTo(1000);
+        Assertions.assertThat(snapshot.getMax()).isEqualTo(1000);
+        Assertions.assertThat(snapshot.getMean()).isEqualTo(500.5);
+        Assertions.assertThat(snapshot.getValueAtPercentile(50)).isBetween(500L, 500L + 500 / Histogram.SUB_BUCKETS);
+        Assertions.assertThat(snapshot.getValueAtPercentile(99)).isBetween(990L, 1000L);
+        Assertions.assertThat(snapshot.getValueAtPercentile(100)).isEqualTo(1000);
+    }
+
+    @Test
+    public void resetForgetsValues() {
+        //Given
+        Histogram histogram = new Histogram();
+        histogram.record(42);
+
+        //When
+        histogram.reset();
+
+        //Then
+        HistogramSnapshot snapshot = histogram.snapshot();
+        Assertions.assertThat(snapshot.getCount()).isEqualTo(0);
+        Assertions.assertThat(snapshot.getValueAtPercentile(99)).isEqualTo(0);
+    }
+
+    @Test
+    public void outOfRangeValuesAreCapped() {
+        //Given
+        Histogram histogram = new Histogram();
+
+        //When
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        //Then
+        HistogramSnapshot snapshot = histogram.snapshot();
+        Assertions.assertThat(snapshot.getValueAtPercentile(50)).isEqualTo(0);
+        Assertions.assertThat(snapshot.getMax()).isEqualTo(Histogram.MAX_VALUE);
+    }
+}